@@ -0,0 +1,125 @@
+package com.example.appdev.helpers;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A room of generated chat messages in an offline database of its own, for timing and
+ * measuring message decoding on a device. The database never goes online and has no
+ * disk persistence, so nothing is sent to a server or left behind.
+ */
+final class LocalMessageRoom implements AutoCloseable {
+
+    private static final long FILL_TIMEOUT_SECONDS = 120;
+    private static final long FIRST_TIMESTAMP = 1_700_000_000_000L;
+    private static final String[] SENDERS = {"Xb7kQ2mR9pLwT4vN8sYc3dHf6gJ1", "aE5uZ0iO3yWq7rTt2pLm9kNb4vCx"};
+
+    private final FirebaseApp app;
+    private final DatabaseReference roomRef;
+
+    private LocalMessageRoom(FirebaseApp app, DatabaseReference roomRef) {
+        this.app = app;
+        this.roomRef = roomRef;
+    }
+
+    static LocalMessageRoom create(Context context) {
+        FirebaseOptions options = new FirebaseOptions.Builder()
+                .setApplicationId("1:000000000000:android:0000000000000000")
+                .setApiKey("local-only")
+                .setProjectId("appdev-local")
+                .setDatabaseUrl("https://appdev-local.firebaseio.com")
+                .build();
+        FirebaseApp app = FirebaseApp.initializeApp(context, options, "local-" + System.nanoTime());
+        FirebaseDatabase database = FirebaseDatabase.getInstance(app);
+        database.goOffline();
+        return new LocalMessageRoom(app, database.getReference("messages").child(SENDERS[0] + "_" + SENDERS[1]));
+    }
+
+    /**
+     * Write a room of messageCount messages shaped like the ones ChatActivity sends
+     * @return The room's snapshot, one child per message
+     */
+    DataSnapshot fill(int messageCount) throws InterruptedException {
+        Map<String, Object> messages = new HashMap<>();
+        for (int i = 0; i < messageCount; i++) {
+            String messageId = String.format(Locale.ROOT, "-Nmsg%07d", i);
+            messages.put(messageId, messageData(i, messageId));
+        }
+        roomRef.setValue(messages);
+
+        // Offline, the local write alone completes the room, so the read is answered locally
+        CountDownLatch loaded = new CountDownLatch(1);
+        AtomicReference<DataSnapshot> room = new AtomicReference<>();
+        roomRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                room.set(snapshot);
+                loaded.countDown();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                loaded.countDown();
+            }
+        });
+        if (!loaded.await(FILL_TIMEOUT_SECONDS, TimeUnit.SECONDS) || room.get() == null) {
+            throw new IllegalStateException("Room of " + messageCount + " messages did not load");
+        }
+        return room.get();
+    }
+
+    @Override
+    public void close() {
+        app.delete();
+    }
+
+    private static Map<String, Object> messageData(int index, String messageId) {
+        String sender = SENDERS[index % 2];
+        Map<String, Object> data = new HashMap<>();
+        data.put("messageId", messageId);
+        data.put("message", "Message " + index + " about the plans for " + (index % 7 == 0
+                ? "the weekend, the trip and who is bringing what to dinner on Saturday"
+                : "tomorrow"));
+        data.put("timestamp", FIRST_TIMESTAMP + index * 15_000L);
+        data.put("senderId", wire(sender));
+        data.put("senderLanguage", wire(index % 2 == 0 ? "English" : "Spanish"));
+        data.put("translationMode", wire("casual"));
+        data.put("translationState", wire("TRANSLATED"));
+
+        Map<String, Object> translations = new HashMap<>();
+        translations.put(wire("English"), "Message " + index + " in English");
+        translations.put(wire("Spanish"), "Mensaje " + index + " en español");
+        if (index % 3 == 0) {
+            translations.put(wire("Japanese"), "メッセージ " + index);
+        }
+        data.put("translations", translations);
+
+        if (index % 10 == 9) {
+            data.put("replyToMessageId", String.format(Locale.ROOT, "-Nmsg%07d", index - 1));
+            data.put("replyToSenderId", wire(SENDERS[(index - 1) % 2]));
+            data.put("replyToMessage", "Message " + (index - 1));
+        }
+        return data;
+    }
+
+    // Messages read from the server hold their own copy of every repeated value, like these
+    private static String wire(String value) {
+        return new String(value.toCharArray());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.appdev.helpers;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.appdev.models.Message;
+import com.google.firebase.database.DataSnapshot;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the heap a decoded 50k-message room keeps reachable. The retained size is logged
+ * under the MessageFootprintTest tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MessageFootprintTest {
+
+    private static final String TAG = "MessageFootprintTest";
+
+    private static final int ROOM_SIZE = 50_000;
+
+    // These messages took 930 bytes each before the models were slimmed and 477 after, but
+    // on a desktop JVM, not on ART. Until the logged number from a device replaces it, the
+    // budget only catches a return to the old size.
+    private static final long MAX_BYTES_PER_MESSAGE = 640;
+
+    @Test
+    public void roomOf50kMessages_staysWithinBudget() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // Load the database and model classes first so they are not counted
+        decodeRoom(context, 100);
+
+        long before = usedHeap();
+        List<Message> messages = decodeRoom(context, ROOM_SIZE);
+        long retained = usedHeap() - before;
+        long perMessage = retained / messages.size();
+        Log.i(TAG, String.format(Locale.ROOT, "%d messages retain %.1f MB, %d bytes per message",
+                messages.size(), retained / (1024.0 * 1024.0), perMessage));
+
+        assertEquals(ROOM_SIZE, messages.size());
+        assertTrue(perMessage + " bytes per message, budget is " + MAX_BYTES_PER_MESSAGE,
+                perMessage <= MAX_BYTES_PER_MESSAGE);
+    }
+
+    // The room is closed before returning, so only the decoded messages stay reachable
+    private static List<Message> decodeRoom(Context context, int messageCount) throws InterruptedException {
+        try (LocalMessageRoom room = LocalMessageRoom.create(context)) {
+            List<Message> messages = new ArrayList<>(messageCount);
+            for (DataSnapshot child : room.fill(messageCount).getChildren()) {
+                messages.add(SnapshotMappers.toMessage(child));
+            }
+            return messages;
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
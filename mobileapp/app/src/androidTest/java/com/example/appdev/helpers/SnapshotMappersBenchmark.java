@@ -0,0 +1,117 @@
+package com.example.appdev.helpers;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.appdev.models.Message;
+import com.google.firebase.database.DataSnapshot;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times decoding a room's messages with SnapshotMappers against getValue(Message.class).
+ * Results are logged under the SnapshotMappersBenchmark tag, e.g.
+ * adb logcat -s SnapshotMappersBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class SnapshotMappersBenchmark {
+
+    private static final String TAG = "SnapshotMappersBenchmark";
+
+    // Timed runs per decoder after one warm-up run; the median is reported
+    private static final int RUNS = 5;
+
+    private interface Decoder {
+        List<Message> decode(DataSnapshot room);
+    }
+
+    @Test
+    public void decodeRoomOf1kMessages() throws Exception {
+        benchmark(1_000);
+    }
+
+    @Test
+    public void decodeRoomOf10kMessages() throws Exception {
+        benchmark(10_000);
+    }
+
+    @Test
+    public void decodeRoomOf50kMessages() throws Exception {
+        benchmark(50_000);
+    }
+
+    private void benchmark(int messageCount) throws Exception {
+        try (LocalMessageRoom room = LocalMessageRoom.create(
+                InstrumentationRegistry.getInstrumentation().getTargetContext())) {
+            DataSnapshot snapshot = room.fill(messageCount);
+            assertEquals(messageCount, snapshot.getChildrenCount());
+
+            Decoder mappers = SnapshotMappersBenchmark::decodeWithMappers;
+            Decoder reflective = SnapshotMappersBenchmark::decodeReflectively;
+            // Both decoders must produce the same messages for the timings to compare
+            assertSameMessages(mappers.decode(snapshot), reflective.decode(snapshot));
+
+            long mapperNs = medianNanos(mappers, snapshot);
+            long reflectiveNs = medianNanos(reflective, snapshot);
+            Log.i(TAG, String.format(Locale.ROOT,
+                    "%d messages: SnapshotMappers %.1f ms, getValue(Message.class) %.1f ms (%.1fx)",
+                    messageCount, mapperNs / 1e6, reflectiveNs / 1e6, (double) reflectiveNs / mapperNs));
+        }
+    }
+
+    private static List<Message> decodeWithMappers(DataSnapshot room) {
+        List<Message> messages = new ArrayList<>((int) room.getChildrenCount());
+        for (DataSnapshot child : room.getChildren()) {
+            messages.add(SnapshotMappers.toMessage(child));
+        }
+        return messages;
+    }
+
+    private static List<Message> decodeReflectively(DataSnapshot room) {
+        List<Message> messages = new ArrayList<>((int) room.getChildrenCount());
+        for (DataSnapshot child : room.getChildren()) {
+            messages.add(child.getValue(Message.class));
+        }
+        return messages;
+    }
+
+    private static long medianNanos(Decoder decoder, DataSnapshot room) {
+        decoder.decode(room);
+        long[] runs = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            decoder.decode(room);
+            runs[i] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+        Arrays.sort(runs);
+        return runs[RUNS / 2];
+    }
+
+    private static void assertSameMessages(List<Message> expected, List<Message> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<Message> actualMessages = actual.iterator();
+        for (Message message : expected) {
+            Message other = actualMessages.next();
+            assertEquals(message.getMessageId(), other.getMessageId());
+            assertEquals(message.getMessage(), other.getMessage());
+            assertEquals(message.getTimestamp(), other.getTimestamp());
+            assertEquals(message.getSenderId(), other.getSenderId());
+            assertEquals(message.getSenderLanguage(), other.getSenderLanguage());
+            assertEquals(message.getTranslationState(), other.getTranslationState());
+            assertEquals(message.getTranslations(), other.getTranslations());
+            assertEquals(message.getReplyToMessageId(), other.getReplyToMessageId());
+        }
+    }
+}
@@ -16,8 +16,10 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import com.example.appdev.adapters.AddMembersAdapter;
+import com.example.appdev.helpers.UserGroupsIndex;
 import com.example.appdev.models.User;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.UserSearch;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
@@ -40,8 +42,21 @@ public class AddGroupMembersActivity extends AppCompatActivity {
     private ImageView imageViewBack;
     
     private AddMembersAdapter adapter;
-    private List<User> allContacts;
     private List<User> filteredContacts;
+    private final UserSearch contactSearch = new UserSearch(new UserSearch.Callback() {
+        @Override
+        public void onResults(String query, List<User> users) {
+            showContacts(query, users);
+        }
+
+        @Override
+        public void onError(DatabaseError error) {
+            progressBar.setVisibility(View.GONE);
+            textViewNoContacts.setVisibility(View.VISIBLE);
+            CustomNotification.showNotification(AddGroupMembersActivity.this,
+                "Failed to load contacts: " + error.getMessage(), false);
+        }
+    });
     private HashMap<String, Boolean> selectedUsers;
     private String groupId;
     private List<String> currentMemberIds;
@@ -70,7 +85,6 @@ public class AddGroupMembersActivity extends AppCompatActivity {
         imageViewBack = findViewById(R.id.imageViewBack);
         
         // Setup collections
-        allContacts = new ArrayList<>();
         filteredContacts = new ArrayList<>();
         selectedUsers = new HashMap<>();
         currentMemberIds = new ArrayList<>();
@@ -149,6 +163,7 @@ public class AddGroupMembersActivity extends AppCompatActivity {
         if (groupMemberRef != null && membershipListener != null) {
             groupMemberRef.removeEventListener(membershipListener);
         }
+        contactSearch.cancel();
     }
     
     private void loadCurrentMembers() {
@@ -201,77 +216,41 @@ public class AddGroupMembersActivity extends AppCompatActivity {
     }
     
     private void loadContacts() {
-        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("users");
-        
-        usersRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                allContacts.clear();
-                
-                for (DataSnapshot dataSnapshot : snapshot.getChildren()) {
-                    User user = dataSnapshot.getValue(User.class);
-                    String userId = dataSnapshot.getKey();
-                    
-                    // Skip current user and users already in the group
-                    if (user != null && userId != null && !userId.equals(currentUserId) 
-                            && !currentMemberIds.contains(userId)) {
-                        user.setUserId(userId);
-                        allContacts.add(user);
-                    }
-                }
-                
-                progressBar.setVisibility(View.GONE);
-                
-                if (allContacts.isEmpty()) {
-                    textViewNoContacts.setText("No more contacts to add");
-                    textViewNoContacts.setVisibility(View.VISIBLE);
-                } else {
-                    textViewNoContacts.setVisibility(View.GONE);
-                    filteredContacts.addAll(allContacts);
-                    adapter.notifyDataSetChanged();
-                }
-            }
+        progressBar.setVisibility(View.VISIBLE);
+        // First page of users by name; typing narrows it with an indexed prefix search
+        contactSearch.searchNow("");
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                progressBar.setVisibility(View.GONE);
-                textViewNoContacts.setVisibility(View.VISIBLE);
-                CustomNotification.showNotification(AddGroupMembersActivity.this, 
-                    "Failed to load contacts: " + error.getMessage(), false);
-            }
-        });
-        
         // Enable/disable add button based on selections
         adapter.setOnSelectionChangedListener(count -> {
             buttonAdd.setEnabled(count > 0);
             buttonAdd.setText(count > 0 ? "Add " + count + " Members" : "Add Members");
         });
     }
-    
-    private void filterContacts(String query) {
+
+    private void showContacts(String query, List<User> users) {
+        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        progressBar.setVisibility(View.GONE);
         filteredContacts.clear();
-        
-        if (query.isEmpty()) {
-            filteredContacts.addAll(allContacts);
-        } else {
-            for (User user : allContacts) {
-                if (user.getUsername() != null && user.getUsername().toLowerCase().contains(query) ||
-                    user.getEmail() != null && user.getEmail().toLowerCase().contains(query)) {
-                    filteredContacts.add(user);
-                }
+        for (User user : users) {
+            // Skip current user and users already in the group
+            if (!user.getUserId().equals(currentUserId)
+                    && !currentMemberIds.contains(user.getUserId())) {
+                filteredContacts.add(user);
             }
         }
-        
         adapter.notifyDataSetChanged();
-        
+
         if (filteredContacts.isEmpty()) {
-            textViewNoContacts.setText("No contacts found");
+            textViewNoContacts.setText(query.trim().isEmpty() ? "No more contacts to add" : "No contacts found");
             textViewNoContacts.setVisibility(View.VISIBLE);
         } else {
             textViewNoContacts.setVisibility(View.GONE);
         }
     }
+
+    private void filterContacts(String query) {
+        contactSearch.search(query);
+    }
     
     private void addMembersToGroup() {
         if (selectedUsers.isEmpty()) {
@@ -281,18 +260,14 @@ public class AddGroupMembersActivity extends AppCompatActivity {
         progressBar.setVisibility(View.VISIBLE);
         buttonAdd.setEnabled(false);
         
-        // Get database reference to the group members
-        DatabaseReference groupMembersRef = FirebaseDatabase.getInstance().getReference("groups")
-                .child(groupId).child("members");
-        
-        // Create map of updates to perform
+        // Add the members and their user_groups entries in one update
         Map<String, Object> updates = new HashMap<>();
         for (String userId : selectedUsers.keySet()) {
-            updates.put(userId, false); // Add as regular member (not admin)
+            UserGroupsIndex.putMember(updates, groupId, userId, false); // Add as regular member (not admin)
         }
         
         // Update the database
-        groupMembersRef.updateChildren(updates)
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
                 .addOnSuccessListener(aVoid -> {
                     progressBar.setVisibility(View.GONE);
                     int count = selectedUsers.size();
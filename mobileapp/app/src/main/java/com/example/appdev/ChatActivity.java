@@ -21,8 +21,14 @@ import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
 import com.example.appdev.adapters.ChatAdapter;
+import com.example.appdev.helpers.UserChatsIndex;
+import com.example.appdev.helpers.SnapshotMappers;
 import com.example.appdev.models.Message;
+import com.example.appdev.models.User;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.UserProfileStore;
+import com.example.appdev.utils.MessageStream;
+import com.example.appdev.utils.TranslationJobQueue;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
@@ -36,15 +42,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 
-import android.os.AsyncTask;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.io.OutputStream;
 import java.util.Map;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 
 public class ChatActivity extends AppCompatActivity {
 
@@ -57,8 +58,10 @@ public class ChatActivity extends AppCompatActivity {
     private static final int SPEECH_REQUEST_CODE = 1;
     private DatabaseReference contactSettingsRef;
     private boolean translateEnabled = false;
-    private int previousMessageCount = 0;
+    private MessageStream<Message> messageStream;
     private String recipientTranslator = "google"; // default value
+    private final UserProfileStore.Observer recipientProfileObserver =
+            (userId, profile) -> applyRecipientProfile(profile);
     private String recipientId;
     
     // Reply UI elements
@@ -86,26 +89,6 @@ public class ChatActivity extends AppCompatActivity {
         // Store recipientId as class field
         recipientId = getIntent().getStringExtra("userId");
         
-        // Add listener for recipient's translator preference
-        DatabaseReference recipientTranslatorRef = FirebaseDatabase.getInstance()
-                .getReference()
-                .child("users")
-                .child(recipientId)
-                .child("translator");
-                
-        recipientTranslatorRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    recipientTranslator = dataSnapshot.getValue(String.class);
-                }
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                recipientTranslator = "google"; // fallback to default
-            }
-        });
 
         // Generate a unique room ID for the conversation using the sender and recipient IDs
         String senderId = FirebaseAuth.getInstance().getCurrentUser().getUid();
@@ -183,16 +166,9 @@ public class ChatActivity extends AppCompatActivity {
 
         loadMessages();
 
-        DatabaseReference recipientLanguageRef = FirebaseDatabase.getInstance().getReference("users").child(recipientId).child("language");
-        recipientLanguageRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                recipientLanguage = dataSnapshot.getValue(String.class);
-            }
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-            }
-        });
+        // Recipient's language and translator come from the shared profile store
+        applyRecipientProfile(UserProfileStore.peek(recipientId));
+        UserProfileStore.subscribe(recipientId, recipientProfileObserver);
 
         de.hdodenhof.circleimageview.CircleImageView imageViewUserPicture = findViewById(R.id.imageViewUserPicture);
 
@@ -305,8 +281,15 @@ public class ChatActivity extends AppCompatActivity {
                 messageData.put("replyToMessage", replyingToMessage.getMessage());
             }
 
-            // Save the message to Firebase
-            messagesRef.child(roomId).child(messageId).setValue(messageData)
+            // Save the message and both participants' chat list summaries in one write
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("messages/" + roomId + "/" + messageId, messageData);
+            UserChatsIndex.putDirectSummary(updates, senderId, recipientId, roomId,
+                    messageId, message, senderId, timestamp);
+            UserChatsIndex.putDirectSummary(updates, recipientId, senderId, roomId,
+                    messageId, message, senderId, timestamp);
+
+            FirebaseDatabase.getInstance().getReference().updateChildren(updates)
                 .addOnSuccessListener(aVoid -> {
                     // Message saved successfully, now translate it
                     translateMessage(targetLanguage, message, messageId);
@@ -339,57 +322,17 @@ public class ChatActivity extends AppCompatActivity {
             requestBody.put("message_id", messageId);
             requestBody.put("update_state", true); // Tell API to update translationState
             
-            String apiUrl = Variables.API_TRANSLATE_DB_URL;
-            
-            new AsyncTask<Void, Void, Boolean>() {
-                @Override
-                protected Boolean doInBackground(Void... voids) {
-                    try {
-                        URL url = new URL(apiUrl);
-                        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                        conn.setRequestMethod("POST");
-                        conn.setRequestProperty("Content-Type", "application/json");
-                        conn.setDoOutput(true);
-
-                        try (OutputStream os = conn.getOutputStream()) {
-                            byte[] input = requestBody.toString().getBytes("utf-8");
-                            os.write(input, 0, input.length);
-                        }
-
-                        if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                            StringBuilder response = new StringBuilder();
-                            try (BufferedReader br = new BufferedReader(
-                                    new InputStreamReader(conn.getInputStream(), "utf-8"))) {
-                                String responseLine;
-                                while ((responseLine = br.readLine()) != null) {
-                                    response.append(responseLine.trim());
-                                }
-                                
-                                // With API_TRANSLATE_DB_URL, Firebase is updated directly by the server
-                                return true;
-                            }
-                        } else {
-                            // If translation fails, set state back to null
-                            DatabaseReference messageRef = messagesRef.child(roomId).child(messageId);
-                            messageRef.child("translationState").setValue(null);
-                            return false;
-                        }
-                    } catch (Exception e) {
-                        Log.e("ChatActivity", "Error translating message: " + e.getMessage());
-                        // If translation fails, set state back to null
-                        DatabaseReference messageRef = messagesRef.child(roomId).child(messageId);
-                        messageRef.child("translationState").setValue(null);
-                        return false;
-                    }
-                }
+            // If the translation can never be delivered, clear the TRANSLATING state
+            JSONObject failureUpdates = new JSONObject();
+            failureUpdates.put("messages/" + roomId + "/" + messageId + "/translationState", JSONObject.NULL);
 
-                @Override
-                protected void onPostExecute(Boolean success) {
-                    if (!success) {
-                        Log.e("ChatActivity", "Failed to translate message");
-                    }
-                }
-            }.execute();
+            // The recipient's chat list previews the translation once it arrives
+            JSONArray previewPaths = new JSONArray();
+            previewPaths.put(UserChatsIndex.summaryPath(recipientId, roomId));
+
+            // Queued on disk so the translation is retried until it reaches the server
+            TranslationJobQueue.enqueue(this, roomId, Variables.API_PATH_TRANSLATE_DB, requestBody, failureUpdates,
+                    previewPaths, targetLanguage);
         } catch (Exception e) {
             Log.e("ChatActivity", "Error creating JSON request: " + e.getMessage());
             // If JSON creation fails, set state back to null
@@ -479,32 +422,42 @@ public class ChatActivity extends AppCompatActivity {
     private void loadMessages() {
         String roomId = this.roomId;
         if (roomId != null) {
-            messagesRef.child(roomId).orderByChild("timestamp").addValueEventListener(new ValueEventListener() {
+            messageStream = new MessageStream<>(messagesRef.child(roomId), SnapshotMappers::toMessage, new MessageStream.Listener<Message>() {
                 @Override
-                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                    List<Message> messages = new ArrayList<>();
-                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                        Message message = snapshot.getValue(Message.class);
-                        if (message != null) {
-                            messages.add(message);
-                        }
-
-                    }
-                    chatAdapter.setMessages(messages);
-                    
-                    // Only scroll if new messages are added
-                    int newSize = messages.size();
-                    if (newSize > previousMessageCount) {
+                public void onPageLoaded(List<Message> messages, boolean hasMore) {
+                    boolean firstPage = chatAdapter.getItemCount() == 0;
+                    chatAdapter.prependMessages(messages);
+                    if (firstPage && chatAdapter.getItemCount() > 0) {
                         recyclerViewChat.scrollToPosition(chatAdapter.getItemCount() - 1);
                     }
-                    previousMessageCount = newSize;
                 }
-                
+
+                @Override
+                public void onMessageAdded(Message message) {
+                    // Only scroll when the new message lands at the bottom
+                    int position = chatAdapter.addOrUpdateMessage(message);
+                    if (position >= 0 && position == chatAdapter.getItemCount() - 1) {
+                        recyclerViewChat.scrollToPosition(position);
+                    }
+                }
+
+                @Override
+                public void onMessageChanged(Message message) {
+                    chatAdapter.addOrUpdateMessage(message);
+                }
+
                 @Override
-                public void onCancelled(@NonNull DatabaseError databaseError) {
-                    Log.e("ConversationModeActivity", "Error loading messages: " + databaseError.getMessage());
+                public void onMessageRemoved(String messageId) {
+                    chatAdapter.removeMessage(messageId);
+                }
+
+                @Override
+                public void onError(DatabaseError databaseError) {
+                    Log.e("ChatActivity", "Error loading messages: " + databaseError.getMessage());
                 }
             });
+            messageStream.attachPaging(recyclerViewChat);
+            messageStream.start();
         }
     }
 
@@ -530,9 +483,30 @@ public class ChatActivity extends AppCompatActivity {
             }
         }
     }
-    
-    
-    
+
+    private void applyRecipientProfile(User profile) {
+        if (profile == null) {
+            return;
+        }
+        if (profile.getLanguage() != null) {
+            recipientLanguage = profile.getLanguage();
+        }
+        if (profile.getTranslator() != null) {
+            recipientTranslator = profile.getTranslator();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        UserProfileStore.unsubscribe(recipientId, recipientProfileObserver);
+        chatAdapter.release();
+        // Stop listening to the room's messages
+        if (messageStream != null) {
+            messageStream.stop();
+        }
+    }
+
     /**
      * Gets the RecyclerView for scrolling to messages
      * @return The RecyclerView instance
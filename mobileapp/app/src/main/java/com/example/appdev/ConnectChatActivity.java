@@ -21,8 +21,17 @@ import android.widget.TextView;
 import com.bumptech.glide.Glide;
 import com.example.appdev.adapters.ChatAdapter;
 import com.example.appdev.adapters.ConnectChatAdapter;
+import com.example.appdev.helpers.ConnectSessions;
+import com.example.appdev.helpers.ConnectionsIndex;
+import com.example.appdev.helpers.SnapshotMappers;
+import com.example.appdev.models.ConnectSession;
 import com.example.appdev.models.Message;
+import com.example.appdev.models.User;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.UserProfileStore;
+import com.example.appdev.utils.MessageStream;
+import com.example.appdev.utils.ModelRouter;
+import com.example.appdev.utils.TranslationJobQueue;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
@@ -37,14 +46,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-import android.os.AsyncTask;
 
 import org.json.JSONObject;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.io.OutputStream;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 
 public class ConnectChatActivity extends AppCompatActivity {
 
@@ -60,10 +63,17 @@ public class ConnectChatActivity extends AppCompatActivity {
     private ChatAdapter chatAdapter;
     private DatabaseReference messagesRef;
     private String sessionId, recipientLanguage;
+    private final UserProfileStore.Observer recipientProfileObserver =
+            (userId, profile) -> applyRecipientProfile(profile);
     private static final int SPEECH_REQUEST_CODE = 1;
+    // Allowance for clock differences between the two devices around the session start
+    private static final long SESSION_CLOCK_SKEW_MS = 2000;
     private DatabaseReference contactSettingsRef;
     private boolean translateEnabled = false;
-    private int previousMessageCount = 0;
+    private MessageStream<Message> messageStream;
+    // Loaded messages from before this session, kept while history is hidden
+    private final Map<String, Message> historyMessages = new HashMap<>();
+    private boolean historyRequested = false;
     private String recipientId;
     private long sessionStartTime;
     private boolean sessionEnded = false;
@@ -71,8 +81,9 @@ public class ConnectChatActivity extends AppCompatActivity {
     private ImageButton buttonHistory;
     private Button buttonChangeLanguage;
     private ImageButton buttonChangeTranslator;
-    private ValueEventListener sessionEndListener;
     private SpeechRecognitionHelper speechHelper;
+    private DatabaseReference sessionStateRef;
+    private ValueEventListener sessionStateListener;
 
     // Reply UI elements
     private LinearLayout replyContainer;
@@ -215,16 +226,12 @@ public class ConnectChatActivity extends AppCompatActivity {
         // Set up real-time listener for messages (shows current session messages)
         setupRealtimeListener();
 
-        DatabaseReference recipientLanguageRef = FirebaseDatabase.getInstance().getReference("users").child(recipientId).child("language");
-        recipientLanguageRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                recipientLanguage = dataSnapshot.getValue(String.class);
-            }
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-            }
-        });
+        // Learn about the session ending from its state record
+        watchSessionState();
+
+        // Recipient's language and translator come from the shared profile store
+        applyRecipientProfile(UserProfileStore.peek(recipientId));
+        UserProfileStore.subscribe(recipientId, recipientProfileObserver);
 
         de.hdodenhof.circleimageview.CircleImageView imageViewUserPicture = findViewById(R.id.imageViewUserPicture);
 
@@ -258,9 +265,6 @@ public class ConnectChatActivity extends AppCompatActivity {
                 .child("users")
                 .child(recipientId);  // Changed from senderId to recipientId
 
-        // Listen for session end messages
-        listenForSessionEnd();
-
         contactSettingsRef = FirebaseDatabase.getInstance().getReference()
                 .child("users")
                 .child(recipientId)
@@ -326,8 +330,12 @@ public class ConnectChatActivity extends AppCompatActivity {
                 messageData.put("replyToMessage", replyingToMessage.getMessage());
             }
 
-            // Save the message to Firebase
-            messagesRef.child(sessionId).child(messageId).setValue(messageData)
+            // Save the message and both participants' connection records in one write
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("connect_chats/" + sessionId + "/" + messageId, messageData);
+            ConnectionsIndex.putMessage(updates, senderId, recipientId, sessionId, timestamp);
+
+            FirebaseDatabase.getInstance().getReference().updateChildren(updates)
                 .addOnSuccessListener(aVoid -> {
                     // Message saved successfully, now translate it
                     translateMessage(targetLanguage, message, messageId);
@@ -349,7 +357,7 @@ public class ConnectChatActivity extends AppCompatActivity {
             requestBody.put("target_language", targetLanguage);
             requestBody.put("translation_mode", Variables.isFormalTranslationMode ? "formal" : "casual");
             requestBody.put("variants", "single"); // Add variants parameter explicitly
-            requestBody.put("model", Variables.userTranslator);
+            requestBody.put("model", ModelRouter.route(Variables.userTranslator, Variables.userLanguage, targetLanguage));
             requestBody.put("room_id", sessionId);
             requestBody.put("message_id", messageId);
             requestBody.put("current_user_id", FirebaseAuth.getInstance().getCurrentUser().getUid());
@@ -358,57 +366,13 @@ public class ConnectChatActivity extends AppCompatActivity {
             requestBody.put("use_context", true); // Enable context-aware translation
             requestBody.put("session_start_time", sessionStartTime); // Only use messages from current session
 
-            String apiUrl = Variables.API_TRANSLATE_DB_CONTEXT_URL;
+            // If the translation can never be delivered, clear the TRANSLATING state
+            JSONObject failureUpdates = new JSONObject();
+            failureUpdates.put("connect_chats/" + sessionId + "/" + messageId + "/translationState", JSONObject.NULL);
 
-            new AsyncTask<Void, Void, Boolean>() {
-                @Override
-                protected Boolean doInBackground(Void... voids) {
-                    try {
-                        URL url = new URL(apiUrl);
-                        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                        conn.setRequestMethod("POST");
-                        conn.setRequestProperty("Content-Type", "application/json");
-                        conn.setDoOutput(true);
-
-                        try (OutputStream os = conn.getOutputStream()) {
-                            byte[] input = requestBody.toString().getBytes("utf-8");
-                            os.write(input, 0, input.length);
-                        }
-
-                        if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                            StringBuilder response = new StringBuilder();
-                            try (BufferedReader br = new BufferedReader(
-                                    new InputStreamReader(conn.getInputStream(), "utf-8"))) {
-                                String responseLine;
-                                while ((responseLine = br.readLine()) != null) {
-                                    response.append(responseLine.trim());
-                                }
-
-                                // With API_TRANSLATE_DB_CONTEXT_URL, Firebase is updated directly by the server
-                                return true;
-                            }
-                        } else {
-                            // If translation fails, set state back to null
-                            DatabaseReference messageRef = messagesRef.child(sessionId).child(messageId);
-                            messageRef.child("translationState").setValue(null);
-                            return false;
-                        }
-                    } catch (Exception e) {
-                        Log.e("ConnectChatActivity", "Error translating message: " + e.getMessage());
-                        // If translation fails, set state back to null
-                        DatabaseReference messageRef = messagesRef.child(sessionId).child(messageId);
-                        messageRef.child("translationState").setValue(null);
-                        return false;
-                    }
-                }
-
-                @Override
-                protected void onPostExecute(Boolean success) {
-                    if (!success) {
-                        Log.e("ConnectChatActivity", "Failed to translate message");
-                    }
-                }
-            }.execute();
+            // Queued on disk so the translation is retried until it reaches the server
+            TranslationJobQueue.enqueue(this, sessionId, Variables.API_PATH_TRANSLATE_DB_CONTEXT,
+                    requestBody, failureUpdates);
         } catch (Exception e) {
             Log.e("ConnectChatActivity", "Error creating JSON request: " + e.getMessage());
             // If JSON creation fails, set state back to null
@@ -520,136 +484,107 @@ public class ConnectChatActivity extends AppCompatActivity {
 
     private void toggleHistory() {
         historyEnabled = !historyEnabled;
+        if (messageStream != null) {
+            messageStream.setPagingEnabled(historyEnabled);
+        }
 
         if (historyEnabled) {
-            // Enable history - load all messages
+            // Enable history - show the older messages already loaded, and read the first page
+            // before the session the first time; further pages load as the user scrolls up
             buttonHistory.setImageTintList(android.content.res.ColorStateList.valueOf(android.graphics.Color.parseColor("#FF5722")));
-            loadAllMessages();
+            List<Message> history = new ArrayList<>(historyMessages.values());
+            history.sort((m1, m2) -> Long.compare(m1.getTimestamp(), m2.getTimestamp()));
+            chatAdapter.prependMessages(history);
+            if (!historyRequested && messageStream != null && !messageStream.isLoadingOlder()) {
+                historyRequested = true;
+                messageStream.loadOlder();
+            }
         } else {
-            // Disable history - filter to show only current session messages
+            // Disable history - hide the older messages, they stay loaded for next time
             buttonHistory.setImageTintList(android.content.res.ColorStateList.valueOf(android.graphics.Color.parseColor("#666666")));
-            filterToCurrentSession();
+            for (String messageId : historyMessages.keySet()) {
+                chatAdapter.removeMessage(messageId);
+            }
         }
-    }
-
-    private void loadAllMessages() {
-        if (sessionId != null) {
-            messagesRef.child(sessionId).orderByChild("timestamp").addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                    List<Message> messages = new ArrayList<>();
-                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                        Message message = snapshot.getValue(Message.class);
-                        if (message != null) {
-                            // Mark this message as a voice message for the ConnectChatActivity
-                            message.setIsVoiceMessage(true);
-                            message.setVoiceText(message.getMessage());
-                            messages.add(message);
-                        }
-                    }
-                    chatAdapter.setMessages(messages);
-
-                    // Scroll to bottom when loading history
-                    if (messages.size() > 0) {
-                        recyclerViewChat.scrollToPosition(messages.size() - 1);
-                    }
-                    previousMessageCount = messages.size();
-                }
 
-                @Override
-                public void onCancelled(@NonNull DatabaseError databaseError) {
-                    Log.e("ConnectChatActivity", "Error loading message history: " + databaseError.getMessage());
-                }
-            });
+        if (chatAdapter.getItemCount() > 0) {
+            recyclerViewChat.scrollToPosition(chatAdapter.getItemCount() - 1);
         }
     }
 
+    /**
+     * Stream this session's messages from its start time. Earlier messages are read in pages
+     * only while history is enabled.
+     */
     private void setupRealtimeListener() {
         if (sessionId != null) {
-            messagesRef.child(sessionId).orderByChild("timestamp").addValueEventListener(new ValueEventListener() {
+            messageStream = new MessageStream<>(messagesRef.child(sessionId), snapshot -> {
+                Message message = SnapshotMappers.toMessage(snapshot);
+                if (message != null) {
+                    // Mark this message as a voice message for the ConnectChatActivity
+                    message.setIsVoiceMessage(true);
+                    message.setVoiceText(message.getMessage());
+                }
+                return message;
+            }, new MessageStream.Listener<Message>() {
                 @Override
-                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                    List<Message> messages = new ArrayList<>();
-                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                        Message message = snapshot.getValue(Message.class);
-                        if (message != null) {
-                            // Mark this message as a voice message for the ConnectChatActivity
-                            message.setIsVoiceMessage(true);
-                            message.setVoiceText(message.getMessage());
-                            messages.add(message);
+                public void onPageLoaded(List<Message> messages, boolean hasMore) {
+                    List<Message> olderMessages = new ArrayList<>();
+                    for (Message message : messages) {
+                        if (isHistory(message)) {
+                            historyMessages.put(message.getMessageId(), message);
+                            if (historyEnabled) {
+                                olderMessages.add(message);
+                            }
+                        } else {
+                            showMessage(message);
                         }
                     }
+                    chatAdapter.prependMessages(olderMessages);
+                }
 
-                    // Always show current session messages, but hide history if disabled
-                    List<Message> messagesToShow = new ArrayList<>();
-                    long sessionStartTime = ConnectChatActivity.this.sessionStartTime;
-
-                    for (Message message : messages) {
-                        // Show messages from current session or if history is enabled
-                        if (message.getTimestamp() >= sessionStartTime || historyEnabled) {
-                            messagesToShow.add(message);
+                @Override
+                public void onMessageAdded(Message message) {
+                    if (isHistory(message)) {
+                        historyMessages.put(message.getMessageId(), message);
+                        if (historyEnabled) {
+                            chatAdapter.addOrUpdateMessage(message);
                         }
+                    } else {
+                        showMessage(message);
                     }
+                }
 
-                    chatAdapter.setMessages(messagesToShow);
+                @Override
+                public void onMessageChanged(Message message) {
+                    onMessageAdded(message);
+                }
 
-                    // Scroll if new messages are added
-                    int newSize = messagesToShow.size();
-                    if (newSize > previousMessageCount) {
-                        recyclerViewChat.scrollToPosition(newSize - 1);
-                    }
-                    previousMessageCount = newSize;
+                @Override
+                public void onMessageRemoved(String messageId) {
+                    historyMessages.remove(messageId);
+                    chatAdapter.removeMessage(messageId);
                 }
 
                 @Override
-                public void onCancelled(@NonNull DatabaseError databaseError) {
+                public void onError(DatabaseError databaseError) {
                     Log.e("ConnectChatActivity", "Error in realtime listener: " + databaseError.getMessage());
                 }
             });
+            messageStream.setPagingEnabled(historyEnabled);
+            messageStream.attachPaging(recyclerViewChat);
+            messageStream.startFrom(sessionStartTime - SESSION_CLOCK_SKEW_MS);
         }
     }
 
-    private void clearMessages() {
-        chatAdapter.setMessages(new ArrayList<>());
-        previousMessageCount = 0;
+    private boolean isHistory(Message message) {
+        return message.getTimestamp() < sessionStartTime;
     }
 
-    private void filterToCurrentSession() {
-        if (sessionId != null) {
-            messagesRef.child(sessionId).orderByChild("timestamp").addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                    List<Message> messagesToShow = new ArrayList<>();
-                    long currentSessionStartTime = ConnectChatActivity.this.sessionStartTime;
-
-                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                        Message message = snapshot.getValue(Message.class);
-                        if (message != null) {
-                            // Mark this message as a voice message for the ConnectChatActivity
-                            message.setIsVoiceMessage(true);
-                            message.setVoiceText(message.getMessage());
-
-                            // Only show messages from the current session
-                            if (message.getTimestamp() >= currentSessionStartTime) {
-                                messagesToShow.add(message);
-                            }
-                        }
-                    }
-
-                    chatAdapter.setMessages(messagesToShow);
-
-                    // Scroll to bottom when filtering to current session
-                    if (messagesToShow.size() > 0) {
-                        recyclerViewChat.scrollToPosition(messagesToShow.size() - 1);
-                    }
-                    previousMessageCount = messagesToShow.size();
-                }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError databaseError) {
-                    Log.e("ConnectChatActivity", "Error filtering to current session: " + databaseError.getMessage());
-                }
-            });
+    private void showMessage(Message message) {
+        int position = chatAdapter.addOrUpdateMessage(message);
+        if (position >= 0 && position == chatAdapter.getItemCount() - 1) {
+            recyclerViewChat.scrollToPosition(position);
         }
     }
 
@@ -704,7 +639,7 @@ public class ConnectChatActivity extends AppCompatActivity {
 
         confirmDialog.setButtonClickListener(v -> {
             confirmDialog.dismiss();
-            // Send session end message and finish
+            // Mark the session as ended and finish
             performEndSession(true);
         });
 
@@ -713,26 +648,23 @@ public class ConnectChatActivity extends AppCompatActivity {
 
     /**
      * End the session directly without confirmation dialog
-     * @param sendMessage Whether to send a session end message to the other user
+     * @param recordEnd Whether to mark the session as ended for the other user
      */
-    private void endSessionDirectly(boolean sendMessage) {
-        performEndSession(sendMessage);
+    private void endSessionDirectly(boolean recordEnd) {
+        performEndSession(recordEnd);
     }
 
     /**
      * Common method to perform session ending logic
-     * @param sendMessage Whether to send a session end message to the other user
+     * @param recordEnd Whether to mark the session as ended for the other user
      */
-    private void performEndSession(boolean sendMessage) {
-        // Send session end message only if requested
-        if (sendMessage) {
-            sendSessionEndMessage();
-        }
+    private void performEndSession(boolean recordEnd) {
+        // Stop watching first so our own end is not reported back to us
+        stopWatchingSessionState();
 
-        // Remove session end listener to prevent crashes
-        if (sessionEndListener != null && sessionId != null) {
-            messagesRef.child(sessionId).removeEventListener(sessionEndListener);
-            sessionEndListener = null;
+        // Record the end only if requested
+        if (recordEnd) {
+            recordSessionEnd();
         }
 
         // Clear active session
@@ -745,123 +677,125 @@ public class ConnectChatActivity extends AppCompatActivity {
     }
 
     /**
-     * Send a message indicating the session has ended
+     * Mark the session as ended, with the end recorded on both connections
      */
-    private void sendSessionEndMessage() {
+    private void recordSessionEnd() {
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        String messageText = "has left the session";
-        String messageId = messagesRef.child(sessionId).push().getKey();
-
-        // Create session end message
-        Map<String, Object> messageData = new HashMap<>();
-        messageData.put("messageId", messageId);
-        messageData.put("senderId", currentUserId);
-        messageData.put("messageText", messageText);
-        messageData.put("timestamp", System.currentTimeMillis());
-        messageData.put("isVoiceMessage", false);
-        messageData.put("isSessionEnd", true); // Special flag for session end messages
-
-        // Add to Firebase in the specific session
-        messagesRef.child(sessionId).child(messageId).setValue(messageData);
+        Map<String, Object> updates = new HashMap<>();
+        ConnectSessions.putEnd(updates, sessionId, currentUserId);
+        ConnectionsIndex.putSessionEnd(updates, currentUserId, recipientId, sessionId, System.currentTimeMillis());
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
+            .addOnFailureListener(e -> Log.e("ConnectChatActivity", "Failed to end session: " + e.getMessage()));
     }
 
     /**
-     * Listen for session end messages from the other user (only for this session)
+     * Listen to this session's state record, and have the server end the session if this
+     * device drops its connection
      */
-    private void listenForSessionEnd() {
-        sessionEndListener = new ValueEventListener() {
+    private void watchSessionState() {
+        if (sessionId == null) {
+            return;
+        }
+        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        ConnectSessions.endOnDisconnect(sessionId, currentUserId);
+
+        sessionStateRef = ConnectSessions.sessionRef(sessionId);
+        sessionStateListener = new ValueEventListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                for (DataSnapshot messageSnapshot : dataSnapshot.getChildren()) {
-                    String senderId = messageSnapshot.child("senderId").getValue(String.class);
-                    Boolean isSessionEnd = messageSnapshot.child("isSessionEnd").getValue(Boolean.class);
-                    Long messageTimestamp = messageSnapshot.child("timestamp").getValue(Long.class);
-
-                    // Check if this is a session end message from the other user
-                    if (senderId != null && !senderId.equals(FirebaseAuth.getInstance().getCurrentUser().getUid()) &&
-                        isSessionEnd != null && isSessionEnd) {
-
-                        // Check if it's from the current session (newer than session start time)
-                        // Add a 2-second buffer to account for timing differences
-                        if (messageTimestamp != null && messageTimestamp > (sessionStartTime - 2000)) {
-                            Log.d("ConnectChatActivity", "Found session end message from current session: sender=" + senderId +
-                                  ", timestamp=" + messageTimestamp + ", sessionStart=" + sessionStartTime);
-
-                            // Check if session has already ended to prevent duplicate notifications
-                            if (!sessionEnded) {
-                                sessionEnded = true;
-                                Log.d("ConnectChatActivity", "Processing session end message from current session");
-
-                                // The other user has ended the current session
-                                runOnUiThread(() -> {
-                                    // Show dialog that other user left the session
-                                    com.example.appdev.utils.CustomDialog sessionEndDialog = new com.example.appdev.utils.CustomDialog(ConnectChatActivity.this);
-                                    sessionEndDialog.setTitle("Session Ended");
-                                    sessionEndDialog.setMessage("The other user has left the session. Click OK to leave the session as well.");
-                                    sessionEndDialog.setButtonText("OK");
-
-                                    // Set icon and color for session ended
-                                    sessionEndDialog.setIcon(R.drawable.ic_info);
-                                    sessionEndDialog.setIconTint(getResources().getColor(R.color.app_blue));
-
-                                    // Set OK button to end the current user's session directly
-                                    sessionEndDialog.setButtonClickListener(v -> {
-                                        sessionEndDialog.dismiss();
-                                        // End session but don't send a message since the session is already ended by the other user
-                                        endSessionDirectly(false);
-                                    });
-
-                                    sessionEndDialog.show();
-
-                                    // Disable voice input
-                                    if (buttonVoiceIcon != null) {
-                                        buttonVoiceIcon.setEnabled(false);
-                                        buttonVoiceIcon.setAlpha(0.5f);
-                                    }
-                                    if (buttonChatToggle != null) {
-                                        buttonChatToggle.setEnabled(false);
-                                        buttonChatToggle.setAlpha(0.5f);
-                                    }
-
-                                    // Disable text input
-                                    if (textInputMessage != null) {
-                                        textInputMessage.setEnabled(false);
-                                        textInputMessage.setHint("Session ended");
-                                    }
-                                    if (buttonSendText != null) {
-                                        buttonSendText.setEnabled(false);
-                                        buttonSendText.setAlpha(0.5f);
-                                    }
-
-                                    // Optionally show a message in the chat
-                                    showSessionEndedMessage();
-                                });
-                            }
-                            break; // Only need to handle the first session end message for this session
-                        } else {
-                            Log.d("ConnectChatActivity", "Ignoring old session end message: sender=" + senderId +
-                                  ", timestamp=" + messageTimestamp + ", sessionStart=" + sessionStartTime);
-                        }
-                    }
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                ConnectSession session = snapshot.getValue(ConnectSession.class);
+                if (session == null || !session.hasEnded() || currentUserId.equals(session.getEndedBy())) {
+                    return;
                 }
+                // The pair's previous session may still be marked as ended until the new one is written
+                if (session.getEndedAt() <= sessionStartTime - SESSION_CLOCK_SKEW_MS) {
+                    Log.d("ConnectChatActivity", "Ignoring end of an earlier session: endedAt=" + session.getEndedAt() +
+                          ", sessionStart=" + sessionStartTime);
+                    return;
+                }
+                onSessionEndedByOtherUser();
             }
 
             @Override
             public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e("ConnectChatActivity", "Error listening for session end messages", databaseError.toException());
+                Log.e("ConnectChatActivity", "Error listening for session state", databaseError.toException());
             }
         };
+        sessionStateRef.addValueEventListener(sessionStateListener);
+    }
+
+    private void stopWatchingSessionState() {
+        if (sessionStateRef == null) {
+            return;
+        }
+        if (sessionStateListener != null) {
+            sessionStateRef.removeEventListener(sessionStateListener);
+            sessionStateListener = null;
+        }
+        // Leaving normally; a later session of the same pair must not be ended by this device
+        sessionStateRef.onDisconnect().cancel();
+        sessionStateRef = null;
+    }
+
+    /**
+     * The other user has ended the current session
+     */
+    private void onSessionEndedByOtherUser() {
+        if (sessionEnded) {
+            return;
+        }
+        sessionEnded = true;
+        Log.d("ConnectChatActivity", "Current session ended by the other user");
+
+        // Show dialog that other user left the session
+        com.example.appdev.utils.CustomDialog sessionEndDialog = new com.example.appdev.utils.CustomDialog(ConnectChatActivity.this);
+        sessionEndDialog.setTitle("Session Ended");
+        sessionEndDialog.setMessage("The other user has left the session. Click OK to leave the session as well.");
+        sessionEndDialog.setButtonText("OK");
+
+        // Set icon and color for session ended
+        sessionEndDialog.setIcon(R.drawable.ic_info);
+        sessionEndDialog.setIconTint(getResources().getColor(R.color.app_blue));
+
+        // Set OK button to end the current user's session directly
+        sessionEndDialog.setButtonClickListener(v -> {
+            sessionEndDialog.dismiss();
+            // End session but don't send a message since the session is already ended by the other user
+            endSessionDirectly(false);
+        });
+
+        sessionEndDialog.show();
+
+        // Disable voice input
+        if (buttonVoiceIcon != null) {
+            buttonVoiceIcon.setEnabled(false);
+            buttonVoiceIcon.setAlpha(0.5f);
+        }
+        if (buttonChatToggle != null) {
+            buttonChatToggle.setEnabled(false);
+            buttonChatToggle.setAlpha(0.5f);
+        }
 
-        // Listen only for messages in the current session
-        messagesRef.child(sessionId).addValueEventListener(sessionEndListener);
+        // Disable text input
+        if (textInputMessage != null) {
+            textInputMessage.setEnabled(false);
+            textInputMessage.setHint("Session ended");
+        }
+        if (buttonSendText != null) {
+            buttonSendText.setEnabled(false);
+            buttonSendText.setAlpha(0.5f);
+        }
+
+        // Optionally show a message in the chat
+        showSessionEndedMessage();
     }
 
     /**
      * Show a message indicating the session has ended
      */
     private void showSessionEndedMessage() {
-        // This message will be shown through the normal message flow via the adapter
-        // The session end message sent by the other user will be displayed in the chat
+        // The dialog and the disabled inputs already tell the user; the session state
+        // record carries the end, so nothing is added to the chat
     }
 
     /**
@@ -935,7 +869,9 @@ public class ConnectChatActivity extends AppCompatActivity {
                 (com.google.android.material.button.MaterialButton) android.view.LayoutInflater.from(this)
                 .inflate(R.layout.translator_button, container, false);
 
-            button.setText(type.getDisplayName());
+            // Show when a translator is being bypassed because its circuit breaker is open
+            String status = ModelRouter.getStatusLabel(type.getId());
+            button.setText(status != null ? type.getDisplayName() + " (" + status + ")" : type.getDisplayName());
             button.setIcon(androidx.core.content.ContextCompat.getDrawable(this, type.getIconResourceId()));
             button.setOnClickListener(v -> {
                 checkPremiumAndUpdateTranslator(type.getId(), type.getDisplayName(), dialog);
@@ -1085,19 +1021,33 @@ public class ConnectChatActivity extends AppCompatActivity {
         endSession();
     }
 
+    private void applyRecipientProfile(User profile) {
+        if (profile == null) {
+            return;
+        }
+        if (profile.getLanguage() != null) {
+            recipientLanguage = profile.getLanguage();
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        UserProfileStore.unsubscribe(recipientId, recipientProfileObserver);
+        if (chatAdapter != null) {
+            chatAdapter.release();
+        }
 
         if (speechHelper != null) {
             speechHelper.destroy();
         }
 
-        // Remove session end listener if it exists
-        if (sessionEndListener != null && sessionId != null && messagesRef != null) {
-            messagesRef.child(sessionId).removeEventListener(sessionEndListener);
+        if (messageStream != null) {
+            messageStream.stop();
         }
 
+        stopWatchingSessionState();
+
         // Clear the active session ID when the activity is destroyed
         if (sessionId != null) {
             com.example.appdev.utils.ConnectionRequestManager.getInstance().clearActiveSessionId();
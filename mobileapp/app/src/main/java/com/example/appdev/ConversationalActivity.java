@@ -9,7 +9,6 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.annotation.NonNull;
 import android.widget.AdapterView;
-import android.os.AsyncTask;
 import android.os.Build;
 import android.animation.AnimatorSet;
 import android.animation.ObjectAnimator;
@@ -33,23 +32,21 @@ import com.example.appdev.models.Languages;
 import com.example.appdev.utils.SpeechRecognitionDialog;
 import com.example.appdev.utils.SpeechRecognitionHelper;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.ModelRouter;
 import com.example.appdev.utils.ConversationalSpeechRecognizer;
 import com.example.appdev.utils.LoadingDotsView;
 import com.example.appdev.utils.TranslationApiService;
+import com.example.appdev.utils.TranslationHttpClient;
+import com.example.appdev.utils.TranslationResponseReader;
+import com.example.appdev.utils.TranslationScheduler;
 import com.example.appdev.adapters.ConversationalAdapter;
 
 import androidx.annotation.Nullable;
 
 import org.json.JSONObject;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.io.OutputStream;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.util.UUID;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Iterator;
 
 public class ConversationalActivity extends AppCompatActivity implements ConversationalAdapter.OnRegenerateListener {
     
@@ -85,6 +82,14 @@ public class ConversationalActivity extends AppCompatActivity implements Convers
     private String user1Id;
     private String user2Id;
 
+    // Message ID of each user's current utterance, so a re-fire of it joins the running translation
+    private String user1UtteranceId;
+    private String user2UtteranceId;
+
+    // Running translations and their streamed bubble positions by message ID, main thread only
+    private final Map<String, TranslationApiService.PendingTranslation> pendingTranslations = new HashMap<>();
+    private final Map<String, Integer> streamedPositions = new HashMap<>();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -381,6 +386,7 @@ public class ConversationalActivity extends AppCompatActivity implements Convers
     private void startListening(boolean isUser1) {
         // Update UI state
         if (isUser1) {
+            user1UtteranceId = UUID.randomUUID().toString();
             isUser1Speaking = true;
             user1SpeakButton.setImageDrawable(stopIcon);
             pulseAnimation(user1SpeakButton);
@@ -397,6 +403,7 @@ public class ConversationalActivity extends AppCompatActivity implements Convers
             user2LanguageSpinner.setAlpha(0.5f);
             user2ClearButton.setVisibility(View.GONE);
         } else {
+            user2UtteranceId = UUID.randomUUID().toString();
             isUser2Speaking = true;
             user2SpeakButton.setImageDrawable(stopIcon);
             pulseAnimation(user2SpeakButton);
@@ -546,29 +553,80 @@ public class ConversationalActivity extends AppCompatActivity implements Convers
             user1LanguageSpinner.getSelectedItem().toString() : 
             user2LanguageSpinner.getSelectedItem().toString();
             
-        // Generate message ID for context tracking
-        final String messageId = (messageToUpdate != null) ? messageToUpdate.getMessageId() : UUID.randomUUID().toString();
+        // The utterance's message ID, so translating the same utterance again joins the running request
+        String utteranceId = isUser1 ? user1UtteranceId : user2UtteranceId;
+        final String messageId = messageToUpdate != null ? messageToUpdate.getMessageId()
+                : utteranceId != null ? utteranceId : UUID.randomUUID().toString();
         
         // Determine user IDs for this turn
         String currentUserId = isUser1 ? user1Id : user2Id;
         String recipientId = isUser1 ? user2Id : user1Id;
         
+        // Use the selected translator unless its circuit breaker is open
+        String selectedTranslator = Variables.userTranslator != null ? Variables.userTranslator : "gemini";
+        String translator = ModelRouter.route(selectedTranslator, sourceLanguage, targetLanguage);
+        String rerouteNotice = ModelRouter.getRerouteNotice(selectedTranslator, translator);
+        if (rerouteNotice != null) {
+            CustomNotification.showNotification(this, rerouteNotice, false);
+        }
+
+        // Only the latest caller for this message updates the UI
+        TranslationApiService.PendingTranslation previous = pendingTranslations.remove(messageId);
+        if (previous != null) {
+            previous.cancel();
+        }
+
         // Use the API service for translation with context
-        TranslationApiService.translateTextWithContext(
+        TranslationApiService.PendingTranslation pending = TranslationApiService.translateTextWithContext(
                 text,
                 sourceLanguage,
                 targetLanguage,
                 translationMode,
-                Variables.userTranslator != null ? Variables.userTranslator : "gemini",
+                translator,
                 currentUserId,
                 recipientId,
                 sessionId,
                 messageId,
                 new TranslationApiService.TranslationCallback() {
+                    @Override
+                    public void onPartial(String partialText) {
+                        if (isFinishing()) {
+                            return;
+                        }
+                        // User 1's speech is shown on User 2's screen and vice versa
+                        ConversationalAdapter adapter = isUser1 ? user2Adapter : user1Adapter;
+                        RecyclerView recyclerView = isUser1 ? user2RecyclerView : user1RecyclerView;
+
+                        // Position of the bubble being filled by streamed text, kept across re-fires
+                        Integer streamedPosition = streamedPositions.get(messageId);
+                        if (messageToUpdate != null && updatePosition != -1) {
+                            adapter.updateMessage(updatePosition, partialText);
+                        } else if (streamedPosition == null) {
+                            // First tokens, replace the loading bubble with the message
+                            adapter.setLoading(false, 0);
+                            adapter.addMessage(new ConversationalMessage(messageId, text, partialText, isUser1, sourceLanguage, targetLanguage));
+                            streamedPosition = adapter.getItemCount() - 1;
+                            streamedPositions.put(messageId, streamedPosition);
+                            recyclerView.smoothScrollToPosition(streamedPosition);
+                        } else {
+                            adapter.updateMessage(streamedPosition, partialText);
+                        }
+                    }
+
                     @Override
                     public void onSuccess(String translatedMessage) {
                         if (!isFinishing()) {
                             runOnUiThread(() -> {
+                                pendingTranslations.remove(messageId);
+                                Integer streamedPosition = streamedPositions.remove(messageId);
+                                if (streamedPosition != null) {
+                                    // The bubble was created while streaming, just settle the final text
+                                    ConversationalAdapter adapter = isUser1 ? user2Adapter : user1Adapter;
+                                    adapter.updateMessage(streamedPosition, translatedMessage);
+                                    enableControls(isUser1);
+                                    return;
+                                }
+
                                 if (isUser1) {
                                     // User 1 spoke, show on User 2's screen (user2Adapter)
                                     user2Adapter.setLoading(false, 0); // Hide loading
@@ -605,6 +663,8 @@ public class ConversationalActivity extends AppCompatActivity implements Convers
                     public void onError(String errorMessage) {
                         if (!isFinishing()) {
                             runOnUiThread(() -> {
+                                pendingTranslations.remove(messageId);
+                                streamedPositions.remove(messageId);
                                 String errorText = "Translation failed: " + errorMessage;
                                 if (isUser1) {
                                     user2Adapter.setLoading(false, 0);
@@ -619,6 +679,7 @@ public class ConversationalActivity extends AppCompatActivity implements Convers
                     }
                 }
         );
+        pendingTranslations.put(messageId, pending);
     }
     
     @Override
@@ -649,127 +710,96 @@ public class ConversationalActivity extends AppCompatActivity implements Convers
             user1Adapter.notifyItemChanged(position);
         }
         
-        new AsyncTask<Void, Void, Boolean>() {
-            String originalText = message.getOriginalText();
-            String sourceLanguage = message.getSourceLanguage();
-            String targetLanguage = message.getTargetLanguage();
-            String messageId = message.getMessageId();
-            boolean isUser1 = message.isFromUser1();
-            Map<String, String> newVariations = new HashMap<>();
+        String originalText = message.getOriginalText();
+        String sourceLanguage = message.getSourceLanguage();
+        String targetLanguage = message.getTargetLanguage();
+        String messageId = message.getMessageId();
+        boolean isUser1 = message.isFromUser1();
+        Map<String, String> newVariations = new HashMap<>();
+
+        TranslationScheduler.submit(sessionId, () -> {
+            try {
+                // Use API to regenerate with context
+                JSONObject requestBody = new JSONObject();
+                requestBody.put("text", originalText); // Although regenerate endpoint might fetch it, providing it doesn't hurt or maybe it ignores it? 
+                // Actually regenerate_translation endpoint in python fetches message from Firebase. 
+                // But for Connect Chat it expects message to be in Firebase. 
+                // Since we are using translate_db_context for the original translation, the message SHOULD be in Firebase.
+                
+                requestBody.put("room_id", sessionId);
+                requestBody.put("message_id", messageId);
+                requestBody.put("source_language", sourceLanguage);
+                requestBody.put("target_language", targetLanguage);
+                requestBody.put("variants", "multiple");
+                requestBody.put("model", ModelRouter.route(
+                        Variables.userTranslator != null ? Variables.userTranslator : "gemini", sourceLanguage, targetLanguage));
+                requestBody.put("translation_mode", Variables.isFormalTranslationMode ? "formal" : "casual");
+                
+                // Add context parameters
+                requestBody.put("current_user_id", isUser1 ? user1Id : user2Id);
+                requestBody.put("recipient_id", isUser1 ? user2Id : user1Id);
+                requestBody.put("use_context", Variables.isContextAwareTranslation);
+                requestBody.put("context_depth", Variables.contextDepth);
+                
+                // Don't save variations to DB for split screen, just use locally
+                requestBody.put("save_to_db", false);
 
-            @Override
-            protected Boolean doInBackground(Void... voids) {
-                try {
-                    // Use API to regenerate with context
-                    JSONObject requestBody = new JSONObject();
-                    requestBody.put("text", originalText); // Although regenerate endpoint might fetch it, providing it doesn't hurt or maybe it ignores it? 
-                    // Actually regenerate_translation endpoint in python fetches message from Firebase. 
-                    // But for Connect Chat it expects message to be in Firebase. 
-                    // Since we are using translate_db_context for the original translation, the message SHOULD be in Firebase.
-                    
-                    requestBody.put("room_id", sessionId);
-                    requestBody.put("message_id", messageId);
-                    requestBody.put("source_language", sourceLanguage);
-                    requestBody.put("target_language", targetLanguage);
-                    requestBody.put("variants", "multiple");
-                    requestBody.put("model", Variables.userTranslator != null ? Variables.userTranslator.toLowerCase() : "gemini");
-                    requestBody.put("translation_mode", Variables.isFormalTranslationMode ? "formal" : "casual");
-                    
-                    // Add context parameters
-                    requestBody.put("current_user_id", isUser1 ? user1Id : user2Id);
-                    requestBody.put("recipient_id", isUser1 ? user2Id : user1Id);
-                    requestBody.put("use_context", Variables.isContextAwareTranslation);
-                    requestBody.put("context_depth", Variables.contextDepth);
-                    
-                    // Don't save variations to DB for split screen, just use locally
-                    requestBody.put("save_to_db", false);
-
-                    String apiUrl = Variables.API_REGENERATE_TRANSLATION_URL;
-                    URL url = new URL(apiUrl);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("POST");
-                    conn.setRequestProperty("Content-Type", "application/json; utf-8");
-                    conn.setRequestProperty("Accept", "application/json");
-                    conn.setDoOutput(true);
-                    conn.setConnectTimeout(15000);
-                    conn.setReadTimeout(15000);
-
-                    try (OutputStream os = conn.getOutputStream()) {
-                        byte[] input = requestBody.toString().getBytes("utf-8");
-                        os.write(input, 0, input.length);
-                    }
+                String apiUrl = Variables.API_REGENERATE_TRANSLATION_URL;
+                TranslationHttpClient.DecodedResponse<Map<String, String>> response =
+                        TranslationHttpClient.postJsonDecoded(apiUrl, requestBody,
+                                TranslationResponseReader::readAllTranslations);
 
-                    int responseCode = conn.getResponseCode();
-                    if (responseCode >= 200 && responseCode < 300) {
-                        BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), "utf-8"));
-                        StringBuilder response = new StringBuilder();
-                        String responseLine;
-                        while ((responseLine = br.readLine()) != null) {
-                            response.append(responseLine.trim());
-                        }
-                        
-                        JSONObject jsonResponse = new JSONObject(response.toString());
-                        if (jsonResponse.has("translations")) {
-                            JSONObject translations = jsonResponse.getJSONObject("translations");
-                            Iterator<String> keys = translations.keys();
-                            while (keys.hasNext()) {
-                                String key = keys.next();
-                                newVariations.put(key, translations.getString(key));
-                            }
-                            return true;
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
+                if (response.isSuccessful() && response.value != null && !response.value.isEmpty()) {
+                    newVariations.putAll(response.value);
+                    return true;
                 }
-                return false;
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-
-            @Override
-            protected void onPostExecute(Boolean success) {
-                // Clear regenerating state
-                message.setRegenerating(false);
+            return false;
+        }, success -> {
+            // Clear regenerating state
+            message.setRegenerating(false);
+            
+            if (Boolean.TRUE.equals(success) && !newVariations.isEmpty()) {
+                // Update message with new variations
+                message.getVariations().clear(); // Clear initial single translation
                 
-                if (success && !newVariations.isEmpty()) {
-                    // Update message with new variations
-                    message.getVariations().clear(); // Clear initial single translation
-                    
-                    // Add variations in order (translation1, translation2, etc.)
-                    // Map might not be ordered, but we can try to extract known keys or just add all
-                    if (newVariations.containsKey("translation1")) message.addVariation(newVariations.get("translation1"));
-                    if (newVariations.containsKey("translation2")) message.addVariation(newVariations.get("translation2"));
-                    if (newVariations.containsKey("translation3")) message.addVariation(newVariations.get("translation3"));
-                    
-                    // If map had other keys or we just want to ensure we have content
-                    if (message.getVariations().isEmpty()) {
-                        for (String val : newVariations.values()) {
-                            message.addVariation(val);
-                        }
-                    }
-                    
-                    // Cycle to the next one (which effectively shows the first variation or next if we had one)
-                    // If we just fetched, we probably want to show the SECOND one if the first one was what we already had.
-                    // But usually API returns translation1 as best/similar.
-                    // Let's just cycle.
-                    String nextText = message.getNextVariation();
-                    
-                    if (isUser1) {
-                        user2Adapter.updateMessage(position, nextText);
-                    } else {
-                        user1Adapter.updateMessage(position, nextText);
+                // Add variations in order (translation1, translation2, etc.)
+                // Map might not be ordered, but we can try to extract known keys or just add all
+                if (newVariations.containsKey("translation1")) message.addVariation(newVariations.get("translation1"));
+                if (newVariations.containsKey("translation2")) message.addVariation(newVariations.get("translation2"));
+                if (newVariations.containsKey("translation3")) message.addVariation(newVariations.get("translation3"));
+                
+                // If map had other keys or we just want to ensure we have content
+                if (message.getVariations().isEmpty()) {
+                    for (String val : newVariations.values()) {
+                        message.addVariation(val);
                     }
-                    // CustomNotification.showNotification(ConversationalActivity.this, "Regeneration successful", true);
+                }
+                
+                // Cycle to the next one (which effectively shows the first variation or next if we had one)
+                // If we just fetched, we probably want to show the SECOND one if the first one was what we already had.
+                // But usually API returns translation1 as best/similar.
+                // Let's just cycle.
+                String nextText = message.getNextVariation();
+                
+                if (isUser1) {
+                    user2Adapter.updateMessage(position, nextText);
                 } else {
-                    // Just notify adapter to restore original text and enable button
-                    if (isUser1) {
-                        user2Adapter.notifyItemChanged(position);
-                    } else {
-                        user1Adapter.notifyItemChanged(position);
-                    }
-                    CustomNotification.showNotification(ConversationalActivity.this, "Regeneration failed", false);
+                    user1Adapter.updateMessage(position, nextText);
+                }
+                // CustomNotification.showNotification(ConversationalActivity.this, "Regeneration successful", true);
+            } else {
+                // Just notify adapter to restore original text and enable button
+                if (isUser1) {
+                    user2Adapter.notifyItemChanged(position);
+                } else {
+                    user1Adapter.notifyItemChanged(position);
                 }
+                CustomNotification.showNotification(ConversationalActivity.this, "Regeneration failed", false);
             }
-        }.execute();
+        });
     }
 
     private void startTranslation(boolean isUser1) {
@@ -831,6 +861,11 @@ public class ConversationalActivity extends AppCompatActivity implements Convers
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        // Translations still running must not call back into this activity
+        for (TranslationApiService.PendingTranslation pending : pendingTranslations.values()) {
+            pending.cancel();
+        }
+        pendingTranslations.clear();
         if (speechRecognizer != null) {
             speechRecognizer.destroy();
         }
@@ -15,6 +15,7 @@ import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 
+import com.example.appdev.helpers.UserGroupsIndex;
 import com.example.appdev.models.Group;
 import com.example.appdev.utils.CustomNotification;
 import com.google.android.gms.tasks.OnFailureListener;
@@ -182,8 +183,13 @@ public class CreateGroupActivity extends AppCompatActivity {
         group.setGroupImageUrl(imageUrl);
         group.setDefaultLanguage(Variables.userLanguage);
         
-        // Save to database
-        databaseReference.child("groups").child(groupId).setValue(group)
+        // Save the group and every member's user_groups entry together
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("groups/" + groupId, group);
+        for (String memberId : selectedMembers.keySet()) {
+            updates.put(UserGroupsIndex.entryPath(memberId, groupId), true);
+        }
+        databaseReference.updateChildren(updates)
             .addOnSuccessListener(aVoid -> {
                 progressBar.setVisibility(View.GONE);
                 
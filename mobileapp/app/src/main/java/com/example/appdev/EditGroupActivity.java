@@ -16,6 +16,7 @@ import android.widget.ImageView;
 import android.widget.ProgressBar;
 
 import com.bumptech.glide.Glide;
+import com.example.appdev.helpers.SnapshotMappers;
 import com.example.appdev.models.Group;
 import com.example.appdev.utils.CustomNotification;
 import com.google.firebase.auth.FirebaseAuth;
@@ -130,7 +131,7 @@ public class EditGroupActivity extends AppCompatActivity {
             public void onDataChange(@NonNull DataSnapshot snapshot) {
                 progressBar.setVisibility(View.GONE);
                 
-                currentGroup = snapshot.getValue(Group.class);
+                currentGroup = SnapshotMappers.toGroup(snapshot);
                 if (currentGroup == null) {
                     CustomNotification.showNotification(EditGroupActivity.this, 
                         "Group not found", false);
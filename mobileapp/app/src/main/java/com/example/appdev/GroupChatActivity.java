@@ -6,7 +6,6 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.speech.RecognizerIntent;
 import android.text.Editable;
@@ -27,11 +26,16 @@ import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
 import com.example.appdev.adapters.GroupChatAdapter;
+import com.example.appdev.helpers.UserChatsIndex;
+import com.example.appdev.helpers.SnapshotMappers;
 import com.example.appdev.models.Group;
 import com.example.appdev.models.GroupMessage;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.MessageStream;
 import com.example.appdev.utils.TranslationContextManager;
+import com.example.appdev.utils.TranslationJobQueue;
 import com.example.appdev.utils.TranslationModeManager;
+import com.example.appdev.utils.ModelRouter;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
@@ -40,13 +44,9 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -67,7 +67,7 @@ public class GroupChatActivity extends AppCompatActivity {
     private DatabaseReference userMemberRef;
     
     private ValueEventListener groupDetailsListener;
-    private ValueEventListener messagesListener;
+    private MessageStream<GroupMessage> messageStream;
     private ValueEventListener membershipListener;
     
     private Group currentGroup;
@@ -75,7 +75,6 @@ public class GroupChatActivity extends AppCompatActivity {
     private String currentUserName;
     private String currentUserProfileUrl;
     private boolean isAdmin = false;
-    private int previousMessageCount = 0;
     private boolean translateEnabled = true;
     
     // Reply UI elements
@@ -140,7 +139,7 @@ public class GroupChatActivity extends AppCompatActivity {
                     return;
                 }
                 
-                currentGroup = snapshot.getValue(Group.class);
+                currentGroup = SnapshotMappers.toGroup(snapshot);
                 if (currentGroup == null) {
                     CustomNotification.showNotification(GroupChatActivity.this, 
                         "Group not found", false);
@@ -330,13 +329,26 @@ public class GroupChatActivity extends AppCompatActivity {
         
         Log.d("GroupChatActivity", "Sending message: " + messageId);
         
-        // Save message to Firebase with empty translations
-        groupMessagesRef.child(groupId).child(messageId).setValue(messageData)
+        // Save the message and every member's chat list summary in one write
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("group_messages/" + groupId + "/" + messageId, messageData);
+        List<String> otherMemberIds = new ArrayList<>();
+        UserChatsIndex.putGroupSummary(updates, senderId, groupId, messageId, messageText, senderId, timestamp);
+        if (currentGroup != null && currentGroup.getMembers() != null) {
+            for (String memberId : currentGroup.getMembers().keySet()) {
+                if (!memberId.equals(senderId)) {
+                    otherMemberIds.add(memberId);
+                    UserChatsIndex.putGroupSummary(updates, memberId, groupId, messageId, messageText, senderId, timestamp);
+                }
+            }
+        }
+
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
             .addOnCompleteListener(task -> {
                 if (task.isSuccessful()) {
                     // Always translate group messages
                     Log.d("GroupChatActivity", "Message saved, now translating: " + messageId);
-                    translateGroupMessage(messageText, messageId);
+                    translateGroupMessage(messageText, messageId, otherMemberIds);
                     
                     // Clear reply UI after sending
                     if (groupChatAdapter.getReplyingToMessage() != null) {
@@ -352,94 +364,48 @@ public class GroupChatActivity extends AppCompatActivity {
         chatBox.setText("");
     }
     
-    private void translateGroupMessage(String messageText, String messageId) {
+    private void translateGroupMessage(String messageText, String messageId, List<String> otherMemberIds) {
         Log.d("GroupChatActivity", "Starting translation for message: " + messageId);
         
-        new AsyncTask<Void, Void, Boolean>() {
-            @Override
-            protected Boolean doInBackground(Void... voids) {
-                try {
-                    // Prepare the request body
-                    JSONObject requestBody = new JSONObject();
-                    String messageTextQuoted = "\"" + messageText + "\"";
-                    requestBody.put("text", messageTextQuoted);
-                    requestBody.put("source_language", Variables.userLanguage);
-                    requestBody.put("model", Variables.userTranslator.toLowerCase());
-                    requestBody.put("group_id", groupId);
-                    requestBody.put("message_id", messageId);
-                    requestBody.put("translation_mode", Variables.isFormalTranslationMode ? "formal" : "casual");
-                    
-                    // Add context-aware translation parameters
-                    requestBody.put("use_context", Variables.isContextAwareTranslation);
-                    requestBody.put("context_depth", Variables.contextDepth);
-
-                    // Make the API request to the appropriate endpoint
-                    String apiUrl = Variables.isContextAwareTranslation ? 
-                            Variables.API_TRANSLATE_GROUP_CONTEXT_URL : 
-                            Variables.API_TRANSLATE_GROUP_URL;
-                    
-                    Log.d("GroupChatActivity", "Using API URL: " + apiUrl);
-                    Log.d("GroupChatActivity", "Request body: " + requestBody.toString());
-                    
-                    URL url = new URL(apiUrl);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("POST");
-                    conn.setRequestProperty("Content-Type", "application/json");
-                    conn.setDoOutput(true);
-                    conn.setConnectTimeout(30000); // 30 seconds
-                    conn.setReadTimeout(30000); // 30 seconds
-
-                    // Send request body
-                    try (OutputStream os = conn.getOutputStream()) {
-                        byte[] input = requestBody.toString().getBytes("utf-8");
-                        os.write(input, 0, input.length);
-                    }
-                    
-                    int responseCode = conn.getResponseCode();
-                    Log.d("GroupChatActivity", "Response code: " + responseCode);
-                    
-                    // Read response for debugging
-                    if (responseCode != HttpURLConnection.HTTP_OK) {
-                        StringBuilder response = new StringBuilder();
-                        try (BufferedReader br = new BufferedReader(
-                                new InputStreamReader(conn.getErrorStream(), "utf-8"))) {
-                            String responseLine;
-                            while ((responseLine = br.readLine()) != null) {
-                                response.append(responseLine.trim());
-                            }
-                        }
-                        Log.e("GroupChatActivity", "Error response: " + response.toString());
-                        return false;
-                    }
-                    
-                    return true;
-                    
-                } catch (Exception e) {
-                    Log.e("GroupChatActivity", "Group translation error: " + e.getMessage(), e);
-                    return false;
-                }
-            }
+        try {
+            // Prepare the request body
+            JSONObject requestBody = new JSONObject();
+            String messageTextQuoted = "\"" + messageText + "\"";
+            requestBody.put("text", messageTextQuoted);
+            requestBody.put("source_language", Variables.userLanguage);
+            // Fanned out to every member's language, so the breaker is tracked for the source language only
+            requestBody.put("model", ModelRouter.route(Variables.userTranslator, Variables.userLanguage, null));
+            requestBody.put("group_id", groupId);
+            requestBody.put("message_id", messageId);
+            requestBody.put("translation_mode", Variables.isFormalTranslationMode ? "formal" : "casual");
+            
+            // Add context-aware translation parameters
+            requestBody.put("use_context", Variables.isContextAwareTranslation);
+            requestBody.put("context_depth", Variables.contextDepth);
 
-            @Override
-            protected void onPostExecute(Boolean success) {
-                if (!success) {
-                    // If translation failed, update the message to use original text
-                    Log.e("GroupChatActivity", "Translation failed, setting original text");
-                    
-                    // Instead of just setting the message field, make sure translations map has the original language
-                    // so the original message in sender's language is shown correctly
-                    DatabaseReference messageRef = groupMessagesRef.child(groupId).child(messageId);
-                    
-                    // Update message field to original text
-                    messageRef.child("message").setValue(messageText);
-                    
-                    // Make sure original text is in translations map
-                    messageRef.child("translations").child(Variables.userLanguage).setValue(messageText);
-                } else {
-                    Log.d("GroupChatActivity", "Translation completed successfully");
-                }
+            // Queue the request for the appropriate endpoint
+            String apiPath = Variables.isContextAwareTranslation ? 
+                    Variables.API_PATH_TRANSLATE_GROUP_CONTEXT : 
+                    Variables.API_PATH_TRANSLATE_GROUP;
+            
+            Log.d("GroupChatActivity", "Using API path: " + apiPath);
+            Log.d("GroupChatActivity", "Request body: " + requestBody.toString());
+
+            // Other members' chat lists preview the translation into their own language
+            JSONArray previewPaths = new JSONArray();
+            for (String memberId : otherMemberIds) {
+                previewPaths.put(UserChatsIndex.summaryPath(memberId, groupId));
             }
-        }.execute();
+
+            // Queued on disk so the translation is retried until it reaches the server.
+            // If it can never be delivered, show the original text instead.
+            TranslationJobQueue.enqueue(this, groupId, apiPath, requestBody,
+                    originalTextUpdates(messageId, messageText), previewPaths, null);
+            
+        } catch (Exception e) {
+            Log.e("GroupChatActivity", "Group translation error: " + e.getMessage(), e);
+            showOriginalText(messageId, messageText);
+        }
     }
     
     // Keep this method for individual language translation (used for regeneration)
@@ -458,91 +424,96 @@ public class GroupChatActivity extends AppCompatActivity {
             return;
         }
         
-        new AsyncTask<Void, Void, Boolean>() {
-            @Override
-            protected Boolean doInBackground(Void... voids) {
-                try {
-                    // Prepare the request body
-                    JSONObject requestBody = new JSONObject();
-                    String messageTextQuoted = "\"" + messageText + "\"";
-                    requestBody.put("text", messageTextQuoted);
-                    requestBody.put("source_language", Variables.userLanguage);
-                    requestBody.put("target_language", targetLanguage);
-                    requestBody.put("mode", "single");
-                    requestBody.put("model", Variables.userTranslator.toLowerCase());
-                    requestBody.put("group_id", groupId);
-                    requestBody.put("message_id", messageId);
-                    requestBody.put("is_group", true);
-                    requestBody.put("translation_mode", Variables.isFormalTranslationMode ? "formal" : "casual");
-
-                    // Make the API request
-                    URL url = new URL(Variables.API_TRANSLATE_DB_URL);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("POST");
-                    conn.setRequestProperty("Content-Type", "application/json");
-                    conn.setDoOutput(true);
-
-                    // Send request body
-                    try (OutputStream os = conn.getOutputStream()) {
-                        byte[] input = requestBody.toString().getBytes("utf-8");
-                        os.write(input, 0, input.length);
-                    }
+        try {
+            // Prepare the request body
+            JSONObject requestBody = new JSONObject();
+            String messageTextQuoted = "\"" + messageText + "\"";
+            requestBody.put("text", messageTextQuoted);
+            requestBody.put("source_language", Variables.userLanguage);
+            requestBody.put("target_language", targetLanguage);
+            requestBody.put("mode", "single");
+            requestBody.put("model", ModelRouter.route(Variables.userTranslator, Variables.userLanguage, targetLanguage));
+            requestBody.put("group_id", groupId);
+            requestBody.put("message_id", messageId);
+            requestBody.put("is_group", true);
+            requestBody.put("translation_mode", Variables.isFormalTranslationMode ? "formal" : "casual");
 
-                    return conn.getResponseCode() == HttpURLConnection.HTTP_OK;
+            TranslationJobQueue.enqueue(this, groupId, Variables.API_PATH_TRANSLATE_DB, requestBody,
+                    originalTextUpdates(messageId, messageText));
 
-                } catch (Exception e) {
-                    Log.e("GroupChatActivity", "Translation error: " + e.getMessage());
-                    return false;
-                }
-            }
+        } catch (Exception e) {
+            Log.e("GroupChatActivity", "Translation error: " + e.getMessage());
+            showOriginalText(messageId, messageText);
+        }
+    }
 
-            @Override
-            protected void onPostExecute(Boolean success) {
-                if (!success) {
-                    // If translation failed, update the message to use original text
-                    DatabaseReference messageRef = groupMessagesRef.child(groupId).child(messageId);
-                    messageRef.child("message").setValue(messageText);
-                    
-                    // Make sure original text is in translations map
-                    messageRef.child("translations").child(Variables.userLanguage).setValue(messageText);
-                }
-            }
-        }.execute();
+    /**
+     * Firebase updates that make a message show its original text, applied when translation fails
+     */
+    private JSONObject originalTextUpdates(String messageId, String messageText) throws JSONException {
+        String messagePath = "group_messages/" + groupId + "/" + messageId;
+        JSONObject updates = new JSONObject();
+        updates.put(messagePath + "/message", messageText);
+        // Make sure original text is in translations map so the sender's language shows correctly
+        updates.put(messagePath + "/translations/" + Variables.userLanguage, messageText);
+        return updates;
+    }
+
+    private void showOriginalText(String messageId, String messageText) {
+        DatabaseReference messageRef = groupMessagesRef.child(groupId).child(messageId);
+        messageRef.child("message").setValue(messageText);
+        messageRef.child("translations").child(Variables.userLanguage).setValue(messageText);
     }
     
     private void loadGroupMessages() {
         if (groupId != null) {
-            messagesListener = new ValueEventListener() {
+            messageStream = new MessageStream<>(groupMessagesRef.child(groupId), SnapshotMappers::toGroupMessage, new MessageStream.Listener<GroupMessage>() {
                 @Override
-                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                public void onPageLoaded(List<GroupMessage> messages, boolean hasMore) {
                     // Check if activity is still active
                     if (isFinishing() || isDestroyed()) {
                         return;
                     }
-                    
-                    List<GroupMessage> messages = new ArrayList<>();
-                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                        GroupMessage message = snapshot.getValue(GroupMessage.class);
-                        if (message != null) {
-                            messages.add(message);
-                        }
-                    }
-                    groupChatAdapter.setMessages(messages);
-                    
-                    // Only scroll if new messages are added
-                    int newSize = messages.size();
-                    if (newSize > previousMessageCount) {
+                    boolean firstPage = groupChatAdapter.getItemCount() == 0;
+                    groupChatAdapter.prependMessages(messages);
+                    if (firstPage && groupChatAdapter.getItemCount() > 0) {
                         recyclerViewGroupChat.scrollToPosition(groupChatAdapter.getItemCount() - 1);
                     }
-                    previousMessageCount = newSize;
                 }
-                
+
+                @Override
+                public void onMessageAdded(GroupMessage message) {
+                    if (isFinishing() || isDestroyed()) {
+                        return;
+                    }
+                    // Only scroll when the new message lands at the bottom
+                    int position = groupChatAdapter.addOrUpdateMessage(message);
+                    if (position >= 0 && position == groupChatAdapter.getItemCount() - 1) {
+                        recyclerViewGroupChat.scrollToPosition(position);
+                    }
+                }
+
                 @Override
-                public void onCancelled(@NonNull DatabaseError databaseError) {
+                public void onMessageChanged(GroupMessage message) {
+                    if (!isFinishing() && !isDestroyed()) {
+                        groupChatAdapter.addOrUpdateMessage(message);
+                    }
+                }
+
+                @Override
+                public void onMessageRemoved(String messageId) {
+                    if (!isFinishing() && !isDestroyed()) {
+                        groupChatAdapter.removeMessage(messageId);
+                    }
+                }
+
+                @Override
+                public void onError(DatabaseError databaseError) {
                     Log.e("GroupChatActivity", "Error loading messages: " + databaseError.getMessage());
                 }
-            };
-            groupMessagesRef.child(groupId).orderByChild("timestamp").addValueEventListener(messagesListener);
+            });
+            messageStream.attachPaging(recyclerViewGroupChat);
+            messageStream.start();
         }
     }
     
@@ -580,8 +551,12 @@ public class GroupChatActivity extends AppCompatActivity {
             groupRef.removeEventListener(groupDetailsListener);
         }
         
-        if (messagesListener != null && groupMessagesRef != null && groupId != null) {
-            groupMessagesRef.child(groupId).removeEventListener(messagesListener);
+        if (messageStream != null) {
+            messageStream.stop();
+        }
+
+        if (groupChatAdapter != null) {
+            groupChatAdapter.release();
         }
     }
 
@@ -23,6 +23,9 @@ import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
 import com.example.appdev.adapters.GroupMemberAdapter;
+import com.example.appdev.helpers.UserChatsIndex;
+import com.example.appdev.helpers.UserGroupsIndex;
+import com.example.appdev.helpers.SnapshotMappers;
 import com.example.appdev.models.Group;
 import com.example.appdev.models.User;
 import com.example.appdev.utils.CustomNotification;
@@ -38,6 +41,7 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -260,7 +264,7 @@ public class GroupInfoActivity extends AppCompatActivity {
         groupRef.addValueEventListener(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                currentGroup = snapshot.getValue(Group.class);
+                currentGroup = SnapshotMappers.toGroup(snapshot);
                 
                 if (currentGroup == null) {
                     CustomNotification.showNotification(GroupInfoActivity.this, "Group not found", false);
@@ -336,7 +340,7 @@ public class GroupInfoActivity extends AppCompatActivity {
             usersRef.child(userId).addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    User user = snapshot.getValue(User.class);
+                    User user = SnapshotMappers.toUser(snapshot);
                     if (user != null) {
                         user.setUserId(userId);
                         user.setAdmin(isAdmin);
@@ -414,9 +418,11 @@ public class GroupInfoActivity extends AppCompatActivity {
     
     private void leaveGroup() {
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        DatabaseReference groupRef = FirebaseDatabase.getInstance().getReference("groups").child(groupId);
-        
-        groupRef.child("members").child(currentUserId).removeValue()
+
+        // Leave the group and drop it from user_groups and user_chats in one update
+        Map<String, Object> updates = new HashMap<>();
+        UserGroupsIndex.removeMember(updates, groupId, currentUserId);
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
             .addOnCompleteListener(task -> {
                 if (task.isSuccessful()) {
                     CustomNotification.showNotification(this, "You left the group", true);
@@ -428,14 +434,21 @@ public class GroupInfoActivity extends AppCompatActivity {
     }
     
     private void deleteGroup() {
-        DatabaseReference groupRef = FirebaseDatabase.getInstance().getReference("groups").child(groupId);
         DatabaseReference groupMessagesRef = FirebaseDatabase.getInstance().getReference("group_messages").child(groupId);
         
         // Delete group messages first
         groupMessagesRef.removeValue().addOnCompleteListener(task -> {
             if (task.isSuccessful()) {
-                // Then delete the group itself
-                groupRef.removeValue().addOnCompleteListener(task2 -> {
+                // Then delete the group with every member's user_groups entry and chat summary
+                Map<String, Object> updates = new HashMap<>();
+                if (currentGroup != null && currentGroup.getMembers() != null) {
+                    for (String memberId : currentGroup.getMembers().keySet()) {
+                        updates.put(UserGroupsIndex.entryPath(memberId, groupId), null);
+                        updates.put(UserChatsIndex.summaryPath(memberId, groupId), null);
+                    }
+                }
+                updates.put("groups/" + groupId, null);
+                FirebaseDatabase.getInstance().getReference().updateChildren(updates).addOnCompleteListener(task2 -> {
                     if (task2.isSuccessful()) {
                         CustomNotification.showNotification(this, "Group deleted", true);
                         finish();
@@ -1,6 +1,5 @@
 package com.example.appdev;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -15,13 +14,10 @@ import android.widget.TextView;
 import com.example.appdev.adapters.GroupListAdapter;
 import com.example.appdev.models.Group;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.MemberGroupsStream;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,6 +32,7 @@ public class GroupListActivity extends AppCompatActivity {
     
     private List<Group> userGroups;
     private GroupListAdapter adapter;
+    private MemberGroupsStream memberGroupsStream;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -76,51 +73,88 @@ public class GroupListActivity extends AppCompatActivity {
     }
     
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Reload groups when resuming activity
+    protected void onStart() {
+        super.onStart();
         loadUserGroups();
     }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (memberGroupsStream != null) {
+            memberGroupsStream.stop();
+            memberGroupsStream = null;
+        }
+    }
     
     private void loadUserGroups() {
         progressBar.setVisibility(View.VISIBLE);
         textViewNoGroups.setVisibility(View.GONE);
+        userGroups.clear();
+        adapter.notifyDataSetChanged();
         
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        DatabaseReference groupsRef = FirebaseDatabase.getInstance().getReference("groups");
-        
-        groupsRef.addValueEventListener(new ValueEventListener() {
+
+        // Only the groups listed in user_groups/{uid} are read
+        memberGroupsStream = new MemberGroupsStream(currentUserId, new MemberGroupsStream.Listener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                userGroups.clear();
-                
-                for (DataSnapshot groupSnapshot : snapshot.getChildren()) {
-                    Group group = groupSnapshot.getValue(Group.class);
-                    
-                    // Check if current user is a member of this group
-                    if (group != null && group.getMembers() != null 
-                            && group.getMembers().containsKey(currentUserId)) {
-                        userGroups.add(group);
-                    }
+            public void onGroupChanged(Group group) {
+                int index = indexOf(group.getGroupId());
+                if (index >= 0) {
+                    userGroups.set(index, group);
+                    adapter.notifyItemChanged(index);
+                    return;
                 }
-                
-                adapter.notifyDataSetChanged();
-                progressBar.setVisibility(View.GONE);
-                
-                if (userGroups.isEmpty()) {
-                    textViewNoGroups.setVisibility(View.VISIBLE);
-                } else {
-                    textViewNoGroups.setVisibility(View.GONE);
+                // Oldest group first
+                int position = userGroups.size();
+                while (position > 0 && userGroups.get(position - 1).getCreatedAt() > group.getCreatedAt()) {
+                    position--;
+                }
+                userGroups.add(position, group);
+                adapter.notifyItemInserted(position);
+                updateEmptyState();
+            }
+
+            @Override
+            public void onGroupRemoved(String groupId) {
+                int index = indexOf(groupId);
+                if (index >= 0) {
+                    userGroups.remove(index);
+                    adapter.notifyItemRemoved(index);
                 }
+                updateEmptyState();
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
+            public void onInitialLoadComplete() {
+                progressBar.setVisibility(View.GONE);
+                updateEmptyState();
+            }
+
+            @Override
+            public void onError(DatabaseError error) {
                 progressBar.setVisibility(View.GONE);
                 textViewNoGroups.setVisibility(View.VISIBLE);
                 CustomNotification.showNotification(GroupListActivity.this, 
                     "Failed to load groups: " + error.getMessage(), false);
             }
         });
+        memberGroupsStream.start();
+    }
+
+    private int indexOf(String groupId) {
+        for (int i = 0; i < userGroups.size(); i++) {
+            if (userGroups.get(i).getGroupId().equals(groupId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void updateEmptyState() {
+        if (progressBar.getVisibility() == View.VISIBLE) {
+            return; // Still loading
+        }
+        textViewNoGroups.setVisibility(userGroups.isEmpty() ? View.VISIBLE : View.GONE);
     }
 }
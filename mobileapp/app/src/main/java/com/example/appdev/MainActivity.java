@@ -17,7 +17,12 @@ import android.widget.TextView;
 
 import com.example.appdev.fragments.BasicTranslationFragment;
 import com.example.appdev.fragments.ProfileFragment;
+import com.example.appdev.helpers.UserSearchIndex;
+import com.example.appdev.helpers.SnapshotMappers;
 import com.example.appdev.models.User;
+import com.example.appdev.utils.DatabaseBootstrap;
+import com.example.appdev.utils.TranslationCache;
+import com.example.appdev.utils.TranslationJobQueue;
 import com.example.appdev.utils.TranslationModeManager;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
@@ -50,12 +55,13 @@ public class MainActivity extends AppCompatActivity {
 
         FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
         if (currentUser != null) {
+            DatabaseBootstrap.syncUser(currentUser.getUid());
             DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(currentUser.getUid());
             userRef.addValueEventListener(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
                     if (dataSnapshot.exists()) {
-                        User user = dataSnapshot.getValue(User.class);
+                        User user = SnapshotMappers.toUser(dataSnapshot);
                         if (user != null) {
                             Variables.userUID = user.getUserId();
                             Variables.userEmail = user.getEmail();
@@ -63,6 +69,9 @@ public class MainActivity extends AppCompatActivity {
                             Variables.userAccountType = user.getAccountType();
                             Variables.userLanguage = user.getLanguage();
                             Variables.userTranslator = user.getTranslator();
+                            // Keep this user's entry in the user search index current
+                            user.setUserId(currentUser.getUid());
+                            UserSearchIndex.publish(user);
                             
                             // If language is not set, redirect to LanguageSetupActivity
                             if (user.getLanguage() == null) {
@@ -122,6 +131,12 @@ public class MainActivity extends AppCompatActivity {
         // Initialize translation mode from SharedPreferences
         TranslationModeManager.initializeFromPreferences(this);
 
+        // Enable the on-disk tier of the translation cache
+        TranslationCache.init(this);
+
+        // Resume chat translations that were still queued when the app last stopped
+        TranslationJobQueue.init(this);
+
         // Remove the flag check that was causing the crash
         // Instead, just prevent going back
         if (isTaskRoot() && getIntent().hasCategory(Intent.CATEGORY_LAUNCHER)) {
@@ -302,8 +302,8 @@ public class QRScanActivity extends AppCompatActivity {
                 profileImage.setImageResource(R.drawable.default_userpic);
             }
 
-            // Store requestId for cancellation
-            final String[] currentRequestId = {null};
+            // Store the request for cancellation
+            final com.example.appdev.models.ConnectionRequest[] currentRequest = {null};
 
             // Immediately send the connection request
             ConnectionRequestManager.getInstance().createConnectionRequest(
@@ -311,7 +311,7 @@ public class QRScanActivity extends AppCompatActivity {
                 new ConnectionRequestManager.ConnectionRequestCallback() {
                     @Override
                     public void onSuccess(com.example.appdev.models.ConnectionRequest request) {
-                        currentRequestId[0] = request.getRequestId();
+                        currentRequest[0] = request;
                         runOnUiThread(() -> {
                             statusText.setText("Request sent successfully!");
                             statusText.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
@@ -336,8 +336,9 @@ public class QRScanActivity extends AppCompatActivity {
             // Set click listeners
             cancelButton.setOnClickListener(v -> {
                 // Cancel the connection request if it exists
-                if (currentRequestId[0] != null) {
-                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequestId[0]);
+                if (currentRequest[0] != null) {
+                    ConnectionRequestManager.getInstance().unwatchSentRequest(currentRequest[0].getRequestId());
+                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequest[0]);
                 }
                 waitingDialog.dismiss();
                 isScanning = true; // Resume scanning
@@ -345,8 +346,9 @@ public class QRScanActivity extends AppCompatActivity {
 
             closeButton.setOnClickListener(v -> {
                 // Cancel the connection request if it exists
-                if (currentRequestId[0] != null) {
-                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequestId[0]);
+                if (currentRequest[0] != null) {
+                    ConnectionRequestManager.getInstance().unwatchSentRequest(currentRequest[0].getRequestId());
+                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequest[0]);
                 }
                 waitingDialog.dismiss();
                 isScanning = true; // Resume scanning
@@ -362,71 +364,60 @@ public class QRScanActivity extends AppCompatActivity {
     }
 
     private void listenForRequestStatus(String requestId, Dialog waitingDialog, TextView statusText, TextView waitingText, String username) {
-        DatabaseReference requestRef = FirebaseDatabase.getInstance()
-                .getReference("connection_requests").child(requestId);
+        // Status changes arrive through the manager's stream over the current user's outbox
+        ConnectionRequestManager.getInstance().watchSentRequest(this, requestId, request -> {
+            String status = request.getStatus();
+            if (status == null || "PENDING".equals(status)) return;
+            ConnectionRequestManager.getInstance().unwatchSentRequest(requestId);
 
-        requestRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                if (!dataSnapshot.exists()) return;
-
-                String status = dataSnapshot.child("status").getValue(String.class);
-                if (status == null) return;
-
-                runOnUiThread(() -> {
-                    switch (status) {
-                        case "ACCEPTED":
-                            statusText.setText("Request accepted!");
-                            statusText.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
-                            waitingText.setText("Opening chat...");
-                            // Dismiss dialog after showing success message
-                            new android.os.Handler().postDelayed(() -> {
-                                if (waitingDialog.isShowing()) {
-                                    waitingDialog.dismiss();
-                                }
-                                // Finish the scanning activity as we're connected
-                                finish();
-                            }, 1500);
-                            break;
-
-                        case "REJECTED":
-                            statusText.setText("Request rejected");
-                            statusText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-                            waitingText.setText("The connection request was declined.");
-                            // Auto-dismiss after showing the message
-                            new android.os.Handler().postDelayed(() -> {
-                                if (waitingDialog.isShowing()) {
-                                    waitingDialog.dismiss();
-                                    isScanning = true; // Resume scanning
-                                }
-                            }, 3000);
-                            break;
-
-                        case "TIMEOUT":
-                        case "EXPIRED":
-                            statusText.setText("Request expired");
-                            statusText.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
-                            waitingText.setText("The request has expired.");
-                            // Auto-dismiss after showing the message
-                            new android.os.Handler().postDelayed(() -> {
-                                if (waitingDialog.isShowing()) {
-                                    waitingDialog.dismiss();
-                                    isScanning = true; // Resume scanning
-                                }
-                            }, 3000);
-                            break;
-
-                        default:
-                            // Still pending
-                            break;
-                    }
-                });
-            }
-
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                Log.e(TAG, "Error listening for request status", databaseError.toException());
-            }
+            runOnUiThread(() -> {
+                switch (status) {
+                    case "ACCEPTED":
+                        statusText.setText("Request accepted!");
+                        statusText.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
+                        waitingText.setText("Opening chat...");
+                        // Dismiss dialog after showing success message
+                        new android.os.Handler().postDelayed(() -> {
+                            if (waitingDialog.isShowing()) {
+                                waitingDialog.dismiss();
+                            }
+                            // Finish the scanning activity as we're connected
+                            finish();
+                        }, 1500);
+                        break;
+
+                    case "REJECTED":
+                        statusText.setText("Request rejected");
+                        statusText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
+                        waitingText.setText("The connection request was declined.");
+                        // Auto-dismiss after showing the message
+                        new android.os.Handler().postDelayed(() -> {
+                            if (waitingDialog.isShowing()) {
+                                waitingDialog.dismiss();
+                                isScanning = true; // Resume scanning
+                            }
+                        }, 3000);
+                        break;
+
+                    case "TIMEOUT":
+                    case "EXPIRED":
+                        statusText.setText("Request expired");
+                        statusText.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
+                        waitingText.setText("The request has expired.");
+                        // Auto-dismiss after showing the message
+                        new android.os.Handler().postDelayed(() -> {
+                            if (waitingDialog.isShowing()) {
+                                waitingDialog.dismiss();
+                                isScanning = true; // Resume scanning
+                            }
+                        }, 3000);
+                        break;
+
+                    default:
+                        // Still pending
+                        break;
+                }
+            });
         });
     }
 
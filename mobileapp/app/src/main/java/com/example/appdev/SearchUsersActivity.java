@@ -24,9 +24,11 @@ import android.widget.TextView;
 import com.bumptech.glide.Glide;
 import com.example.appdev.adapters.RecentConnectionsAdapter;
 import com.example.appdev.adapters.SearchUserAdapter;
+import com.example.appdev.helpers.ConnectionsIndex;
 import com.example.appdev.models.User;
 import com.example.appdev.utils.ConnectionRequestManager;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.UserSearch;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
@@ -40,6 +42,7 @@ import java.util.List;
 public class SearchUsersActivity extends AppCompatActivity {
 
     private static final String TAG = "SearchUsersActivity";
+    private static final int MAX_RECENT_CONNECTIONS = 10;
 
     private RecyclerView recyclerViewUsers;
     private RecyclerView recyclerViewRecentConnections;
@@ -51,11 +54,23 @@ public class SearchUsersActivity extends AppCompatActivity {
 
     private SearchUserAdapter searchUserAdapter;
     private RecentConnectionsAdapter recentConnectionsAdapter;
-    private List<User> allUsers = new ArrayList<>();
     private List<User> filteredUsers = new ArrayList<>();
     private List<User> recentConnections = new ArrayList<>();
     private String currentUserId;
 
+    // Prefix search over user_search_index, debounced while typing
+    private final UserSearch userSearch = new UserSearch(new UserSearch.Callback() {
+        @Override
+        public void onResults(String query, List<User> users) {
+            showSearchResults(query, users);
+        }
+
+        @Override
+        public void onError(DatabaseError error) {
+            onSearchFailed(error);
+        }
+    });
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -101,8 +116,9 @@ public class SearchUsersActivity extends AppCompatActivity {
             public void afterTextChanged(Editable s) {}
         });
 
-        // Load all users and recent connections
-        loadUsers();
+        // Users are searched on demand; only recent connections load up front
+        textViewNoUsers.setText("Start typing to search users");
+        textViewNoUsers.setVisibility(View.VISIBLE);
         loadRecentConnections();
     }
 
@@ -120,162 +136,33 @@ public class SearchUsersActivity extends AppCompatActivity {
         ConnectionRequestManager.getInstance().stopListeningForRequests();
     }
 
-    private void loadUsers() {
-        progressBar.setVisibility(View.VISIBLE);
-        textViewNoUsers.setVisibility(View.GONE);
-
-        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("users");
-
-        usersRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                allUsers.clear();
-                for (DataSnapshot userSnapshot : dataSnapshot.getChildren()) {
-                    String userId = userSnapshot.getKey();
-                    // Skip current user
-                    if (userId != null && !userId.equals(currentUserId)) {
-                        String username = userSnapshot.child("username").getValue(String.class);
-                        String email = userSnapshot.child("email").getValue(String.class);
-                        String language = userSnapshot.child("language").getValue(String.class);
-                        String profileImageUrl = userSnapshot.child("profileImageUrl").getValue(String.class);
-
-                        if (username != null && email != null) {
-                            User user = new User();
-                            user.setUserId(userId);
-                            user.setUsername(username);
-                            user.setEmail(email);
-                            user.setLanguage(language != null ? language : "Unknown");
-                            user.setProfileImageUrl(profileImageUrl);
-                            allUsers.add(user);
-                        }
-                    }
-                }
-
-                progressBar.setVisibility(View.GONE);
-
-                if (allUsers.isEmpty()) {
-                    textViewNoUsers.setText("No users available");
-                    textViewNoUsers.setVisibility(View.VISIBLE);
-                } else {
-                    textViewNoUsers.setVisibility(View.GONE);
-                }
-
-                // Initially show no results until user searches
-                filteredUsers.clear();
-                searchUserAdapter.notifyDataSetChanged();
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e(TAG, "Error loading users: " + databaseError.getMessage());
-                progressBar.setVisibility(View.GONE);
-                textViewNoUsers.setText("Failed to load users");
-                textViewNoUsers.setVisibility(View.VISIBLE);
-                CustomNotification.showNotification(SearchUsersActivity.this,
-                        "Failed to load users", false);
-            }
-        });
-    }
-
     private void loadRecentConnections() {
         recentConnections.clear();
 
-        // We'll collect user IDs from different sources and then fetch their details
-        java.util.Set<String> recentUserIds = new java.util.HashSet<>();
-        java.util.Map<String, Long> userActivityTimes = new java.util.HashMap<>();
-
-        DatabaseReference connectionRequestsRef = FirebaseDatabase.getInstance().getReference("connection_requests");
-
-        // Get accepted connection requests where current user is involved
-        connectionRequestsRef.orderByChild("fromUserId").equalTo(currentUserId)
-                .addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                            com.example.appdev.models.ConnectionRequest request = snapshot.getValue(com.example.appdev.models.ConnectionRequest.class);
-                            if (request != null && request.getStatus() != null && request.getStatus().equals("ACCEPTED")) {
-                                String otherUserId = request.getToUserId();
-                                if (otherUserId != null && !otherUserId.equals(currentUserId)) {
-                                    recentUserIds.add(otherUserId);
-                                    userActivityTimes.put(otherUserId, request.getTimestamp());
-                                }
-                            }
-                        }
-
-                        // Also check for requests received by current user
-                        connectionRequestsRef.orderByChild("toUserId").equalTo(currentUserId)
-                                .addListenerForSingleValueEvent(new ValueEventListener() {
-                                    @Override
-                                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                                        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                                            com.example.appdev.models.ConnectionRequest request = snapshot.getValue(com.example.appdev.models.ConnectionRequest.class);
-                                            if (request != null && request.getStatus() != null && request.getStatus().equals("ACCEPTED")) {
-                                                String otherUserId = request.getFromUserId();
-                                                if (otherUserId != null && !otherUserId.equals(currentUserId)) {
-                                                    recentUserIds.add(otherUserId);
-                                                    // Use the more recent timestamp if this user appears in multiple requests
-                                                    Long existingTime = userActivityTimes.get(otherUserId);
-                                                    if (existingTime == null || request.getTimestamp() > existingTime) {
-                                                        userActivityTimes.put(otherUserId, request.getTimestamp());
-                                                    }
-                                                }
-                                            }
-                                        }
-
-                                        // Now check for connect_chats with messages (actual conversations)
-                                        checkConnectChatsForRecentUsers(recentUserIds, userActivityTimes);
-                                    }
-
-                                    @Override
-                                    public void onCancelled(@NonNull DatabaseError databaseError) {
-                                        Log.e(TAG, "Error loading received connection requests: " + databaseError.getMessage());
-                                        // Still proceed to check connect chats
-                                        checkConnectChatsForRecentUsers(recentUserIds, userActivityTimes);
-                                    }
-                                });
-                    }
-
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError databaseError) {
-                        Log.e(TAG, "Error loading sent connection requests: " + databaseError.getMessage());
-                        // Still proceed to check connect chats
-                        checkConnectChatsForRecentUsers(new java.util.HashSet<>(), new java.util.HashMap<>());
-                    }
-                });
+        // Accepted requests, sessions and messages all update the user's connection records
+        loadConnectionRecords(new java.util.HashSet<>(), new java.util.HashMap<>());
     }
 
-    private void checkConnectChatsForRecentUsers(java.util.Set<String> recentUserIds, java.util.Map<String, Long> userActivityTimes) {
-        DatabaseReference connectChatsRef = FirebaseDatabase.getInstance().getReference("connect_chats");
-
-        connectChatsRef.addListenerForSingleValueEvent(new ValueEventListener() {
+    private void loadConnectionRecords(java.util.Set<String> recentUserIds, java.util.Map<String, Long> userActivityTimes) {
+        // Only the most recently active records are needed for the card
+        FirebaseDatabase.getInstance().getReference(ConnectionsIndex.NODE).child(currentUserId)
+                .orderByChild(ConnectionsIndex.LAST_ACTIVITY_KEY)
+                .limitToLast(MAX_RECENT_CONNECTIONS)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                for (DataSnapshot sessionSnapshot : dataSnapshot.getChildren()) {
-                    String sessionId = sessionSnapshot.getKey();
-                    if (sessionId != null && sessionId.contains(currentUserId)) {
-                        // This is a chat session involving the current user
-                        String otherUserId = getOtherUserIdFromSession(sessionId, currentUserId);
-                        if (otherUserId != null) {
-                            // Check if there are actual messages in this session
-                            if (sessionSnapshot.hasChildren()) {
-                                recentUserIds.add(otherUserId);
-
-                                // Get the most recent message timestamp
-                                long latestTimestamp = 0;
-                                for (DataSnapshot messageSnapshot : sessionSnapshot.getChildren()) {
-                                    Long timestamp = messageSnapshot.child("timestamp").getValue(Long.class);
-                                    if (timestamp != null && timestamp > latestTimestamp) {
-                                        latestTimestamp = timestamp;
-                                    }
-                                }
-
-                                // Update activity time if this is more recent
-                                Long existingTime = userActivityTimes.get(otherUserId);
-                                if (existingTime == null || latestTimestamp > existingTime) {
-                                    userActivityTimes.put(otherUserId, latestTimestamp);
-                                }
-                            }
-                        }
+                for (DataSnapshot record : dataSnapshot.getChildren()) {
+                    String otherUserId = record.getKey();
+                    Long lastActivity = record.child(ConnectionsIndex.LAST_ACTIVITY_KEY).getValue(Long.class);
+                    if (otherUserId == null || otherUserId.equals(currentUserId) || lastActivity == null) {
+                        continue;
+                    }
+                    recentUserIds.add(otherUserId);
+
+                    // Update activity time if this is more recent
+                    Long existingTime = userActivityTimes.get(otherUserId);
+                    if (existingTime == null || lastActivity > existingTime) {
+                        userActivityTimes.put(otherUserId, lastActivity);
                     }
                 }
 
@@ -285,7 +172,7 @@ public class SearchUsersActivity extends AppCompatActivity {
 
             @Override
             public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e(TAG, "Error loading connect chats: " + databaseError.getMessage());
+                Log.e(TAG, "Error loading connection records: " + databaseError.getMessage());
                 // Still try to fetch user details with what we have
                 fetchRecentUserDetails(recentUserIds, userActivityTimes);
             }
@@ -350,9 +237,9 @@ public class SearchUsersActivity extends AppCompatActivity {
             return Long.compare(time2, time1); // Most recent first
         });
 
-        // Limit to 10 recent connections
-        if (recentConnections.size() > 10) {
-            recentConnections = recentConnections.subList(0, 10);
+        // Limit to the most recent connections
+        if (recentConnections.size() > MAX_RECENT_CONNECTIONS) {
+            recentConnections = recentConnections.subList(0, MAX_RECENT_CONNECTIONS);
         }
 
         if (recentConnections.isEmpty()) {
@@ -363,46 +250,54 @@ public class SearchUsersActivity extends AppCompatActivity {
         }
     }
 
-    private String getOtherUserIdFromSession(String sessionId, String currentUserId) {
-        // Session ID format is "userId1_userId2" where userId1 < userId2 alphabetically
-        String[] parts = sessionId.split("_");
-        if (parts.length == 2) {
-            if (parts[0].equals(currentUserId)) {
-                return parts[1];
-            } else if (parts[1].equals(currentUserId)) {
-                return parts[0];
-            }
-        }
-        return null;
-    }
-
     private void filterUsers(String query) {
-        filteredUsers.clear();
-
         if (query.trim().isEmpty()) {
             // Show no results when search is empty
+            userSearch.cancel();
+            progressBar.setVisibility(View.GONE);
+            filteredUsers.clear();
+            searchUserAdapter.notifyDataSetChanged();
             textViewNoUsers.setText("Start typing to search users");
             textViewNoUsers.setVisibility(View.VISIBLE);
-        } else {
-            // Filter users based on username or email
-            for (User user : allUsers) {
-                if (user.getUsername().toLowerCase().contains(query.toLowerCase()) ||
-                    user.getEmail().toLowerCase().contains(query.toLowerCase())) {
-                    filteredUsers.add(user);
-                }
-            }
+            return;
+        }
+        progressBar.setVisibility(View.VISIBLE);
+        userSearch.search(query);
+    }
 
-            if (filteredUsers.isEmpty()) {
-                textViewNoUsers.setText("No users found matching \"" + query + "\"");
-                textViewNoUsers.setVisibility(View.VISIBLE);
-            } else {
-                textViewNoUsers.setVisibility(View.GONE);
+    private void showSearchResults(String query, List<User> users) {
+        progressBar.setVisibility(View.GONE);
+        filteredUsers.clear();
+        for (User user : users) {
+            // Skip current user
+            if (!user.getUserId().equals(currentUserId)) {
+                filteredUsers.add(user);
             }
         }
 
+        if (filteredUsers.isEmpty()) {
+            textViewNoUsers.setText("No users found matching \"" + query.trim() + "\"");
+            textViewNoUsers.setVisibility(View.VISIBLE);
+        } else {
+            textViewNoUsers.setVisibility(View.GONE);
+        }
         searchUserAdapter.notifyDataSetChanged();
     }
 
+    private void onSearchFailed(DatabaseError databaseError) {
+        Log.e(TAG, "Error searching users: " + databaseError.getMessage());
+        progressBar.setVisibility(View.GONE);
+        textViewNoUsers.setText("Failed to load users");
+        textViewNoUsers.setVisibility(View.VISIBLE);
+        CustomNotification.showNotification(SearchUsersActivity.this,
+                "Failed to load users", false);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        userSearch.cancel();
+    }
 
     private void onUserClicked(User user) {
         // Send connection request for all users (recent connections or search results)
@@ -450,8 +345,8 @@ public class SearchUsersActivity extends AppCompatActivity {
                 profileImage.setImageResource(R.drawable.default_userpic);
             }
 
-            // Store requestId for cancellation
-            final String[] currentRequestId = {null};
+            // Store the request for cancellation
+            final com.example.appdev.models.ConnectionRequest[] currentRequest = {null};
 
             // Immediately send the connection request
             ConnectionRequestManager.getInstance().createConnectionRequest(
@@ -459,7 +354,7 @@ public class SearchUsersActivity extends AppCompatActivity {
                 new ConnectionRequestManager.ConnectionRequestCallback() {
                     @Override
                     public void onSuccess(com.example.appdev.models.ConnectionRequest request) {
-                        currentRequestId[0] = request.getRequestId();
+                        currentRequest[0] = request;
                         runOnUiThread(() -> {
                             statusText.setText("Request sent successfully!");
                             statusText.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
@@ -484,24 +379,27 @@ public class SearchUsersActivity extends AppCompatActivity {
             // Set click listeners
             cancelButton.setOnClickListener(v -> {
                 // Cancel the connection request if it exists
-                if (currentRequestId[0] != null) {
-                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequestId[0]);
+                if (currentRequest[0] != null) {
+                    ConnectionRequestManager.getInstance().unwatchSentRequest(currentRequest[0].getRequestId());
+                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequest[0]);
                 }
                 waitingDialog.dismiss();
             });
 
             closeButton.setOnClickListener(v -> {
                 // Cancel the connection request if it exists
-                if (currentRequestId[0] != null) {
-                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequestId[0]);
+                if (currentRequest[0] != null) {
+                    ConnectionRequestManager.getInstance().unwatchSentRequest(currentRequest[0].getRequestId());
+                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequest[0]);
                 }
                 waitingDialog.dismiss();
             });
 
             waitingDialog.setOnCancelListener(dialog -> {
                 // Cancel the connection request if it exists
-                if (currentRequestId[0] != null) {
-                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequestId[0]);
+                if (currentRequest[0] != null) {
+                    ConnectionRequestManager.getInstance().unwatchSentRequest(currentRequest[0].getRequestId());
+                    ConnectionRequestManager.getInstance().cancelConnectionRequest(currentRequest[0]);
                 }
             });
 
@@ -511,67 +409,56 @@ public class SearchUsersActivity extends AppCompatActivity {
     }
 
     private void listenForRequestStatus(String requestId, Dialog waitingDialog, TextView statusText, TextView waitingText, String username) {
-        DatabaseReference requestRef = FirebaseDatabase.getInstance()
-                .getReference("connection_requests").child(requestId);
-
-        requestRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                if (!dataSnapshot.exists()) return;
-
-                String status = dataSnapshot.child("status").getValue(String.class);
-                if (status == null) return;
-
-                runOnUiThread(() -> {
-                    switch (status) {
-                        case "ACCEPTED":
-                            statusText.setText("Request accepted!");
-                            statusText.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
-                            waitingText.setText("Opening chat...");
-                            // Dismiss dialog after showing success message
-                            new Handler().postDelayed(() -> {
-                                if (waitingDialog.isShowing()) {
-                                    waitingDialog.dismiss();
-                                }
-                            }, 1500);
-                            break;
-
-                        case "REJECTED":
-                            statusText.setText("Request rejected");
-                            statusText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-                            waitingText.setText("The connection request was declined.");
-                            // Auto-dismiss after showing the message
-                            new Handler().postDelayed(() -> {
-                                if (waitingDialog.isShowing()) {
-                                    waitingDialog.dismiss();
-                                }
-                            }, 3000);
-                            break;
-
-                        case "TIMEOUT":
-                        case "EXPIRED":
-                            statusText.setText("Request expired");
-                            statusText.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
-                            waitingText.setText("The request has expired.");
-                            // Auto-dismiss after showing the message
-                            new Handler().postDelayed(() -> {
-                                if (waitingDialog.isShowing()) {
-                                    waitingDialog.dismiss();
-                                }
-                            }, 3000);
-                            break;
-
-                        default:
-                            // Still pending
-                            break;
-                    }
-                });
-            }
+        // Status changes arrive through the manager's stream over the current user's outbox
+        ConnectionRequestManager.getInstance().watchSentRequest(this, requestId, request -> {
+            String status = request.getStatus();
+            if (status == null || "PENDING".equals(status)) return;
+            ConnectionRequestManager.getInstance().unwatchSentRequest(requestId);
+
+            runOnUiThread(() -> {
+                switch (status) {
+                    case "ACCEPTED":
+                        statusText.setText("Request accepted!");
+                        statusText.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
+                        waitingText.setText("Opening chat...");
+                        // Dismiss dialog after showing success message
+                        new Handler().postDelayed(() -> {
+                            if (waitingDialog.isShowing()) {
+                                waitingDialog.dismiss();
+                            }
+                        }, 1500);
+                        break;
+
+                    case "REJECTED":
+                        statusText.setText("Request rejected");
+                        statusText.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
+                        waitingText.setText("The connection request was declined.");
+                        // Auto-dismiss after showing the message
+                        new Handler().postDelayed(() -> {
+                            if (waitingDialog.isShowing()) {
+                                waitingDialog.dismiss();
+                            }
+                        }, 3000);
+                        break;
+
+                    case "TIMEOUT":
+                    case "EXPIRED":
+                        statusText.setText("Request expired");
+                        statusText.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
+                        waitingText.setText("The request has expired.");
+                        // Auto-dismiss after showing the message
+                        new Handler().postDelayed(() -> {
+                            if (waitingDialog.isShowing()) {
+                                waitingDialog.dismiss();
+                            }
+                        }, 3000);
+                        break;
 
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                Log.e(TAG, "Error listening for request status", databaseError.toException());
-            }
+                    default:
+                        // Still pending
+                        break;
+                }
+            });
         });
     }
 }
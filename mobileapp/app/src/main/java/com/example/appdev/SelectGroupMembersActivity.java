@@ -1,6 +1,5 @@
 package com.example.appdev;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -19,12 +18,9 @@ import android.widget.TextView;
 import com.example.appdev.adapters.SelectMembersAdapter;
 import com.example.appdev.models.User;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.UserSearch;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -40,8 +36,21 @@ public class SelectGroupMembersActivity extends AppCompatActivity {
     private ImageView imageViewBack;
     
     private SelectMembersAdapter adapter;
-    private List<User> allContacts;
     private List<User> filteredContacts;
+    private final UserSearch contactSearch = new UserSearch(new UserSearch.Callback() {
+        @Override
+        public void onResults(String query, List<User> users) {
+            showContacts(query, users);
+        }
+
+        @Override
+        public void onError(DatabaseError error) {
+            progressBar.setVisibility(View.GONE);
+            textViewNoContacts.setVisibility(View.VISIBLE);
+            CustomNotification.showNotification(SelectGroupMembersActivity.this,
+                "Failed to load contacts: " + error.getMessage(), false);
+        }
+    });
     private HashMap<String, Boolean> selectedMembers;
     
     @Override
@@ -66,7 +75,6 @@ public class SelectGroupMembersActivity extends AppCompatActivity {
         
         // Setup RecyclerView
         recyclerViewContacts.setLayoutManager(new LinearLayoutManager(this));
-        allContacts = new ArrayList<>();
         filteredContacts = new ArrayList<>();
         
         adapter = new SelectMembersAdapter(this, filteredContacts, selectedMembers);
@@ -103,63 +111,22 @@ public class SelectGroupMembersActivity extends AppCompatActivity {
     
     private void loadContacts() {
         progressBar.setVisibility(View.VISIBLE);
-        
-        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("users");
-        
-        usersRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                allContacts.clear();
-                
-                for (DataSnapshot dataSnapshot : snapshot.getChildren()) {
-                    User user = dataSnapshot.getValue(User.class);
-                    String userId = dataSnapshot.getKey();
-                    
-                    // Skip current user and already selected members
-                    if (user != null && userId != null && !userId.equals(currentUserId)) {
-                        user.setUserId(userId);
-                        allContacts.add(user);
-                    }
-                }
-                
-                progressBar.setVisibility(View.GONE);
-                
-                if (allContacts.isEmpty()) {
-                    textViewNoContacts.setVisibility(View.VISIBLE);
-                } else {
-                    textViewNoContacts.setVisibility(View.GONE);
-                    filteredContacts.addAll(allContacts);
-                    adapter.notifyDataSetChanged();
-                }
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                progressBar.setVisibility(View.GONE);
-                textViewNoContacts.setVisibility(View.VISIBLE);
-                CustomNotification.showNotification(SelectGroupMembersActivity.this, 
-                    "Failed to load contacts: " + error.getMessage(), false);
-            }
-        });
+        // First page of users by name; typing narrows it with an indexed prefix search
+        contactSearch.searchNow("");
     }
-    
-    private void filterContacts(String query) {
+
+    private void showContacts(String query, List<User> users) {
+        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        progressBar.setVisibility(View.GONE);
         filteredContacts.clear();
-        
-        if (query.isEmpty()) {
-            filteredContacts.addAll(allContacts);
-        } else {
-            for (User user : allContacts) {
-                if (user.getUsername() != null && user.getUsername().toLowerCase().contains(query) ||
-                    user.getEmail() != null && user.getEmail().toLowerCase().contains(query)) {
-                    filteredContacts.add(user);
-                }
+        for (User user : users) {
+            // Skip current user
+            if (!user.getUserId().equals(currentUserId)) {
+                filteredContacts.add(user);
             }
         }
-        
         adapter.notifyDataSetChanged();
-        
+
         if (filteredContacts.isEmpty()) {
             textViewNoContacts.setText("No contacts found");
             textViewNoContacts.setVisibility(View.VISIBLE);
@@ -167,4 +134,14 @@ public class SelectGroupMembersActivity extends AppCompatActivity {
             textViewNoContacts.setVisibility(View.GONE);
         }
     }
+
+    private void filterContacts(String query) {
+        contactSearch.search(query);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        contactSearch.cancel();
+    }
 }
@@ -0,0 +1,15 @@
+package com.example.appdev;
+
+import android.app.Application;
+
+import com.example.appdev.utils.DatabaseBootstrap;
+
+public class SpeakForgeApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // The database cache has to be set up before any screen touches the database
+        DatabaseBootstrap.init(this);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.appdev;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+
+/**
+ * Glide configuration for the app. Most images are small avatars (see AvatarLoader), so the
+ * memory cache holds more screens than the default, and the bitmap pool holds enough to
+ * reuse the software bitmaps avatars are decoded into. The disk cache is sized for
+ * thumbnails plus the originals of recently seen profile and group pictures.
+ */
+@GlideModule
+public final class SpeakForgeGlideModule extends AppGlideModule {
+
+    private static final String DISK_CACHE_NAME = "image_cache";
+    private static final long DISK_CACHE_BYTES = 100L * 1024 * 1024;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(3)
+                .setBitmapPoolScreens(2)
+                .build();
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+        builder.setBitmapPool(new LruBitmapPool(calculator.getBitmapPoolSize()));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME, DISK_CACHE_BYTES));
+        builder.setLogLevel(Log.ERROR);
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
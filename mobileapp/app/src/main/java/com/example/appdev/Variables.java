@@ -4,15 +4,24 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Variables {
+    // API endpoint paths, relative to API_BASE_URL
+    public static final String API_PATH_TRANSLATE_DB = "translate-db/";
+    public static final String API_PATH_TRANSLATE_DB_CONTEXT = "translate-db-context/";
+    public static final String API_PATH_TRANSLATE_GROUP = "translate-group/";
+    public static final String API_PATH_TRANSLATE_GROUP_CONTEXT = "translate-group-context/";
+    public static final String API_PATH_TRANSLATE_VOICE = "translate-voice/";
+    public static final String API_PATH_REGENERATE_TRANSLATION = "regenerate-translation/";
+    public static final String API_PATH_TRANSLATE_SIMPLE = "translate-simple/";
+
     // Server Constant variables - these will be updated from Firebase
     public static String API_BASE_URL = "https://06jwj9s0-8000.asse.devtunnels.ms/api/";
-    public static String API_TRANSLATE_DB_URL = API_BASE_URL + "translate-db/";
-    public static String API_TRANSLATE_DB_CONTEXT_URL = API_BASE_URL + "translate-db-context/";
-    public static String API_TRANSLATE_GROUP_URL = API_BASE_URL + "translate-group/";
-    public static String API_TRANSLATE_GROUP_CONTEXT_URL = API_BASE_URL + "translate-group-context/";
-    public static String API_TRANSLATE_VOICE_URL = API_BASE_URL + "translate-voice/";
-    public static String API_REGENERATE_TRANSLATION_URL = API_BASE_URL + "regenerate-translation/";
-    public static String API_TRANSLATE_SIMPLE_URL = API_BASE_URL + "translate-simple/";
+    public static String API_TRANSLATE_DB_URL = API_BASE_URL + API_PATH_TRANSLATE_DB;
+    public static String API_TRANSLATE_DB_CONTEXT_URL = API_BASE_URL + API_PATH_TRANSLATE_DB_CONTEXT;
+    public static String API_TRANSLATE_GROUP_URL = API_BASE_URL + API_PATH_TRANSLATE_GROUP;
+    public static String API_TRANSLATE_GROUP_CONTEXT_URL = API_BASE_URL + API_PATH_TRANSLATE_GROUP_CONTEXT;
+    public static String API_TRANSLATE_VOICE_URL = API_BASE_URL + API_PATH_TRANSLATE_VOICE;
+    public static String API_REGENERATE_TRANSLATION_URL = API_BASE_URL + API_PATH_REGENERATE_TRANSLATION;
+    public static String API_TRANSLATE_SIMPLE_URL = API_BASE_URL + API_PATH_TRANSLATE_SIMPLE;
 
     // SharedPreferences constants
     public static final String PREFS_NAME = "SpeakForgePrefs";
@@ -21,6 +30,7 @@ public class Variables {
     public static final String PREF_FORMAL_TRANSLATION_MODE = "formalTranslationMode";
     public static final String PREF_CONTEXT_AWARE_TRANSLATION = "contextAwareTranslation";
     public static final String PREF_CONTEXT_DEPTH = "contextDepth";
+    public static final String PREF_DATABASE_CACHE_BYTES = "databaseCacheBytes";
 
     // Public variables
     public static String userUID = "";
@@ -36,6 +46,7 @@ public class Variables {
     public static boolean isContextAwareTranslation = true; // Default to enabled
     public static boolean isDevelopmentMode = false;
     public static int contextDepth = 5; // Default context depth
+    public static boolean isRequestHedgingEnabled = false; // Send a duplicate of live translations that run past their p95; off until its backend load is measured
 
     // Offline Mode Flag
     public static boolean isOfflineMode = false;
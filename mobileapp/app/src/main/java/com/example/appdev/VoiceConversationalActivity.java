@@ -18,8 +18,14 @@ import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
 import com.example.appdev.adapters.VoiceMessageAdapter;
+import com.example.appdev.helpers.SnapshotMappers;
+import com.example.appdev.models.User;
 import com.example.appdev.models.VoiceMessage;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.UserProfileStore;
+import com.example.appdev.utils.MessageStream;
+import com.example.appdev.utils.TranslationHttpClient;
+import com.example.appdev.utils.TranslationScheduler;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
@@ -33,15 +39,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 
-import android.os.AsyncTask;
 
 import org.json.JSONObject;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.io.OutputStream;
 import java.util.Map;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 
 public class VoiceConversationalActivity extends AppCompatActivity {
 
@@ -52,8 +52,10 @@ public class VoiceConversationalActivity extends AppCompatActivity {
     private static final int SPEECH_REQUEST_CODE = 1;
     private DatabaseReference contactSettingsRef;
     private boolean translateEnabled = false;
-    private int previousMessageCount = 0;
+    private MessageStream<VoiceMessage> messageStream;
     private String recipientTranslator = "google"; // default value
+    private final UserProfileStore.Observer recipientProfileObserver =
+            (userId, profile) -> applyRecipientProfile(profile);
     private String recipientId;
 
     // Voice input UI elements
@@ -78,26 +80,6 @@ public class VoiceConversationalActivity extends AppCompatActivity {
         // Store recipientId as class field
         recipientId = getIntent().getStringExtra("userId");
 
-        // Add listener for recipient's translator preference
-        DatabaseReference recipientTranslatorRef = FirebaseDatabase.getInstance()
-                .getReference()
-                .child("users")
-                .child(recipientId)
-                .child("translator");
-
-        recipientTranslatorRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    recipientTranslator = dataSnapshot.getValue(String.class);
-                }
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                recipientTranslator = "google"; // fallback to default
-            }
-        });
 
         // Generate a unique room ID for the conversation using the sender and recipient IDs
         String senderId = FirebaseAuth.getInstance().getCurrentUser().getUid();
@@ -133,17 +115,9 @@ public class VoiceConversationalActivity extends AppCompatActivity {
 
         loadVoiceMessages();
 
-        DatabaseReference recipientLanguageRef = FirebaseDatabase.getInstance()
-                .getReference("users").child(recipientId).child("language");
-        recipientLanguageRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                recipientLanguage = dataSnapshot.getValue(String.class);
-            }
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-            }
-        });
+        // Recipient's language and translator come from the shared profile store
+        applyRecipientProfile(UserProfileStore.peek(recipientId));
+        UserProfileStore.subscribe(recipientId, recipientProfileObserver);
 
         de.hdodenhof.circleimageview.CircleImageView imageViewUserPicture =
                 findViewById(R.id.imageViewUserPicture);
@@ -275,44 +249,29 @@ public class VoiceConversationalActivity extends AppCompatActivity {
 
             String apiUrl = Variables.API_TRANSLATE_VOICE_URL;
 
-            new AsyncTask<Void, Void, Boolean>() {
-                @Override
-                protected Boolean doInBackground(Void... voids) {
-                    try {
-                        URL url = new URL(apiUrl);
-                        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                        conn.setRequestMethod("POST");
-                        conn.setRequestProperty("Content-Type", "application/json");
-                        conn.setDoOutput(true);
-
-                        try (OutputStream os = conn.getOutputStream()) {
-                            byte[] input = requestBody.toString().getBytes("utf-8");
-                            os.write(input, 0, input.length);
-                        }
-
-                        if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                            return true;
-                        } else {
-                            // If translation fails, set state back to null
-                            DatabaseReference messageRef = voiceMessagesRef.child(roomId).child(messageId);
-                            messageRef.child("translationState").setValue(null);
-                            return false;
-                        }
-                    } catch (Exception e) {
-                        Log.e("VoiceConversationalActivity", "Error translating voice message: " + e.getMessage());
+            TranslationScheduler.submit(roomId, () -> {
+                try {
+                    TranslationHttpClient.ApiResponse response = TranslationHttpClient.postJson(apiUrl, requestBody);
+
+                    if (response.isSuccessful()) {
+                        return true;
+                    } else {
+                        // If translation fails, set state back to null
                         DatabaseReference messageRef = voiceMessagesRef.child(roomId).child(messageId);
                         messageRef.child("translationState").setValue(null);
                         return false;
                     }
+                } catch (Exception e) {
+                    Log.e("VoiceConversationalActivity", "Error translating voice message: " + e.getMessage());
+                    DatabaseReference messageRef = voiceMessagesRef.child(roomId).child(messageId);
+                    messageRef.child("translationState").setValue(null);
+                    return false;
                 }
-
-                @Override
-                protected void onPostExecute(Boolean success) {
-                    if (!success) {
-                        Log.e("VoiceConversationalActivity", "Failed to translate voice message");
-                    }
+            }, success -> {
+                if (!Boolean.TRUE.equals(success)) {
+                    Log.e("VoiceConversationalActivity", "Failed to translate voice message");
                 }
-            }.execute();
+            });
         } catch (Exception e) {
             Log.e("VoiceConversationalActivity", "Error creating JSON request: " + e.getMessage());
             DatabaseReference messageRef = voiceMessagesRef.child(roomId).child(messageId);
@@ -322,32 +281,42 @@ public class VoiceConversationalActivity extends AppCompatActivity {
 
     private void loadVoiceMessages() {
         if (roomId != null) {
-            voiceMessagesRef.child(roomId).orderByChild("timestamp")
-                    .addValueEventListener(new ValueEventListener() {
+            messageStream = new MessageStream<>(voiceMessagesRef.child(roomId), SnapshotMappers::toVoiceMessage, new MessageStream.Listener<VoiceMessage>() {
                 @Override
-                public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                    List<VoiceMessage> messages = new ArrayList<>();
-                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                        VoiceMessage message = snapshot.getValue(VoiceMessage.class);
-                        if (message != null) {
-                            messages.add(message);
-                        }
+                public void onPageLoaded(List<VoiceMessage> messages, boolean hasMore) {
+                    boolean firstPage = voiceMessageAdapter.getItemCount() == 0;
+                    voiceMessageAdapter.prependMessages(messages);
+                    if (firstPage && voiceMessageAdapter.getItemCount() > 0) {
+                        recyclerViewVoiceChat.scrollToPosition(voiceMessageAdapter.getItemCount() - 1);
                     }
-                    voiceMessageAdapter.setMessages(messages);
+                }
 
-                    // Only scroll if new messages are added
-                    int newSize = messages.size();
-                    if (newSize > previousMessageCount) {
-                        recyclerViewVoiceChat.scrollToPosition(voiceMessageAdapter.getItemCount() - 1);
+                @Override
+                public void onMessageAdded(VoiceMessage message) {
+                    // Only scroll when the new message lands at the bottom
+                    int position = voiceMessageAdapter.addOrUpdateMessage(message);
+                    if (position >= 0 && position == voiceMessageAdapter.getItemCount() - 1) {
+                        recyclerViewVoiceChat.scrollToPosition(position);
                     }
-                    previousMessageCount = newSize;
                 }
 
                 @Override
-                public void onCancelled(@NonNull DatabaseError databaseError) {
+                public void onMessageChanged(VoiceMessage message) {
+                    voiceMessageAdapter.addOrUpdateMessage(message);
+                }
+
+                @Override
+                public void onMessageRemoved(String messageId) {
+                    voiceMessageAdapter.removeMessage(messageId);
+                }
+
+                @Override
+                public void onError(DatabaseError databaseError) {
                     Log.e("VoiceConversationalActivity", "Error loading voice messages: " + databaseError.getMessage());
                 }
             });
+            messageStream.attachPaging(recyclerViewVoiceChat);
+            messageStream.start();
         }
     }
 
@@ -381,6 +350,28 @@ public class VoiceConversationalActivity extends AppCompatActivity {
         }
     }
 
+    private void applyRecipientProfile(User profile) {
+        if (profile == null) {
+            return;
+        }
+        if (profile.getLanguage() != null) {
+            recipientLanguage = profile.getLanguage();
+        }
+        if (profile.getTranslator() != null) {
+            recipientTranslator = profile.getTranslator();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        UserProfileStore.unsubscribe(recipientId, recipientProfileObserver);
+        // Stop listening to the room's messages
+        if (messageStream != null) {
+            messageStream.stop();
+        }
+    }
+
     /**
      * Gets the RecyclerView for scrolling to messages
      * @return The RecyclerView instance
@@ -10,9 +10,9 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.appdev.R;
 import com.example.appdev.models.User;
+import com.example.appdev.utils.AvatarLoader;
 
 import java.util.HashMap;
 import java.util.List;
@@ -56,15 +56,7 @@ public class AddMembersAdapter extends RecyclerView.Adapter<AddMembersAdapter.Me
         holder.textViewEmail.setText(user.getEmail());
         
         // Load profile picture
-        if (user.getProfilePictureUrl() != null && !user.getProfilePictureUrl().isEmpty() 
-                && !user.getProfilePictureUrl().equals("none")) {
-            Glide.with(context)
-                    .load(user.getProfilePictureUrl())
-                    .placeholder(R.drawable.default_userpic)
-                    .into(holder.imageViewProfilePic);
-        } else {
-            holder.imageViewProfilePic.setImageResource(R.drawable.default_userpic);
-        }
+        AvatarLoader.load(holder.imageViewProfilePic, user.getProfilePictureUrl());
         
         // Set checkbox state without triggering listener
         holder.checkBoxSelect.setOnCheckedChangeListener(null);
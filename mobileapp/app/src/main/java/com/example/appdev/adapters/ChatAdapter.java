@@ -16,20 +16,19 @@ import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.appdev.ChatActivity;
 import com.example.appdev.Variables;
 import com.example.appdev.models.Message;
+import com.example.appdev.models.User;
 import com.example.appdev.R;
 import com.example.appdev.subcontrollers.RegenerateMessageTranslation;
+import com.example.appdev.utils.AvatarLoader;
 import com.example.appdev.utils.LoadingDotsView;
+import com.example.appdev.utils.TextLayoutPrefetcher;
+import com.example.appdev.utils.UserProfileStore;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -42,12 +41,12 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import java.util.HashMap;
 
 public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder> {
 
     private List<Message> messages;
+    private final MessagePositions<Message> positions = new MessagePositions<>();
     private DatabaseReference messagesRef;
     private String roomId;
     private String visibleOriginalMessageId = null;
@@ -55,36 +54,98 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
     private String regeneratingMessageId = null;
     private String cyclingMessageId = null;
     private Context context;
-    private DatabaseReference usersRef;
-    private Map<String, String> profileImageUrlCache = new HashMap<>();
-    private Map<String, String> usernameCache = new HashMap<>();
     private Message replyingToMessage = null;
 
+    // Profiles of the senders shown by bound rows; a change rebinds only their messages
+    private final UserProfileStore.Subscriptions profileSubscriptions =
+            new UserProfileStore.Subscriptions(this::onProfileChanged);
+
+    // Bubble text laid out ahead of scrolling
+    final TextLayoutPrefetcher textLayouts = new TextLayoutPrefetcher(this, this::collectTexts);
+    private RecyclerView.OnScrollListener avatarPreloader;
+
     public ChatAdapter() {
         this.messages = new ArrayList<>();
-        this.usersRef = FirebaseDatabase.getInstance().getReference("users");
-        setupProfileImageCacheListener();
+        setHasStableIds(true);
     }
 
+    /**
+     * Replace the whole list. Screens fed by MessageStream use the incremental methods below.
+     */
     public void setMessages(List<Message> messages) {
-        if (messages == null) {
-            this.messages = new ArrayList<>();
-        } else {
-            // Filter out any null messages
-            this.messages = messages.stream()
-                .filter(message -> message != null && message.getSenderId() != null)
-                .collect(Collectors.toList());
-        }
+        this.messages = MessageDiff.displayable(messages);
+        positions.reset(this.messages);
         notifyDataSetChanged();
     }
 
+    /**
+     * Add a page of older messages above the ones already shown
+     */
+    public void prependMessages(List<Message> olderMessages) {
+        List<Message> valid = MessageDiff.displayable(olderMessages);
+        if (valid.isEmpty()) {
+            return;
+        }
+        messages.addAll(0, valid);
+        for (Message message : valid) {
+            positions.put(message);
+        }
+        notifyItemRangeInserted(0, valid.size());
+        // The newest older message may now be followed by the same sender
+        notifyItemChanged(valid.size() - 1);
+    }
+
+    /**
+     * Insert a message at its place by timestamp, or rebind it if it is already shown
+     * @return The message's position, or -1 if it was skipped
+     */
+    public int addOrUpdateMessage(Message message) {
+        if (message == null || message.getSenderId() == null) {
+            return -1;
+        }
+        int existing = findPositionById(message.getMessageId());
+        if (existing >= 0 && messages.get(existing).getTimestamp() == message.getTimestamp()) {
+            Object payload = MessageDiff.changePayload(messages.get(existing), message);
+            messages.set(existing, message);
+            positions.put(message);
+            notifyItemChanged(existing, payload);
+            return existing;
+        }
+        if (existing >= 0) {
+            removeAt(existing);
+        }
+
+        int position = MessagePositions.insertionPoint(messages, message.getTimestamp());
+        messages.add(position, message);
+        positions.put(message);
+        notifyItemInserted(position);
+        if (position > 0) {
+            notifyItemChanged(position - 1); // Its avatar depends on the message after it
+        }
+        return position;
+    }
+
+    public void removeMessage(String messageId) {
+        int position = findPositionById(messageId);
+        if (position >= 0) {
+            removeAt(position);
+        }
+    }
+
+    private void removeAt(int position) {
+        positions.remove(messages.remove(position));
+        notifyItemRemoved(position);
+        if (position > 0) {
+            notifyItemChanged(position - 1);
+        }
+    }
+
     public ChatAdapter(DatabaseReference messagesRef, String roomId, Context context) {
         this.messagesRef = messagesRef;
         this.roomId = roomId;
         this.context = context;
         messages = new ArrayList<>();
-        this.usersRef = FirebaseDatabase.getInstance().getReference("users");
-        setupProfileImageCacheListener();
+        setHasStableIds(true);
     }
 
     public void setVisibleOriginalMessageId(String messageId) {
@@ -149,17 +210,30 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
     @Override
     public void onBindViewHolder(@NonNull ChatViewHolder holder, int position) {
         Message message = messages.get(position);
-        
-        // Check if this message is part of consecutive messages from same sender
-        boolean showAvatar = true;
-        if (position < messages.size() - 1) {
-            Message nextMessage = messages.get(position + 1);
-            if (message.getSenderId().equals(nextMessage.getSenderId())) {
-                showAvatar = false;
-            }
+        holder.bind(message, showAvatar(position));
+        profileSubscriptions.rebind(holder.profileIds, message.getSenderId(),
+                message.isReply() ? message.getReplyToSenderId() : null);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ChatViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (MessageDiff.isTranslationOnly(payloads)) {
+            holder.bindTranslation(messages.get(position), showAvatar(position));
+        } else {
+            onBindViewHolder(holder, position);
         }
-        
-        holder.bind(message, showAvatar);
+    }
+
+    // Consecutive messages from the same sender only show the avatar on the last one
+    private boolean showAvatar(int position) {
+        return position >= messages.size() - 1
+                || !messages.get(position).getSenderId().equals(messages.get(position + 1).getSenderId());
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ChatViewHolder holder) {
+        super.onViewRecycled(holder);
+        profileSubscriptions.rebind(holder.profileIds);
     }
 
     @Override
@@ -167,6 +241,11 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
         return messages.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return MessageDiff.stableId(messages.get(position).getMessageId());
+    }
+
     @Override
     public int getItemViewType(int position) {
         Message message = messages.get(position);
@@ -179,44 +258,68 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
         return senderId.equals(currentUserId) ? 0 : 1;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        textLayouts.attach(recyclerView);
+        avatarPreloader = AvatarLoader.startPreloading(recyclerView, this::avatarUrlAt);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        textLayouts.detach();
+        AvatarLoader.stopPreloading(recyclerView, avatarPreloader);
+        avatarPreloader = null;
+    }
+
+    // The avatar bind() will show for a message: received ones that end a run of the sender's messages
+    private String avatarUrlAt(int position) {
+        if (position >= messages.size() || getItemViewType(position) != 1
+                || messages.get(position).isSessionEnd() || !showAvatar(position)) {
+            return null;
+        }
+        return UserProfileStore.getProfileImageUrl(messages.get(position).getSenderId());
+    }
+
+    // The texts bind() will show for a message, so they can be laid out ahead
+    private void collectTexts(int position, TextLayoutPrefetcher.Texts out) {
+        Message message = messages.get(position);
+        if (message == null || message.isSessionEnd()) {
+            return;
+        }
+        String messageId = message.getMessageId();
+        String translation = "REMOVED".equals(message.getTranslationState()) ? null : message.getTranslation1();
+        if (getItemViewType(position) == 0) {
+            out.add(R.id.textViewMessage, messageId, message.getMessage());
+            out.add(R.id.textViewOriginalMessage, messageId, translation);
+        } else {
+            out.add(R.id.textViewMessage, messageId, translation != null ? translation : message.getMessage());
+            out.add(R.id.textViewOriginalMessage, messageId, message.getMessage());
+        }
+        if (message.isReply()) {
+            out.add(R.id.textViewReplyContent, messageId, message.getReplyToMessage());
+        }
+    }
+
     private int findPositionById(String messageId) {
-        if (messageId == null) return -1;
+        return positions.find(messages, messageId);
+    }
+
+    private void onProfileChanged(String userId, User profile) {
         for (int i = 0; i < messages.size(); i++) {
-            Message msg = messages.get(i);
-            if (msg != null && messageId.equals(msg.getMessageId())) {
-                return i;
+            Message message = messages.get(i);
+            if (userId.equals(message.getSenderId()) || userId.equals(message.getReplyToSenderId())) {
+                notifyItemChanged(i);
             }
         }
-        return -1;
-    }
-
-    private void setupProfileImageCacheListener() {
-        usersRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                profileImageUrlCache.clear();
-                usernameCache.clear();
-                for (DataSnapshot userSnapshot : snapshot.getChildren()) {
-                    String userId = userSnapshot.getKey();
-                    String profileUrl = userSnapshot.child("profileImageUrl").getValue(String.class);
-                    String username = userSnapshot.child("username").getValue(String.class);
-                    
-                    if (userId != null && profileUrl != null && !profileUrl.isEmpty()) {
-                        profileImageUrlCache.put(userId, profileUrl);
-                    }
-                    
-                    if (userId != null && username != null && !username.isEmpty()) {
-                        usernameCache.put(userId, username);
-                    }
-                }
-                notifyDataSetChanged();
-            }
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e("ChatAdapter", "Error loading user data: " + error.getMessage());
-            }
-        });
+    /**
+     * Drop the profile subscriptions held by this adapter. Call when its screen is destroyed.
+     */
+    public void release() {
+        profileSubscriptions.releaseAll();
     }
 
     public static class ChatViewHolder extends RecyclerView.ViewHolder {
@@ -230,6 +333,7 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
         private ChatAdapter adapter;
         private de.hdodenhof.circleimageview.CircleImageView imageViewProfile;
         private Context context;
+        private final List<String> profileIds = new ArrayList<>(2);
 
         public ChatViewHolder(@NonNull View itemView, DatabaseReference messagesRef, String roomId, 
                 ChatAdapter adapter, Context context) {
@@ -248,6 +352,65 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
         }
 
         public void bind(Message message, boolean showAvatar) {
+            // Handle reply preview if this is a reply message
+            if (replyPreviewContainer != null) {
+                if (message.isReply()) {
+                    replyPreviewContainer.setVisibility(View.VISIBLE);
+                    
+                    // Set the original sender's name
+                    String originalSenderId = message.getReplyToSenderId();
+                    String originalSenderName = UserProfileStore.getUsername(originalSenderId);
+                    if (originalSenderName != null) {
+                        textViewReplySender.setText(originalSenderName);
+                    } else {
+                        textViewReplySender.setText("User");
+                    }
+                    
+                    // Set the original message content
+                    String originalMessage = message.getReplyToMessage();
+                    if (originalMessage != null) {
+                        adapter.textLayouts.setText(textViewReplyContent, getItemViewType(),
+                                message.getMessageId(), originalMessage);
+                    } else {
+                        textViewReplyContent.setText("Original message unavailable");
+                    }
+                    
+                    // Set click listener to navigate to the original message
+                    replyPreviewContainer.setOnClickListener(v -> {
+                        String originalMessageId = message.getReplyToMessageId();
+                        if (originalMessageId != null && !originalMessageId.isEmpty()) {
+                            scrollToMessage(originalMessageId);
+                        }
+                    });
+                } else {
+                    replyPreviewContainer.setVisibility(View.GONE);
+                }
+            }
+
+            bindTranslation(message, showAvatar);
+
+            // Handle profile image (only for received messages, session end messages hide it)
+            if (imageViewProfile != null && !message.isSessionEnd()) {
+                int layoutType = getItemViewType();
+                if (layoutType == 1) { // Received message layout
+                    imageViewProfile.setVisibility(showAvatar ? View.VISIBLE : View.INVISIBLE);
+                    if (showAvatar) {
+                        AvatarLoader.load(imageViewProfile,
+                                UserProfileStore.getProfileImageUrl(message.getSenderId()));
+                    } else if (!showAvatar) {
+                        AvatarLoader.clear(imageViewProfile);
+                    }
+                } else {
+                    imageViewProfile.setVisibility(View.GONE);
+                }
+            }
+        }
+
+        /**
+         * Rebind only what a translation update changes: the loading dots, the bubble text and
+         * the text shown below it. The reply preview and avatar are left as they are.
+         */
+        public void bindTranslation(Message message, boolean showAvatar) {
             FirebaseAuth auth = FirebaseAuth.getInstance();
             FirebaseUser currentUser = auth.getCurrentUser();
             
@@ -275,50 +438,18 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
             // Determine if loading should be shown based on message type and adapter states
             boolean showLoading = isRegenerating || isInitialTranslation || isCycling; 
 
-            // Handle Loading Indicator 
+            // Handle Loading Indicator, without restarting dots that are already running
             if (loadingDots != null) {
-                if (showLoading) { 
+                if (showLoading) {
                     loadingDots.setVisibility(View.VISIBLE);
-                    loadingDots.startAnimation();
+                    if (!loadingDots.isAnimating()) {
+                        loadingDots.startAnimation();
+                    }
                 } else {
                     loadingDots.setVisibility(View.GONE);
                     loadingDots.stopAnimation();
                 }
             }
-            
-            // Handle reply preview if this is a reply message
-            if (replyPreviewContainer != null) {
-                if (message.isReply()) {
-                    replyPreviewContainer.setVisibility(View.VISIBLE);
-                    
-                    // Set the original sender's name
-                    String originalSenderId = message.getReplyToSenderId();
-                    String originalSenderName = adapter.usernameCache.get(originalSenderId);
-                    if (originalSenderName != null) {
-                        textViewReplySender.setText(originalSenderName);
-                    } else {
-                        textViewReplySender.setText("User");
-                    }
-                    
-                    // Set the original message content
-                    String originalMessage = message.getReplyToMessage();
-                    if (originalMessage != null) {
-                        textViewReplyContent.setText(originalMessage);
-                    } else {
-                        textViewReplyContent.setText("Original message unavailable");
-                    }
-                    
-                    // Set click listener to navigate to the original message
-                    replyPreviewContainer.setOnClickListener(v -> {
-                        String originalMessageId = message.getReplyToMessageId();
-                        if (originalMessageId != null && !originalMessageId.isEmpty()) {
-                            scrollToMessage(originalMessageId);
-                        }
-                    });
-                } else {
-                    replyPreviewContainer.setVisibility(View.GONE);
-                }
-            }
 
             // Handle Main Message Text View
             if (textViewMessage != null) {
@@ -329,7 +460,7 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
                  if (!showLoading) {
                     if (message.isSessionEnd()) {
                         // --- Session End Message Logic ---
-                        String senderName = adapter.usernameCache.get(message.getSenderId());
+                        String senderName = UserProfileStore.getUsername(message.getSenderId());
                         if (senderName == null) {
                             senderName = "User";
                         }
@@ -376,7 +507,8 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
                         }
                         
                         // Sent messages always show original text in the bubble
-                        textViewMessage.setText(message.getMessage());
+                        adapter.textLayouts.setText(textViewMessage, getItemViewType(),
+                                message.getMessageId(), message.getMessage());
                         
                         // Add click listener for sent messages to toggle translated text below
                         textViewMessage.setOnClickListener(v -> handleTranslatedMessageClick(message));
@@ -397,9 +529,12 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
                         // Use "REMOVED" state to decide if translation should be shown
                         if (translations != null && translations.containsKey("translation1") &&
                             !"REMOVED".equals(translationState)) {
-                            textViewMessage.setText(translations.get("translation1"));
+                            adapter.textLayouts.setText(textViewMessage, getItemViewType(),
+                                    message.getMessageId(), translations.get("translation1"));
                         } else {
-                            textViewMessage.setText(message.getMessage()); // Show original if no translation or removed
+                            // Show original if no translation or removed
+                            adapter.textLayouts.setText(textViewMessage, getItemViewType(),
+                                    message.getMessageId(), message.getMessage());
                         }
 
                         // Always use the same background color regardless of translation status
@@ -435,7 +570,8 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
                  
                 if (shouldShowOriginalAuto || shouldShowOriginalManual) { 
                     // Show original message text for received messages with slide animation
-                    textViewOriginalMessage.setText(message.getMessage());
+                    adapter.textLayouts.setText(textViewOriginalMessage, getItemViewType(),
+                            message.getMessageId(), message.getMessage());
                     textViewOriginalMessage.setTextColor(itemView.getResources().getColor(R.color.grey));
                     
                     if (textViewOriginalMessage.getVisibility() != View.VISIBLE) {
@@ -456,7 +592,8 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
                     Map<String, String> translations = message.getTranslations();
                     if (translations != null && translations.containsKey("translation1") && 
                         !"REMOVED".equals(message.getTranslationState())) {
-                        textViewOriginalMessage.setText(translations.get("translation1"));
+                        adapter.textLayouts.setText(textViewOriginalMessage, getItemViewType(),
+                                message.getMessageId(), translations.get("translation1"));
                         textViewOriginalMessage.setTextColor(itemView.getResources().getColor(R.color.grey));
                         
                         if (textViewOriginalMessage.getVisibility() != View.VISIBLE) {
@@ -493,33 +630,6 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
                     }
                 }
             }
-
-            // Handle profile image (only for received messages, session end messages hide it)
-            if (imageViewProfile != null && !message.isSessionEnd()) {
-                int layoutType = getItemViewType();
-                if (layoutType == 1) { // Received message layout
-                    imageViewProfile.setVisibility(showAvatar ? View.VISIBLE : View.INVISIBLE);
-                    if (showAvatar) {
-                        String senderId = message.getSenderId();
-                        String profileImageUrl = adapter.profileImageUrlCache.get(senderId);
-
-                        if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
-                            Glide.with(context)
-                                    .load(profileImageUrl)
-                                    .placeholder(R.drawable.default_userpic)
-                                    .error(R.drawable.default_userpic)
-                                    .into(imageViewProfile);
-                        } else {
-                            imageViewProfile.setImageResource(R.drawable.default_userpic);
-                        }
-                    } else if (!showAvatar) {
-                        Glide.with(context).clear(imageViewProfile);
-                        imageViewProfile.setImageDrawable(null);
-                    }
-                } else {
-                    imageViewProfile.setVisibility(View.GONE);
-                }
-            }
         }
 
         private void handleOriginalMessageClick(Message message) {
@@ -867,6 +977,6 @@ public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.ChatViewHolder
      * @return The username if found, null otherwise
      */
     public String getUsernameFromCache(String userId) {
-        return usernameCache.get(userId);
+        return UserProfileStore.getUsername(userId);
     }
 }
@@ -12,11 +12,11 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.appdev.ChatActivity;
 import com.example.appdev.GroupChatActivity;
 import com.example.appdev.R;
 import com.example.appdev.models.ChatItem;
+import com.example.appdev.utils.AvatarLoader;
 
 import java.util.List;
 
@@ -26,6 +26,7 @@ public class ChatItemAdapter extends RecyclerView.Adapter<ChatItemAdapter.ChatIt
     private final Context context;
     private final String currentUserId;
     private final OnChatItemMoreClickListener moreClickListener;
+    private RecyclerView.OnScrollListener avatarPreloader;
 
     public interface OnChatItemMoreClickListener {
         void onMoreClick(View view, ChatItem chatItem);
@@ -38,6 +39,23 @@ public class ChatItemAdapter extends RecyclerView.Adapter<ChatItemAdapter.ChatIt
         this.moreClickListener = listener;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        avatarPreloader = AvatarLoader.startPreloading(recyclerView, this::avatarUrlAt);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        AvatarLoader.stopPreloading(recyclerView, avatarPreloader);
+        avatarPreloader = null;
+    }
+
+    private String avatarUrlAt(int position) {
+        return position < chatItems.size() ? chatItems.get(position).getImageUrl() : null;
+    }
+
     @NonNull
     @Override
     public ChatItemViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -95,15 +113,8 @@ public class ChatItemAdapter extends RecyclerView.Adapter<ChatItemAdapter.ChatIt
         }
 
         // Load profile/group image
-        if (chatItem.getImageUrl() != null && !chatItem.getImageUrl().isEmpty() && !chatItem.getImageUrl().equals("none")) {
-            Glide.with(context)
-                 .load(chatItem.getImageUrl())
-                 .placeholder(chatItem.isGroup() ? R.drawable.group_default_icon : R.drawable.default_userpic)
-                 .into(holder.imageViewProfilePic);
-        } else {
-            holder.imageViewProfilePic.setImageResource(
+        AvatarLoader.load(holder.imageViewProfilePic, chatItem.getImageUrl(),
                 chatItem.isGroup() ? R.drawable.group_default_icon : R.drawable.default_userpic);
-        }
 
         // Set click listeners
         holder.itemView.setOnClickListener(v -> openChat(chatItem));
@@ -11,6 +11,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.appdev.R;
 import com.example.appdev.models.ConversationalMessage;
 import com.example.appdev.utils.LoadingDotsView;
+import com.example.appdev.utils.TextLayoutPrefetcher;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -24,6 +25,10 @@ public class ConversationalAdapter extends RecyclerView.Adapter<RecyclerView.Vie
     private boolean isLoading = false;
     private int loadingColor;
 
+    // Bubble text laid out ahead of scrolling. Messages are only appended, so a message's
+    // position serves as its id.
+    private final TextLayoutPrefetcher textLayouts = new TextLayoutPrefetcher(this, this::collectTexts);
+
     public interface OnRegenerateListener {
         void onRegenerate(ConversationalMessage message, int position);
     }
@@ -70,6 +75,25 @@ public class ConversationalAdapter extends RecyclerView.Adapter<RecyclerView.Vie
         return VIEW_TYPE_MESSAGE;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        textLayouts.attach(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        textLayouts.detach();
+    }
+
+    // The text onBindViewHolder() will show for a message, so it can be laid out ahead
+    private void collectTexts(int position, TextLayoutPrefetcher.Texts out) {
+        if (position < messages.size() && !messages.get(position).isRegenerating()) {
+            out.add(R.id.messageText, String.valueOf(position), messages.get(position).getTranslatedText());
+        }
+    }
+
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -117,7 +141,8 @@ public class ConversationalAdapter extends RecyclerView.Adapter<RecyclerView.Vie
                 messageHolder.btnRegenerate.setAlpha(0.5f);
             } else {
                 messageHolder.messageText.setVisibility(View.VISIBLE);
-                messageHolder.messageText.setText(message.getTranslatedText());
+                textLayouts.setText(messageHolder.messageText, VIEW_TYPE_MESSAGE,
+                        String.valueOf(position), message.getTranslatedText());
                 messageHolder.regeneratingDots.setVisibility(View.GONE);
                 // messageHolder.regeneratingDots.stopAnimation(); // If method exists, otherwise visibility gone is enough
                 
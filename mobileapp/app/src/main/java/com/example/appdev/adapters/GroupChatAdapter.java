@@ -3,7 +3,6 @@ package com.example.appdev.adapters;
 import android.content.Context;
 import android.graphics.Color;
 import android.graphics.Typeface;
-import android.os.AsyncTask;
 import android.os.Handler;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -19,60 +18,61 @@ import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.appdev.GroupChatActivity;
 import com.example.appdev.R;
 import com.example.appdev.Variables;
 import com.example.appdev.models.GroupMessage;
+import com.example.appdev.models.User;
 import com.example.appdev.subcontrollers.RegenerateMessageTranslation;
+import com.example.appdev.utils.AvatarLoader;
 import com.example.appdev.utils.LoadingDotsView;
+import com.example.appdev.utils.TextLayoutPrefetcher;
+import com.example.appdev.utils.TranslationHttpClient;
+import com.example.appdev.utils.ModelRouter;
+import com.example.appdev.utils.TranslationScheduler;
+import com.example.appdev.utils.UserProfileStore;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.GroupChatViewHolder> {
 
     private List<GroupMessage> messages;
+    private final MessagePositions<GroupMessage> positions = new MessagePositions<>();
     private DatabaseReference messagesRef;
     private String groupId;
     private Context context;
-    private Map<String, String> usernameCache = new HashMap<>();
-    private Map<String, String> profileImageUrlCache = new HashMap<>();
-    private DatabaseReference usersRef;
     private String visibleOriginalMessageId = null;
     private String regeneratingMessageId = null;
     private GroupMessage replyingToMessage = null;
 
+    // Profiles of the members shown by bound rows; a change rebinds only their messages
+    private final UserProfileStore.Subscriptions profileSubscriptions =
+            new UserProfileStore.Subscriptions(this::onProfileChanged);
+
+    // Bubble text laid out ahead of scrolling
+    final TextLayoutPrefetcher textLayouts = new TextLayoutPrefetcher(this, this::collectTexts);
+    private RecyclerView.OnScrollListener avatarPreloader;
+
     public GroupChatAdapter() {
         this.messages = new ArrayList<>();
-        this.usersRef = FirebaseDatabase.getInstance().getReference("users");
-        setupUsernameCacheListener();
+        setHasStableIds(true);
     }
 
     public GroupChatAdapter(DatabaseReference messagesRef, String groupId, Context context) {
         this.messagesRef = messagesRef;
         this.groupId = groupId;
         this.context = context;
-        this.usersRef = FirebaseDatabase.getInstance().getReference("users");
         messages = new ArrayList<>();
-        setupUsernameCacheListener();
+        setHasStableIds(true);
     }
 
     public void setVisibleOriginalMessageId(String messageId) {
@@ -99,44 +99,95 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
         return regeneratingMessageId;
     }
 
-    private void setupUsernameCacheListener() {
-        usersRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                for (DataSnapshot userSnapshot : snapshot.getChildren()) {
-                    String userId = userSnapshot.getKey();
-                    String username = userSnapshot.child("username").getValue(String.class);
-                    String profileUrl = userSnapshot.child("profileImageUrl").getValue(String.class);
-                    
-                    if (username != null && !username.isEmpty()) {
-                        usernameCache.put(userId, username);
-                    }
-                    
-                    if (profileUrl != null && !profileUrl.isEmpty()) {
-                        profileImageUrlCache.put(userId, profileUrl);
-                    }
-                }
-                notifyDataSetChanged();
+    private void onProfileChanged(String userId, User profile) {
+        for (int i = 0; i < messages.size(); i++) {
+            GroupMessage message = messages.get(i);
+            if (userId.equals(message.getSenderId()) || userId.equals(message.getReplyToSenderId())) {
+                notifyItemChanged(i);
             }
+        }
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e("GroupChatAdapter", "Error loading user data: " + error.getMessage());
-            }
-        });
+    /**
+     * Drop the profile subscriptions held by this adapter. Call when its screen is destroyed.
+     */
+    public void release() {
+        profileSubscriptions.releaseAll();
     }
 
+    /**
+     * Replace the whole list. Screens fed by MessageStream use the incremental methods below.
+     */
     public void setMessages(List<GroupMessage> messages) {
-        if (messages == null) {
-            this.messages = new ArrayList<>();
-        } else {
-            this.messages = messages.stream()
-                .filter(message -> message != null && message.getSenderId() != null)
-                .collect(Collectors.toList());
-        }
+        this.messages = MessageDiff.displayable(messages);
+        positions.reset(this.messages);
         notifyDataSetChanged();
     }
 
+    /**
+     * Add a page of older messages above the ones already shown
+     */
+    public void prependMessages(List<GroupMessage> olderMessages) {
+        List<GroupMessage> valid = MessageDiff.displayable(olderMessages);
+        if (valid.isEmpty()) {
+            return;
+        }
+        messages.addAll(0, valid);
+        for (GroupMessage message : valid) {
+            positions.put(message);
+        }
+        notifyItemRangeInserted(0, valid.size());
+        // The first message shown before may now follow the same sender
+        if (messages.size() > valid.size()) {
+            notifyItemChanged(valid.size());
+        }
+    }
+
+    /**
+     * Insert a message at its place by timestamp, or rebind it if it is already shown
+     * @return The message's position, or -1 if it was skipped
+     */
+    public int addOrUpdateMessage(GroupMessage message) {
+        if (message == null || message.getSenderId() == null) {
+            return -1;
+        }
+        int existing = findPositionById(message.getMessageId());
+        if (existing >= 0 && messages.get(existing).getTimestamp() == message.getTimestamp()) {
+            Object payload = MessageDiff.changePayload(messages.get(existing), message);
+            messages.set(existing, message);
+            positions.put(message);
+            notifyItemChanged(existing, payload);
+            return existing;
+        }
+        if (existing >= 0) {
+            removeAt(existing);
+        }
+
+        int position = MessagePositions.insertionPoint(messages, message.getTimestamp());
+        messages.add(position, message);
+        positions.put(message);
+        notifyItemInserted(position);
+        if (position < messages.size() - 1) {
+            notifyItemChanged(position + 1); // Its sender header depends on the message before it
+        }
+        return position;
+    }
+
+    public void removeMessage(String messageId) {
+        int position = findPositionById(messageId);
+        if (position >= 0) {
+            removeAt(position);
+        }
+    }
+
+    private void removeAt(int position) {
+        positions.remove(messages.remove(position));
+        notifyItemRemoved(position);
+        if (position < messages.size()) {
+            notifyItemChanged(position);
+        }
+    }
+
     @NonNull
     @Override
     public GroupChatViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -149,16 +200,30 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
     @Override
     public void onBindViewHolder(@NonNull GroupChatViewHolder holder, int position) {
         GroupMessage message = messages.get(position);
-        
-        boolean showSenderInfo = true;
-        if (position > 0) {
-            GroupMessage previousMessage = messages.get(position - 1);
-            if (message.getSenderId().equals(previousMessage.getSenderId())) {
-                showSenderInfo = false;
-            }
+        holder.bind(message, showSenderInfo(position));
+        profileSubscriptions.rebind(holder.profileIds, message.getSenderId(),
+                message.isReply() ? message.getReplyToSenderId() : null);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull GroupChatViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (MessageDiff.isTranslationOnly(payloads)) {
+            holder.bindTranslation(messages.get(position));
+        } else {
+            onBindViewHolder(holder, position);
         }
-        
-        holder.bind(message, showSenderInfo, usernameCache);
+    }
+
+    // Consecutive messages from the same sender only show the sender on the first one
+    private boolean showSenderInfo(int position) {
+        return position == 0
+                || !messages.get(position).getSenderId().equals(messages.get(position - 1).getSenderId());
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull GroupChatViewHolder holder) {
+        super.onViewRecycled(holder);
+        profileSubscriptions.rebind(holder.profileIds);
     }
 
     @Override
@@ -166,6 +231,11 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
         return messages.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return MessageDiff.stableId(messages.get(position).getMessageId());
+    }
+
     @Override
     public int getItemViewType(int position) {
         GroupMessage message = messages.get(position);
@@ -178,16 +248,64 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
         return senderId.equals(currentUserId) ? 0 : 1;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        textLayouts.attach(recyclerView);
+        avatarPreloader = AvatarLoader.startPreloading(recyclerView, this::avatarUrlAt);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        textLayouts.detach();
+        AvatarLoader.stopPreloading(recyclerView, avatarPreloader);
+        avatarPreloader = null;
+    }
+
+    // The avatar bind() will show for a message: the first of a run of the sender's messages
+    private String avatarUrlAt(int position) {
+        if (position >= messages.size() || getItemViewType(position) != 1 || !showSenderInfo(position)) {
+            return null;
+        }
+        return senderAvatarUrl(messages.get(position));
+    }
+
+    private static String senderAvatarUrl(GroupMessage message) {
+        String profileImageUrl = UserProfileStore.getProfileImageUrl(message.getSenderId());
+        if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
+            return profileImageUrl;
+        }
+        // Fallback to message's sender profile URL if available
+        return message.getSenderProfileUrl();
+    }
+
+    // The texts bind() will show for a message, so they can be laid out ahead
+    private void collectTexts(int position, TextLayoutPrefetcher.Texts out) {
+        GroupMessage message = messages.get(position);
+        if (message == null) {
+            return;
+        }
+        String messageId = message.getMessageId();
+        Map<String, String> translations = message.getTranslations();
+        String originalLanguage = message.getSenderLanguage();
+        String originalText = originalLanguage != null && translations.containsKey(originalLanguage)
+                ? translations.get(originalLanguage) : message.getMessage();
+        if (getItemViewType(position) == 0) {
+            out.add(R.id.textViewMessage, messageId, originalText);
+        } else {
+            out.add(R.id.textViewMessage, messageId, translations.containsKey(Variables.userLanguage)
+                    ? translations.get(Variables.userLanguage) : message.getMessage());
+            out.add(R.id.textViewOriginalMessage, messageId, originalText);
+        }
+        if (message.isReply()) {
+            out.add(R.id.textViewReplyContent, messageId, message.getReplyToMessage());
+        }
+    }
+
     // Helper method to find item position by ID
     private int findPositionById(String messageId) {
-        if (messageId == null) return -1;
-        for (int i = 0; i < messages.size(); i++) {
-            GroupMessage msg = messages.get(i);
-            if (msg != null && messageId.equals(msg.getMessageId())) {
-                return i;
-            }
-        }
-        return -1;
+        return positions.find(messages, messageId);
     }
 
     public static class GroupChatViewHolder extends RecyclerView.ViewHolder {
@@ -201,8 +319,8 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
         private CardView messageCard;
         private DatabaseReference messagesRef;
         private String groupId;
-        private Map<String, String> usernameCache;
         private GroupChatAdapter adapter;
+        private final List<String> profileIds = new ArrayList<>(2);
 
         public GroupChatViewHolder(@NonNull View itemView, Context context, String groupId, GroupChatAdapter adapter) {
             super(itemView);
@@ -235,39 +353,7 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
             }
         }
 
-        public void bind(GroupMessage message, boolean showSenderInfo, Map<String, String> usernameCache) {
-            this.usernameCache = usernameCache;
-            FirebaseAuth auth = FirebaseAuth.getInstance();
-            FirebaseUser currentUser = auth.getCurrentUser();
-
-            textViewMessage.setTag(message);
-            
-            String userLanguage = Variables.userLanguage;
-            String originalLanguage = message.getSenderLanguage();
-            Map<String, String> translations = message.getTranslations();
-            boolean isCurrentUserMessage = currentUser != null && message.getSenderId().equals(currentUser.getUid());
-
-            // --- State Check --- 
-            boolean isRegenerating = message.getMessageId() != null &&
-                                     message.getMessageId().equals(adapter.getRegeneratingMessageId());
-                                     
-            boolean shouldShowOriginal = !isRegenerating && // Don't show original if regenerating
-                                         message.getMessageId() != null &&
-                                         message.getMessageId().equals(adapter.getVisibleOriginalMessageId());
-
-            // --- UI Setup based on State --- 
-
-            // Handle Loading Indicator (if regenerating)
-            if (loadingDots != null) {
-                if (isRegenerating) {
-                    loadingDots.setVisibility(View.VISIBLE);
-                    loadingDots.startAnimation();
-                } else {
-                    loadingDots.setVisibility(View.GONE);
-                    loadingDots.stopAnimation();
-                }
-            }
-            
+        public void bind(GroupMessage message, boolean showSenderInfo) {
             // Handle reply preview if this is a reply message
             if (replyPreviewContainer != null) {
                 if (message.isReply()) {
@@ -275,7 +361,7 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
                     
                     // Set the original sender's name
                     String originalSenderId = message.getReplyToSenderId();
-                    String originalSenderName = adapter.usernameCache.get(originalSenderId);
+                    String originalSenderName = UserProfileStore.getUsername(originalSenderId);
                     if (originalSenderName != null) {
                         textViewReplySender.setText(originalSenderName);
                     } else {
@@ -285,7 +371,8 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
                     // Set the original message content
                     String originalMessage = message.getReplyToMessage();
                     if (originalMessage != null) {
-                        textViewReplyContent.setText(originalMessage);
+                        adapter.textLayouts.setText(textViewReplyContent, getItemViewType(),
+                                message.getMessageId(), originalMessage);
                     } else {
                         textViewReplyContent.setText("Original message unavailable");
                     }
@@ -302,6 +389,79 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
                 }
             }
 
+            bindTranslation(message);
+
+            // Handle sender's profile image
+            if (imageViewProfile != null) {
+                imageViewProfile.setVisibility(showSenderInfo ? View.VISIBLE : View.INVISIBLE);
+                if (showSenderInfo) {
+                    AvatarLoader.load(imageViewProfile, senderAvatarUrl(message));
+                } else if (!showSenderInfo) {
+                    AvatarLoader.clear(imageViewProfile);
+                }
+            }
+
+            if (textViewSenderName != null) {
+                textViewSenderName.setVisibility(showSenderInfo ? View.VISIBLE : View.GONE);
+                if (showSenderInfo) {
+                    String senderId = message.getSenderId();
+                    if (senderId != null && !senderId.isEmpty()) {
+                        String username = UserProfileStore.getUsername(senderId);
+                        if (username != null && !username.isEmpty()) {
+                            textViewSenderName.setText(username);
+                        } else {
+                            textViewSenderName.setText("User");
+                        }
+                    } else {
+                        textViewSenderName.setText("User");
+                    }
+                }
+            }
+        }
+
+        /**
+         * Rebind only what a translation update changes: the loading dots, the bubble text and
+         * the original text below it. The reply preview and sender info are left as they are.
+         */
+        public void bindTranslation(GroupMessage message) {
+            FirebaseAuth auth = FirebaseAuth.getInstance();
+            FirebaseUser currentUser = auth.getCurrentUser();
+
+            textViewMessage.setTag(message);
+            
+            String userLanguage = Variables.userLanguage;
+            String originalLanguage = message.getSenderLanguage();
+            Map<String, String> translations = message.getTranslations();
+            boolean isCurrentUserMessage = currentUser != null && message.getSenderId().equals(currentUser.getUid());
+
+            // --- State Check --- 
+            boolean isRegenerating = message.getMessageId() != null &&
+                                     message.getMessageId().equals(adapter.getRegeneratingMessageId());
+                                     
+            boolean shouldShowOriginal = !isRegenerating && // Don't show original if regenerating
+                                         message.getMessageId() != null &&
+                                         message.getMessageId().equals(adapter.getVisibleOriginalMessageId());
+
+            // Received messages show loading dots until their first translation arrives
+            boolean isRecentMessage = (System.currentTimeMillis() - message.getTimestamp()) < 5000;
+            boolean isTranslatingInitially = !isCurrentUserMessage &&
+                    ((translations == null) || (translations.isEmpty() && isRecentMessage));
+
+            // --- UI Setup based on State --- 
+
+            // Handle Loading Indicator, without restarting dots that are already running
+            if (loadingDots != null) {
+                if (isRegenerating || isTranslatingInitially) {
+                    loadingDots.setVisibility(View.VISIBLE);
+                    if (!loadingDots.isAnimating()) {
+                        loadingDots.startAnimation();
+                    }
+                } else {
+                    loadingDots.setVisibility(View.GONE);
+                    loadingDots.stopAnimation();
+                }
+            }
+
             // Handle Original Message View
             if (textViewOriginalMessage != null) { 
                 if (shouldShowOriginal) {
@@ -313,7 +473,8 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
                     }
 
                     if (originalText != null) {
-                        textViewOriginalMessage.setText(originalText);
+                        adapter.textLayouts.setText(textViewOriginalMessage, getItemViewType(),
+                                message.getMessageId(), originalText);
                         textViewOriginalMessage.setTextColor(itemView.getResources().getColor(R.color.grey));
                         textViewOriginalMessage.setVisibility(View.VISIBLE);
                     } else {
@@ -334,88 +495,33 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
                         String originalText = null;
                         if (translations != null && originalLanguage != null && translations.containsKey(originalLanguage)) {
                             originalText = translations.get(originalLanguage);
-                            textViewMessage.setText(originalText);
+                            adapter.textLayouts.setText(textViewMessage, getItemViewType(),
+                                    message.getMessageId(), originalText);
                             textViewMessage.setOnClickListener(null);
                         } else {
-                            textViewMessage.setText(message.getMessage());
+                            adapter.textLayouts.setText(textViewMessage, getItemViewType(),
+                                    message.getMessageId(), message.getMessage());
                         }
                     } else {
                         // Received message: Show translation or original based on availability
-                        long currentTime = System.currentTimeMillis();
-                        boolean isRecentMessage = (currentTime - message.getTimestamp()) < 5000;
-                        boolean isTranslatingInitially = (translations == null) || (translations.isEmpty() && isRecentMessage);
-
                         if (isTranslatingInitially) {
-                             // Show loading indicator for initial translation
+                             // The loading dots stand in for the text until the translation arrives
                              textViewMessage.setVisibility(View.GONE);
-                             if (loadingDots != null) {
-                                 loadingDots.setVisibility(View.VISIBLE);
-                                 loadingDots.startAnimation();
-                             }
                         } else {
-                             // Hide loading indicator if shown previously for initial translation
-                             if (loadingDots != null) {
-                                 loadingDots.setVisibility(View.GONE);
-                                 loadingDots.stopAnimation();
-                             }
                              textViewMessage.setVisibility(View.VISIBLE);
                             // Display actual message content (translation or original)
                             if (translations != null && translations.containsKey(userLanguage)) {
-                                textViewMessage.setText(translations.get(userLanguage));
+                                adapter.textLayouts.setText(textViewMessage, getItemViewType(),
+                                        message.getMessageId(), translations.get(userLanguage));
                             } else {
-                                textViewMessage.setText(message.getMessage());
+                                adapter.textLayouts.setText(textViewMessage, getItemViewType(),
+                                        message.getMessageId(), message.getMessage());
                             }
                         }
                         textViewMessage.setOnClickListener(v -> handleOriginalMessageClick(message));
                     }
                  } // end if(!isRegenerating)
              } // end if(textViewMessage != null)
-
-            // Handle sender's profile image
-            if (imageViewProfile != null) {
-                imageViewProfile.setVisibility(showSenderInfo ? View.VISIBLE : View.INVISIBLE);
-                if (showSenderInfo) {
-                    String senderId = message.getSenderId();
-                    String profileImageUrl = adapter.profileImageUrlCache.get(senderId);
-                    
-                    if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
-                        Glide.with(context)
-                                .load(profileImageUrl)
-                                .placeholder(R.drawable.default_userpic)
-                                .error(R.drawable.default_userpic)
-                                .into(imageViewProfile);
-                    } else if (message.getSenderProfileUrl() != null && !message.getSenderProfileUrl().isEmpty()) {
-                        // Fallback to message's sender profile URL if available
-                        Glide.with(context)
-                                .load(message.getSenderProfileUrl())
-                                .placeholder(R.drawable.default_userpic)
-                                .error(R.drawable.default_userpic)
-                                .into(imageViewProfile);
-                    } else {
-                        imageViewProfile.setImageResource(R.drawable.default_userpic);
-                    }
-                } else if (!showSenderInfo) {
-                    Glide.with(context).clear(imageViewProfile);
-                    imageViewProfile.setImageDrawable(null);
-                }
-            }
-
-            if (textViewSenderName != null) {
-                textViewSenderName.setVisibility(showSenderInfo ? View.VISIBLE : View.GONE);
-                if (showSenderInfo) {
-                    String senderId = message.getSenderId();
-                    if (senderId != null && !senderId.isEmpty()) {
-                        String username = usernameCache.get(senderId);
-                        if (username != null && !username.isEmpty()) {
-                            textViewSenderName.setText(username);
-                        } else {
-                            textViewSenderName.setText("User");
-                        }
-                    } else {
-                        textViewSenderName.setText("User");
-                    }
-                }
-            }
         }
 
         private void handleOriginalMessageClick(GroupMessage message) {
@@ -620,7 +726,7 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
                 requestBody.put("source_language", sourceLanguage);
                 requestBody.put("target_language", targetLanguage);
                 requestBody.put("variants", "single");
-                requestBody.put("model", Variables.userTranslator.toLowerCase());
+                requestBody.put("model", ModelRouter.route(Variables.userTranslator, sourceLanguage, targetLanguage));
                 requestBody.put("room_id", groupId);
                 requestBody.put("message_id", messageId);
                 requestBody.put("is_group", true);
@@ -640,71 +746,44 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
                             
                             final String finalMessageId = messageId; // Capture messageId here
 
-                            new AsyncTask<JSONObject, Void, Boolean>() {
-                                @Override
-                                protected Boolean doInBackground(JSONObject... params) {
-                                    try {
-                                        JSONObject requestBody = params[0];
-                                        URL url = new URL(Variables.API_REGENERATE_TRANSLATION_URL);
-                                        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                                        conn.setRequestMethod("POST");
-                                        conn.setRequestProperty("Content-Type", "application/json");
-                                        conn.setDoOutput(true);
-
-                                        try (OutputStream os = conn.getOutputStream()) {
-                                            byte[] input = requestBody.toString().getBytes("utf-8");
-                                            os.write(input, 0, input.length);
-                                        }
-
-                                        int responseCode = conn.getResponseCode();
-                                        
-                                        if (responseCode == HttpURLConnection.HTTP_OK) {
-                                            try (BufferedReader br = new BufferedReader(
-                                                    new InputStreamReader(conn.getInputStream(), "utf-8"))) {
-                                                String line;
-                                                StringBuilder response = new StringBuilder();
-                                                while ((line = br.readLine()) != null) {
-                                                    response.append(line);
-                                                }
-                                                Log.d("GroupChatAdapter", "Translation response: " + response.toString());
-                                                return true;
-                                            }
-                                        } else {
-                                            Log.e("GroupChatAdapter", "Error response code: " + responseCode);
-                                            return false;
-                                        }
-                                    } catch (Exception e) {
-                                        Log.e("GroupChatAdapter", "Translation error: " + e.getMessage());
-                                        return false;
-                                    }
-                                }
-
-                                @Override
-                                protected void onPostExecute(Boolean success) {
-                                    super.onPostExecute(success);
+                            TranslationScheduler.submit(groupId, () -> {
+                                try {
+                                    TranslationHttpClient.ApiResponse response = TranslationHttpClient.postJson(
+                                            Variables.API_REGENERATE_TRANSLATION_URL, requestBody);
                                     
-                                    // Always clear the regenerating state regardless of success or position finding
-                                    adapter.regeneratingMessageId = null; 
-
-                                    // Find the position using the captured messageId
-                                    int finalPosition = adapter.findPositionById(finalMessageId); 
-
-                                    if (finalPosition != RecyclerView.NO_POSITION) {
-                                        adapter.notifyItemChanged(finalPosition); // Trigger bind to show result/error
+                                    if (response.isSuccessful()) {
+                                        Log.d("GroupChatAdapter", "Translation response: " + response.body);
+                                        return true;
                                     } else {
-                                         Log.w("GroupChatAdapter", "Item position not found after regeneration for messageId: " + finalMessageId + ". Could not update UI.");
-                                         // Consider notifyDataSetChanged() as a fallback if this happens often, but it's less efficient.
+                                        Log.e("GroupChatAdapter", "Error response code: " + response.code);
+                                        return false;
                                     }
-                                    
-                                    if (!success) {
-                                        // Show toast only if the context is still valid
-                                        if (itemView != null && itemView.getContext() != null) {
-                                             Toast.makeText(itemView.getContext(), 
-                                                 "Translation regeneration failed", Toast.LENGTH_SHORT).show();
-                                        }
+                                } catch (Exception e) {
+                                    Log.e("GroupChatAdapter", "Translation error: " + e.getMessage());
+                                    return false;
+                                }
+                            }, success -> {
+                                // Always clear the regenerating state regardless of success or position finding
+                                adapter.regeneratingMessageId = null; 
+
+                                // Find the position using the captured messageId
+                                int finalPosition = adapter.findPositionById(finalMessageId); 
+
+                                if (finalPosition != RecyclerView.NO_POSITION) {
+                                    adapter.notifyItemChanged(finalPosition); // Trigger bind to show result/error
+                                } else {
+                                     Log.w("GroupChatAdapter", "Item position not found after regeneration for messageId: " + finalMessageId + ". Could not update UI.");
+                                     // Consider notifyDataSetChanged() as a fallback if this happens often, but it's less efficient.
+                                }
+                                
+                                if (!Boolean.TRUE.equals(success)) {
+                                    // Show toast only if the context is still valid
+                                    if (itemView != null && itemView.getContext() != null) {
+                                         Toast.makeText(itemView.getContext(), 
+                                             "Translation regeneration failed", Toast.LENGTH_SHORT).show();
                                     }
                                 }
-                            }.execute(requestBody);
+                            });
 
                         } catch (Exception e) {
                             Log.e("GroupChatAdapter", "Error preparing translation: " + e.getMessage());
@@ -788,6 +867,6 @@ public class GroupChatAdapter extends RecyclerView.Adapter<GroupChatAdapter.Grou
      * @return The username if found, null otherwise
      */
     public String getUsernameFromCache(String userId) {
-        return usernameCache.get(userId);
+        return UserProfileStore.getUsername(userId);
     }
 }
@@ -13,9 +13,10 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.appdev.R;
+import com.example.appdev.helpers.UserGroupsIndex;
 import com.example.appdev.models.User;
+import com.example.appdev.utils.AvatarLoader;
 import com.example.appdev.utils.CustomNotification;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
@@ -27,7 +28,9 @@ import com.google.firebase.database.ValueEventListener;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import de.hdodenhof.circleimageview.CircleImageView;
 
@@ -142,15 +145,7 @@ public class GroupMemberAdapter extends RecyclerView.Adapter<GroupMemberAdapter.
         }
         
         // Load profile picture
-        if (member.getProfilePictureUrl() != null && !member.getProfilePictureUrl().isEmpty() 
-                && !member.getProfilePictureUrl().equals("none")) {
-            Glide.with(context)
-                    .load(member.getProfilePictureUrl())
-                    .placeholder(R.drawable.default_userpic)
-                    .into(holder.imageViewProfilePic);
-        } else {
-            holder.imageViewProfilePic.setImageResource(R.drawable.default_userpic);
-        }
+        AvatarLoader.load(holder.imageViewProfilePic, member.getProfilePictureUrl());
         
         // Check if current user is admin to show/hide more options
         if (isCurrentUserAdmin) {
@@ -282,10 +277,11 @@ public class GroupMemberAdapter extends RecyclerView.Adapter<GroupMemberAdapter.
     }
     
     private void removeMember(User member) {
-        DatabaseReference memberRef = FirebaseDatabase.getInstance().getReference("groups")
-                .child(groupId).child("members").child(member.getUserId());
+        // Remove the member with their user_groups entry and chat summary in one update
+        Map<String, Object> updates = new HashMap<>();
+        UserGroupsIndex.removeMember(updates, groupId, member.getUserId());
         
-        memberRef.removeValue()
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
                         members.remove(member);
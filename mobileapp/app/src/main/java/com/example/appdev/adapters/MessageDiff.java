@@ -0,0 +1,108 @@
+package com.example.appdev.adapters;
+
+import com.example.appdev.models.GroupMessage;
+import com.example.appdev.models.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Change tracking shared by the chat adapters. Messages are identified by messageId. When an
+ * update only changes a message's translations or translation state, it carries the
+ * PAYLOAD_TRANSLATION payload, so only that bubble's text is rebound.
+ */
+public final class MessageDiff {
+
+    /** Payload for an update that only changed translations or translationState */
+    public static final String PAYLOAD_TRANSLATION = "translation";
+
+    private MessageDiff() {
+    }
+
+    /**
+     * Stable adapter id for a message. A 64-bit hash of the messageId, so ids survive
+     * reloads and pages being prepended.
+     */
+    public static long stableId(String messageId) {
+        if (messageId == null) {
+            return -1;
+        }
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash ^= messageId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Messages the adapters can show: not null and with a sender
+     */
+    public static <T extends Message> List<T> displayable(List<T> messages) {
+        List<T> valid = new ArrayList<>(messages != null ? messages.size() : 0);
+        if (messages != null) {
+            for (T message : messages) {
+                if (message != null && message.getSenderId() != null) {
+                    valid.add(message);
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Payload for rebinding a message that was replaced by a newer version of itself
+     * @return PAYLOAD_TRANSLATION if only its translation changed, otherwise null for a full rebind
+     */
+    public static Object changePayload(Message oldMessage, Message newMessage) {
+        if (sameExceptTranslation(oldMessage, newMessage)
+                && !sameTranslation(oldMessage, newMessage)) {
+            return PAYLOAD_TRANSLATION;
+        }
+        return null;
+    }
+
+    /**
+     * Whether a payload list holds only translation updates, so a partial rebind is enough
+     */
+    public static boolean isTranslationOnly(List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            return false;
+        }
+        for (Object payload : payloads) {
+            if (!PAYLOAD_TRANSLATION.equals(payload)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameTranslation(Message a, Message b) {
+        return Objects.equals(a.getTranslations(), b.getTranslations())
+                && Objects.equals(a.getTranslationState(), b.getTranslationState());
+    }
+
+    private static boolean sameExceptTranslation(Message a, Message b) {
+        if (a.getTimestamp() != b.getTimestamp()
+                || !Objects.equals(a.getMessageId(), b.getMessageId())
+                || !Objects.equals(a.getMessage(), b.getMessage())
+                || !Objects.equals(a.getSenderId(), b.getSenderId())
+                || !Objects.equals(a.getSenderLanguage(), b.getSenderLanguage())
+                || !Objects.equals(a.getTranslationMode(), b.getTranslationMode())
+                || !Objects.equals(a.getReplyToMessageId(), b.getReplyToMessageId())
+                || !Objects.equals(a.getReplyToSenderId(), b.getReplyToSenderId())
+                || !Objects.equals(a.getReplyToMessage(), b.getReplyToMessage())
+                || a.isVoiceMessage() != b.isVoiceMessage()
+                || !Objects.equals(a.getVoiceText(), b.getVoiceText())
+                || a.isSessionEnd() != b.isSessionEnd()) {
+            return false;
+        }
+        if (a instanceof GroupMessage && b instanceof GroupMessage) {
+            return Objects.equals(((GroupMessage) a).getSenderProfileUrl(),
+                    ((GroupMessage) b).getSenderProfileUrl());
+        }
+        return true;
+    }
+}
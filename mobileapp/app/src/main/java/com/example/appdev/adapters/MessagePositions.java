@@ -0,0 +1,88 @@
+package com.example.appdev.adapters;
+
+import com.example.appdev.models.Message;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds messages in a chat adapter's list, which is kept in timestamp order. A message is
+ * looked up by messageId and then binary-searched by its timestamp, so a child event costs
+ * O(log n) instead of a scan of the whole loaded history.
+ */
+final class MessagePositions<T extends Message> {
+
+    private final Map<String, T> byId = new HashMap<>();
+
+    /** Index a whole list, replacing what was indexed before */
+    void reset(List<T> messages) {
+        byId.clear();
+        for (T message : messages) {
+            put(message);
+        }
+    }
+
+    void put(T message) {
+        if (message != null && message.getMessageId() != null) {
+            byId.put(message.getMessageId(), message);
+        }
+    }
+
+    void remove(T message) {
+        // Only drop the entry if it still points at this message and not at a newer copy
+        if (message != null && message.getMessageId() != null && byId.get(message.getMessageId()) == message) {
+            byId.remove(message.getMessageId());
+        }
+    }
+
+    /**
+     * @return The position of the message with this id in messages, or -1 if it is not shown
+     */
+    int find(List<T> messages, String messageId) {
+        T indexed = messageId != null ? byId.get(messageId) : null;
+        if (indexed == null) {
+            return -1;
+        }
+        long timestamp = indexed.getTimestamp();
+        for (int i = firstAtOrAfter(messages, timestamp);
+             i < messages.size() && messages.get(i).getTimestamp() == timestamp; i++) {
+            if (messages.get(i) == indexed) {
+                return i;
+            }
+        }
+        // Only reached if a shown message's timestamp was changed in place
+        return messages.indexOf(indexed);
+    }
+
+    /**
+     * @return Where a message with this timestamp goes: after every message not newer than it
+     */
+    static int insertionPoint(List<? extends Message> messages, long timestamp) {
+        int low = 0;
+        int high = messages.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (messages.get(mid).getTimestamp() <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int firstAtOrAfter(List<? extends Message> messages, long timestamp) {
+        int low = 0;
+        int high = messages.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (messages.get(mid).getTimestamp() < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -10,9 +10,9 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.appdev.R;
 import com.example.appdev.models.User;
+import com.example.appdev.utils.AvatarLoader;
 
 import java.util.List;
 
@@ -54,14 +54,7 @@ public class RecentConnectionsAdapter extends RecyclerView.Adapter<RecentConnect
         holder.textViewLanguage.setText(user.getLanguage() != null ? user.getLanguage() : "Unknown");
 
         // Load profile image
-        if (user.getProfileImageUrl() != null && !user.getProfileImageUrl().equals("none")) {
-            Glide.with(context)
-                    .load(user.getProfileImageUrl())
-                    .placeholder(R.drawable.default_userpic)
-                    .into(holder.imageViewUserPicture);
-        } else {
-            holder.imageViewUserPicture.setImageResource(R.drawable.default_userpic);
-        }
+        AvatarLoader.load(holder.imageViewUserPicture, user.getProfileImageUrl());
 
         // Set click listener for the entire item
         holder.itemView.setOnClickListener(v -> {
@@ -10,9 +10,9 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.appdev.R;
 import com.example.appdev.models.User;
+import com.example.appdev.utils.AvatarLoader;
 
 import java.util.List;
 
@@ -24,6 +24,7 @@ public class SearchUserAdapter extends RecyclerView.Adapter<SearchUserAdapter.Se
     private final Context context;
     private final String currentUserId;
     private final OnUserClickListener onUserClickListener;
+    private RecyclerView.OnScrollListener avatarPreloader;
 
     public interface OnUserClickListener {
         void onUserClicked(User user);
@@ -36,6 +37,23 @@ public class SearchUserAdapter extends RecyclerView.Adapter<SearchUserAdapter.Se
         this.onUserClickListener = listener;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        avatarPreloader = AvatarLoader.startPreloading(recyclerView, this::avatarUrlAt);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        AvatarLoader.stopPreloading(recyclerView, avatarPreloader);
+        avatarPreloader = null;
+    }
+
+    private String avatarUrlAt(int position) {
+        return position < userList.size() ? userList.get(position).getProfileImageUrl() : null;
+    }
+
     @NonNull
     @Override
     public SearchUserViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -61,14 +79,7 @@ public class SearchUserAdapter extends RecyclerView.Adapter<SearchUserAdapter.Se
         holder.textViewEmail.setTypeface(null, android.graphics.Typeface.NORMAL);
 
         // Load profile image
-        if (user.getProfileImageUrl() != null && !user.getProfileImageUrl().equals("none")) {
-            Glide.with(context)
-                    .load(user.getProfileImageUrl())
-                    .placeholder(R.drawable.default_userpic)
-                    .into(holder.imageViewUserPicture);
-        } else {
-            holder.imageViewUserPicture.setImageResource(R.drawable.default_userpic);
-        }
+        AvatarLoader.load(holder.imageViewUserPicture, user.getProfileImageUrl());
 
         // Hide the more button for search results
         holder.buttonMore.setVisibility(View.GONE);
@@ -18,6 +18,7 @@ import com.bumptech.glide.Glide;
 import com.example.appdev.ChatActivity;
 import com.example.appdev.R;
 import com.example.appdev.models.User;
+import com.example.appdev.utils.AvatarLoader;
 import com.example.appdev.utils.CustomNotification;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
@@ -32,6 +33,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
     private final Context context;
     private final String currentUserId;
     private final OnMoreButtonClickListener moreButtonClickListener;
+    private RecyclerView.OnScrollListener avatarPreloader;
 
     public interface OnMoreButtonClickListener {
         void onMoreButtonClick(View view, User user);
@@ -44,6 +46,23 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
         this.moreButtonClickListener = listener;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        avatarPreloader = AvatarLoader.startPreloading(recyclerView, this::avatarUrlAt);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        AvatarLoader.stopPreloading(recyclerView, avatarPreloader);
+        avatarPreloader = null;
+    }
+
+    private String avatarUrlAt(int position) {
+        return position < userList.size() ? userList.get(position).getProfileImageUrl() : null;
+    }
+
     @NonNull
     @Override
     public UserViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -86,14 +105,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
         }
 
         // Load profile image
-        if (user.getProfileImageUrl() != null && !user.getProfileImageUrl().equals("none")) {
-            Glide.with(context)
-                    .load(user.getProfileImageUrl())
-                    .placeholder(R.drawable.default_userpic)
-                    .into(holder.imageViewUserPicture);
-        } else {
-            holder.imageViewUserPicture.setImageResource(R.drawable.default_userpic);
-        }
+        AvatarLoader.load(holder.imageViewUserPicture, user.getProfileImageUrl());
 
         holder.itemView.setOnClickListener(v -> {
             // Chat feature temporarily disabled
@@ -8,8 +8,10 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.appdev.models.VoiceMessage;
 import com.example.appdev.R;
+import com.example.appdev.utils.TextLayoutPrefetcher;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DatabaseReference;
+import java.util.ArrayList;
 import java.util.List;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -21,9 +23,13 @@ public class VoiceMessageAdapter extends RecyclerView.Adapter<VoiceMessageAdapte
     private DatabaseReference messagesRef;
     private String roomId;
 
+    // Bubble text laid out ahead of scrolling
+    private final TextLayoutPrefetcher textLayouts = new TextLayoutPrefetcher(this, this::collectTexts);
+
     public VoiceMessageAdapter(DatabaseReference messagesRef, String roomId) {
         this.messagesRef = messagesRef;
         this.roomId = roomId;
+        this.messages = new ArrayList<>();
     }
 
     @NonNull
@@ -46,11 +52,11 @@ public class VoiceMessageAdapter extends RecyclerView.Adapter<VoiceMessageAdapte
             holder.rightMessageContainer.setVisibility(View.VISIBLE);
 
             // Show original voice text on the right
-            holder.rightVoiceText.setText(message.getVoiceText());
+            textLayouts.setText(holder.rightVoiceText, 0, message.getMessageId(), message.getVoiceText());
 
             // Show translated text if available
             if (message.getTranslatedText() != null && !message.getTranslatedText().isEmpty()) {
-                holder.rightTranslatedText.setText(message.getTranslatedText());
+                textLayouts.setText(holder.rightTranslatedText, 0, message.getMessageId(), message.getTranslatedText());
                 holder.rightTranslatedText.setVisibility(View.VISIBLE);
             } else {
                 holder.rightTranslatedText.setVisibility(View.GONE);
@@ -64,11 +70,11 @@ public class VoiceMessageAdapter extends RecyclerView.Adapter<VoiceMessageAdapte
             holder.leftMessageContainer.setVisibility(View.VISIBLE);
 
             // Show original voice text on the left
-            holder.leftVoiceText.setText(message.getVoiceText());
+            textLayouts.setText(holder.leftVoiceText, 0, message.getMessageId(), message.getVoiceText());
 
             // Show translated text if available
             if (message.getTranslatedText() != null && !message.getTranslatedText().isEmpty()) {
-                holder.leftTranslatedText.setText(message.getTranslatedText());
+                textLayouts.setText(holder.leftTranslatedText, 0, message.getMessageId(), message.getTranslatedText());
                 holder.leftTranslatedText.setVisibility(View.VISIBLE);
             } else {
                 holder.leftTranslatedText.setVisibility(View.GONE);
@@ -84,11 +90,98 @@ public class VoiceMessageAdapter extends RecyclerView.Adapter<VoiceMessageAdapte
         return messages != null ? messages.size() : 0;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        textLayouts.attach(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        textLayouts.detach();
+    }
+
+    // The texts onBindViewHolder() will show for a message, so they can be laid out ahead
+    private void collectTexts(int position, TextLayoutPrefetcher.Texts out) {
+        VoiceMessage message = messages.get(position);
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) {
+            return;
+        }
+        if (message.getSenderId().equals(FirebaseAuth.getInstance().getCurrentUser().getUid())) {
+            out.add(R.id.rightVoiceText, message.getMessageId(), message.getVoiceText());
+            out.add(R.id.rightTranslatedText, message.getMessageId(), message.getTranslatedText());
+        } else {
+            out.add(R.id.leftVoiceText, message.getMessageId(), message.getVoiceText());
+            out.add(R.id.leftTranslatedText, message.getMessageId(), message.getTranslatedText());
+        }
+    }
+
     public void setMessages(List<VoiceMessage> messages) {
-        this.messages = messages;
+        this.messages = messages != null ? new ArrayList<>(messages) : new ArrayList<>();
         notifyDataSetChanged();
     }
 
+    /**
+     * Add a page of older messages above the ones already shown
+     */
+    public void prependMessages(List<VoiceMessage> olderMessages) {
+        List<VoiceMessage> valid = new ArrayList<>();
+        for (VoiceMessage message : olderMessages) {
+            if (message != null && message.getSenderId() != null) {
+                valid.add(message);
+            }
+        }
+        messages.addAll(0, valid);
+        notifyItemRangeInserted(0, valid.size());
+    }
+
+    /**
+     * Insert a message at its place by timestamp, or rebind it if it is already shown
+     * @return The message's position, or -1 if it was skipped
+     */
+    public int addOrUpdateMessage(VoiceMessage message) {
+        if (message == null || message.getSenderId() == null) {
+            return -1;
+        }
+        int existing = findPositionById(message.getMessageId());
+        if (existing >= 0 && messages.get(existing).getTimestamp() == message.getTimestamp()) {
+            messages.set(existing, message);
+            notifyItemChanged(existing);
+            return existing;
+        }
+        if (existing >= 0) {
+            messages.remove(existing);
+            notifyItemRemoved(existing);
+        }
+
+        int position = messages.size();
+        while (position > 0 && messages.get(position - 1).getTimestamp() > message.getTimestamp()) {
+            position--;
+        }
+        messages.add(position, message);
+        notifyItemInserted(position);
+        return position;
+    }
+
+    public void removeMessage(String messageId) {
+        int position = findPositionById(messageId);
+        if (position >= 0) {
+            messages.remove(position);
+            notifyItemRemoved(position);
+        }
+    }
+
+    private int findPositionById(String messageId) {
+        if (messageId == null) return -1;
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messageId.equals(messages.get(i).getMessageId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private String formatTimestamp(long timestamp) {
         SimpleDateFormat sdf = new SimpleDateFormat("HH:mm", Locale.getDefault());
         return sdf.format(new Date(timestamp));
@@ -34,9 +34,11 @@ import com.example.appdev.QRScanActivity;
 import com.example.appdev.Variables;
 import com.example.appdev.ConversationalActivity;
 import com.example.appdev.MainActivity;
+import com.example.appdev.helpers.SnapshotMappers;
 import com.example.appdev.models.Languages;
 import com.example.appdev.utils.SpeechRecognitionDialog;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.ModelRouter;
 import com.example.appdev.utils.TranslationModeManager;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -118,6 +120,7 @@ public class BasicTranslationFragment extends Fragment {
     private boolean isTranslating = false;
     private ImageButton stopTranslationButton;
     private boolean isCurrentlyTranslating = false;
+    private TranslationApiService.PendingTranslation pendingTranslation;
     private ImageButton btnStartConversation;
     private de.hdodenhof.circleimageview.CircleImageView profileButton;
     private SpeechRecognitionHelper speechHelper;
@@ -251,7 +254,7 @@ public class BasicTranslationFragment extends Fragment {
             userValueEventListener = new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    User currentUser = snapshot.getValue(User.class);
+                    User currentUser = SnapshotMappers.toUser(snapshot);
                     if (currentUser != null && currentUser.getLanguage() != null) {
                         Variables.userLanguage = currentUser.getLanguage();
                         currentLanguageLabel.setText(Variables.userLanguage);
@@ -490,8 +493,9 @@ public class BasicTranslationFragment extends Fragment {
     }
 
     private void stopTranslation() {
-        // Note: We can't easily cancel API requests, but we can ignore their results
+        // Detach from the pending request; the backend call is skipped if nobody else is waiting on it
         isCurrentlyTranslating = false;
+        cancelPendingTranslation();
 
         // Reset UI
         stopAnimation();
@@ -548,6 +552,9 @@ public class BasicTranslationFragment extends Fragment {
         // Mark translation as stopped if currently translating
         isCurrentlyTranslating = false;
 
+        // A repeated tap re-attaches to the same in-flight request, so drop our previous callback
+        cancelPendingTranslation();
+
         // Start translation UI state
         startTranslation();
 
@@ -575,15 +582,31 @@ public class BasicTranslationFragment extends Fragment {
         // Get translation mode
         String translationMode = Variables.isFormalTranslationMode ? "formal" : "casual";
         
+        // Use the selected translator unless its circuit breaker is open
+        String sourceLanguage = Variables.userLanguage != null ? Variables.userLanguage : "auto";
+        String selectedTranslator = getCurrentTranslator();
+        String translator = ModelRouter.route(selectedTranslator, sourceLanguage, targetLanguage);
+        String rerouteNotice = ModelRouter.getRerouteNotice(selectedTranslator, translator);
+        if (rerouteNotice != null) {
+            CustomNotification.showNotification(requireContext(), rerouteNotice, false);
+        }
+
         // Use the API service for translation
-        TranslationApiService.translateText(
+        pendingTranslation = TranslationApiService.translateText(
                 text,
-                Variables.userLanguage != null ? Variables.userLanguage : "auto",
+                sourceLanguage,
                 targetLanguage,
                 translationMode,
-                getCurrentTranslator(),
+                translator,
                 Variables.userUID != null ? Variables.userUID : "",
                 new TranslationApiService.TranslationCallback() {
+                    @Override
+                    public void onPartial(String partialText) {
+                        if (getActivity() != null && isCurrentlyTranslating) {
+                            showPartialTranslation(partialText);
+                        }
+                    }
+
                     @Override
                     public void onSuccess(String translatedText) {
                         if (getActivity() != null && isCurrentlyTranslating) {
@@ -782,6 +805,14 @@ public class BasicTranslationFragment extends Fragment {
         
         // Mark translation as stopped
         isCurrentlyTranslating = false;
+        cancelPendingTranslation();
+    }
+
+    private void cancelPendingTranslation() {
+        if (pendingTranslation != null) {
+            pendingTranslation.cancel();
+            pendingTranslation = null;
+        }
     }
 
     // Helper methods to handle translation results
@@ -809,6 +840,20 @@ public class BasicTranslationFragment extends Fragment {
         textViewResult.setTextColor(getResources().getColor(android.R.color.black));
     }
 
+    /**
+     * Render streamed text as it arrives; the controls stay disabled until the final result
+     */
+    private void showPartialTranslation(String partialText) {
+        if (textViewResult.getVisibility() != View.VISIBLE) {
+            // First tokens arrived, swap the loading animation for the text
+            stopAnimation();
+            textViewResult.setVisibility(View.VISIBLE);
+            textViewResult.setTextColor(getResources().getColor(android.R.color.black));
+            if (placeholderText != null) placeholderText.setVisibility(View.GONE);
+        }
+        textViewResult.setText(partialText);
+    }
+
     private void handleTranslationError() {
         stopAnimation();
         textViewResult.setText("Translation failed");
@@ -18,12 +18,18 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.appdev.R;
 import com.example.appdev.Variables;
 import com.example.appdev.adapters.ChatItemAdapter;
+import com.example.appdev.helpers.UserChatsIndex;
+import com.example.appdev.helpers.SnapshotMappers;
 import com.example.appdev.models.ChatItem;
+import com.example.appdev.models.ChatSummary;
 import com.example.appdev.models.Group;
 import com.example.appdev.models.User;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.MemberGroupsStream;
+import com.example.appdev.utils.UserProfileStore;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
@@ -38,7 +44,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import android.util.Pair;
 import androidx.appcompat.widget.PopupMenu;
 
 public class ChatFragment extends Fragment {
@@ -47,14 +52,19 @@ public class ChatFragment extends Fragment {
     private ChatItemAdapter chatItemAdapter;
     private List<ChatItem> chatItemList;
     private TextView emptyStateText;
-    private DatabaseReference messagesRef;
+    private DatabaseReference userChatsRef;
     private DatabaseReference usersRef;
-    private DatabaseReference groupsRef;
-    private DatabaseReference groupMessagesRef;
-    private ValueEventListener messagesValueEventListener;
-    private ValueEventListener usersValueEventListener;
-    private ValueEventListener groupsValueEventListener;
-    private ValueEventListener groupMessagesValueEventListener;
+    private ChildEventListener userChatsListener;
+    private MemberGroupsStream memberGroupsStream;
+
+    // Chat summaries by chat id (room id or group id), kept in sync by userChatsListener
+    private final Map<String, ChatSummary> summaries = new HashMap<>();
+    // Groups the user belongs to, by group id
+    private final Map<String, Group> memberGroups = new HashMap<>();
+    // People the user chats with, watched through the shared profile store
+    private final Set<String> watchedUsers = new HashSet<>();
+    private final UserProfileStore.Observer profileObserver = this::onProfileChanged;
+    private boolean isSearching = false;
 
     @Nullable
     @Override
@@ -115,7 +125,7 @@ public class ChatFragment extends Fragment {
             public boolean onQueryTextChange(String newText) {
                 if (newText.trim().isEmpty()) {
                     // If search is empty, show all chats
-                    loadAllChats();
+                    showAllChats();
                 } else {
                     // Search in database
                     searchChats(newText.toLowerCase());
@@ -178,107 +188,57 @@ public class ChatFragment extends Fragment {
         }
         
         String currentUserId = currentUser.getUid();
-        messagesRef = FirebaseDatabase.getInstance().getReference("messages");
         usersRef = FirebaseDatabase.getInstance().getReference("users");
-        groupsRef = FirebaseDatabase.getInstance().getReference("groups");
-        groupMessagesRef = FirebaseDatabase.getInstance().getReference("group_messages");
+        userChatsRef = FirebaseDatabase.getInstance().getReference(UserChatsIndex.NODE).child(currentUserId);
 
-        // Clear the existing list
+        // Start from a clean slate so listeners are never attached twice
+        detachListeners();
+        isSearching = false;
+        summaries.clear();
+        memberGroups.clear();
         chatItemList.clear();
+        chatItemAdapter.notifyDataSetChanged();
         
-        // Load direct chats
-        loadDirectChats(currentUserId);
+        // Load the user's chat summaries (direct and group)
+        loadChatSummaries(currentUserId);
         
         // Load group chats
         loadGroupChats(currentUserId);
     }
-    
-    private void loadDirectChats(String currentUserId) {
-        // Handle direct chats (one-on-one)
-        messagesValueEventListener = new ValueEventListener() {
+
+    /**
+     * Subscribe to user_chats/{uid}. Each child is one chat's latest message, so a new message
+     * costs one child event instead of re-reading every room in the database.
+     */
+    private void loadChatSummaries(String currentUserId) {
+        userChatsListener = new ChildEventListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                Map<String, Pair<String, Long>> userLastMessageInfo = new HashMap<>();
-                
-                // Loop through all chat rooms
-                for (DataSnapshot chatSnapshot : dataSnapshot.getChildren()) {
-                    String roomId = chatSnapshot.getKey();
-                    if (roomId != null) {
-                        String[] userIds = roomId.split("_");
-                        if (userIds.length == 2) {
-                            String otherUserId = userIds[0].equals(currentUserId) ? userIds[1] : 
-                                (userIds[1].equals(currentUserId) ? userIds[0] : null);
-                            
-                            if (otherUserId != null) {
-                                // Find the latest message timestamp for this chat
-                                long latestTimestamp = 0;
-                                String lastMessage = "";
-                                String lastMessageOG = "";
-                                String lastMessageSenderId = "";
-                                for (DataSnapshot messageSnapshot : chatSnapshot.getChildren()) {
-                                    Long timestamp = messageSnapshot.child("timestamp").getValue(Long.class);
-                                    if (timestamp != null && timestamp > latestTimestamp) {
-                                        latestTimestamp = timestamp;
-                                        lastMessage = messageSnapshot.child("message").getValue(String.class);
-                                        lastMessageOG = messageSnapshot.child("messageOG").getValue(String.class);
-                                        lastMessageSenderId = messageSnapshot.child("senderId").getValue(String.class);
-                                    }
-                                }
-                                userLastMessageInfo.put(otherUserId, new Pair<>(
-                                    lastMessageSenderId + "|" + lastMessage + "|" + lastMessageOG, // Include messageOG
-                                    latestTimestamp
-                                ));
-                            }
-                        }
-                    }
-                }
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                onSummaryChanged(snapshot, currentUserId);
+            }
 
-                // Now get user details and create chat items
-                usersValueEventListener = new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                        List<ChatItem> directChats = new ArrayList<>();
-                        
-                        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                            User user = snapshot.getValue(User.class);
-                            if (user != null && user.getUserId() != null && 
-                                userLastMessageInfo.containsKey(user.getUserId()) && 
-                                !user.getUserId().equals(currentUserId) && 
-                                user.getEmail() != null) {
-                                
-                                Pair<String, Long> messageInfo = userLastMessageInfo.get(user.getUserId());
-                                user.setLastMessage(messageInfo.first);
-                                user.setLastMessageTime(messageInfo.second);
-                                
-                                // Create chat item from user
-                                ChatItem chatItem = new ChatItem(user);
-                                directChats.add(chatItem);
-                            }
-                        }
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                onSummaryChanged(snapshot, currentUserId);
+            }
 
-                        // Add direct chats to the chatItemList
-                        synchronized (chatItemList) {
-                            // Remove existing direct chats to avoid duplicates
-                            chatItemList.removeIf(item -> !item.isGroup());
-                            
-                            // Add the direct chats
-                            chatItemList.addAll(directChats);
-                            
-                            // Sort by timestamp (newest first)
-                            sortAndUpdateList();
-                        }
-                    }
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                ChatSummary summary = summaries.remove(snapshot.getKey());
+                if (summary == null) {
+                    return;
+                }
+                if (summary.isGroup()) {
+                    // Still a member, just no messages any more
+                    showGroup(snapshot.getKey(), currentUserId);
+                } else {
+                    removeItem(summary.getOtherUserId(), false);
+                }
+            }
 
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError databaseError) {
-                        if (isAdded() && getActivity() != null && 
-                            FirebaseAuth.getInstance().getCurrentUser() != null) {
-                            CustomNotification.showNotification(requireActivity(), 
-                                "Failed to load users", false);
-                        }
-                    }
-                };
-                usersRef.addListenerForSingleValueEvent(usersValueEventListener);
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                // Ordering is done locally by last message time
             }
 
             @Override
@@ -286,169 +246,185 @@ public class ChatFragment extends Fragment {
                 if (isAdded() && getActivity() != null && 
                     FirebaseAuth.getInstance().getCurrentUser() != null) {
                     CustomNotification.showNotification(requireActivity(), 
-                        "Failed to load chat rooms", false);
+                        "Failed to load chats", false);
                 }
             }
         };
-        messagesRef.addValueEventListener(messagesValueEventListener);
+        userChatsRef.addChildEventListener(userChatsListener);
+    }
+
+    private void onSummaryChanged(DataSnapshot snapshot, String currentUserId) {
+        ChatSummary summary = snapshot.getValue(ChatSummary.class);
+        if (summary == null || summary.getLastMessageId() == null) {
+            return; // Only a late translation preview for a deleted chat
+        }
+        summary.setChatId(snapshot.getKey());
+        summaries.put(summary.getChatId(), summary);
+
+        if (summary.isGroup()) {
+            showGroup(summary.getChatId(), currentUserId);
+        } else if (summary.getOtherUserId() != null) {
+            showDirectChat(summary, currentUserId);
+        }
+    }
+
+    /**
+     * Show a direct chat once the other user's profile is known, and keep it current
+     * through the shared profile store
+     */
+    private void showDirectChat(ChatSummary summary, String currentUserId) {
+        String otherUserId = summary.getOtherUserId();
+        if (watchedUsers.add(otherUserId)) {
+            UserProfileStore.subscribe(otherUserId, profileObserver);
+        }
+        User user = UserProfileStore.peek(otherUserId);
+        if (user != null && user.getEmail() != null) {
+            placeItem(new ChatItem(user, summary, currentUserId, Variables.userLanguage));
+        }
+    }
+
+    private void onProfileChanged(String userId, User profile) {
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser == null || isSearching || profile.getEmail() == null) {
+            return;
+        }
+        for (ChatSummary summary : summaries.values()) {
+            if (!summary.isGroup() && userId.equals(summary.getOtherUserId())) {
+                placeItem(new ChatItem(profile, summary, currentUser.getUid(), Variables.userLanguage));
+            }
+        }
+    }
+
+    /**
+     * Show a group the user belongs to, with its summary if anything was sent yet
+     */
+    private void showGroup(String groupId, String currentUserId) {
+        Group group = memberGroups.get(groupId);
+        if (group == null) {
+            return; // Not (or no longer) a member, or group details not loaded yet
+        }
+        placeItem(new ChatItem(group, summaries.get(groupId), currentUserId, Variables.userLanguage));
     }
     
     private void loadGroupChats(String currentUserId) {
-        // Create persistent value event listener for group messages
-        groupMessagesValueEventListener = new ValueEventListener() {
+        // Group membership and details from user_groups; last messages come from the chat summaries
+        memberGroupsStream = new MemberGroupsStream(currentUserId, new MemberGroupsStream.Listener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                // Map to store group IDs to their last message info
-                Map<String, GroupLastMessageInfo> groupLastMessageMap = new HashMap<>();
-                
-                // Process all group messages to find the latest one for each group
-                for (DataSnapshot groupSnapshot : dataSnapshot.getChildren()) {
-                    String groupId = groupSnapshot.getKey();
-                    if (groupId != null) {
-                        long latestTimestamp = 0;
-                        String lastMessage = "";
-                        String lastMessageSenderId = "";
-                        String lastMessageOG = "";
-                        Map<String, String> lastMessageTranslations = new HashMap<>();
-                        
-                        // Loop through all messages in the group
-                        for (DataSnapshot messageSnapshot : groupSnapshot.getChildren()) {
-                            Long timestamp = messageSnapshot.child("timestamp").getValue(Long.class);
-                            if (timestamp != null && timestamp > latestTimestamp) {
-                                latestTimestamp = timestamp;
-                                lastMessage = messageSnapshot.child("message").getValue(String.class);
-                                lastMessageSenderId = messageSnapshot.child("senderId").getValue(String.class);
-                                lastMessageOG = messageSnapshot.child("messageOG").getValue(String.class);
-                                
-                                // Get translations if available
-                                DataSnapshot translationsSnapshot = messageSnapshot.child("translations");
-                                if (translationsSnapshot.exists()) {
-                                    for (DataSnapshot translationSnapshot : translationsSnapshot.getChildren()) {
-                                        String language = translationSnapshot.getKey();
-                                        String translatedText = translationSnapshot.getValue(String.class);
-                                        if (language != null && translatedText != null) {
-                                            lastMessageTranslations.put(language, translatedText);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                        
-                        // If we found messages, store the info
-                        if (latestTimestamp > 0) {
-                            groupLastMessageMap.put(groupId, new GroupLastMessageInfo(
-                                lastMessage,
-                                lastMessageSenderId,
-                                latestTimestamp,
-                                lastMessageOG,
-                                lastMessageTranslations
-                            ));
-                        }
-                    }
-                }
-                
-                // Now get group details and create chat items with the last message info
-                groupsValueEventListener = new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                        List<ChatItem> groupChats = new ArrayList<>();
-                        
-                        for (DataSnapshot groupSnapshot : dataSnapshot.getChildren()) {
-                            Group group = groupSnapshot.getValue(Group.class);
-                            String groupId = groupSnapshot.getKey();
-                            
-                            // Check if current user is a member of this group
-                            if (group != null && groupId != null && group.getMembers() != null && 
-                                    group.getMembers().containsKey(currentUserId)) {
-                                
-                                // Update the group with last message info if available
-                                GroupLastMessageInfo lastMessageInfo = groupLastMessageMap.get(groupId);
-                                if (lastMessageInfo != null) {
-                                    // Check if there's a translation for user's language
-                                    String userLanguage = Variables.userLanguage;
-                                    String displayMessage = lastMessageInfo.getMessage();
-                                    
-                                    // Get translation for user's language if the message is not from current user
-                                    if (!currentUserId.equals(lastMessageInfo.getSenderId()) && 
-                                        lastMessageInfo.getTranslations() != null && 
-                                        lastMessageInfo.getTranslations().containsKey(userLanguage)) {
-                                        displayMessage = lastMessageInfo.getTranslations().get(userLanguage);
-                                    }
-                                    
-                                    group.setLastMessage(displayMessage);
-                                    group.setLastMessageSenderId(lastMessageInfo.getSenderId());
-                                    group.setLastMessageTime(lastMessageInfo.getTimestamp());
-                                    group.setLastMessageOG(lastMessageInfo.getMessageOG());
-                                } else {
-                                    // No messages yet
-                                    group.setLastMessage("No messages yet");
-                                    group.setLastMessageSenderId("");
-                                    group.setLastMessageTime(group.getCreatedAt()); // Use creation time for sorting
-                                    group.setLastMessageOG("");
-                                }
-                                
-                                // Create chat item from group
-                                ChatItem chatItem = new ChatItem(group);
-                                groupChats.add(chatItem);
-                            }
-                        }
-                        
-                        // Add group chats to the chatItemList
-                        synchronized (chatItemList) {
-                            // Remove existing group chats to avoid duplicates
-                            chatItemList.removeIf(ChatItem::isGroup);
-                            
-                            // Add the group chats
-                            chatItemList.addAll(groupChats);
-                            
-                            // Sort by timestamp (newest first)
-                            sortAndUpdateList();
-                        }
-                    }
+            public void onGroupChanged(Group group) {
+                memberGroups.put(group.getGroupId(), group);
+                showGroup(group.getGroupId(), currentUserId);
+            }
 
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError databaseError) {
-                        if (isAdded() && getActivity() != null && 
-                            FirebaseAuth.getInstance().getCurrentUser() != null) {
-                            CustomNotification.showNotification(requireActivity(), 
-                                "Failed to load group chats", false);
-                        }
-                    }
-                };
-                groupsRef.addValueEventListener(groupsValueEventListener);
+            @Override
+            public void onGroupRemoved(String groupId) {
+                memberGroups.remove(groupId);
+                removeItem(groupId, true);
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
+            public void onError(DatabaseError databaseError) {
                 if (isAdded() && getActivity() != null && 
                     FirebaseAuth.getInstance().getCurrentUser() != null) {
                     CustomNotification.showNotification(requireActivity(), 
-                        "Failed to load group messages", false);
+                        "Failed to load group chats", false);
                 }
             }
-        };
-        
-        // Add persistent listener for group messages that will update when new messages arrive
-        groupMessagesRef.addValueEventListener(groupMessagesValueEventListener);
+        });
+        memberGroupsStream.start();
     }
-    
-    private void sortAndUpdateList() {
-        // Sort chats by last message time (newest first)
+
+    /**
+     * Insert or update one chat at its place in the newest-first list
+     */
+    private void placeItem(ChatItem item) {
+        if (isSearching) {
+            return; // Search results are showing, the full list is rebuilt when the search is cleared
+        }
+
+        int oldIndex = indexOf(item.getId(), item.isGroup());
+        if (oldIndex >= 0) {
+            chatItemList.remove(oldIndex);
+        }
+        int newIndex = 0;
+        while (newIndex < chatItemList.size()
+                && chatItemList.get(newIndex).getLastMessageTime() >= item.getLastMessageTime()) {
+            newIndex++;
+        }
+        chatItemList.add(newIndex, item);
+
+        if (oldIndex < 0) {
+            chatItemAdapter.notifyItemInserted(newIndex);
+        } else {
+            if (oldIndex != newIndex) {
+                chatItemAdapter.notifyItemMoved(oldIndex, newIndex);
+            }
+            chatItemAdapter.notifyItemChanged(newIndex);
+        }
+        updateEmptyState();
+    }
+
+    private void removeItem(String id, boolean isGroup) {
+        if (isSearching) {
+            return;
+        }
+        int index = indexOf(id, isGroup);
+        if (index >= 0) {
+            chatItemList.remove(index);
+            chatItemAdapter.notifyItemRemoved(index);
+            updateEmptyState();
+        }
+    }
+
+    private int indexOf(String id, boolean isGroup) {
+        for (int i = 0; i < chatItemList.size(); i++) {
+            ChatItem item = chatItemList.get(i);
+            if (item.isGroup() == isGroup && item.getId() != null && item.getId().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuild the full chat list from the summaries and groups already loaded, after a search
+     */
+    private void showAllChats() {
+        isSearching = false;
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser == null) {
+            loadAllChats(); // Shows the logged-out state
+            return;
+        }
+        String currentUserId = currentUser.getUid();
+
+        chatItemList.clear();
+        for (ChatSummary summary : summaries.values()) {
+            User user = summary.isGroup() ? null : UserProfileStore.peek(summary.getOtherUserId());
+            if (user != null && user.getEmail() != null) {
+                chatItemList.add(new ChatItem(user, summary, currentUserId, Variables.userLanguage));
+            }
+        }
+        for (Group group : memberGroups.values()) {
+            chatItemList.add(new ChatItem(group, summaries.get(group.getGroupId()), currentUserId,
+                    Variables.userLanguage));
+        }
+
+        // Sort by timestamp (newest first)
         Collections.sort(chatItemList, (item1, item2) -> 
             Long.compare(item2.getLastMessageTime(), item1.getLastMessageTime()));
+        chatItemAdapter.notifyDataSetChanged();
+        updateEmptyState();
+    }
+    
+    private void updateEmptyState() {
+        if (!isAdded() || emptyStateText == null || recyclerViewUsers == null) {
+            return;
+        }
+        emptyStateText.setVisibility(chatItemList.isEmpty() ? View.VISIBLE : View.GONE);
+        recyclerViewUsers.setVisibility(chatItemList.isEmpty() ? View.GONE : View.VISIBLE);
         
-        // Update UI
-        if (isAdded() && getActivity() != null) {
-            getActivity().runOnUiThread(() -> {
-                emptyStateText.setVisibility(chatItemList.isEmpty() ? View.VISIBLE : View.GONE);
-                recyclerViewUsers.setVisibility(chatItemList.isEmpty() ? View.GONE : View.VISIBLE);
-                
-                if (chatItemList.isEmpty()) {
-                    emptyStateText.setText("No conversations yet\nStart chatting with someone!");
-                }
-                
-                chatItemAdapter.notifyDataSetChanged();
-            });
+        if (chatItemList.isEmpty()) {
+            emptyStateText.setText("No conversations yet\nStart chatting with someone!");
         }
     }
 
@@ -467,138 +443,87 @@ public class ChatFragment extends Fragment {
         }
         
         String currentUserId = currentUser.getUid();
+        isSearching = true;
         
         // Use the class-level references
-        if (messagesRef == null) {
-            messagesRef = FirebaseDatabase.getInstance().getReference("messages");
-        }
-        
         if (usersRef == null) {
             usersRef = FirebaseDatabase.getInstance().getReference("users");
         }
-        
-        if (groupsRef == null) {
-            groupsRef = FirebaseDatabase.getInstance().getReference("groups");
+
+        // Users with message history, straight from the chat summaries
+        Set<String> userIdsWithMessages = new HashSet<>();
+        for (ChatSummary summary : summaries.values()) {
+            if (!summary.isGroup() && summary.getOtherUserId() != null) {
+                userIdsWithMessages.add(summary.getOtherUserId());
+            }
         }
 
-        // First get users with message history
-        messagesRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        // Groups the user belongs to whose name matches
+        List<ChatItem> groupSearchResults = new ArrayList<>();
+        for (Group group : memberGroups.values()) {
+            if (group.getName() != null && group.getName().toLowerCase().contains(searchText)) {
+                groupSearchResults.add(new ChatItem(group));
+            }
+        }
+
+        // Now search in users
+        usersRef.addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                Set<String> userIdsWithMessages = new HashSet<>();
-                
-                // Get all user IDs with message history
-                for (DataSnapshot chatSnapshot : dataSnapshot.getChildren()) {
-                    String roomId = chatSnapshot.getKey();
-                    if (roomId != null) {
-                        String[] userIds = roomId.split("_");
-                        if (userIds.length == 2) {
-                            if (userIds[0].equals(currentUserId)) {
-                                userIdsWithMessages.add(userIds[1]);
-                            } else if (userIds[1].equals(currentUserId)) {
-                                userIdsWithMessages.add(userIds[0]);
-                            }
-                        }
-                    }
+                if (!isSearching) {
+                    return; // Search was cleared while this was loading
                 }
-
-                // Now search in users
-                usersRef.addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                        chatItemList.clear();
-                        List<ChatItem> userSearchResults = new ArrayList<>();
-                        List<ChatItem> userMessageHistoryResults = new ArrayList<>();
-
-                        // Search users
-                        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                            User user = snapshot.getValue(User.class);
-                            if (user != null && user.getUserId() != null && 
-                                !user.getUserId().equals(currentUserId) && 
-                                user.getEmail() != null) {
-                                
-                                boolean matchesSearch = (user.getUsername() != null && 
-                                    user.getUsername().toLowerCase().contains(searchText)) ||
-                                    user.getEmail().toLowerCase().contains(searchText);
-                                
-                                if (matchesSearch) {
-                                    // Create chat item
-                                    ChatItem chatItem = new ChatItem(user);
-                                    
-                                    if (userIdsWithMessages.contains(user.getUserId())) {
-                                        // Users with message history appear first
-                                        userMessageHistoryResults.add(chatItem);
-                                    } else {
-                                        // Users without message history appear later
-                                        userSearchResults.add(chatItem);
-                                    }
-                                }
-                            }
-                        }
+                chatItemList.clear();
+                List<ChatItem> userSearchResults = new ArrayList<>();
+                List<ChatItem> userMessageHistoryResults = new ArrayList<>();
+
+                // Search users
+                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
+                    User user = SnapshotMappers.toUser(snapshot);
+                    if (user != null && user.getUserId() != null && 
+                        !user.getUserId().equals(currentUserId) && 
+                        user.getEmail() != null) {
                         
-                        // Search groups
-                        groupsRef.addListenerForSingleValueEvent(new ValueEventListener() {
-                            @Override
-                            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                                List<ChatItem> groupSearchResults = new ArrayList<>();
-                                
-                                for (DataSnapshot groupSnapshot : dataSnapshot.getChildren()) {
-                                    Group group = groupSnapshot.getValue(Group.class);
-                                    
-                                    // Check if current user is a member and name matches search
-                                    if (group != null && group.getMembers() != null && 
-                                            group.getMembers().containsKey(currentUserId) &&
-                                            group.getName() != null &&
-                                            group.getName().toLowerCase().contains(searchText)) {
-                                        
-                                        // Create chat item from group
-                                        ChatItem chatItem = new ChatItem(group);
-                                        groupSearchResults.add(chatItem);
-                                    }
-                                }
-                                
-                                // Combine results: message history users, groups, then other users
-                                chatItemList.addAll(userMessageHistoryResults);
-                                chatItemList.addAll(groupSearchResults);
-                                chatItemList.addAll(userSearchResults);
-                                
-                                // Update UI
-                                emptyStateText.setVisibility(chatItemList.isEmpty() ? View.VISIBLE : View.GONE);
-                                recyclerViewUsers.setVisibility(chatItemList.isEmpty() ? View.GONE : View.VISIBLE);
-                                
-                                if (chatItemList.isEmpty()) {
-                                    emptyStateText.setText("No chats found");
-                                }
-                                
-                                chatItemAdapter.notifyDataSetChanged();
-                            }
+                        boolean matchesSearch = (user.getUsername() != null && 
+                            user.getUsername().toLowerCase().contains(searchText)) ||
+                            user.getEmail().toLowerCase().contains(searchText);
+                        
+                        if (matchesSearch) {
+                            // Create chat item
+                            ChatItem chatItem = new ChatItem(user);
                             
-                            @Override
-                            public void onCancelled(@NonNull DatabaseError databaseError) {
-                                // Handle error
-                                if (isAdded() && getActivity() != null) {
-                                    CustomNotification.showNotification(requireActivity(), 
-                                        "Failed to search groups", false);
-                                }
+                            if (userIdsWithMessages.contains(user.getUserId())) {
+                                // Users with message history appear first
+                                userMessageHistoryResults.add(chatItem);
+                            } else {
+                                // Users without message history appear later
+                                userSearchResults.add(chatItem);
                             }
-                        });
-                    }
-
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError databaseError) {
-                        if (isAdded() && getActivity() != null) {
-                            CustomNotification.showNotification(requireActivity(), 
-                                "Failed to search users", false);
                         }
                     }
-                });
+                }
+                
+                // Combine results: message history users, groups, then other users
+                chatItemList.addAll(userMessageHistoryResults);
+                chatItemList.addAll(groupSearchResults);
+                chatItemList.addAll(userSearchResults);
+                
+                // Update UI
+                emptyStateText.setVisibility(chatItemList.isEmpty() ? View.VISIBLE : View.GONE);
+                recyclerViewUsers.setVisibility(chatItemList.isEmpty() ? View.GONE : View.VISIBLE);
+                
+                if (chatItemList.isEmpty()) {
+                    emptyStateText.setText("No chats found");
+                }
+                
+                chatItemAdapter.notifyDataSetChanged();
             }
 
             @Override
             public void onCancelled(@NonNull DatabaseError databaseError) {
                 if (isAdded() && getActivity() != null) {
                     CustomNotification.showNotification(requireActivity(), 
-                        "Failed to search messages", false);
+                        "Failed to search users", false);
                 }
             }
         });
@@ -661,7 +586,7 @@ public class ChatFragment extends Fragment {
         usersRef.child(chatItem.getId()).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                User user = snapshot.getValue(User.class);
+                User user = SnapshotMappers.toUser(snapshot);
                 if (user != null) {
                     username.setText(user.getUsername());
                     email.setText(user.getEmail());
@@ -700,14 +625,17 @@ public class ChatFragment extends Fragment {
                 java.util.Arrays.sort(ids);
                 String roomId = ids[0] + "_" + ids[1];
                 
-                // Delete conversation
-                FirebaseDatabase.getInstance().getReference("messages")
-                    .child(roomId)
-                    .removeValue()
+                // Delete the conversation and both participants' summaries together;
+                // the summary listener then drops it from the list
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("messages/" + roomId, null);
+                updates.put(UserChatsIndex.summaryPath(currentUserId, roomId), null);
+                updates.put(UserChatsIndex.summaryPath(chatItem.getId(), roomId), null);
+                FirebaseDatabase.getInstance().getReference()
+                    .updateChildren(updates)
                     .addOnSuccessListener(aVoid -> {
                         CustomNotification.showNotification(requireActivity(), 
                             "Conversation deleted", true);
-                        loadAllChats(); // Reload the chat list
                     })
                     .addOnFailureListener(e -> {
                         CustomNotification.showNotification(requireActivity(), 
@@ -723,62 +651,23 @@ public class ChatFragment extends Fragment {
         super.onDestroy();
         
         // Clean up listeners
-        if (messagesRef != null && messagesValueEventListener != null) {
-            messagesRef.removeEventListener(messagesValueEventListener);
-        }
-        
-        if (usersRef != null && usersValueEventListener != null) {
-            usersRef.removeEventListener(usersValueEventListener);
-        }
-        
-        if (groupsRef != null && groupsValueEventListener != null) {
-            groupsRef.removeEventListener(groupsValueEventListener);
-        }
-        
-        // Also store reference to group messages listener for cleanup
-        if (groupMessagesRef != null && groupMessagesValueEventListener != null) {
-            groupMessagesRef.removeEventListener(groupMessagesValueEventListener);
-        }
+        detachListeners();
     }
 
-    private static class GroupLastMessageInfo {
-        private final String message;
-        private final String senderId;
-        private final long timestamp;
-        private final String messageOG;
-        private final Map<String, String> translations;
-
-        public GroupLastMessageInfo(String message, String senderId, long timestamp) {
-            this(message, senderId, timestamp, null, null);
+    private void detachListeners() {
+        if (userChatsRef != null && userChatsListener != null) {
+            userChatsRef.removeEventListener(userChatsListener);
+            userChatsListener = null;
         }
         
-        public GroupLastMessageInfo(String message, String senderId, long timestamp, 
-                                    String messageOG, Map<String, String> translations) {
-            this.message = message;
-            this.senderId = senderId;
-            this.timestamp = timestamp;
-            this.messageOG = messageOG;
-            this.translations = translations;
-        }
-
-        public String getMessage() {
-            return message;
-        }
-
-        public String getSenderId() {
-            return senderId;
+        if (memberGroupsStream != null) {
+            memberGroupsStream.stop();
+            memberGroupsStream = null;
         }
 
-        public long getTimestamp() {
-            return timestamp;
-        }
-        
-        public String getMessageOG() {
-            return messageOG;
-        }
-        
-        public Map<String, String> getTranslations() {
-            return translations;
+        for (String userId : watchedUsers) {
+            UserProfileStore.unsubscribe(userId, profileObserver);
         }
+        watchedUsers.clear();
     }
 }
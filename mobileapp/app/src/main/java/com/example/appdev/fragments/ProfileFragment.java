@@ -19,6 +19,7 @@ import android.widget.LinearLayout;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.cardview.widget.CardView;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -43,13 +44,20 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.AvatarLoader;
+import com.example.appdev.utils.DatabaseBootstrap;
+import com.example.appdev.utils.EndpointSelector;
+import com.example.appdev.utils.LatencyTracker;
+import com.example.appdev.utils.ModelRouter;
+import com.example.appdev.utils.TranslationCache;
+import com.example.appdev.utils.TranslationScheduler;
 import com.google.android.material.button.MaterialButton;
 import androidx.core.content.ContextCompat;
 import com.example.appdev.translators.TranslatorType;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.example.appdev.adapters.LanguageAdapter;
-import java.util.HashSet;
-import java.util.Set;
+import com.example.appdev.helpers.ConnectionsIndex;
+import com.example.appdev.helpers.SnapshotMappers;
 import com.example.appdev.subcontrollers.ChangeTranslatorControl;
 
 import com.example.appdev.activities.SurveyActivity;
@@ -155,10 +163,36 @@ public class ProfileFragment extends Fragment {
         userTypeView = view.findViewById(R.id.textViewUserType);
         TextView memberSinceView = view.findViewById(R.id.textViewMemberSince);
 
-        // Update connections count based on connect chat rooms
+        // Update connections count from the user's connection records
         updateConnectionsCount();
         
         // Member since will be updated in userDataListener
+
+        // Development builds: long-press the account type to inspect backend health
+        if (Variables.isDevelopmentMode && userTypeView != null) {
+            userTypeView.setOnLongClickListener(v -> {
+                showDiagnosticsDialog();
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Show backend endpoint health and translation queue state (development mode only)
+     */
+    private void showDiagnosticsDialog() {
+        String message = "Backend endpoints\n" + EndpointSelector.getStats()
+                + "\n\nLatency (ms)\n" + LatencyTracker.getStats()
+                + "\n\nTranslator breakers\n" + ModelRouter.getStats()
+                + "\n\nTranslation queue\n" + TranslationScheduler.getStats()
+                + "\n\nTranslation cache\n" + TranslationCache.getStats()
+                + "\n\nDatabase cache\n" + DatabaseBootstrap.getStats()
+                + "\n\nAvatars\n" + AvatarLoader.getStats();
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Diagnostics")
+                .setMessage(message)
+                .setPositiveButton("Close", null)
+                .show();
     }
 
     private void initializeViews(View view) {
@@ -218,7 +252,7 @@ public class ProfileFragment extends Fragment {
                 }
 
                 if (dataSnapshot.exists()) {
-                    User user = dataSnapshot.getValue(User.class);
+                    User user = SnapshotMappers.toUser(dataSnapshot);
                     if (user != null) {
                         textViewLanguageValue.setText(user.getLanguage());
                         textViewUsername.setText(user.getUsername());
@@ -425,7 +459,8 @@ public class ProfileFragment extends Fragment {
         Variables.userTranslator = "";
         Variables.roomId = "";
         
-        // Sign out from Firebase
+        // Stop syncing the user's data, then sign out from Firebase
+        DatabaseBootstrap.unsyncUser();
         FirebaseAuth.getInstance().signOut();
         
         // Navigate to login screen
@@ -457,8 +492,10 @@ public class ProfileFragment extends Fragment {
         
         // Remove the connections count listener
         if (currentUser != null && connectionsCountListener != null) {
-            DatabaseReference connectChatsRef = FirebaseDatabase.getInstance().getReference("connect_chats");
-            connectChatsRef.removeEventListener(connectionsCountListener);
+            FirebaseDatabase.getInstance().getReference(ConnectionsIndex.NODE)
+                .child(currentUser.getUid())
+                .removeEventListener(connectionsCountListener);
+            connectionsCountListener = null;
         }
     }
 
@@ -469,37 +506,25 @@ public class ProfileFragment extends Fragment {
             return;
         }
 
-        String currentUserId = currentUser.getUid();
-        DatabaseReference connectChatsRef = FirebaseDatabase.getInstance().getReference("connect_chats");
+        // One record per person the user has held a connect session with
+        DatabaseReference connectionsRef = FirebaseDatabase.getInstance().getReference(ConnectionsIndex.NODE)
+                .child(currentUser.getUid());
 
         connectionsCountListener = new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                Set<String> uniqueContacts = new HashSet<>();
-
-                for (DataSnapshot roomSnapshot : dataSnapshot.getChildren()) {
-                    String roomId = roomSnapshot.getKey();
-                    if (roomId != null && roomId.contains(currentUserId)) {
-                        // Extract the other user's ID from the room ID
-                        String otherUserId = roomId.replace(currentUserId + "_", "")
-                                                 .replace("_" + currentUserId, "");
-                        uniqueContacts.add(otherUserId);
-                    }
-                }
-
-                // Update the connections count view
                 if (connectionsCountView != null) {
-                    connectionsCountView.setText(String.valueOf(uniqueContacts.size()));
+                    connectionsCountView.setText(String.valueOf(dataSnapshot.getChildrenCount()));
                 }
             }
 
             @Override
             public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e("ProfileFragment", "Error getting connect chat rooms: " + databaseError.getMessage());
+                Log.e("ProfileFragment", "Error getting connections: " + databaseError.getMessage());
             }
         };
 
-        connectChatsRef.addValueEventListener(connectionsCountListener);
+        connectionsRef.addValueEventListener(connectionsCountListener);
     }
 
     private void showQRCodeDialog() {
@@ -0,0 +1,62 @@
+package com.example.appdev.helpers;
+
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paths and values for the connect_sessions/{sessionId} state records. A session is
+ * started when its connection request is accepted and ended by either participant, or by
+ * the server when a participant's connection drops; both devices watch this one record.
+ */
+public final class ConnectSessions {
+
+    public static final String NODE = "connect_sessions";
+
+    private ConnectSessions() {
+    }
+
+    public static String sessionPath(String sessionId) {
+        return NODE + "/" + sessionId;
+    }
+
+    public static DatabaseReference sessionRef(String sessionId) {
+        return FirebaseDatabase.getInstance().getReference(NODE).child(sessionId);
+    }
+
+    /**
+     * Start a session, replacing whatever the pair's previous session left behind
+     */
+    public static void putStart(Map<String, Object> updates, String sessionId, String userId, String otherUserId) {
+        Map<String, Object> participants = new HashMap<>();
+        participants.put(userId, true);
+        participants.put(otherUserId, true);
+
+        Map<String, Object> session = new HashMap<>();
+        session.put("participants", participants);
+        session.put("startedAt", ServerValue.TIMESTAMP);
+        updates.put(sessionPath(sessionId), session);
+    }
+
+    /**
+     * End a session on behalf of one participant
+     */
+    public static void putEnd(Map<String, Object> updates, String sessionId, String userId) {
+        updates.put(sessionPath(sessionId) + "/endedAt", ServerValue.TIMESTAMP);
+        updates.put(sessionPath(sessionId) + "/endedBy", userId);
+    }
+
+    /**
+     * Have the server end the session if this device's connection drops.
+     * Cancel with sessionRef(sessionId).onDisconnect().cancel() when leaving normally.
+     */
+    public static void endOnDisconnect(String sessionId, String userId) {
+        Map<String, Object> end = new HashMap<>();
+        end.put("endedAt", ServerValue.TIMESTAMP);
+        end.put("endedBy", userId);
+        sessionRef(sessionId).onDisconnect().updateChildren(end);
+    }
+}
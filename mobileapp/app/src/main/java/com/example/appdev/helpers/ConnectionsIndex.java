@@ -0,0 +1,63 @@
+package com.example.appdev.helpers;
+
+import com.google.firebase.database.ServerValue;
+
+import java.util.Map;
+
+/**
+ * Paths and values for the connections/{userId}/{otherUserId} records that back the
+ * connection count and the recent connections list. Records are added to the same
+ * multi-path update that writes a connect chat message, for both participants. Sessions
+ * held before the index existed are recorded on the server by backfill_connections.
+ */
+public final class ConnectionsIndex {
+
+    public static final String NODE = "connections";
+    public static final String LAST_ACTIVITY_KEY = "lastActivity";
+
+    private ConnectionsIndex() {
+    }
+
+    public static String recordPath(String userId, String otherUserId) {
+        return NODE + "/" + userId + "/" + otherUserId;
+    }
+
+    /**
+     * Record a message in a session for both participants
+     */
+    public static void putMessage(Map<String, Object> updates, String userId, String otherUserId,
+                                  String sessionId, long timestamp) {
+        putActivity(updates, userId, otherUserId, sessionId, timestamp);
+        putActivity(updates, otherUserId, userId, sessionId, timestamp);
+        updates.put(recordPath(userId, otherUserId) + "/messageCount", ServerValue.increment(1));
+        updates.put(recordPath(otherUserId, userId) + "/messageCount", ServerValue.increment(1));
+    }
+
+    /**
+     * Record the start of a session for both participants
+     */
+    public static void putSessionStart(Map<String, Object> updates, String userId, String otherUserId,
+                                       String sessionId, long timestamp) {
+        putActivity(updates, userId, otherUserId, sessionId, timestamp);
+        putActivity(updates, otherUserId, userId, sessionId, timestamp);
+    }
+
+    /**
+     * Record the end of a session for both participants
+     */
+    public static void putSessionEnd(Map<String, Object> updates, String userId, String otherUserId,
+                                     String sessionId, long timestamp) {
+        putActivity(updates, userId, otherUserId, sessionId, timestamp);
+        putActivity(updates, otherUserId, userId, sessionId, timestamp);
+        updates.put(recordPath(userId, otherUserId) + "/lastSessionEndedAt", timestamp);
+        updates.put(recordPath(otherUserId, userId) + "/lastSessionEndedAt", timestamp);
+    }
+
+    // Individual fields, so a record keeps its message count
+    private static void putActivity(Map<String, Object> updates, String userId, String otherUserId,
+                                    String sessionId, long timestamp) {
+        String path = recordPath(userId, otherUserId);
+        updates.put(path + "/lastSessionId", sessionId);
+        updates.put(path + "/" + LAST_ACTIVITY_KEY, timestamp);
+    }
+}
@@ -24,7 +24,7 @@ public class FirebaseHelper {
             userRef.addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    User user = snapshot.getValue(User.class);
+                    User user = SnapshotMappers.toUser(snapshot);
                     if (user != null) {
                         callback.onUserReceived(user);
                     } else {
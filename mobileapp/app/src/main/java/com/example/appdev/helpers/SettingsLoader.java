@@ -2,12 +2,17 @@ package com.example.appdev.helpers;
 
 import android.util.Log;
 import com.example.appdev.Variables;
+import com.example.appdev.utils.EndpointSelector;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class SettingsLoader {
 
     private static final String TAG = "SettingsLoader";
@@ -29,14 +34,26 @@ public class SettingsLoader {
             public void onDataChange(DataSnapshot dataSnapshot) {
                 try {
                     if (dataSnapshot.exists()) {
-                        // Load backend URL
+                        // Load backend URLs. "backendUrls" lists every endpoint the app may use,
+                        // "backendUrl" is the single endpoint older settings provide.
+                        List<String> backendUrls = new ArrayList<>();
+                        for (DataSnapshot urlSnapshot : dataSnapshot.child("backendUrls").getChildren()) {
+                            String url = urlSnapshot.getValue(String.class);
+                            if (url != null && !url.isEmpty()) {
+                                backendUrls.add(url);
+                            }
+                        }
                         String backendUrl = dataSnapshot.child("backendUrl").getValue(String.class);
-                        if (backendUrl != null && !backendUrl.isEmpty()) {
-                            // Update Variables with Firebase value
-                            updateBackendUrl(backendUrl);
-                            Log.d(TAG, "Loaded backend URL from Firebase: " + backendUrl);
+                        if (backendUrl != null && !backendUrl.isEmpty() && !backendUrls.contains(backendUrl)) {
+                            backendUrls.add(backendUrl);
+                        }
+
+                        if (!backendUrls.isEmpty()) {
+                            updateBackendUrls(backendUrls);
+                            Log.d(TAG, "Loaded backend URLs from Firebase: " + backendUrls);
                         } else {
                             Log.w(TAG, "Backend URL not found in Firebase, using default");
+                            updateBackendUrls(Collections.singletonList(Variables.API_BASE_URL));
                         }
 
                         // Load APK download URL
@@ -50,6 +67,7 @@ public class SettingsLoader {
                         }
                     } else {
                         Log.w(TAG, "Settings not found in Firebase, using default values");
+                        updateBackendUrls(Collections.singletonList(Variables.API_BASE_URL));
                     }
 
                     if (callback != null) {
@@ -74,23 +92,30 @@ public class SettingsLoader {
     }
 
     /**
-     * Update backend URL in Variables class
+     * Hand the backend endpoints to the endpoint selector, which keeps Variables
+     * pointing at the fastest healthy one
      */
-    private static void updateBackendUrl(String backendUrl) {
+    private static void updateBackendUrls(List<String> backendUrls) {
         if (Variables.isDevelopmentMode) {
-            Log.d(TAG, "Development mode enabled, ignoring backend URL from Firebase. Using: " + Variables.API_BASE_URL);
-            return;
+            Log.d(TAG, "Development mode enabled, ignoring backend URLs from Firebase. Using: " + Variables.API_BASE_URL);
+            backendUrls = Collections.singletonList(Variables.API_BASE_URL);
         }
+        EndpointSelector.setEndpoints(backendUrls);
+    }
 
+    /**
+     * Update backend URL in Variables class
+     */
+    public static void applyBackendUrl(String backendUrl) {
         // We need to reconstruct all the API URLs based on the new base URL
         Variables.API_BASE_URL = backendUrl;
-        Variables.API_TRANSLATE_DB_URL = backendUrl + "translate-db/";
-        Variables.API_TRANSLATE_DB_CONTEXT_URL = backendUrl + "translate-db-context/";
-        Variables.API_TRANSLATE_GROUP_URL = backendUrl + "translate-group/";
-        Variables.API_TRANSLATE_GROUP_CONTEXT_URL = backendUrl + "translate-group-context/";
-        Variables.API_TRANSLATE_VOICE_URL = backendUrl + "translate-voice/";
-        Variables.API_REGENERATE_TRANSLATION_URL = backendUrl + "regenerate-translation/";
-        Variables.API_TRANSLATE_SIMPLE_URL = backendUrl + "translate-simple/";
+        Variables.API_TRANSLATE_DB_URL = backendUrl + Variables.API_PATH_TRANSLATE_DB;
+        Variables.API_TRANSLATE_DB_CONTEXT_URL = backendUrl + Variables.API_PATH_TRANSLATE_DB_CONTEXT;
+        Variables.API_TRANSLATE_GROUP_URL = backendUrl + Variables.API_PATH_TRANSLATE_GROUP;
+        Variables.API_TRANSLATE_GROUP_CONTEXT_URL = backendUrl + Variables.API_PATH_TRANSLATE_GROUP_CONTEXT;
+        Variables.API_TRANSLATE_VOICE_URL = backendUrl + Variables.API_PATH_TRANSLATE_VOICE;
+        Variables.API_REGENERATE_TRANSLATION_URL = backendUrl + Variables.API_PATH_REGENERATE_TRANSLATION;
+        Variables.API_TRANSLATE_SIMPLE_URL = backendUrl + Variables.API_PATH_TRANSLATE_SIMPLE;
     }
 
     /**
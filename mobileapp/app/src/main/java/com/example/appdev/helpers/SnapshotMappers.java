@@ -0,0 +1,216 @@
+package com.example.appdev.helpers;
+
+import android.util.ArrayMap;
+
+import com.example.appdev.models.ConnectionRequest;
+import com.example.appdev.models.Group;
+import com.example.appdev.models.GroupMessage;
+import com.example.appdev.models.Message;
+import com.example.appdev.models.User;
+import com.example.appdev.models.VoiceMessage;
+import com.google.firebase.database.DataSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hand-written replacements for snapshot.getValue(Model.class). Each mapper reads the
+ * snapshot's raw value tree once and sets the model's fields directly, so no reflection
+ * runs per message. They read the same keys the bean mapper would, are lenient about
+ * number types and are safe to call from any thread.
+ * Like getValue(), each returns null for a missing node.
+ */
+public final class SnapshotMappers {
+
+    private SnapshotMappers() {
+    }
+
+    /**
+     * A direct or connect chat message. The snapshot key is used when no messageId is stored.
+     */
+    public static Message toMessage(DataSnapshot snapshot) {
+        Map<String, Object> fields = fieldsOf(snapshot);
+        if (fields == null) {
+            return null;
+        }
+        Message message = new Message();
+        readMessage(message, fields, snapshot.getKey());
+        return message;
+    }
+
+    /**
+     * A group chat message. The snapshot key is used when no messageId is stored.
+     */
+    public static GroupMessage toGroupMessage(DataSnapshot snapshot) {
+        Map<String, Object> fields = fieldsOf(snapshot);
+        if (fields == null) {
+            return null;
+        }
+        GroupMessage message = new GroupMessage();
+        readMessage(message, fields, snapshot.getKey());
+        message.setSenderProfileUrl(string(fields, "senderProfileUrl"));
+        return message;
+    }
+
+    /**
+     * A voice conversation message. The snapshot key is used when no messageId is stored.
+     */
+    public static VoiceMessage toVoiceMessage(DataSnapshot snapshot) {
+        Map<String, Object> fields = fieldsOf(snapshot);
+        if (fields == null) {
+            return null;
+        }
+        VoiceMessage message = new VoiceMessage();
+        String messageId = string(fields, "messageId");
+        message.setMessageId(messageId != null ? messageId : snapshot.getKey());
+        message.setVoiceText(string(fields, "voiceText"));
+        message.setTranslatedText(string(fields, "translatedText"));
+        message.setTimestamp(longValue(fields, "timestamp"));
+        message.setSenderId(string(fields, "senderId"));
+        message.setSenderLanguage(string(fields, "senderLanguage"));
+        message.setTranslationMode(string(fields, "translationMode"));
+        message.setTranslationState(string(fields, "translationState"));
+        return message;
+    }
+
+    /**
+     * A users/{userId} profile. Like getValue(), userId is only set if it is stored.
+     */
+    public static User toUser(DataSnapshot snapshot) {
+        Map<String, Object> fields = fieldsOf(snapshot);
+        if (fields == null) {
+            return null;
+        }
+        User user = new User();
+        user.setUserId(string(fields, "userId"));
+        user.setUsername(string(fields, "username"));
+        user.setEmail(string(fields, "email"));
+        user.setProfileImageUrl(string(fields, "profileImageUrl"));
+        user.setLanguage(string(fields, "language"));
+        user.setAccountType(string(fields, "accountType"));
+        user.setCreatedAt(string(fields, "createdAt"));
+        user.setLastLoginDate(string(fields, "lastLoginDate"));
+        user.setTranslator(string(fields, "translator"));
+        user.setLastMessage(string(fields, "lastMessage"));
+        user.setLastMessageTime(longValue(fields, "lastMessageTime"));
+        Object lastActivityTime = fields.get("lastActivityTime");
+        if (lastActivityTime instanceof Number) {
+            user.setLastActivityTime(((Number) lastActivityTime).longValue());
+        }
+        user.setAdmin(Boolean.TRUE.equals(fields.get("admin")));
+        return user;
+    }
+
+    /**
+     * A groups/{groupId} node. Like getValue(), groupId is only set if it is stored.
+     */
+    public static Group toGroup(DataSnapshot snapshot) {
+        Map<String, Object> fields = fieldsOf(snapshot);
+        if (fields == null) {
+            return null;
+        }
+        Group group = new Group();
+        group.setGroupId(string(fields, "groupId"));
+        group.setName(string(fields, "name"));
+        group.setDescription(string(fields, "description"));
+        group.setCreatedAt(longValue(fields, "createdAt"));
+        group.setCreatedBy(string(fields, "createdBy"));
+        Object members = fields.get("members");
+        if (members instanceof Map) {
+            Map<String, Boolean> memberMap = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) members).entrySet()) {
+                memberMap.put(String.valueOf(entry.getKey()), Boolean.TRUE.equals(entry.getValue()));
+            }
+            group.setMembers(memberMap);
+        }
+        group.setGroupImageUrl(string(fields, "groupImageUrl"));
+        group.setDefaultLanguage(string(fields, "defaultLanguage"));
+        group.setLastMessage(string(fields, "lastMessage"));
+        group.setLastMessageTime(longValue(fields, "lastMessageTime"));
+        group.setLastMessageSenderId(string(fields, "lastMessageSenderId"));
+        group.setLastMessageOG(string(fields, "lastMessageOG"));
+        return group;
+    }
+
+    /**
+     * A request_inbox or request_outbox entry
+     */
+    public static ConnectionRequest toConnectionRequest(DataSnapshot snapshot) {
+        Map<String, Object> fields = fieldsOf(snapshot);
+        if (fields == null) {
+            return null;
+        }
+        ConnectionRequest request = new ConnectionRequest();
+        request.setRequestId(string(fields, "requestId"));
+        request.setFromUserId(string(fields, "fromUserId"));
+        request.setToUserId(string(fields, "toUserId"));
+        request.setSessionId(string(fields, "sessionId"));
+        request.setStatus(string(fields, "status"));
+        request.setTimestamp(longValue(fields, "timestamp"));
+        request.setFromUserName(string(fields, "fromUserName"));
+        request.setFromUserLanguage(string(fields, "fromUserLanguage"));
+        request.setFromUserProfileImageUrl(string(fields, "fromUserProfileImageUrl"));
+        request.setExpiresAt(longValue(fields, "expiresAt"));
+        return request;
+    }
+
+    private static void readMessage(Message message, Map<String, Object> fields, String key) {
+        String messageId = string(fields, "messageId");
+        message.setMessageId(messageId != null ? messageId : key);
+        message.setMessage(string(fields, "message"));
+        message.setTimestamp(longValue(fields, "timestamp"));
+        message.setSenderId(string(fields, "senderId"));
+        message.setSenderLanguage(string(fields, "senderLanguage"));
+        message.setTranslationMode(string(fields, "translationMode"));
+        message.setTranslationState(string(fields, "translationState"));
+        message.setReplyToMessageId(string(fields, "replyToMessageId"));
+        message.setReplyToSenderId(string(fields, "replyToSenderId"));
+        message.setReplyToMessage(string(fields, "replyToMessage"));
+        message.setVoiceText(string(fields, "voiceText"));
+        message.setIsVoiceMessage(Boolean.TRUE.equals(fields.get("isVoiceMessage")));
+        message.setIsSessionEnd(Boolean.TRUE.equals(fields.get("isSessionEnd")));
+
+        Object translations = fields.get("translations");
+        if (translations instanceof Map) {
+            // Messages have a handful of translations keyed by a few language names
+            Map<?, ?> translationValues = (Map<?, ?>) translations;
+            Map<String, String> translationMap = new ArrayMap<>(translationValues.size());
+            for (Map.Entry<?, ?> entry : translationValues.entrySet()) {
+                if (entry.getValue() != null) {
+                    translationMap.put(String.valueOf(entry.getKey()).intern(), entry.getValue().toString());
+                }
+            }
+            message.setTranslations(translationMap);
+        }
+        // Messages written as Message objects also carry top-level translationN fields,
+        // which the bean mapper applies through these setters
+        String translation1 = string(fields, "translation1");
+        if (translation1 != null) {
+            message.setTranslation1(translation1);
+        }
+        String translation2 = string(fields, "translation2");
+        if (translation2 != null) {
+            message.setTranslation2(translation2);
+        }
+        String translation3 = string(fields, "translation3");
+        if (translation3 != null) {
+            message.setTranslation3(translation3);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> fieldsOf(DataSnapshot snapshot) {
+        Object value = snapshot.getValue();
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+
+    private static String string(Map<String, Object> fields, String key) {
+        Object value = fields.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    private static long longValue(Map<String, Object> fields, String key) {
+        Object value = fields.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
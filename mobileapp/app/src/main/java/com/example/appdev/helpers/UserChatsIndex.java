@@ -0,0 +1,59 @@
+package com.example.appdev.helpers;
+
+import com.example.appdev.models.ChatSummary;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paths and values for the user_chats/{userId}/{chatId} summaries that back the chat list.
+ * Summaries are added to the same multi-path update that writes a message, so the
+ * message and every participant's summary change together or not at all. Chats that
+ * predate the index are summarized once on the server by the backfill_user_chats command.
+ */
+public final class UserChatsIndex {
+
+    public static final String NODE = "user_chats";
+
+    private UserChatsIndex() {
+    }
+
+    /**
+     * Path of one user's summary of a chat, relative to the database root
+     */
+    public static String summaryPath(String userId, String chatId) {
+        return NODE + "/" + userId + "/" + chatId;
+    }
+
+    /**
+     * Add a direct chat summary for one participant to a multi-path update
+     */
+    public static void putDirectSummary(Map<String, Object> updates, String userId, String otherUserId,
+                                        String roomId, String messageId, String message,
+                                        String senderId, long timestamp) {
+        Map<String, Object> summary = baseSummary(ChatSummary.TYPE_DIRECT, messageId, message, senderId, timestamp);
+        summary.put("otherUserId", otherUserId);
+        updates.put(summaryPath(userId, roomId), summary);
+    }
+
+    /**
+     * Add a group chat summary for one member to a multi-path update
+     */
+    public static void putGroupSummary(Map<String, Object> updates, String userId, String groupId,
+                                       String messageId, String message, String senderId, long timestamp) {
+        updates.put(summaryPath(userId, groupId),
+                baseSummary(ChatSummary.TYPE_GROUP, messageId, message, senderId, timestamp));
+    }
+
+    // Written as a whole node so the previous message's translation preview is dropped
+    private static Map<String, Object> baseSummary(String type, String messageId, String message,
+                                                   String senderId, long timestamp) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("type", type);
+        summary.put("lastMessageId", messageId);
+        summary.put("lastMessage", message);
+        summary.put("lastMessageSenderId", senderId);
+        summary.put("lastMessageTime", timestamp);
+        return summary;
+    }
+}
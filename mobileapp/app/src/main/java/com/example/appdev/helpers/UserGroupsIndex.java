@@ -0,0 +1,42 @@
+package com.example.appdev.helpers;
+
+import java.util.Map;
+
+/**
+ * Paths for the user_groups/{userId}/{groupId} membership index that backs the group lists.
+ * Every change to groups/{groupId}/members adds the matching index paths to the same
+ * multi-path update, so a member and their index entry are written or removed together.
+ * Memberships that predate the index are indexed on the server by backfill_user_groups.
+ */
+public final class UserGroupsIndex {
+
+    public static final String NODE = "user_groups";
+
+    private UserGroupsIndex() {
+    }
+
+    public static String entryPath(String userId, String groupId) {
+        return NODE + "/" + userId + "/" + groupId;
+    }
+
+    public static String memberPath(String groupId, String userId) {
+        return "groups/" + groupId + "/members/" + userId;
+    }
+
+    /**
+     * Add a member to a group and to their index in a multi-path update
+     */
+    public static void putMember(Map<String, Object> updates, String groupId, String userId, boolean isAdmin) {
+        updates.put(memberPath(groupId, userId), isAdmin);
+        updates.put(entryPath(userId, groupId), true);
+    }
+
+    /**
+     * Remove a member from a group, their index entry and their chat summary of the group
+     */
+    public static void removeMember(Map<String, Object> updates, String groupId, String userId) {
+        updates.put(memberPath(groupId, userId), null);
+        updates.put(entryPath(userId, groupId), null);
+        updates.put(UserChatsIndex.summaryPath(userId, groupId), null);
+    }
+}
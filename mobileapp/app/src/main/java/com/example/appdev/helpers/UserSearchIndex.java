@@ -0,0 +1,88 @@
+package com.example.appdev.helpers;
+
+import android.util.Log;
+
+import com.example.appdev.models.User;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Entries of user_search_index/{userId}: the fields the user pickers show, plus lowercased
+ * username and email keys indexed for prefix queries. Each user keeps their own entry in
+ * sync from their profile.
+ */
+public final class UserSearchIndex {
+
+    private static final String TAG = "UserSearchIndex";
+
+    public static final String NODE = "user_search_index";
+    public static final String USERNAME_KEY = "username_lc";
+    public static final String EMAIL_KEY = "email_lc";
+
+    // Last entry written by this process, to skip writing the same entry again
+    private static Map<String, Object> lastPublished;
+
+    private UserSearchIndex() {
+    }
+
+    /**
+     * Lowercase and trim a search prefix or indexed value
+     */
+    public static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static Map<String, Object> entryFor(User user) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("username", user.getUsername());
+        entry.put("email", user.getEmail());
+        entry.put("language", user.getLanguage());
+        entry.put("profileImageUrl", user.getProfileImageUrl());
+        entry.put(USERNAME_KEY, normalize(user.getUsername()));
+        entry.put(EMAIL_KEY, normalize(user.getEmail()));
+        return entry;
+    }
+
+    /**
+     * Write the current user's entry if it differs from the last one written
+     */
+    public static void publish(User user) {
+        if (user == null || user.getUserId() == null || user.getEmail() == null) {
+            return;
+        }
+        Map<String, Object> entry = entryFor(user);
+        if (entry.equals(lastPublished)) {
+            return;
+        }
+        lastPublished = entry;
+        FirebaseDatabase.getInstance().getReference(NODE).child(user.getUserId())
+                .setValue(entry)
+                .addOnFailureListener(e -> {
+                    lastPublished = null;
+                    Log.e(TAG, "Failed to update search entry", e);
+                });
+    }
+
+    /**
+     * Read an entry into a User with the fields the pickers need
+     */
+    public static User toUser(DataSnapshot entry) {
+        String username = entry.child("username").getValue(String.class);
+        String email = entry.child("email").getValue(String.class);
+        if (username == null || email == null) {
+            return null;
+        }
+        String language = entry.child("language").getValue(String.class);
+        User user = new User();
+        user.setUserId(entry.getKey());
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setLanguage(language != null ? language : "Unknown");
+        user.setProfileImageUrl(entry.child("profileImageUrl").getValue(String.class));
+        return user;
+    }
+}
@@ -60,6 +60,44 @@ public class ChatItem {
         this.isGroup = true;
     }
 
+    // Constructor for a direct chat listed from its user_chats summary
+    public ChatItem(User user, ChatSummary summary, String currentUserId, String userLanguage) {
+        this.id = user.getUserId();
+        this.name = user.getUsername();
+        this.imageUrl = user.getProfileImageUrl();
+        applySummary(summary, currentUserId, userLanguage);
+        this.isGroup = false;
+    }
+
+    // Constructor for a group chat, with its user_chats summary or null if nothing was sent yet
+    public ChatItem(Group group, ChatSummary summary, String currentUserId, String userLanguage) {
+        this.id = group.getGroupId();
+        this.name = group.getName();
+        this.imageUrl = group.getGroupImageUrl();
+        if (summary != null) {
+            applySummary(summary, currentUserId, userLanguage);
+        } else {
+            this.lastMessage = "No messages yet";
+            this.lastMessageOG = "";
+            this.lastMessageSenderId = "";
+            this.lastMessageTime = group.getCreatedAt(); // Use creation time for sorting
+        }
+        this.isGroup = true;
+    }
+
+    /**
+     * Show other people's last message in the user's language once its translation has arrived
+     */
+    private void applySummary(ChatSummary summary, String currentUserId, String userLanguage) {
+        String original = summary.getLastMessage() != null ? summary.getLastMessage() : "";
+        String senderId = summary.getLastMessageSenderId() != null ? summary.getLastMessageSenderId() : "";
+        String preview = senderId.equals(currentUserId) ? null : summary.getTranslationPreview(userLanguage);
+        this.lastMessage = preview != null ? preview : original;
+        this.lastMessageOG = original;
+        this.lastMessageSenderId = senderId;
+        this.lastMessageTime = summary.getLastMessageTime();
+    }
+
     public String getId() {
         return id;
     }
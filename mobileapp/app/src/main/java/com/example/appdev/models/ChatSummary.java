@@ -0,0 +1,116 @@
+package com.example.appdev.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Model class for a user_chats/{userId}/{chatId} entry: the latest message of one
+ * direct or group chat, kept up to date by whoever sends a message.
+ */
+public class ChatSummary {
+    public static final String TYPE_DIRECT = "direct";
+    public static final String TYPE_GROUP = "group";
+
+    private String chatId;
+    private String type;
+    private String otherUserId;
+    private String lastMessageId;
+    private String lastMessage;
+    private String lastMessageSenderId;
+    private long lastMessageTime;
+    private Map<String, String> translations;
+    private String translationsFor;
+
+    public ChatSummary() {
+        // Default constructor required for Firebase
+        translations = new HashMap<>();
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(String chatId) {
+        this.chatId = chatId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public boolean isGroup() {
+        return TYPE_GROUP.equals(type);
+    }
+
+    public String getOtherUserId() {
+        return otherUserId;
+    }
+
+    public void setOtherUserId(String otherUserId) {
+        this.otherUserId = otherUserId;
+    }
+
+    public String getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(String lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public void setLastMessage(String lastMessage) {
+        this.lastMessage = lastMessage;
+    }
+
+    public String getLastMessageSenderId() {
+        return lastMessageSenderId;
+    }
+
+    public void setLastMessageSenderId(String lastMessageSenderId) {
+        this.lastMessageSenderId = lastMessageSenderId;
+    }
+
+    public long getLastMessageTime() {
+        return lastMessageTime;
+    }
+
+    public void setLastMessageTime(long lastMessageTime) {
+        this.lastMessageTime = lastMessageTime;
+    }
+
+    public Map<String, String> getTranslations() {
+        return translations;
+    }
+
+    public void setTranslations(Map<String, String> translations) {
+        this.translations = translations != null ? translations : new HashMap<>();
+    }
+
+    public String getTranslationsFor() {
+        return translationsFor;
+    }
+
+    public void setTranslationsFor(String translationsFor) {
+        this.translationsFor = translationsFor;
+    }
+
+    /**
+     * Translation of the last message into the given language, or null if it has not
+     * arrived yet or belongs to an older message
+     */
+    public String getTranslationPreview(String language) {
+        if (language == null || translations == null || lastMessageId == null
+                || !lastMessageId.equals(translationsFor)) {
+            return null;
+        }
+        return translations.get(language);
+    }
+}
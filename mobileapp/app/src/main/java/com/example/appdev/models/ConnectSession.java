@@ -0,0 +1,56 @@
+package com.example.appdev.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Model class for a connect_sessions/{sessionId} record: who takes part in a connect
+ * session, when it started and, once over, when and by whom it was ended.
+ */
+public class ConnectSession {
+    private Map<String, Boolean> participants;
+    private long startedAt;
+    private Long endedAt;
+    private String endedBy;
+
+    public ConnectSession() {
+        // Default constructor required for Firebase
+        participants = new HashMap<>();
+    }
+
+    public Map<String, Boolean> getParticipants() {
+        return participants;
+    }
+
+    public void setParticipants(Map<String, Boolean> participants) {
+        this.participants = participants;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Long getEndedAt() {
+        return endedAt;
+    }
+
+    public void setEndedAt(Long endedAt) {
+        this.endedAt = endedAt;
+    }
+
+    public String getEndedBy() {
+        return endedBy;
+    }
+
+    public void setEndedBy(String endedBy) {
+        this.endedBy = endedBy;
+    }
+
+    public boolean hasEnded() {
+        return endedAt != null;
+    }
+}
@@ -1,8 +1,15 @@
 package com.example.appdev.models;
 
-import java.util.HashMap;
+import android.util.ArrayMap;
+
+import java.util.Collections;
 import java.util.Map;
 
+/**
+ * A chat message. Rooms hold thousands of these, so the model stays small: the translations
+ * map is only allocated once a translation exists, and low-cardinality strings (sender ids,
+ * languages, modes, states) are interned so every message of a room shares one instance.
+ */
 public class Message {
     private String messageId;
     private String message;
@@ -10,39 +17,31 @@ public class Message {
     private String senderId;
     private String senderLanguage;
     private String translationMode;
-    private Map<String, String> translations;
+    private Map<String, String> translations; // null until a translation exists
     private String translationState; // Can be "TRANSLATING", "TRANSLATED", "REMOVED", or null
     private String replyToMessageId; // ID of the message this is replying to
     private String replyToSenderId; // ID of the sender of the original message
     private String replyToMessage; // Content of the original message
-    private Boolean isVoiceMessage; // Indicates if this message originated from voice input
+    private boolean isVoiceMessage; // Indicates if this message originated from voice input
     private String voiceText; // The transcribed voice text (same as message for voice messages)
-    private Boolean isSessionEnd; // Indicates if this is a session end message
+    private boolean isSessionEnd; // Indicates if this is a session end message
 
     public Message() {
         // Default constructor required for Firebase
-        translations = new HashMap<>();
-        translationState = null;
-        replyToMessageId = null;
-        replyToSenderId = null;
-        replyToMessage = null;
-        isVoiceMessage = false;
-        voiceText = null;
-        isSessionEnd = false;
     }
 
     public Message(String messageId, String message, long timestamp, String senderId) {
         this.messageId = messageId;
         this.message = message;
         this.timestamp = timestamp;
-        this.senderId = senderId;
-        this.translations = new HashMap<>();
-        this.translationState = null;
-        this.replyToMessageId = null;
-        this.replyToSenderId = null;
-        this.replyToMessage = null;
-        this.isVoiceMessage = false;
-        this.voiceText = null;
+        this.senderId = intern(senderId);
+    }
+
+    /**
+     * Shared instance of a string that repeats across many messages
+     */
+    static String intern(String value) {
+        return value != null ? value.intern() : null;
     }
 
     public String getMessageId() {
@@ -74,7 +73,7 @@ public class Message {
     }
 
     public void setSenderId(String senderId) {
-        this.senderId = senderId;
+        this.senderId = intern(senderId);
     }
     
     public String getSenderLanguage() {
@@ -82,7 +81,7 @@ public class Message {
     }
 
     public void setSenderLanguage(String senderLanguage) {
-        this.senderLanguage = senderLanguage;
+        this.senderLanguage = intern(senderLanguage);
     }
 
     public String getTranslationMode() {
@@ -90,15 +89,18 @@ public class Message {
     }
 
     public void setTranslationMode(String translationMode) {
-        this.translationMode = translationMode;
+        this.translationMode = intern(translationMode);
     }
     
+    /**
+     * Translations by key, never null. Empty, and shared, until a translation exists.
+     */
     public Map<String, String> getTranslations() {
-        return translations;
+        return translations != null ? translations : Collections.emptyMap();
     }
 
     public void setTranslations(Map<String, String> translations) {
-        this.translations = translations != null ? translations : new HashMap<>();
+        this.translations = translations != null && !translations.isEmpty() ? translations : null;
     }
     
     // Helper methods to get specific translations
@@ -117,21 +119,21 @@ public class Message {
     // Helper methods to set specific translations
     public void setTranslation1(String translation) {
         if (translations == null) {
-            translations = new HashMap<>();
+            translations = new ArrayMap<>(3);
         }
         translations.put("translation1", translation);
     }
     
     public void setTranslation2(String translation) {
         if (translations == null) {
-            translations = new HashMap<>();
+            translations = new ArrayMap<>(3);
         }
         translations.put("translation2", translation);
     }
     
     public void setTranslation3(String translation) {
         if (translations == null) {
-            translations = new HashMap<>();
+            translations = new ArrayMap<>(3);
         }
         translations.put("translation3", translation);
     }
@@ -141,7 +143,7 @@ public class Message {
     }
 
     public void setTranslationState(String translationState) {
-        this.translationState = translationState;
+        this.translationState = intern(translationState);
     }
     
     public String getReplyToMessageId() {
@@ -157,7 +159,7 @@ public class Message {
     }
 
     public void setReplyToSenderId(String replyToSenderId) {
-        this.replyToSenderId = replyToSenderId;
+        this.replyToSenderId = intern(replyToSenderId);
     }
 
     public String getReplyToMessage() {
@@ -177,7 +179,7 @@ public class Message {
     }
 
     public void setIsVoiceMessage(Boolean isVoiceMessage) {
-        this.isVoiceMessage = isVoiceMessage;
+        this.isVoiceMessage = isVoiceMessage != null && isVoiceMessage;
     }
 
     public String getVoiceText() {
@@ -189,7 +191,7 @@ public class Message {
     }
 
     public boolean isVoiceMessage() {
-        return isVoiceMessage != null && isVoiceMessage;
+        return isVoiceMessage;
     }
 
     public Boolean getIsSessionEnd() {
@@ -197,11 +199,11 @@ public class Message {
     }
 
     public void setIsSessionEnd(Boolean isSessionEnd) {
-        this.isSessionEnd = isSessionEnd;
+        this.isSessionEnd = isSessionEnd != null && isSessionEnd;
     }
 
     public boolean isSessionEnd() {
-        return isSessionEnd != null && isSessionEnd;
+        return isSessionEnd;
     }
 }
 
@@ -8,6 +8,7 @@ import com.example.appdev.R;
 import com.example.appdev.fragments.ProfileFragment;
 import com.example.appdev.translators.TranslatorType;
 import com.example.appdev.utils.CustomNotification;
+import com.example.appdev.utils.ModelRouter;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.firebase.auth.FirebaseAuth;
@@ -54,7 +55,9 @@ public class ChangeTranslatorControl {
             MaterialButton button = (MaterialButton) LayoutInflater.from(context)
                 .inflate(R.layout.translator_button, container, false);
             
-            button.setText(type.getDisplayName());
+            // Show when a translator is being bypassed because its circuit breaker is open
+            String status = ModelRouter.getStatusLabel(type.getId());
+            button.setText(status != null ? type.getDisplayName() + " (" + status + ")" : type.getDisplayName());
             button.setIcon(ContextCompat.getDrawable(context, type.getIconResourceId()));
             button.setOnClickListener(v -> {
                 checkPremiumAndUpdateTranslator(type.getId(), type.getDisplayName(), onDismiss);
@@ -1,7 +1,6 @@
 package com.example.appdev.subcontrollers;
 
 import android.content.Context;
-import android.os.AsyncTask;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -13,6 +12,10 @@ import com.example.appdev.Variables;
 // import com.example.appdev.translators.Translation_Gemini;
 // import com.example.appdev.translators.Translation_Claude;
 import com.example.appdev.utils.CustomDialog;
+import com.example.appdev.utils.TranslationHttpClient;
+import com.example.appdev.utils.TranslationResponseReader;
+import com.example.appdev.utils.ModelRouter;
+import com.example.appdev.utils.TranslationScheduler;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 // Remove unused factory imports if regeneration always goes through the server
@@ -23,9 +26,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.io.OutputStream;
 import org.json.JSONObject;
 
 public class RegenerateMessageTranslation {
@@ -151,7 +151,7 @@ public class RegenerateMessageTranslation {
                     requestBody.put("source_language", senderLanguage);
                     requestBody.put("target_language", targetLanguage);
                     requestBody.put("variants", "multiple"); // Always get multiple variants
-                    requestBody.put("model", Variables.userTranslator.toLowerCase());
+                    requestBody.put("model", ModelRouter.route(Variables.userTranslator, senderLanguage, targetLanguage));
                     requestBody.put("translation_mode", Variables.isFormalTranslationMode ? "formal" : "casual");
                     requestBody.put("room_id", roomId);
                     requestBody.put("message_id", messageId);
@@ -160,77 +160,57 @@ public class RegenerateMessageTranslation {
                     String apiUrl = Variables.API_REGENERATE_TRANSLATION_URL;
                     
                     // Make API request in background
-                    new AsyncTask<Void, Void, Boolean>() {
-                        @Override
-                        protected Boolean doInBackground(Void... voids) {
-                            HttpURLConnection conn = null;
-                            try {
-                                URL url = new URL(apiUrl);
-                                conn = (HttpURLConnection) url.openConnection();
-                                conn.setRequestMethod("POST");
-                                conn.setRequestProperty("Content-Type", "application/json; utf-8"); // Specify charset
-                                conn.setRequestProperty("Accept", "application/json");
-                                conn.setDoOutput(true);
-                                conn.setConnectTimeout(15000); // 15 seconds
-                                conn.setReadTimeout(15000); // 15 seconds
+                    TranslationScheduler.submit(roomId, () -> {
+                        try {
+                            // Adaptive timeout, shared pooled connection. The server writes the new
+                            // variants to Firebase, we only decode them for logging.
+                            TranslationHttpClient.DecodedResponse<Map<String, String>> response =
+                                    TranslationHttpClient.postJsonDecoded(apiUrl, requestBody,
+                                            TranslationResponseReader::readAllTranslations);
 
-                                // Send request body
-                                try (OutputStream os = conn.getOutputStream()) {
-                                    byte[] input = requestBody.toString().getBytes("utf-8");
-                                    os.write(input, 0, input.length);
-                                }
-
-                                // Check if request was successful
-                                int responseCode = conn.getResponseCode();
-                                Log.d(TAG, "API Response Code: " + responseCode);
-                                // Consider 2xx responses as success
-                                return responseCode >= 200 && responseCode < 300; 
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error making API request: " + e.getMessage(), e);
-                                return false;
-                            } finally {
-                                if (conn != null) {
-                                    conn.disconnect();
-                                }
-                            }
+                            // Check if request was successful
+                            Log.d(TAG, "API Response Code: " + response.code
+                                    + (response.value != null ? ", variants: " + response.value.size() : ""));
+                            // Consider 2xx responses as success
+                            return response.isSuccessful();
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error making API request: " + e.getMessage(), e);
+                            return false;
                         }
-
-                        @Override
-                        protected void onPostExecute(Boolean success) {
-                             // Call the callback with the success status
-                            if (callback != null) {
-                                callback.onComplete(success);
-                            } else {
-                                Log.w(TAG, "Callback is null in onPostExecute");
-                            }
-                            // Remove the old listener logic and Firebase fetch
-                            /*
-                            if (success) {
-                                // On success, get the updated translation to display
-                                messagesRef.child(Variables.roomId).child(messageId)
-                                    .child("translations").child("translation1")
-                                    .get().addOnCompleteListener(task -> {
-                                        if (task.isSuccessful() && task.getResult() != null && 
-                                            task.getResult().getValue() != null) {
-                                            String newTranslation = task.getResult().getValue(String.class);
-                                            if (listener != null) {
-                                                listener.onTranslationRegenerated(newTranslation);
-                                            }
-                                        } else {
-                                            // If we can't get the new translation, inform the user
-                                            if (listener != null) {
-                                                listener.onTranslationRegenerated("Translation regeneration failed");
-                                            }
+                    }, success -> {
+                         // Call the callback with the success status
+                        if (callback != null) {
+                            callback.onComplete(Boolean.TRUE.equals(success));
+                        } else {
+                            Log.w(TAG, "Callback is null in onPostExecute");
+                        }
+                        // Remove the old listener logic and Firebase fetch
+                        /*
+                        if (success) {
+                            // On success, get the updated translation to display
+                            messagesRef.child(Variables.roomId).child(messageId)
+                                .child("translations").child("translation1")
+                                .get().addOnCompleteListener(task -> {
+                                    if (task.isSuccessful() && task.getResult() != null && 
+                                        task.getResult().getValue() != null) {
+                                        String newTranslation = task.getResult().getValue(String.class);
+                                        if (listener != null) {
+                                            listener.onTranslationRegenerated(newTranslation);
                                         }
-                                    });
-                            } else {
-                                if (listener != null) {
-                                    listener.onTranslationRegenerated("Translation regeneration failed");
-                                }
+                                    } else {
+                                        // If we can't get the new translation, inform the user
+                                        if (listener != null) {
+                                            listener.onTranslationRegenerated("Translation regeneration failed");
+                                        }
+                                    }
+                                });
+                        } else {
+                            if (listener != null) {
+                                listener.onTranslationRegenerated("Translation regeneration failed");
                             }
-                            */
                         }
-                    }.execute();
+                        */
+                    });
                     
                 } catch (Exception e) {
                     Log.e(TAG, "Error preparing regeneration request: " + e.getMessage(), e);
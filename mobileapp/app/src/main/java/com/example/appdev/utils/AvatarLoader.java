@@ -0,0 +1,208 @@
+package com.example.appdev.utils;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+import com.example.appdev.R;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads profile pictures into the avatar views of the chat and user lists.
+ * Every avatar is decoded once at a single small size as RGB_565 (ARGB_8888 for images with
+ * transparency), so a full-resolution upload costs a bitmap of a few dozen KB and the same
+ * cached bitmap serves every list. Lists can also preload the avatars of rows about to
+ * scroll into view. Load times and cache hits are counted for the diagnostics dialog.
+ */
+public final class AvatarLoader {
+
+    // The largest list avatar is 56dp; smaller views scale the same bitmap down
+    public static final int AVATAR_SIZE_DP = 56;
+
+    // Rows beyond the visible ones whose avatars are preloaded
+    private static final int PRELOAD_ROWS = 10;
+
+    private static final AtomicLong memoryHits = new AtomicLong();
+    private static final AtomicLong diskLoads = new AtomicLong();
+    private static final AtomicLong remoteLoads = new AtomicLong();
+    private static final AtomicLong failedLoads = new AtomicLong();
+    private static final AtomicLong diskLoadMsTotal = new AtomicLong();
+    private static final AtomicLong remoteLoadMsTotal = new AtomicLong();
+
+    private static volatile RequestOptions avatarOptions;
+
+    /**
+     * The avatar URL of the row at a position, or null if it shows none
+     */
+    public interface AvatarSource {
+        String avatarUrlAt(int position);
+    }
+
+    private AvatarLoader() {
+    }
+
+    public static void load(ImageView view, String url) {
+        load(view, url, R.drawable.default_userpic);
+    }
+
+    /**
+     * Load an avatar, showing the placeholder while it loads and when there is no picture
+     */
+    public static void load(ImageView view, String url, @DrawableRes int placeholder) {
+        RequestManager requests = Glide.with(view.getContext());
+        if (!hasPicture(url)) {
+            // Cancel a load still pending from the view's previous row
+            requests.clear(view);
+            view.setImageResource(placeholder);
+            return;
+        }
+        requests.load(url)
+                .apply(options(view.getContext()))
+                .placeholder(placeholder)
+                .error(placeholder)
+                .listener(timed())
+                .into(view);
+    }
+
+    /**
+     * Cancel any avatar load into a view and leave it empty
+     */
+    public static void clear(ImageView view) {
+        Glide.with(view.getContext()).clear(view);
+        view.setImageDrawable(null);
+    }
+
+    /**
+     * Preload the avatars of rows about to scroll into view.
+     * Call from the adapter's onAttachedToRecyclerView().
+     * @return The listener to pass to stopPreloading() on detach
+     */
+    public static RecyclerView.OnScrollListener startPreloading(RecyclerView recyclerView, AvatarSource source) {
+        Context context = recyclerView.getContext();
+        RequestManager requests = Glide.with(context);
+        RequestOptions options = options(context);
+        ListPreloader.PreloadModelProvider<String> urls = new ListPreloader.PreloadModelProvider<String>() {
+            @NonNull
+            @Override
+            public List<String> getPreloadItems(int position) {
+                String url = source.avatarUrlAt(position);
+                return hasPicture(url) ? Collections.singletonList(url) : Collections.emptyList();
+            }
+
+            @Nullable
+            @Override
+            public RequestBuilder<?> getPreloadRequestBuilder(@NonNull String url) {
+                // Same options as load(), so the preloaded bitmap is the one the row asks for
+                return requests.load(url).apply(options);
+            }
+        };
+        int size = sizePx(context);
+        RecyclerViewPreloader<String> preloader = new RecyclerViewPreloader<>(
+                requests, urls, new FixedPreloadSizeProvider<>(size, size), PRELOAD_ROWS);
+        recyclerView.addOnScrollListener(preloader);
+        return preloader;
+    }
+
+    public static void stopPreloading(RecyclerView recyclerView, RecyclerView.OnScrollListener preloader) {
+        if (preloader != null) {
+            recyclerView.removeOnScrollListener(preloader);
+        }
+    }
+
+    /**
+     * Summary of avatar loads for development builds
+     */
+    public static String getStats() {
+        long disk = diskLoads.get();
+        long remote = remoteLoads.get();
+        long total = memoryHits.get() + disk + remote;
+        return "loads=" + total
+                + ", memoryHits=" + memoryHits.get()
+                + ", diskHits=" + disk
+                + ", network=" + remote
+                + ", failed=" + failedLoads.get()
+                + "\nhitRate=" + (total > 0 ? (memoryHits.get() + disk) * 100 / total : 0) + "%"
+                + ", avgDiskDecodeMs=" + (disk > 0 ? diskLoadMsTotal.get() / disk : 0)
+                + ", avgNetworkMs=" + (remote > 0 ? remoteLoadMsTotal.get() / remote : 0);
+    }
+
+    private static RequestOptions options(Context context) {
+        RequestOptions options = avatarOptions;
+        if (options == null) {
+            int size = sizePx(context);
+            // The transformation is set here rather than picked by into() from the view's
+            // scale type, so preloads and loads share a cache key.
+            // Hardware bitmaps are left out because CircleImageView draws through a BitmapShader.
+            options = new RequestOptions()
+                    .override(size, size)
+                    .downsample(DownsampleStrategy.CENTER_OUTSIDE)
+                    .centerCrop()
+                    .format(DecodeFormat.PREFER_RGB_565)
+                    .disallowHardwareConfig()
+                    .diskCacheStrategy(DiskCacheStrategy.ALL);
+            avatarOptions = options;
+        }
+        return options;
+    }
+
+    // Profiles without a picture store "none"
+    private static boolean hasPicture(String url) {
+        return url != null && !url.isEmpty() && !"none".equals(url);
+    }
+
+    private static int sizePx(Context context) {
+        return Math.round(AVATAR_SIZE_DP * context.getResources().getDisplayMetrics().density);
+    }
+
+    private static RequestListener<Drawable> timed() {
+        long startedAt = SystemClock.elapsedRealtime();
+        return new RequestListener<Drawable>() {
+            @Override
+            public boolean onLoadFailed(@Nullable GlideException e, Object model,
+                                        Target<Drawable> target, boolean isFirstResource) {
+                failedLoads.incrementAndGet();
+                return false;
+            }
+
+            @Override
+            public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                           DataSource dataSource, boolean isFirstResource) {
+                long elapsed = SystemClock.elapsedRealtime() - startedAt;
+                if (dataSource == DataSource.MEMORY_CACHE) {
+                    memoryHits.incrementAndGet();
+                } else if (dataSource == DataSource.REMOTE) {
+                    remoteLoads.incrementAndGet();
+                    remoteLoadMsTotal.addAndGet(elapsed);
+                } else {
+                    // Decoded from the disk cache, either the stored thumbnail or the original
+                    diskLoads.incrementAndGet();
+                    diskLoadMsTotal.addAndGet(elapsed);
+                }
+                return false;
+            }
+        };
+    }
+}
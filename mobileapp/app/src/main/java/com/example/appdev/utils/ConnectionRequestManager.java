@@ -4,37 +4,64 @@ import android.app.Dialog;
 import android.content.Context;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.bumptech.glide.Glide;
 import com.example.appdev.ConnectChatActivity;
 import com.example.appdev.R;
+import com.example.appdev.helpers.ConnectSessions;
+import com.example.appdev.helpers.ConnectionsIndex;
+import com.example.appdev.helpers.SnapshotMappers;
 import com.example.appdev.models.ConnectionRequest;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Connection requests between two users.
+ * Each request is written to the recipient's request_inbox and the sender's request_outbox
+ * in one multi-path update, and both sides consume their own box through child events only.
+ * Finished requests are removed from a box once its owner has handled them, and pending
+ * requests expire at expiresAt, so the boxes only ever hold live requests.
+ */
 public class ConnectionRequestManager {
     private static final String TAG = "ConnectionRequestManager";
+
+    public static final String INBOX_NODE = "request_inbox";
+    public static final String OUTBOX_NODE = "request_outbox";
+
     private static ConnectionRequestManager instance;
-    private DatabaseReference connectionRequestsRef;
-    private ValueEventListener connectionRequestsListener;
-    private ValueEventListener sentRequestsListener;
-    private java.util.Set<String> handledRequestIds;
-    private long lastHandledTimestamp;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private DatabaseReference inboxRef;
+    private ChildEventListener inboxListener;
+    private DatabaseReference outboxRef;
+    private ChildEventListener outboxListener;
+    private Context outboxContext;
+
+    // Incoming requests with an open dialog, and waiting dialogs for sent requests
+    private final Map<String, RequestStatusListener> incomingDialogs = new HashMap<>();
+    private final Map<String, RequestStatusListener> sentRequestWatchers = new HashMap<>();
+    // Sent requests still pending, with their expiry timers
+    private final Map<String, Runnable> expiryTimers = new HashMap<>();
+    // Accepted requests whose chat has been opened, until their outbox entry is gone
+    private final java.util.Set<String> handledRequestIds = new java.util.HashSet<>();
     private String activeSessionId;
 
     private ConnectionRequestManager() {
-        connectionRequestsRef = FirebaseDatabase.getInstance().getReference("connection_requests");
-        handledRequestIds = new java.util.HashSet<>();
-        lastHandledTimestamp = System.currentTimeMillis();
     }
 
     public static synchronized ConnectionRequestManager getInstance() {
@@ -44,6 +71,21 @@ public class ConnectionRequestManager {
         return instance;
     }
 
+    /**
+     * Receives status changes of one request
+     */
+    public interface RequestStatusListener {
+        void onStatusChanged(ConnectionRequest request);
+    }
+
+    private static String inboxPath(String userId, String requestId) {
+        return INBOX_NODE + "/" + userId + "/" + requestId;
+    }
+
+    private static String outboxPath(String userId, String requestId) {
+        return OUTBOX_NODE + "/" + userId + "/" + requestId;
+    }
+
     /**
      * Creates a new connection request from current user to target user
      */
@@ -78,22 +120,8 @@ public class ConnectionRequestManager {
 
                 if (fromUserName == null) fromUserName = "Unknown User";
 
-                // Create connection request
-                ConnectionRequest request = new ConnectionRequest(
-                    requestId, currentUserId, toUserId, sessionId,
-                    fromUserName, fromUserLanguage, fromUserProfileImageUrl
-                );
-
-                // Save to Firebase
-                connectionRequestsRef.child(requestId).setValue(request)
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Connection request created: " + requestId);
-                        callback.onSuccess(request);
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to create connection request", e);
-                        callback.onError("Failed to create connection request");
-                    });
+                sendRequest(new ConnectionRequest(requestId, currentUserId, toUserId, sessionId,
+                        fromUserName, fromUserLanguage, fromUserProfileImageUrl), callback);
             }
 
             @Override
@@ -103,71 +131,202 @@ public class ConnectionRequestManager {
         });
     }
 
+    private void sendRequest(ConnectionRequest request, ConnectionRequestCallback callback) {
+        // The recipient's copy and the sender's copy are written together
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(inboxPath(request.getToUserId(), request.getRequestId()), request);
+        updates.put(outboxPath(request.getFromUserId(), request.getRequestId()), request);
+
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
+            .addOnSuccessListener(aVoid -> {
+                Log.d(TAG, "Connection request created: " + request.getRequestId());
+                scheduleExpiry(request);
+                callback.onSuccess(request);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Failed to create connection request", e);
+                callback.onError("Failed to create connection request");
+            });
+    }
+
     /**
      * Start listening for connection requests for the current user
      */
     public void startListeningForRequests(Context context) {
         // Stop any existing listeners first to ensure we use the current context
-        stopListeningForRequests();
+        stopInbox();
 
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
         if (currentUserId == null) return;
 
-        connectionRequestsListener = new ValueEventListener() {
+        inboxRef = FirebaseDatabase.getInstance().getReference(INBOX_NODE).child(currentUserId);
+        inboxListener = new BoxListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    ConnectionRequest request = snapshot.getValue(ConnectionRequest.class);
-                    if (request != null && request.getToUserId().equals(currentUserId) && request.isPending()) {
-                        showConnectionRequestDialog(context, request, snapshot.getKey());
-                    }
-                }
+            void onRequest(ConnectionRequest request) {
+                onIncomingRequest(context, request);
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e(TAG, "Error listening for connection requests", databaseError.toException());
+            void onRemoved(String requestId) {
+                // Still on screen, so the sender expired it
+                RequestStatusListener dialog = incomingDialogs.remove(requestId);
+                if (dialog != null) {
+                    ConnectionRequest expired = new ConnectionRequest();
+                    expired.setRequestId(requestId);
+                    expired.setStatus("EXPIRED");
+                    dialog.onStatusChanged(expired);
+                }
             }
         };
+        inboxRef.addChildEventListener(inboxListener);
+
+        // Also follow requests sent by current user, which open the chat once accepted
+        startOutbox(context);
+    }
 
-        // Listen for requests addressed to current user
-        connectionRequestsRef.orderByChild("toUserId").equalTo(currentUserId)
-                .addValueEventListener(connectionRequestsListener);
+    /**
+     * Stop listening for connection requests. Sent requests with a waiting dialog keep
+     * being followed until the dialog stops watching them.
+     */
+    public void stopListeningForRequests() {
+        stopInbox();
+        if (sentRequestWatchers.isEmpty()) {
+            stopOutbox();
+        }
+    }
 
-        // Also listen for requests sent by current user that get accepted
-        sentRequestsListener = new ValueEventListener() {
+    /**
+     * Follow the status of a request sent by the current user, e.g. for a waiting dialog
+     */
+    public void watchSentRequest(Context context, String requestId, RequestStatusListener listener) {
+        sentRequestWatchers.put(requestId, listener);
+        if (outboxListener == null) {
+            startOutbox(context);
+        }
+    }
+
+    public void unwatchSentRequest(String requestId) {
+        sentRequestWatchers.remove(requestId);
+        if (sentRequestWatchers.isEmpty() && inboxListener == null) {
+            stopOutbox();
+        }
+    }
+
+    private void stopInbox() {
+        if (inboxListener != null && inboxRef != null) {
+            inboxRef.removeEventListener(inboxListener);
+        }
+        inboxListener = null;
+        inboxRef = null;
+    }
+
+    private void startOutbox(Context context) {
+        stopOutbox();
+        String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        if (currentUserId == null) return;
+
+        outboxContext = context;
+        outboxRef = FirebaseDatabase.getInstance().getReference(OUTBOX_NODE).child(currentUserId);
+        outboxListener = new BoxListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    ConnectionRequest request = snapshot.getValue(ConnectionRequest.class);
-                    if (request != null && request.isAccepted() && request.getFromUserId().equals(currentUserId)) {
-                        // Check if we've already handled this request to prevent duplicates
-                        if (!handledRequestIds.contains(request.getRequestId())) {
-                            // Check if the request was accepted recently (within last 30 seconds)
-                            // to avoid re-triggering old accepted requests when app restarts
-                            long timeSinceAcceptance = System.currentTimeMillis() - request.getTimestamp();
-                            if (timeSinceAcceptance < 30000) { // 30 seconds window
-                                // Mark as handled and process
-                                handledRequestIds.add(request.getRequestId());
-                                Log.d(TAG, "Connection request accepted by recipient: " + request.getRequestId());
-                                handleAcceptedRequest(context, request);
-                            } else {
-                                Log.d(TAG, "Skipping old accepted request: " + request.getRequestId() +
-                                      " (accepted " + (timeSinceAcceptance/1000) + " seconds ago)");
-                            }
-                        }
-                    }
-                }
+            void onRequest(ConnectionRequest request) {
+                onSentRequest(request);
             }
+        };
+        outboxRef.addChildEventListener(outboxListener);
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e(TAG, "Error listening for sent connection requests", databaseError.toException());
+    private void stopOutbox() {
+        if (outboxListener != null && outboxRef != null) {
+            outboxRef.removeEventListener(outboxListener);
+        }
+        outboxListener = null;
+        outboxRef = null;
+        outboxContext = null;
+    }
+
+    /**
+     * A request in the current user's inbox was added or changed
+     */
+    private void onIncomingRequest(Context context, ConnectionRequest request) {
+        String requestId = request.getRequestId();
+        if (request.isPending()) {
+            if (!incomingDialogs.containsKey(requestId)) {
+                showConnectionRequestDialog(context, request);
+            }
+            return;
+        }
+
+        // Cancelled or expired: update an open dialog, then drop the entry
+        RequestStatusListener dialog = incomingDialogs.remove(requestId);
+        if (dialog != null) {
+            dialog.onStatusChanged(request);
+        }
+        FirebaseDatabase.getInstance().getReference(inboxPath(request.getToUserId(), requestId)).removeValue();
+    }
+
+    /**
+     * A request in the current user's outbox was added or changed
+     */
+    private void onSentRequest(ConnectionRequest request) {
+        String requestId = request.getRequestId();
+        if ("PENDING".equals(request.getStatus())) {
+            if (request.isExpired()) {
+                expireRequest(request);
+            } else {
+                scheduleExpiry(request);
             }
+            return;
+        }
+
+        cancelExpiry(requestId);
+        // Taken first, a waiting dialog may stop the stream when it is notified
+        Context context = outboxContext;
+        RequestStatusListener watcher = sentRequestWatchers.get(requestId);
+        if (watcher != null) {
+            watcher.onStatusChanged(request);
+        }
+        // An acceptance that arrives after the request expired is too old to open
+        if (request.isAccepted() && !request.isExpired() && context != null
+                && handledRequestIds.add(requestId)) {
+            Log.d(TAG, "Connection request accepted by recipient: " + requestId);
+            handleAcceptedRequest(context, request);
+        }
+
+        // Finished requests are consumed once handled
+        FirebaseDatabase.getInstance().getReference(outboxPath(request.getFromUserId(), requestId)).removeValue()
+            .addOnSuccessListener(aVoid -> handledRequestIds.remove(requestId));
+    }
+
+    private void scheduleExpiry(ConnectionRequest request) {
+        if (expiryTimers.containsKey(request.getRequestId())) {
+            return;
+        }
+        Runnable timer = () -> {
+            expiryTimers.remove(request.getRequestId());
+            expireRequest(request);
         };
+        expiryTimers.put(request.getRequestId(), timer);
+        handler.postDelayed(timer, Math.max(0, request.getExpiresAt() - System.currentTimeMillis()));
+    }
 
-        connectionRequestsRef.orderByChild("fromUserId").equalTo(currentUserId)
-                .addValueEventListener(sentRequestsListener);
+    private void cancelExpiry(String requestId) {
+        Runnable timer = expiryTimers.remove(requestId);
+        if (timer != null) {
+            handler.removeCallbacks(timer);
+        }
+    }
+
+    /**
+     * Expire a pending request: the recipient's copy goes away and the sender's copy reports EXPIRED
+     */
+    private void expireRequest(ConnectionRequest request) {
+        cancelExpiry(request.getRequestId());
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(inboxPath(request.getToUserId(), request.getRequestId()), null);
+        updates.put(outboxPath(request.getFromUserId(), request.getRequestId()) + "/status", "EXPIRED");
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
+            .addOnFailureListener(e -> Log.e(TAG, "Failed to expire connection request: " + request.getRequestId(), e));
     }
 
     /**
@@ -230,27 +389,11 @@ public class ConnectionRequestManager {
         this.activeSessionId = null;
     }
 
-    /**
-     * Stop listening for connection requests
-     */
-    public void stopListeningForRequests() {
-        if (connectionRequestsListener != null && connectionRequestsRef != null) {
-            connectionRequestsRef.removeEventListener(connectionRequestsListener);
-            connectionRequestsListener = null;
-        }
-
-        if (sentRequestsListener != null && connectionRequestsRef != null) {
-            connectionRequestsRef.removeEventListener(sentRequestsListener);
-            sentRequestsListener = null;
-        }
-    }
-
     /**
      * Reset tracking state - call this when app starts fresh
      */
     public void resetTrackingState() {
         handledRequestIds.clear();
-        lastHandledTimestamp = System.currentTimeMillis();
         activeSessionId = null;
         Log.d(TAG, "Reset tracking state for fresh app session");
     }
@@ -258,9 +401,15 @@ public class ConnectionRequestManager {
     /**
      * Cancel a connection request (called by the requesting user)
      */
-    public void cancelConnectionRequest(String requestId) {
-        DatabaseReference requestRef = connectionRequestsRef.child(requestId);
-        requestRef.child("status").setValue("CANCELLED")
+    public void cancelConnectionRequest(ConnectionRequest request) {
+        String requestId = request.getRequestId();
+        cancelExpiry(requestId);
+
+        // The recipient's dialog learns about the cancellation; the sender's copy is done
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(inboxPath(request.getToUserId(), requestId) + "/status", "CANCELLED");
+        updates.put(outboxPath(request.getFromUserId(), requestId), null);
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Connection request cancelled: " + requestId);
                 })
@@ -272,11 +421,23 @@ public class ConnectionRequestManager {
     /**
      * Accept a connection request
      */
-    public void acceptConnectionRequest(String requestId, ConnectionRequest request) {
-        connectionRequestsRef.child(requestId).child("status").setValue("ACCEPTED")
+    public void acceptConnectionRequest(ConnectionRequest request) {
+        String requestId = request.getRequestId();
+        long now = System.currentTimeMillis();
+
+        // Accept, start the session record and record the connection together, so the
+        // requester never sees an accepted request without its session
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(outboxPath(request.getFromUserId(), requestId) + "/status", "ACCEPTED");
+        updates.put(inboxPath(request.getToUserId(), requestId), null);
+        ConnectSessions.putStart(updates, request.getSessionId(), request.getFromUserId(), request.getToUserId());
+        ConnectionsIndex.putSessionStart(updates, request.getFromUserId(), request.getToUserId(),
+                request.getSessionId(), now);
+
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Connection request accepted: " + requestId);
-                // The listener will handle opening the ConnectChatActivity
+                // The requester's outbox stream opens ConnectChatActivity on their side
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "Failed to accept connection request", e);
@@ -286,8 +447,13 @@ public class ConnectionRequestManager {
     /**
      * Reject a connection request
      */
-    public void rejectConnectionRequest(String requestId) {
-        connectionRequestsRef.child(requestId).child("status").setValue("REJECTED")
+    public void rejectConnectionRequest(ConnectionRequest request) {
+        String requestId = request.getRequestId();
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(outboxPath(request.getFromUserId(), requestId) + "/status", "REJECTED");
+        updates.put(inboxPath(request.getToUserId(), requestId), null);
+
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Connection request rejected: " + requestId);
             })
@@ -296,7 +462,8 @@ public class ConnectionRequestManager {
             });
     }
 
-    private void showConnectionRequestDialog(Context context, ConnectionRequest request, String requestId) {
+    private void showConnectionRequestDialog(Context context, ConnectionRequest request) {
+        String requestId = request.getRequestId();
         Dialog dialog = new Dialog(context);
         dialog.requestWindowFeature(android.view.Window.FEATURE_NO_TITLE);
         dialog.setContentView(R.layout.connection_request_dialog);
@@ -332,51 +499,35 @@ public class ConnectionRequestManager {
             profileImage.setImageResource(R.drawable.default_userpic);
         }
 
-        // Listen for status changes (including cancellation)
-        DatabaseReference requestRef = connectionRequestsRef.child(requestId);
-        ValueEventListener statusListener = new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (!dataSnapshot.exists()) return;
-
-                String currentStatus = dataSnapshot.child("status").getValue(String.class);
-                if (currentStatus != null && currentStatus.equals("CANCELLED")) {
-                    // Request was cancelled by the sender
-                    android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
-                    handler.post(() -> {
-                        // Update UI to show cancelled status
-                        userLanguageText.setText("Request cancelled");
-                        userLanguageText.setTextColor(context.getResources().getColor(android.R.color.holo_orange_dark));
-
-                        // Disable buttons
-                        acceptButton.setEnabled(false);
-                        rejectButton.setEnabled(false);
-                        acceptButton.setText("Request Cancelled");
-                        rejectButton.setVisibility(android.view.View.GONE);
-
-                        // Auto-close after 3 seconds
-                        handler.postDelayed(() -> {
-                            if (dialog.isShowing()) {
-                                dialog.dismiss();
-                            }
-                        }, 3000);
-                    });
-                }
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e(TAG, "Error listening for request status changes", databaseError.toException());
+        // Status changes (including cancellation) arrive through the inbox stream
+        RequestStatusListener statusListener = updated -> {
+            if (!updated.isCancelled() && !updated.isExpired()) {
+                return;
             }
+            // Update UI to show cancelled status
+            userLanguageText.setText(updated.isCancelled() ? "Request cancelled" : "Request expired");
+            userLanguageText.setTextColor(context.getResources().getColor(android.R.color.holo_orange_dark));
+
+            // Disable buttons
+            acceptButton.setEnabled(false);
+            rejectButton.setEnabled(false);
+            acceptButton.setText(updated.isCancelled() ? "Request Cancelled" : "Request Expired");
+            rejectButton.setVisibility(android.view.View.GONE);
+
+            // Auto-close after 3 seconds
+            handler.postDelayed(() -> {
+                if (dialog.isShowing()) {
+                    dialog.dismiss();
+                }
+            }, 3000);
         };
-
-        requestRef.addValueEventListener(statusListener);
+        incomingDialogs.put(requestId, statusListener);
+        dialog.setOnDismissListener(d -> incomingDialogs.remove(requestId));
 
         // Set click listeners
         acceptButton.setOnClickListener(v -> {
-            requestRef.removeEventListener(statusListener);
             dialog.dismiss();
-            acceptConnectionRequest(requestId, request);
+            acceptConnectionRequest(request);
             // Open ConnectChatActivity
             android.content.Intent intent = new android.content.Intent(context, ConnectChatActivity.class);
             intent.putExtra("userId", request.getFromUserId());
@@ -389,20 +540,65 @@ public class ConnectionRequestManager {
         });
 
         rejectButton.setOnClickListener(v -> {
-            requestRef.removeEventListener(statusListener);
             dialog.dismiss();
-            rejectConnectionRequest(requestId);
+            rejectConnectionRequest(request);
         });
 
         closeButton.setOnClickListener(v -> {
-            requestRef.removeEventListener(statusListener);
             dialog.dismiss();
-            rejectConnectionRequest(requestId);
+            // Only answer a request that is still open
+            if (acceptButton.isEnabled()) {
+                rejectConnectionRequest(request);
+            }
         });
 
         dialog.show();
     }
 
+    /**
+     * Child listener for one request box; the request ID is taken from the entry's key
+     */
+    private abstract static class BoxListener implements ChildEventListener {
+        abstract void onRequest(ConnectionRequest request);
+
+        /** Entries are removed once handled, or by the sender when the request expires */
+        void onRemoved(String requestId) {
+        }
+
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            deliver(snapshot);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            deliver(snapshot);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            onRemoved(snapshot.getKey());
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError databaseError) {
+            Log.e(TAG, "Error listening for connection requests", databaseError.toException());
+        }
+
+        private void deliver(DataSnapshot snapshot) {
+            ConnectionRequest request = SnapshotMappers.toConnectionRequest(snapshot);
+            if (request == null || request.getFromUserId() == null || request.getToUserId() == null) {
+                return;
+            }
+            request.setRequestId(snapshot.getKey());
+            onRequest(request);
+        }
+    }
+
     private String generateSessionId(String userId1, String userId2) {
         String[] ids = {userId1, userId2};
         java.util.Arrays.sort(ids);
@@ -0,0 +1,200 @@
+package com.example.appdev.utils;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.appdev.Variables;
+import com.example.appdev.helpers.ConnectionsIndex;
+import com.example.appdev.helpers.UserChatsIndex;
+import com.example.appdev.helpers.UserGroupsIndex;
+import com.example.appdev.models.ChatSummary;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseException;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sets up the Realtime Database client: an on-disk cache of a configurable size, so
+ * listeners render the last known data at once while fresh data streams in, and
+ * keepSynced on what the user opens most (their profile, indexes and the newest page of
+ * their recent chats), so reopening those screens does not wait on the network.
+ */
+public final class DatabaseBootstrap {
+
+    private static final String TAG = "DatabaseBootstrap";
+
+    public static final long DEFAULT_CACHE_SIZE_BYTES = 20L * 1024 * 1024; // 20 MB
+    // Limits the database client accepts for its persistence cache
+    private static final long MIN_CACHE_SIZE_BYTES = 1024 * 1024;
+    private static final long MAX_CACHE_SIZE_BYTES = 100L * 1024 * 1024;
+
+    // Chats whose newest page is kept synced
+    private static final int RECENT_ROOMS = 10;
+
+    // A first snapshot this fast came from the local cache rather than the network
+    private static final long LOCAL_READ_MS = 50;
+
+    private static volatile boolean initialized = false;
+    private static boolean persistenceEnabled = false;
+    private static long cacheSizeBytes = DEFAULT_CACHE_SIZE_BYTES;
+    private static File databaseDir;
+
+    private static String syncedUserId;
+    private static final List<Query> syncedQueries = new ArrayList<>();
+
+    // Metrics
+    private static final AtomicLong localReads = new AtomicLong();
+    private static final AtomicLong networkReads = new AtomicLong();
+    private static final AtomicLong firstEventMsTotal = new AtomicLong();
+
+    private DatabaseBootstrap() {
+    }
+
+    /**
+     * Enable the on-disk cache. Must run before anything else uses the database,
+     * so it is called from the Application.
+     */
+    public static synchronized void init(Context context) {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        databaseDir = context.getApplicationContext().getDatabasePath(TAG).getParentFile();
+        cacheSizeBytes = Math.max(MIN_CACHE_SIZE_BYTES, Math.min(MAX_CACHE_SIZE_BYTES,
+                context.getSharedPreferences(Variables.PREFS_NAME, Context.MODE_PRIVATE)
+                        .getLong(Variables.PREF_DATABASE_CACHE_BYTES, DEFAULT_CACHE_SIZE_BYTES)));
+        try {
+            FirebaseDatabase database = FirebaseDatabase.getInstance();
+            database.setPersistenceCacheSizeBytes(cacheSizeBytes);
+            database.setPersistenceEnabled(true);
+            persistenceEnabled = true;
+        } catch (DatabaseException e) {
+            // The database was already in use; it keeps working from memory only
+            Log.e(TAG, "Could not enable database persistence", e);
+        }
+    }
+
+    /**
+     * Change the cache size. Takes effect the next time the app starts.
+     */
+    public static void setCacheSizeBytes(Context context, long bytes) {
+        context.getSharedPreferences(Variables.PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putLong(Variables.PREF_DATABASE_CACHE_BYTES, bytes)
+                .apply();
+    }
+
+    /**
+     * Keep the signed-in user's data synced. Main thread only.
+     */
+    public static void syncUser(String userId) {
+        if (userId == null || "guest".equals(userId) || userId.equals(syncedUserId)) {
+            return;
+        }
+        unsyncUser();
+        syncedUserId = userId;
+
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        keepSynced(database.getReference("users").child(userId));
+        keepSynced(database.getReference(UserChatsIndex.NODE).child(userId));
+        keepSynced(database.getReference(UserGroupsIndex.NODE).child(userId));
+        keepSynced(database.getReference(ConnectionsIndex.NODE).child(userId));
+
+        // The newest page of the most recent chats, the same query MessageStream opens with
+        database.getReference(UserChatsIndex.NODE).child(userId)
+                .orderByChild("lastMessageTime").limitToLast(RECENT_ROOMS)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        if (!userId.equals(syncedUserId)) {
+                            return; // Signed out meanwhile
+                        }
+                        for (DataSnapshot chat : snapshot.getChildren()) {
+                            String type = chat.child("type").getValue(String.class);
+                            String node = ChatSummary.TYPE_GROUP.equals(type) ? "group_messages" : "messages";
+                            keepSynced(database.getReference(node).child(chat.getKey())
+                                    .orderByChild("timestamp").limitToLast(MessageStream.DEFAULT_PAGE_SIZE));
+                        }
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.e(TAG, "Failed to read recent chats: " + error.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Stop keeping the previous user's data synced, e.g. on sign-out
+     */
+    public static void unsyncUser() {
+        for (Query query : syncedQueries) {
+            query.keepSynced(false);
+        }
+        syncedQueries.clear();
+        syncedUserId = null;
+    }
+
+    private static void keepSynced(Query query) {
+        query.keepSynced(true);
+        syncedQueries.add(query);
+    }
+
+    /**
+     * Start timing a read, for the local/network split in getStats()
+     */
+    public static long startTimer() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Record the first snapshot of a read started with startTimer()
+     */
+    public static void recordFirstEvent(long startedAt) {
+        long elapsed = SystemClock.elapsedRealtime() - startedAt;
+        firstEventMsTotal.addAndGet(elapsed);
+        if (elapsed <= LOCAL_READ_MS) {
+            localReads.incrementAndGet();
+        } else {
+            networkReads.incrementAndGet();
+        }
+    }
+
+    /**
+     * Summary of the cache for development builds
+     */
+    public static String getStats() {
+        long reads = localReads.get() + networkReads.get();
+        return "persistence=" + (persistenceEnabled ? "on" : "off")
+                + ", limit=" + (cacheSizeBytes / (1024 * 1024)) + "MB"
+                + ", onDisk=" + (cacheBytesOnDisk() / 1024) + "KB"
+                + ", synced=" + syncedQueries.size()
+                + "\nlocalReads=" + localReads.get()
+                + ", networkReads=" + networkReads.get()
+                + ", avgFirstEventMs=" + (reads > 0 ? firstEventMsTotal.get() / reads : 0);
+    }
+
+    // The client keeps its cache in a SQLite file named after the database host
+    private static long cacheBytesOnDisk() {
+        File[] files = databaseDir != null ? databaseDir.listFiles() : null;
+        if (files == null) {
+            return 0;
+        }
+        long total = 0;
+        for (File file : files) {
+            if (file.getName().contains("firebase")) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+}
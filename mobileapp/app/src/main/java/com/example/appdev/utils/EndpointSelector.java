@@ -0,0 +1,354 @@
+package com.example.appdev.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.appdev.Variables;
+import com.example.appdev.helpers.SettingsLoader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Picks which backend endpoint translation traffic goes to.
+ * The settings node can list several backend base URLs. Each one is probed in the
+ * background, and probe round trips feed an exponentially weighted moving average.
+ * Requests are routed to the healthy endpoint with the lowest probe average, and endpoints
+ * that keep failing are skipped until a cooldown has passed.
+ * Real requests only count towards health. Their latency is tracked separately for the
+ * stats, since a translation takes seconds while a probe takes milliseconds, and only the
+ * endpoint carrying the traffic would have those samples.
+ */
+public final class EndpointSelector {
+
+    private static final String TAG = "EndpointSelector";
+
+    // Weight of the newest sample in the moving average
+    private static final double EWMA_ALPHA = 0.3;
+
+    // Consecutive failures before an endpoint is taken out of rotation
+    private static final int MAX_CONSECUTIVE_FAILURES = 2;
+
+    // How long a failing endpoint is skipped before it is tried again
+    private static final long UNHEALTHY_COOLDOWN_MS = 30000; // 30 seconds
+
+    // How often all endpoints are re-probed while the app is making requests
+    private static final long PROBE_INTERVAL_MS = 60000; // 1 minute
+
+    private static final List<Endpoint> endpoints = new ArrayList<>();
+    private static long lastProbeAt = 0;
+
+    private EndpointSelector() {
+    }
+
+    /**
+     * Latency and health bookkeeping for one backend base URL
+     */
+    private static final class Endpoint {
+        final String baseUrl;
+        // Averages are -1 until their first sample arrives
+        double probeEwmaMs = -1;
+        double requestEwmaMs = -1;
+        int consecutiveFailures = 0;
+        long unhealthyUntil = 0;
+        long successCount = 0;
+        long failureCount = 0;
+
+        Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        boolean isHealthy(long now) {
+            return now >= unhealthyUntil;
+        }
+
+        void recordProbe(long latencyMs) {
+            probeEwmaMs = ewma(probeEwmaMs, latencyMs);
+            recordHealthy();
+        }
+
+        void recordRequest(long latencyMs) {
+            requestEwmaMs = ewma(requestEwmaMs, latencyMs);
+            recordHealthy();
+        }
+
+        private void recordHealthy() {
+            consecutiveFailures = 0;
+            unhealthyUntil = 0;
+            successCount++;
+        }
+
+        void recordFailure(long now) {
+            failureCount++;
+            consecutiveFailures++;
+            if (consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+                unhealthyUntil = now + UNHEALTHY_COOLDOWN_MS;
+            }
+        }
+    }
+
+    private static double ewma(double average, long sample) {
+        return average < 0 ? sample : EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * average;
+    }
+
+    /**
+     * Replace the set of backend endpoints and start probing them.
+     * The first URL is used until latency samples arrive.
+     */
+    public static void setEndpoints(List<String> baseUrls) {
+        synchronized (endpoints) {
+            endpoints.clear();
+            for (String baseUrl : baseUrls) {
+                String normalized = normalize(baseUrl);
+                if (normalized != null && findEndpoint(normalized) == null) {
+                    endpoints.add(new Endpoint(normalized));
+                }
+            }
+            if (endpoints.isEmpty()) {
+                return;
+            }
+            SettingsLoader.applyBackendUrl(endpoints.get(0).baseUrl);
+            Log.d(TAG, "Using " + endpoints.size() + " backend endpoint(s)");
+        }
+        probeAll();
+    }
+
+    /**
+     * Rewrite a backend URL so it points at the currently preferred endpoint.
+     * URLs that do not belong to a known endpoint are returned unchanged.
+     */
+    public static String resolve(String url) {
+        String resolved = url;
+        boolean probeDue;
+        synchronized (endpoints) {
+            Endpoint best = selectBest();
+            Endpoint owner = findOwner(url);
+            if (best != null && owner != null && owner != best) {
+                resolved = best.baseUrl + url.substring(owner.baseUrl.length());
+            }
+            probeDue = endpoints.size() > 1
+                    && SystemClock.elapsedRealtime() - lastProbeAt > PROBE_INTERVAL_MS;
+        }
+        if (probeDue) {
+            probeAll();
+        }
+        return resolved;
+    }
+
+    /**
+     * Rewrite a backend URL to the best healthy endpoint other than the one serving
+     * currentUrl, for sending a duplicate request. Falls back to currentUrl when there
+     * is no other healthy endpoint.
+     */
+    public static String resolveAlternative(String url, String currentUrl) {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (endpoints) {
+            Endpoint owner = findOwner(url);
+            Endpoint current = findOwner(currentUrl);
+            if (owner == null) {
+                return currentUrl;
+            }
+            Endpoint alternative = null;
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint != current && endpoint.isHealthy(now)
+                        && (alternative == null || isBetter(endpoint, alternative, now))) {
+                    alternative = endpoint;
+                }
+            }
+            if (alternative == null) {
+                return currentUrl;
+            }
+            return alternative.baseUrl + url.substring(owner.baseUrl.length());
+        }
+    }
+
+    /**
+     * Record a completed request against the endpoint that served it. Marks it healthy;
+     * the latency is kept for the stats but does not affect ranking.
+     */
+    public static void recordSuccess(String url, long latencyMs) {
+        synchronized (endpoints) {
+            Endpoint endpoint = findOwner(url);
+            if (endpoint != null) {
+                endpoint.recordRequest(latencyMs);
+                updatePreferred();
+            }
+        }
+    }
+
+    /**
+     * Record a network failure or server error against the endpoint that served it
+     */
+    public static void recordFailure(String url) {
+        synchronized (endpoints) {
+            Endpoint endpoint = findOwner(url);
+            if (endpoint != null) {
+                endpoint.recordFailure(SystemClock.elapsedRealtime());
+                Log.w(TAG, "Request to " + endpoint.baseUrl + " failed ("
+                        + endpoint.consecutiveFailures + " in a row)");
+                updatePreferred();
+            }
+        }
+    }
+
+    /**
+     * Per-endpoint latency and health, one line per endpoint, for development builds
+     */
+    public static String getStats() {
+        long now = SystemClock.elapsedRealtime();
+        StringBuilder stats = new StringBuilder();
+        synchronized (endpoints) {
+            Endpoint best = selectBest();
+            for (Endpoint endpoint : endpoints) {
+                if (stats.length() > 0) {
+                    stats.append('\n');
+                }
+                stats.append(endpoint == best ? "* " : "  ")
+                        .append(endpoint.baseUrl)
+                        .append(" probe=").append(formatMs(endpoint.probeEwmaMs))
+                        .append(" request=").append(formatMs(endpoint.requestEwmaMs))
+                        .append(" ok=").append(endpoint.successCount)
+                        .append(" fail=").append(endpoint.failureCount)
+                        .append(endpoint.isHealthy(now) ? " healthy" : " unhealthy");
+            }
+        }
+        return stats.toString();
+    }
+
+    private static String formatMs(double averageMs) {
+        return averageMs < 0 ? "n/a" : String.format(Locale.US, "%.0fms", averageMs);
+    }
+
+    /**
+     * Send a lightweight GET to every endpoint's API root and record how long it takes
+     */
+    private static void probeAll() {
+        List<String> baseUrls = new ArrayList<>();
+        synchronized (endpoints) {
+            lastProbeAt = SystemClock.elapsedRealtime();
+            for (Endpoint endpoint : endpoints) {
+                baseUrls.add(endpoint.baseUrl);
+            }
+        }
+
+        for (String baseUrl : baseUrls) {
+            Request request = new Request.Builder().url(baseUrl).get().build();
+            long start = SystemClock.elapsedRealtime();
+            TranslationHttpClient.getClient().newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                    if (response.code() < 500) {
+                        recordProbe(baseUrl, SystemClock.elapsedRealtime() - start);
+                    } else {
+                        recordFailure(baseUrl);
+                    }
+                    logStats();
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    recordFailure(baseUrl);
+                    logStats();
+                }
+            });
+        }
+    }
+
+    private static void recordProbe(String baseUrl, long latencyMs) {
+        synchronized (endpoints) {
+            Endpoint endpoint = findEndpoint(baseUrl);
+            if (endpoint != null) {
+                endpoint.recordProbe(latencyMs);
+                updatePreferred();
+            }
+        }
+    }
+
+    /**
+     * Healthy endpoint with the lowest probe latency. Endpoints not yet probed rank last,
+     * and if every endpoint is unhealthy the one whose cooldown ends first is used.
+     */
+    private static Endpoint selectBest() {
+        long now = SystemClock.elapsedRealtime();
+        Endpoint best = null;
+        for (Endpoint endpoint : endpoints) {
+            if (best == null || isBetter(endpoint, best, now)) {
+                best = endpoint;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isBetter(Endpoint candidate, Endpoint current, long now) {
+        boolean candidateHealthy = candidate.isHealthy(now);
+        boolean currentHealthy = current.isHealthy(now);
+        if (candidateHealthy != currentHealthy) {
+            return candidateHealthy;
+        }
+        if (!candidateHealthy) {
+            return candidate.unhealthyUntil < current.unhealthyUntil;
+        }
+        if (candidate.probeEwmaMs < 0) {
+            return false;
+        }
+        return current.probeEwmaMs < 0 || candidate.probeEwmaMs < current.probeEwmaMs;
+    }
+
+    /**
+     * Keep Variables.API_* pointing at the preferred endpoint for code that reads them directly
+     */
+    private static void updatePreferred() {
+        Endpoint best = selectBest();
+        if (best != null && !best.baseUrl.equals(Variables.API_BASE_URL)) {
+            Log.d(TAG, "Switching backend to " + best.baseUrl);
+            SettingsLoader.applyBackendUrl(best.baseUrl);
+        }
+    }
+
+    private static void logStats() {
+        if (Variables.isDevelopmentMode) {
+            Log.d(TAG, "Endpoint health:\n" + getStats());
+        }
+    }
+
+    private static Endpoint findOwner(String url) {
+        if (url == null) {
+            return null;
+        }
+        for (Endpoint endpoint : endpoints) {
+            if (url.startsWith(endpoint.baseUrl)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    private static Endpoint findEndpoint(String baseUrl) {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.baseUrl.equals(baseUrl)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String baseUrl) {
+        if (baseUrl == null) {
+            return null;
+        }
+        String trimmed = baseUrl.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        // API URLs are built by appending paths, so the base must end with a slash
+        return trimmed.endsWith("/") ? trimmed : trimmed + "/";
+    }
+}
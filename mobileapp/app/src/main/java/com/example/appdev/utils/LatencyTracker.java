@@ -0,0 +1,155 @@
+package com.example.appdev.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Latency histograms for backend calls, kept per request URL and per URL + model.
+ * Used to size request timeouts from observed tail latency (p99 times a multiplier)
+ * instead of a fixed 30 seconds, and to decide when a slow request should be hedged.
+ */
+public final class LatencyTracker {
+
+    // Bucket upper bounds in milliseconds, the last bucket catches everything slower
+    private static final long[] BUCKET_BOUNDS_MS = {
+            100, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 4000,
+            5000, 7500, 10000, 15000, 20000, 30000, 45000, 60000
+    };
+
+    // Percentiles are not trusted until a histogram has this many samples
+    private static final int MIN_SAMPLES = 10;
+
+    // Halve every bucket once a histogram holds this many samples so old latency fades out
+    private static final int DECAY_THRESHOLD = 500;
+
+    private static final double TIMEOUT_MULTIPLIER = 2.0;
+    private static final int MIN_TIMEOUT_MS = 5000; // 5 seconds
+    private static final int MAX_TIMEOUT_MS = 60000; // 60 seconds
+
+    private static final Map<String, Histogram> histograms = new HashMap<>();
+
+    private LatencyTracker() {
+    }
+
+    private static final class Histogram {
+        final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+        long total = 0;
+
+        void add(long latencyMs) {
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && latencyMs > BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+            total++;
+
+            if (total >= DECAY_THRESHOLD) {
+                total = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] /= 2;
+                    total += counts[i];
+                }
+            }
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile (0-100)
+         */
+        long percentile(double percent) {
+            long threshold = (long) Math.ceil(total * percent / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= threshold) {
+                    return i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : MAX_TIMEOUT_MS;
+                }
+            }
+            return MAX_TIMEOUT_MS;
+        }
+    }
+
+    /**
+     * Record how long a request to the given URL took
+     */
+    public static void record(String url, String model, long latencyMs) {
+        synchronized (histograms) {
+            histogramFor(url).add(latencyMs);
+            histogramFor(key(url, model)).add(latencyMs);
+        }
+    }
+
+    /**
+     * Timeout for the next request to this URL and model: p99 times a multiplier,
+     * or the default timeout until enough requests have been seen
+     */
+    public static int getTimeoutMs(String url, String model) {
+        long p99 = percentile(url, model, 99);
+        if (p99 < 0) {
+            return TranslationHttpClient.DEFAULT_TIMEOUT_MS;
+        }
+        long timeout = (long) (p99 * TIMEOUT_MULTIPLIER);
+        return (int) Math.max(MIN_TIMEOUT_MS, Math.min(MAX_TIMEOUT_MS, timeout));
+    }
+
+    /**
+     * How long to wait before hedging a request to this URL and model (its p95),
+     * or -1 if there is not enough history to tell what slow looks like
+     */
+    public static long getHedgeDelayMs(String url, String model) {
+        return percentile(url, model, 95);
+    }
+
+    /**
+     * p50/p95/p99 per request URL, one line per URL, for development builds
+     */
+    public static String getStats() {
+        StringBuilder stats = new StringBuilder();
+        synchronized (histograms) {
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                if (entry.getKey().contains("|")) {
+                    continue; // Per-model histograms would make the summary too long
+                }
+                Histogram histogram = entry.getValue();
+                if (stats.length() > 0) {
+                    stats.append('\n');
+                }
+                stats.append(entry.getKey())
+                        .append(" n=").append(histogram.total)
+                        .append(" p50=").append(histogram.percentile(50))
+                        .append(" p95=").append(histogram.percentile(95))
+                        .append(" p99=").append(histogram.percentile(99));
+            }
+        }
+        return stats.toString();
+    }
+
+    /**
+     * Percentile from the URL + model histogram, falling back to the whole URL
+     * while the model has too few samples. Returns -1 if neither has enough.
+     */
+    private static long percentile(String url, String model, double percent) {
+        synchronized (histograms) {
+            Histogram histogram = histograms.get(key(url, model));
+            if (histogram == null || histogram.total < MIN_SAMPLES) {
+                histogram = histograms.get(url);
+            }
+            if (histogram == null || histogram.total < MIN_SAMPLES) {
+                return -1;
+            }
+            return histogram.percentile(percent);
+        }
+    }
+
+    private static Histogram histogramFor(String key) {
+        Histogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = new Histogram();
+            histograms.put(key, histogram);
+        }
+        return histogram;
+    }
+
+    private static String key(String url, String model) {
+        return url + "|" + (model != null ? model : "");
+    }
+}
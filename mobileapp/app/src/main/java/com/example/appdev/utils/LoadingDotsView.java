@@ -17,6 +17,7 @@ public class LoadingDotsView extends LinearLayout {
     private int currentDotIndex = 0;
     private Handler dotsHandler = new Handler();
     private Runnable dotsAnimation;
+    private boolean animating = false;
     private int dotColor = 0xFF2196F3; // Default blue color
     private float dotSize = 48f; // Default size
     private int animationDuration = 400; // Default duration
@@ -94,9 +95,15 @@ public class LoadingDotsView extends LinearLayout {
         };
         
         dotsHandler.post(dotsAnimation);
+        animating = true;
+    }
+
+    public boolean isAnimating() {
+        return animating;
     }
 
     public void stopAnimation() {
+        animating = false;
         if (dotsHandler != null && dotsAnimation != null) {
             dotsHandler.removeCallbacks(dotsAnimation);
         }
@@ -0,0 +1,206 @@
+package com.example.appdev.utils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.appdev.helpers.UserGroupsIndex;
+import com.example.appdev.helpers.SnapshotMappers;
+import com.example.appdev.models.Group;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Live view of the groups one user belongs to.
+ * Membership comes from user_groups/{userId}; each listed group's details are read from its
+ * own groups/{groupId} node, so the cost follows the user's memberships rather than the
+ * number of groups in the database.
+ * All callbacks arrive on the main thread.
+ */
+public final class MemberGroupsStream {
+
+    private static final String TAG = "MemberGroupsStream";
+
+    public interface Listener {
+        /** A group was joined, or its details changed */
+        void onGroupChanged(Group group);
+
+        /** The user left the group, was removed, or the group was deleted */
+        void onGroupRemoved(String groupId);
+
+        /** The membership list has been read once; every group known so far has been delivered */
+        default void onInitialLoadComplete() {
+        }
+
+        default void onError(DatabaseError error) {
+            Log.e(TAG, "Group membership stream failed: " + error.getMessage());
+        }
+    }
+
+    private final String userId;
+    private final Listener listener;
+    private final DatabaseReference indexRef;
+    private final DatabaseReference groupsRef;
+
+    private ChildEventListener indexListener;
+    private ValueEventListener initialLoadListener;
+    private final Map<String, ValueEventListener> groupListeners = new HashMap<>();
+    // Groups whose details have been delivered, to report removals only once
+    private final Set<String> delivered = new HashSet<>();
+    // Groups read at least once, and those the initial load still waits for (null once done)
+    private final Set<String> readOnce = new HashSet<>();
+    private Set<String> initialPending;
+
+    public MemberGroupsStream(String userId, Listener listener) {
+        this.userId = userId;
+        this.listener = listener;
+        this.indexRef = FirebaseDatabase.getInstance().getReference(UserGroupsIndex.NODE).child(userId);
+        this.groupsRef = FirebaseDatabase.getInstance().getReference("groups");
+    }
+
+    public void start() {
+        if (indexListener != null) {
+            return;
+        }
+        indexListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                watchGroup(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                // Index entries carry no data of their own
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                unwatchGroup(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                listener.onError(error);
+            }
+        };
+        indexRef.addChildEventListener(indexListener);
+
+        // Child events for existing entries arrive before this value event, which tells us how
+        // many group reads to wait for before reporting the initial load
+        initialLoadListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                initialPending = new HashSet<>();
+                for (DataSnapshot entry : snapshot.getChildren()) {
+                    if (!readOnce.contains(entry.getKey())) {
+                        initialPending.add(entry.getKey());
+                    }
+                }
+                checkInitialLoad();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                listener.onError(error);
+            }
+        };
+        indexRef.addListenerForSingleValueEvent(initialLoadListener);
+    }
+
+    public void stop() {
+        if (indexListener != null) {
+            indexRef.removeEventListener(indexListener);
+            indexListener = null;
+        }
+        if (initialLoadListener != null) {
+            indexRef.removeEventListener(initialLoadListener);
+            initialLoadListener = null;
+        }
+        for (Map.Entry<String, ValueEventListener> entry : groupListeners.entrySet()) {
+            groupsRef.child(entry.getKey()).removeEventListener(entry.getValue());
+        }
+        groupListeners.clear();
+        delivered.clear();
+        readOnce.clear();
+        initialPending = null;
+    }
+
+    private void watchGroup(String groupId) {
+        if (groupId == null || groupListeners.containsKey(groupId)) {
+            return;
+        }
+        ValueEventListener groupListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Group group = SnapshotMappers.toGroup(snapshot);
+                if (group != null && group.getMembers() != null && group.getMembers().containsKey(userId)) {
+                    group.setGroupId(groupId);
+                    delivered.add(groupId);
+                    listener.onGroupChanged(group);
+                } else if (delivered.remove(groupId)) {
+                    // Deleted, or membership removed without the index (e.g. by an older client)
+                    listener.onGroupRemoved(groupId);
+                }
+                onGroupRead(groupId);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                // No read access means the user is no longer a member
+                groupListeners.remove(groupId);
+                if (delivered.remove(groupId)) {
+                    listener.onGroupRemoved(groupId);
+                }
+                Log.w(TAG, "Stopped watching group " + groupId + ": " + error.getMessage());
+                onGroupRead(groupId);
+            }
+        };
+        groupListeners.put(groupId, groupListener);
+        groupsRef.child(groupId).addValueEventListener(groupListener);
+    }
+
+    private void unwatchGroup(String groupId) {
+        ValueEventListener groupListener = groupListeners.remove(groupId);
+        if (groupListener != null) {
+            groupsRef.child(groupId).removeEventListener(groupListener);
+        }
+        readOnce.remove(groupId);
+        if (delivered.remove(groupId)) {
+            listener.onGroupRemoved(groupId);
+        }
+        if (initialPending != null) {
+            initialPending.remove(groupId);
+            checkInitialLoad();
+        }
+    }
+
+    private void onGroupRead(String groupId) {
+        readOnce.add(groupId);
+        if (initialPending != null) {
+            initialPending.remove(groupId);
+            checkInitialLoad();
+        }
+    }
+
+    private void checkInitialLoad() {
+        if (initialPending != null && initialPending.isEmpty()) {
+            initialPending = null;
+            initialLoadListener = null;
+            listener.onInitialLoadComplete();
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.example.appdev.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Live, paged view of one room's messages, ordered by timestamp.
+ * Only the newest page is loaded when the stream starts; older pages are loaded on demand
+ * with loadOlder(). startFrom() instead opens a window at a fixed time, e.g. the start of a
+ * session, and leaves everything before it to loadOlder(). Each loaded page is covered by a ChildEventListener on its timestamp
+ * range, so a new message, an edit or a translation written by the server costs one child
+ * event for one message, no matter how long the room's history is.
+ * Pages and child events are hashed and decoded on a small worker pool, child events in
+ * batches, so a listener's replay of a long window never decodes on the main thread.
+ * All callbacks arrive on the main thread.
+ */
+public final class MessageStream<T> {
+
+    private static final String TAG = "MessageStream";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    // Start loading the previous page when the user scrolls this close to the top
+    private static final int PREFETCH_DISTANCE = 5;
+
+    // Shared by all streams; each stream has at most one page in flight
+    private static final ExecutorService decodePool = Executors.newFixedThreadPool(2);
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Turns a message snapshot into the model shown by the adapter, or null to skip it.
+     * Called on a worker thread, so it must not touch the UI.
+     */
+    public interface Decoder<T> {
+        T decode(DataSnapshot snapshot);
+    }
+
+    public interface Listener<T> {
+        /**
+         * A page of messages older than everything delivered so far, oldest first.
+         * The first page delivered after start() is the newest page of the room.
+         */
+        void onPageLoaded(List<T> messages, boolean hasMore);
+
+        /** A message was added to a loaded page (usually a new message) */
+        void onMessageAdded(T message);
+
+        /** A message that was already delivered changed, e.g. its translation arrived */
+        void onMessageChanged(T message);
+
+        /** A message was deleted */
+        void onMessageRemoved(String messageId);
+
+        default void onError(DatabaseError error) {
+            Log.e(TAG, "Message stream failed: " + error.getMessage());
+        }
+    }
+
+    private final DatabaseReference roomRef;
+    private final int pageSize;
+    private final Decoder<T> decoder;
+    private final Listener<T> listener;
+
+    // Hash of the raw value of every message delivered so far, by key, to tell real
+    // changes from the replay a range listener does when it is attached
+    private final Map<String, Integer> deliveredHashes = new HashMap<>();
+
+    // Child events waiting for the worker pool, in arrival order. One batch per stream is in
+    // flight at a time, so events reach the listener in the order they arrived.
+    private final List<ChildEvent> pendingEvents = new ArrayList<>();
+    private boolean decodingEvents = false;
+
+    // Live range listeners, one per loaded page
+    private final List<Query> rangeQueries = new ArrayList<>();
+    private final List<ChildEventListener> rangeListeners = new ArrayList<>();
+
+    // Timestamp of the oldest loaded page's start, or -1 when the whole room is loaded
+    private long windowStart = -1;
+    private boolean hasMore = false;
+    private boolean loadingOlder = false;
+    private boolean pagingEnabled = true;
+    private boolean started = false;
+    private boolean stopped = false;
+
+    private RecyclerView pagedRecyclerView;
+    private RecyclerView.OnScrollListener pagingScrollListener;
+
+    public MessageStream(DatabaseReference roomRef, Decoder<T> decoder, Listener<T> listener) {
+        this(roomRef, DEFAULT_PAGE_SIZE, decoder, listener);
+    }
+
+    public MessageStream(DatabaseReference roomRef, int pageSize, Decoder<T> decoder, Listener<T> listener) {
+        this.roomRef = roomRef;
+        this.pageSize = pageSize;
+        this.decoder = decoder;
+        this.listener = listener;
+    }
+
+    /**
+     * Load the newest page and start listening for changes
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        loadingOlder = true;
+        loadPage(roomRef.orderByChild("timestamp").limitToLast(pageSize), -1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Load every message from a point in time onwards and start listening for changes.
+     * Older messages are only read through loadOlder().
+     */
+    public void startFrom(long windowFloor) {
+        if (started) {
+            return;
+        }
+        started = true;
+        loadingOlder = true;
+        loadPage(roomRef.orderByChild("timestamp").startAt(windowFloor), windowFloor, Long.MAX_VALUE);
+    }
+
+    /**
+     * Allow or suspend loadOlder(), e.g. while the screen hides older messages
+     */
+    public void setPagingEnabled(boolean enabled) {
+        pagingEnabled = enabled;
+    }
+
+    /**
+     * Load the page before the oldest message shown. Does nothing while a page is loading
+     * or when the start of the room has been reached.
+     */
+    public void loadOlder() {
+        if (!started || stopped || loadingOlder || !hasMore || !pagingEnabled) {
+            return;
+        }
+        loadingOlder = true;
+        long end = windowStart - 1;
+        loadPage(roomRef.orderByChild("timestamp").endAt(end).limitToLast(pageSize), -1, end);
+    }
+
+    /**
+     * Load older pages automatically as the user scrolls up towards the oldest message shown
+     */
+    public void attachPaging(RecyclerView recyclerView) {
+        pagingScrollListener = new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                if (dy >= 0 || !(view.getLayoutManager() instanceof LinearLayoutManager)) {
+                    return;
+                }
+                LinearLayoutManager layoutManager = (LinearLayoutManager) view.getLayoutManager();
+                if (layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+                    loadOlder();
+                }
+            }
+        };
+        pagedRecyclerView = recyclerView;
+        recyclerView.addOnScrollListener(pagingScrollListener);
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isLoadingOlder() {
+        return loadingOlder;
+    }
+
+    /**
+     * Detach every listener. The stream cannot be restarted.
+     */
+    public void stop() {
+        stopped = true;
+        for (int i = 0; i < rangeQueries.size(); i++) {
+            rangeQueries.get(i).removeEventListener(rangeListeners.get(i));
+        }
+        rangeQueries.clear();
+        rangeListeners.clear();
+        if (pagedRecyclerView != null) {
+            pagedRecyclerView.removeOnScrollListener(pagingScrollListener);
+            pagedRecyclerView = null;
+        }
+    }
+
+    /**
+     * Read one page, deliver it, then keep its timestamp range live
+     * @param windowFloor Fixed oldest timestamp of the range, or -1 to start it at the page's oldest message
+     * @param end Newest timestamp of the range, or Long.MAX_VALUE for the open-ended newest page
+     */
+    private void loadPage(Query pageQuery, long windowFloor, long end) {
+        long startedAt = DatabaseBootstrap.startTimer();
+        pageQuery.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                DatabaseBootstrap.recordFirstEvent(startedAt);
+                if (stopped) {
+                    return;
+                }
+                // Snapshots are immutable, so the page is decoded off the main thread
+                decodePool.execute(() -> {
+                    List<String> keys = new ArrayList<>();
+                    List<Integer> hashes = new ArrayList<>();
+                    List<T> messages = new ArrayList<>();
+                    long pageStart = -1;
+                    for (DataSnapshot child : snapshot.getChildren()) {
+                        if (pageStart < 0) {
+                            pageStart = timestampOf(child);
+                        }
+                        keys.add(child.getKey());
+                        hashes.add(hashOf(child));
+                        messages.add(decoder.decode(child));
+                    }
+                    long oldest = pageStart;
+                    int count = (int) snapshot.getChildrenCount();
+                    mainHandler.post(() -> onPageDecoded(keys, hashes, messages, oldest, count, windowFloor, end));
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                loadingOlder = false;
+                listener.onError(error);
+            }
+        });
+    }
+
+    private void onPageDecoded(List<String> keys, List<Integer> hashes, List<T> messages,
+                               long pageStart, int count, long windowFloor, long end) {
+        if (stopped) {
+            return;
+        }
+        List<T> page = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            T message = messages.get(i);
+            if (message != null && !deliveredHashes.containsKey(keys.get(i))) {
+                deliveredHashes.put(keys.get(i), hashes.get(i));
+                page.add(message);
+            }
+        }
+
+        long rangeStart;
+        if (windowFloor >= 0) {
+            // Anything before a fixed window may still exist
+            hasMore = windowFloor > 0;
+            rangeStart = windowFloor;
+        } else {
+            hasMore = count >= pageSize && pageStart > 0;
+            // A short page means the start of the room was reached
+            rangeStart = hasMore ? pageStart : -1;
+        }
+        windowStart = rangeStart;
+        loadingOlder = false;
+
+        listenToRange(rangeStart, end);
+        listener.onPageLoaded(page, hasMore);
+    }
+
+    /**
+     * Attach a child listener to [start, end]. Its initial replay of the page is filtered
+     * out by comparing value hashes on the worker pool, so only real changes reach the
+     * listener and the main thread only queues events.
+     */
+    private void listenToRange(long start, long end) {
+        Query query = roomRef.orderByChild("timestamp");
+        if (start >= 0) {
+            query = query.startAt(start);
+        }
+        if (end != Long.MAX_VALUE) {
+            query = query.endAt(end);
+        }
+
+        ChildEventListener rangeListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                enqueue(snapshot, false);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                enqueue(snapshot, false);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                // Queued too, so a removal is not overtaken by an earlier event still decoding
+                enqueue(snapshot, true);
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                // Adapters order by timestamp themselves; a timestamp change arrives as onChildChanged
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                listener.onError(error);
+            }
+        };
+        query.addChildEventListener(rangeListener);
+        rangeQueries.add(query);
+        rangeListeners.add(rangeListener);
+    }
+
+    private void enqueue(DataSnapshot snapshot, boolean removed) {
+        if (stopped) {
+            return;
+        }
+        pendingEvents.add(new ChildEvent(snapshot, removed));
+        if (!decodingEvents) {
+            // Posted, so a replay's burst of events is collected into one batch
+            decodingEvents = true;
+            mainHandler.post(this::decodeEvents);
+        }
+    }
+
+    private void decodeEvents() {
+        if (stopped || pendingEvents.isEmpty()) {
+            decodingEvents = false;
+            return;
+        }
+        List<ChildEvent> batch = new ArrayList<>(pendingEvents);
+        pendingEvents.clear();
+        // The worker compares against the hashes as they are now; the map is main-thread only
+        Map<String, Integer> known = new HashMap<>();
+        for (ChildEvent event : batch) {
+            known.put(event.key, deliveredHashes.get(event.key));
+        }
+        decodePool.execute(() -> {
+            for (ChildEvent event : batch) {
+                if (event.removed) {
+                    known.put(event.key, null);
+                    continue;
+                }
+                event.hash = hashOf(event.snapshot);
+                Integer previous = known.get(event.key);
+                if (previous != null && previous == event.hash) {
+                    continue; // Replay of a message the adapter already has
+                }
+                event.message = decoder.decode(event.snapshot);
+                if (event.message != null) {
+                    known.put(event.key, event.hash);
+                }
+            }
+            mainHandler.post(() -> onEventsDecoded(batch));
+        });
+    }
+
+    private void onEventsDecoded(List<ChildEvent> batch) {
+        if (stopped) {
+            return;
+        }
+        for (ChildEvent event : batch) {
+            if (event.removed) {
+                if (deliveredHashes.remove(event.key) != null) {
+                    listener.onMessageRemoved(event.key);
+                }
+                continue;
+            }
+            if (event.message == null) {
+                continue;
+            }
+            // A page may have delivered the same message while the batch was decoding
+            Integer previous = deliveredHashes.get(event.key);
+            if (previous != null && previous == event.hash) {
+                continue;
+            }
+            deliveredHashes.put(event.key, event.hash);
+            if (previous == null) {
+                listener.onMessageAdded(event.message);
+            } else {
+                listener.onMessageChanged(event.message);
+            }
+        }
+        decodeEvents();
+    }
+
+    private static int hashOf(DataSnapshot snapshot) {
+        return Objects.hashCode(snapshot.getValue());
+    }
+
+    private static long timestampOf(DataSnapshot snapshot) {
+        Long timestamp = snapshot.child("timestamp").getValue(Long.class);
+        return timestamp != null ? timestamp : 0;
+    }
+
+    // Hash and message are set on the worker and read on the main thread after the batch is posted back
+    private final class ChildEvent {
+        final DataSnapshot snapshot;
+        final String key;
+        final boolean removed;
+        int hash;
+        T message;
+
+        ChildEvent(DataSnapshot snapshot, boolean removed) {
+            this.snapshot = snapshot;
+            this.key = snapshot.getKey();
+            this.removed = removed;
+        }
+    }
+}
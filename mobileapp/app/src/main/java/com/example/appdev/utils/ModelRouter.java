@@ -0,0 +1,328 @@
+package com.example.appdev.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.appdev.Variables;
+import com.example.appdev.translators.TranslatorType;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Chooses which translation model a request goes to.
+ * Success rate and latency are tracked per model and language pair. When a model keeps
+ * failing or answering too slowly for a pair, its circuit breaker opens and requests are
+ * sent to the fastest other translator the user may use until a trial request succeeds.
+ * Only premium users may change translator, so free users always stay on their own model.
+ */
+public final class ModelRouter {
+
+    private static final String TAG = "ModelRouter";
+
+    // Outcomes remembered per model and language pair
+    private static final int WINDOW_SIZE = 20;
+
+    // The breaker only trips once this many outcomes have been seen
+    private static final int MIN_CALLS = 5;
+
+    // Fraction of failed or slow calls in the window that trips the breaker
+    private static final double FAILURE_RATE_THRESHOLD = 0.5;
+
+    // A successful call slower than this counts against the model
+    private static final long SLOW_CALL_MS = 15000; // 15 seconds
+
+    // How long an open breaker waits before letting a trial request through, doubled on each failed trial
+    private static final long OPEN_DURATION_MS = 30000; // 30 seconds
+    private static final long MAX_OPEN_DURATION_MS = 5 * 60 * 1000; // 5 minutes
+
+    private static final double EWMA_ALPHA = 0.3;
+
+    public enum BreakerState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final Map<String, Breaker> breakers = new HashMap<>();
+
+    // Last "preferred -> fallback" reroute the user was told about
+    private static String announcedReroute;
+
+    private ModelRouter() {
+    }
+
+    /**
+     * Outcome window and breaker state for one model and language pair
+     */
+    private static final class Breaker {
+        final boolean[] failures = new boolean[WINDOW_SIZE];
+        int calls = 0;
+        int next = 0;
+        double ewmaLatencyMs = -1;
+        BreakerState state = BreakerState.CLOSED;
+        long openUntil = 0;
+        long openDurationMs = OPEN_DURATION_MS;
+        boolean trialInFlight = false;
+        long trialStartedAt = 0;
+
+        void record(boolean failed, long latencyMs) {
+            failures[next] = failed;
+            next = (next + 1) % WINDOW_SIZE;
+            calls = Math.min(calls + 1, WINDOW_SIZE);
+            if (!failed) {
+                ewmaLatencyMs = ewmaLatencyMs < 0
+                        ? latencyMs
+                        : EWMA_ALPHA * latencyMs + (1 - EWMA_ALPHA) * ewmaLatencyMs;
+            }
+        }
+
+        double failureRate() {
+            if (calls == 0) {
+                return 0;
+            }
+            int failed = 0;
+            for (int i = 0; i < calls; i++) {
+                if (failures[i]) {
+                    failed++;
+                }
+            }
+            return (double) failed / calls;
+        }
+
+        /**
+         * Whether a request may be sent to this model right now. Moves an expired
+         * open breaker to half-open and lets a single trial request through.
+         */
+        boolean allowRequest(long now) {
+            if (state == BreakerState.OPEN && now >= openUntil) {
+                state = BreakerState.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == BreakerState.CLOSED) {
+                return true;
+            }
+            // A trial that never reported back (e.g. cancelled) does not block new trials forever
+            if (state == BreakerState.HALF_OPEN
+                    && (!trialInFlight || now - trialStartedAt > openDurationMs)) {
+                trialInFlight = true;
+                trialStartedAt = now;
+                return true;
+            }
+            return false;
+        }
+
+        void clear() {
+            calls = 0;
+            next = 0;
+        }
+    }
+
+    /**
+     * Pick the model for a request.
+     * @param preferredModel The user's chosen translator
+     * @param sourceLanguage Source language, or null if unknown
+     * @param targetLanguage Target language, or null for requests fanned out to several languages
+     * @return The preferred model, or another translator while the preferred one's breaker is open
+     */
+    public static String route(String preferredModel, String sourceLanguage, String targetLanguage) {
+        String preferred = normalize(preferredModel);
+        String pair = pairKey(sourceLanguage, targetLanguage);
+        long now = SystemClock.elapsedRealtime();
+
+        synchronized (breakers) {
+            Breaker preferredBreaker = breakers.get(key(preferred, pair));
+            if (preferredBreaker == null || preferredBreaker.allowRequest(now)) {
+                return preferred;
+            }
+
+            if (!"premium".equals(Variables.userAccountType)) {
+                // Free accounts cannot switch translator, keep using theirs
+                return preferred;
+            }
+
+            // Fastest translator whose breaker is closed for this pair, untried ones last
+            String fallback = null;
+            double fallbackLatency = Double.MAX_VALUE;
+            for (TranslatorType type : TranslatorType.values()) {
+                if (type.getId().equals(preferred)) {
+                    continue;
+                }
+                Breaker breaker = breakers.get(key(type.getId(), pair));
+                if (breaker != null && breaker.state != BreakerState.CLOSED) {
+                    continue;
+                }
+                double latency = breaker != null && breaker.ewmaLatencyMs >= 0
+                        ? breaker.ewmaLatencyMs
+                        : Double.MAX_VALUE / 2;
+                if (fallback == null || latency < fallbackLatency) {
+                    fallback = type.getId();
+                    fallbackLatency = latency;
+                }
+            }
+
+            if (fallback == null) {
+                return preferred; // Everything is degraded, the preferred model is as good as any
+            }
+            Log.d(TAG, "Routing " + pair + " from " + preferred + " to " + fallback);
+            return fallback;
+        }
+    }
+
+    /**
+     * Record the outcome of a request to a model
+     * @param failed True for network failures, timeouts and server errors
+     */
+    public static void recordResult(String model, String sourceLanguage, String targetLanguage,
+                                    boolean failed, long latencyMs) {
+        if (model == null || model.isEmpty()) {
+            return;
+        }
+        String id = normalize(model);
+        String pair = pairKey(sourceLanguage, targetLanguage);
+        boolean degraded = failed || latencyMs > SLOW_CALL_MS;
+        long now = SystemClock.elapsedRealtime();
+
+        synchronized (breakers) {
+            String key = key(id, pair);
+            Breaker breaker = breakers.get(key);
+            if (breaker == null) {
+                breaker = new Breaker();
+                breakers.put(key, breaker);
+            }
+            breaker.record(degraded, latencyMs);
+
+            if (breaker.state == BreakerState.HALF_OPEN) {
+                breaker.trialInFlight = false;
+                if (degraded) {
+                    breaker.openDurationMs = Math.min(breaker.openDurationMs * 2, MAX_OPEN_DURATION_MS);
+                    open(breaker, now, key);
+                } else {
+                    Log.d(TAG, "Closing breaker for " + key);
+                    breaker.state = BreakerState.CLOSED;
+                    breaker.openDurationMs = OPEN_DURATION_MS;
+                    breaker.clear();
+                    announcedReroute = null;
+                }
+            } else if (breaker.state == BreakerState.CLOSED
+                    && breaker.calls >= MIN_CALLS
+                    && breaker.failureRate() >= FAILURE_RATE_THRESHOLD) {
+                open(breaker, now, key);
+            }
+        }
+    }
+
+    private static void open(Breaker breaker, long now, String key) {
+        breaker.state = BreakerState.OPEN;
+        breaker.openUntil = now + breaker.openDurationMs;
+        Log.w(TAG, "Opening breaker for " + key + " for " + breaker.openDurationMs + "ms");
+    }
+
+    /**
+     * Worst breaker state of a model across all language pairs, for showing next to the translator
+     */
+    public static BreakerState getState(String model) {
+        String prefix = normalize(model) + "|";
+        BreakerState worst = BreakerState.CLOSED;
+        synchronized (breakers) {
+            for (Map.Entry<String, Breaker> entry : breakers.entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    continue;
+                }
+                BreakerState state = entry.getValue().state;
+                if (state == BreakerState.OPEN) {
+                    return BreakerState.OPEN;
+                }
+                if (state == BreakerState.HALF_OPEN) {
+                    worst = BreakerState.HALF_OPEN;
+                }
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Short status to show next to a translator's name, or null when it is healthy
+     */
+    public static String getStatusLabel(String model) {
+        switch (getState(model)) {
+            case OPEN:
+                return "Temporarily unavailable";
+            case HALF_OPEN:
+                return "Recovering";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Message telling the user their translator is being bypassed, or null if the request was
+     * not rerouted or this reroute was already announced. Keeps the notice to once per outage
+     * rather than once per message.
+     */
+    public static String getRerouteNotice(String preferredModel, String routedModel) {
+        String preferred = normalize(preferredModel);
+        String routed = normalize(routedModel);
+        if (preferred.equals(routed)) {
+            return null;
+        }
+        String reroute = preferred + "->" + routed;
+        synchronized (breakers) {
+            if (reroute.equals(announcedReroute)) {
+                return null;
+            }
+            announcedReroute = reroute;
+        }
+        return displayName(preferred) + " is having trouble, using " + displayName(routed) + " for now";
+    }
+
+    /**
+     * Breaker state, failure rate and latency per model and language pair, for development builds
+     */
+    public static String getStats() {
+        StringBuilder stats = new StringBuilder();
+        synchronized (breakers) {
+            for (Map.Entry<String, Breaker> entry : breakers.entrySet()) {
+                Breaker breaker = entry.getValue();
+                if (stats.length() > 0) {
+                    stats.append('\n');
+                }
+                stats.append(entry.getKey())
+                        .append(' ').append(breaker.state)
+                        .append(String.format(Locale.US, " fail=%.0f%%", breaker.failureRate() * 100))
+                        .append(" ewma=")
+                        .append(breaker.ewmaLatencyMs < 0
+                                ? "n/a"
+                                : String.format(Locale.US, "%.0fms", breaker.ewmaLatencyMs));
+            }
+        }
+        return stats.toString();
+    }
+
+    /**
+     * Display name for a model id, e.g. "gemini" becomes "Gemini"
+     */
+    public static String displayName(String model) {
+        String id = normalize(model);
+        for (TranslatorType type : TranslatorType.values()) {
+            if (type.getId().equals(id)) {
+                return type.getDisplayName();
+            }
+        }
+        return model;
+    }
+
+    private static String normalize(String model) {
+        return model != null ? model.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String pairKey(String sourceLanguage, String targetLanguage) {
+        return (sourceLanguage != null && !sourceLanguage.isEmpty() ? sourceLanguage : "*")
+                + ">" + (targetLanguage != null && !targetLanguage.isEmpty() ? targetLanguage : "*");
+    }
+
+    private static String key(String model, String pair) {
+        return model + "|" + pair;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.appdev.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lays out chat bubble text off the main thread.
+ * While its list scrolls, the texts of the next few items in the scroll direction are
+ * measured in the background as PrecomputedTextCompat, keyed by item id, TextView and text
+ * hash. Adapters set bubble text through setText(), which applies a precomputed layout when
+ * one matches the view's text style, and falls back to a plain setText() otherwise.
+ * Layouts of items the user has scrolled away from are evicted.
+ * Main thread only, except the layout work itself.
+ */
+public final class TextLayoutPrefetcher {
+
+    // Items beyond the visible ones to lay out ahead in the scroll direction
+    private static final int PREFETCH_ITEMS = 6;
+    // Items beyond the visible ones whose layouts are kept
+    private static final int KEEP_ITEMS = 15;
+    private static final int MAX_LAYOUTS = 150;
+
+    private static final ExecutorService layoutExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Reports the texts the item at a position will show
+     */
+    public interface TextSource {
+        void collectTexts(int position, Texts out);
+    }
+
+    /**
+     * The texts of one item, each with the id of the TextView that shows it
+     */
+    public static final class Texts {
+        private final List<Integer> viewIds = new ArrayList<>();
+        private final List<String> itemIds = new ArrayList<>();
+        private final List<CharSequence> texts = new ArrayList<>();
+
+        public void add(int viewId, String itemId, CharSequence text) {
+            if (itemId != null && !TextUtils.isEmpty(text)) {
+                viewIds.add(viewId);
+                itemIds.add(itemId);
+                texts.add(text);
+            }
+        }
+
+        void clear() {
+            viewIds.clear();
+            itemIds.clear();
+            texts.clear();
+        }
+    }
+
+    private final RecyclerView.Adapter<?> adapter;
+    private final TextSource source;
+
+    // Text style of each kind of TextView seen so far, by view type and view id
+    private final Map<Long, PrecomputedTextCompat.Params> paramsByView = new HashMap<>();
+    private final LruCache<String, PrecomputedTextCompat> layouts = new LruCache<>(MAX_LAYOUTS);
+    private final Set<String> pending = new HashSet<>();
+    private final Texts scratch = new Texts();
+
+    private RecyclerView recyclerView;
+    private RecyclerView.OnScrollListener scrollListener;
+    private int lastFirstVisible = RecyclerView.NO_POSITION;
+    // Bumped on detach, so layouts finished for a previous list are dropped
+    private int generation = 0;
+
+    public TextLayoutPrefetcher(RecyclerView.Adapter<?> adapter, TextSource source) {
+        this.adapter = adapter;
+        this.source = source;
+    }
+
+    /**
+     * Start laying out ahead as the list scrolls. Call from onAttachedToRecyclerView().
+     */
+    public void attach(RecyclerView view) {
+        detach();
+        recyclerView = view;
+        scrollListener = new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                if (dy != 0) {
+                    prefetch(dy);
+                }
+            }
+        };
+        view.addOnScrollListener(scrollListener);
+    }
+
+    /**
+     * Stop and drop every layout. Call from onDetachedFromRecyclerView().
+     */
+    public void detach() {
+        if (recyclerView != null) {
+            recyclerView.removeOnScrollListener(scrollListener);
+            recyclerView = null;
+            scrollListener = null;
+        }
+        generation++;
+        layouts.evictAll();
+        pending.clear();
+        lastFirstVisible = RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Set a bubble's text, using the layout precomputed for it if it matches the view's style
+     * @param viewType The bound holder's view type
+     * @param itemId Id of the bound item, as reported by the TextSource
+     */
+    public void setText(TextView view, int viewType, String itemId, CharSequence text) {
+        if (itemId == null || TextUtils.isEmpty(text)) {
+            view.setText(text);
+            return;
+        }
+        PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(view);
+        paramsByView.put(viewKey(viewType, view.getId()), params);
+
+        PrecomputedTextCompat layout = layouts.get(layoutKey(viewType, view.getId(), itemId, text));
+        if (layout != null && layout.getParams().equals(params) && TextUtils.equals(layout, text)) {
+            TextViewCompat.setPrecomputedText(view, layout);
+        } else {
+            view.setText(text);
+        }
+    }
+
+    private void prefetch(int dy) {
+        if (recyclerView == null || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int count = adapter.getItemCount();
+        int from = dy > 0 ? last + 1 : first - PREFETCH_ITEMS;
+        int to = dy > 0 ? last + PREFETCH_ITEMS : first - 1;
+        for (int position = Math.max(0, from); position <= Math.min(count - 1, to); position++) {
+            int viewType = adapter.getItemViewType(position);
+            scratch.clear();
+            source.collectTexts(position, scratch);
+            for (int i = 0; i < scratch.texts.size(); i++) {
+                schedule(viewType, scratch.viewIds.get(i), scratch.itemIds.get(i), scratch.texts.get(i));
+            }
+        }
+
+        if (first != lastFirstVisible) {
+            lastFirstVisible = first;
+            evictOutside(Math.max(0, first - KEEP_ITEMS), Math.min(count - 1, last + KEEP_ITEMS));
+        }
+    }
+
+    private void schedule(int viewType, int viewId, String itemId, CharSequence text) {
+        PrecomputedTextCompat.Params params = paramsByView.get(viewKey(viewType, viewId));
+        if (params == null) {
+            return; // No TextView of this kind bound yet, so its style is unknown
+        }
+        String key = layoutKey(viewType, viewId, itemId, text);
+        if (layouts.get(key) != null || !pending.add(key)) {
+            return;
+        }
+        int layoutGeneration = generation;
+        String content = text.toString();
+        layoutExecutor.execute(() -> {
+            PrecomputedTextCompat layout = PrecomputedTextCompat.create(content, params);
+            mainHandler.post(() -> {
+                if (layoutGeneration != generation) {
+                    return;
+                }
+                pending.remove(key);
+                layouts.put(key, layout);
+            });
+        });
+    }
+
+    /**
+     * Drop the layouts of items outside [from, to]
+     */
+    private void evictOutside(int from, int to) {
+        Set<String> keep = new HashSet<>();
+        for (int position = from; position <= to; position++) {
+            scratch.clear();
+            source.collectTexts(position, scratch);
+            keep.addAll(scratch.itemIds);
+        }
+        for (String key : layouts.snapshot().keySet()) {
+            if (!keep.contains(key.substring(0, key.indexOf('|')))) {
+                layouts.remove(key);
+            }
+        }
+    }
+
+    private static long viewKey(int viewType, int viewId) {
+        return ((long) viewType << 32) | (viewId & 0xffffffffL);
+    }
+
+    private static String layoutKey(int viewType, int viewId, String itemId, CharSequence text) {
+        return itemId + '|' + viewType + '|' + viewId + '|' + text.toString().hashCode();
+    }
+}
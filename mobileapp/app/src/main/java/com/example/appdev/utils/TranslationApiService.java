@@ -1,7 +1,8 @@
 package com.example.appdev.utils;
 
 import android.content.Context;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.example.appdev.Variables;
@@ -9,13 +10,11 @@ import com.example.appdev.Variables;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for handling translation API requests to the backend server.
@@ -24,6 +23,12 @@ import java.nio.charset.StandardCharsets;
 public class TranslationApiService {
     
     private static final String TAG = "TranslationApiService";
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Requests currently being translated, keyed on their request parameters.
+    // Callers asking for an identical translation attach to the running request instead of issuing a new one.
+    private static final Map<String, InFlightRequest> inFlightRequests = new HashMap<>();
     
     /**
      * Interface for handling translation results
@@ -31,12 +36,83 @@ public class TranslationApiService {
     public interface TranslationCallback {
         void onSuccess(String translatedText);
         void onError(String errorMessage);
+
+        /**
+         * Called on the main thread with the text received so far while the backend streams
+         * its answer. onSuccess is still called with the complete translation.
+         */
+        default void onPartial(String partialText) {
+        }
+    }
+
+    /**
+     * Handle for a requested translation. Cancelling only detaches this caller;
+     * other callers waiting on the same translation still receive the result.
+     */
+    public static final class PendingTranslation {
+        private final TranslationCallback callback;
+        private volatile boolean cancelled = false;
+
+        PendingTranslation(TranslationCallback callback) {
+            this.callback = callback;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        void deliverPartial(String partialText) {
+            if (!cancelled) {
+                callback.onPartial(partialText);
+            }
+        }
+
+        void deliver(String result, String errorMessage) {
+            if (cancelled) {
+                return;
+            }
+            if (result != null) {
+                callback.onSuccess(result);
+            } else {
+                callback.onError(errorMessage != null ? errorMessage : "Unknown translation error");
+            }
+        }
+    }
+
+    /**
+     * A translation running on the backend and the callers waiting for it
+     */
+    private static final class InFlightRequest {
+        final String key;
+        final List<PendingTranslation> waiting = new ArrayList<>();
+
+        InFlightRequest(String key) {
+            this.key = key;
+        }
+
+        /**
+         * True once every caller has cancelled, so the request can be skipped if it has not started yet
+         */
+        boolean isAbandoned() {
+            synchronized (inFlightRequests) {
+                for (PendingTranslation pending : waiting) {
+                    if (!pending.isCancelled()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
     }
     
     /**
      * Translate text using the backend API
      */
-    public static void translateText(
+    public static PendingTranslation translateText(
             String text,
             String sourceLanguage,
             String targetLanguage,
@@ -45,15 +121,33 @@ public class TranslationApiService {
             String userId,
             TranslationCallback callback) {
         
-        new TranslationTask(callback).execute(
+        // Repeated translations are answered from the cache without touching the network
+        String cacheKey = TranslationCache.buildKey(text, sourceLanguage, targetLanguage, translationMode, model);
+        PendingTranslation pending = new PendingTranslation(callback);
+        String cached = TranslationCache.getFromMemory(cacheKey);
+        if (cached != null) {
+            mainHandler.post(() -> pending.deliver(cached, null));
+            return pending;
+        }
+
+        InFlightRequest request = attachOrCreate(cacheKey, pending);
+        if (request == null) {
+            // Joined an identical request that is already running
+            return pending;
+        }
+
+        // Simple translations have no ordering constraint, they run as soon as a worker is free
+        TranslationTask task = new TranslationTask(request, cacheKey,
             text, sourceLanguage, targetLanguage, translationMode, model, userId
         );
+        TranslationScheduler.submit(task, task::deliver);
+        return pending;
     }
     
     /**
      * Translate text using the backend API with context awareness
      */
-    public static void translateTextWithContext(
+    public static PendingTranslation translateTextWithContext(
             String text,
             String sourceLanguage,
             String targetLanguage,
@@ -65,25 +159,115 @@ public class TranslationApiService {
             String messageId,
             TranslationCallback callback) {
         
-        new ContextTranslationTask(callback).execute(
+        // The backend stores the translation on the message, so only a re-fire of the same
+        // message may join a running request; another message with the same text needs its own
+        String requestKey = "context:" + roomId + ":" + messageId + ":" + currentUserId + ":" + recipientId + ":"
+                + TranslationCache.buildKey(text, sourceLanguage, targetLanguage, translationMode, model);
+        PendingTranslation pending = new PendingTranslation(callback);
+        InFlightRequest request = attachOrCreate(requestKey, pending);
+        if (request == null) {
+            // Joined an identical request that is already running
+            return pending;
+        }
+
+        // Context translations for the same room run in order
+        ContextTranslationTask task = new ContextTranslationTask(request,
             text, sourceLanguage, targetLanguage, translationMode, model, currentUserId, recipientId, roomId, messageId
         );
+        TranslationScheduler.submit(roomId, task, task::deliver);
+        return pending;
+    }
+
+    /**
+     * Attach a caller to an identical in-flight request, or register a new one.
+     * @return The new request the caller must start, or null if it joined an existing one
+     */
+    private static InFlightRequest attachOrCreate(String key, PendingTranslation pending) {
+        synchronized (inFlightRequests) {
+            InFlightRequest existing = inFlightRequests.get(key);
+            if (existing != null) {
+                existing.waiting.add(pending);
+                Log.d(TAG, "Joined in-flight translation (" + existing.waiting.size() + " callers)");
+                return null;
+            }
+            InFlightRequest request = new InFlightRequest(key);
+            request.waiting.add(pending);
+            inFlightRequests.put(key, request);
+            return request;
+        }
+    }
+
+    /**
+     * Forward streamed text to every caller waiting on the request
+     */
+    private static void publishPartial(InFlightRequest request, String partialText) {
+        mainHandler.post(() -> {
+            List<PendingTranslation> waiting;
+            synchronized (inFlightRequests) {
+                waiting = new ArrayList<>(request.waiting);
+            }
+            for (PendingTranslation pending : waiting) {
+                pending.deliverPartial(partialText);
+            }
+        });
+    }
+
+    /**
+     * Remove a finished request from the registry and hand its result to every caller still waiting
+     */
+    private static void completeRequest(InFlightRequest request, String result, String errorMessage) {
+        List<PendingTranslation> waiting;
+        synchronized (inFlightRequests) {
+            inFlightRequests.remove(request.key);
+            waiting = new ArrayList<>(request.waiting);
+        }
+        for (PendingTranslation pending : waiting) {
+            pending.deliver(result, errorMessage);
+        }
     }
     
     /**
-     * AsyncTask to handle the API request in background thread
+     * Build an error message from a failed backend response
+     */
+    private static String parseError(TranslationHttpClient.DecodedResponse<?> response, String fallback) {
+        try {
+            JSONObject errorJson = new JSONObject(response.errorBody);
+            return errorJson.optString("error", fallback);
+        } catch (JSONException e) {
+            return "HTTP " + response.code + ": " + response.errorBody;
+        }
+    }
+
+    /**
+     * Job to handle the API request on a translation worker thread
      */
-    private static class TranslationTask extends AsyncTask<String, Void, String> {
+    private static class TranslationTask implements TranslationScheduler.BackgroundJob<String> {
         
-        private final TranslationCallback callback;
+        private final InFlightRequest request;
+        private final String cacheKey;
+        private final String[] params;
         private String errorMessage = null;
         
-        public TranslationTask(TranslationCallback callback) {
-            this.callback = callback;
+        public TranslationTask(InFlightRequest request, String cacheKey, String... params) {
+            this.request = request;
+            this.cacheKey = cacheKey;
+            this.params = params;
         }
         
         @Override
-        protected String doInBackground(String... params) {
+        public String run() {
+            // Every caller gave up before we started, skip the request entirely
+            if (request.isAbandoned()) {
+                errorMessage = "Translation cancelled";
+                return null;
+            }
+
+            // Check the disk tier before going to the network
+            String cached = TranslationCache.getFromDisk(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+
             String text = params[0];
             String sourceLanguage = params[1];
             String targetLanguage = params[2];
@@ -102,97 +286,28 @@ public class TranslationApiService {
                 requestBody.put("model", model);
                 requestBody.put("user_id", userId);
                 
-                // Make the HTTP request
-                URL url = new URL(Variables.API_TRANSLATE_SIMPLE_URL);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                
-                // Set request properties
-                connection.setRequestMethod("POST");
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setRequestProperty("Accept", "application/json");
-                connection.setDoOutput(true);
-                connection.setConnectTimeout(30000); // 30 seconds
-                connection.setReadTimeout(30000); // 30 seconds
-                
-                // Send the request body
-                try (OutputStream os = connection.getOutputStream()) {
-                    byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                    os.write(input, 0, input.length);
-                }
-                
-                // Get the response
-                int responseCode = connection.getResponseCode();
-                
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    // Read successful response
-                    try (BufferedReader br = new BufferedReader(
-                            new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-                        
-                        StringBuilder response = new StringBuilder();
-                        String responseLine;
-                        while ((responseLine = br.readLine()) != null) {
-                            response.append(responseLine.trim());
-                        }
-                        
-                        // Parse the response JSON
-                        String responseString = response.toString();
-                        Log.d(TAG, "Backend response: " + responseString);
-                        JSONObject responseJson = new JSONObject(responseString);
-                        
-                        if (responseJson.has("translations")) {
-                            JSONObject translations = responseJson.getJSONObject("translations");
-                            Log.d(TAG, "Translation keys: " + translations.keys().toString());
-                            
-                            // Try to get the main translation first
-                            if (translations.has("main_translation")) {
-                                String result = translations.getString("main_translation");
-                                Log.d(TAG, "Found main_translation: " + result);
-                                return result;
-                            } else if (translations.has("var1")) {
-                                String result = translations.getString("var1");
-                                Log.d(TAG, "Found var1: " + result);
-                                return result;
-                            } else if (translations.has("single")) {
-                                String result = translations.getString("single");
-                                Log.d(TAG, "Found single: " + result);
-                                return result;
-                            } else if (translations.has("translation")) {
-                                String result = translations.getString("translation");
-                                Log.d(TAG, "Found translation: " + result);
-                                return result;
-                            }
-                        }
-                        
-                        // Fallback: return the original text if no translation found
-                        errorMessage = "No translation found in response";
-                        return null;
+                // Make the HTTP request over the shared translation client, streaming tokens as they arrive
+                TranslationHttpClient.DecodedResponse<String> response = TranslationHttpClient.postJsonStreaming(
+                        Variables.API_TRANSLATE_SIMPLE_URL, requestBody, partial -> publishPartial(request, partial));
+
+                if (response.isSuccessful()) {
+                    String result = response.value;
+                    if (result != null) {
+                        Log.d(TAG, "Backend translation: " + result.length() + " chars");
+                        TranslationCache.put(cacheKey, result);
+                        return result;
                     }
+
+                    // Fallback: return the original text if no translation found
+                    errorMessage = "No translation found in response";
+                    return null;
                 } else {
-                    // Read error response
-                    try (BufferedReader br = new BufferedReader(
-                            new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8))) {
-                        
-                        StringBuilder errorResponse = new StringBuilder();
-                        String responseLine;
-                        while ((responseLine = br.readLine()) != null) {
-                            errorResponse.append(responseLine.trim());
-                        }
-                        
-                        try {
-                            JSONObject errorJson = new JSONObject(errorResponse.toString());
-                            errorMessage = errorJson.optString("error", "Translation failed");
-                        } catch (JSONException e) {
-                            errorMessage = "HTTP " + responseCode + ": " + errorResponse.toString();
-                        }
-                    }
+                    errorMessage = parseError(response, "Translation failed");
                 }
                 
             } catch (IOException e) {
                 Log.e(TAG, "Network error during translation", e);
                 errorMessage = "Network error: " + e.getMessage();
-            } catch (JSONException e) {
-                Log.e(TAG, "JSON parsing error", e);
-                errorMessage = "Response parsing error: " + e.getMessage();
             } catch (Exception e) {
                 Log.e(TAG, "Unexpected error during translation", e);
                 errorMessage = "Translation error: " + e.getMessage();
@@ -201,30 +316,33 @@ public class TranslationApiService {
             return null;
         }
         
-        @Override
-        protected void onPostExecute(String result) {
-            if (result != null) {
-                callback.onSuccess(result);
-            } else {
-                callback.onError(errorMessage != null ? errorMessage : "Unknown translation error");
-            }
+        void deliver(String result) {
+            completeRequest(request, result, errorMessage);
         }
     }
     
     /**
-     * AsyncTask to handle the Context API request in background thread
+     * Job to handle the Context API request on a translation worker thread
      */
-    private static class ContextTranslationTask extends AsyncTask<String, Void, String> {
+    private static class ContextTranslationTask implements TranslationScheduler.BackgroundJob<String> {
         
-        private final TranslationCallback callback;
+        private final InFlightRequest request;
+        private final String[] params;
         private String errorMessage = null;
         
-        public ContextTranslationTask(TranslationCallback callback) {
-            this.callback = callback;
+        public ContextTranslationTask(InFlightRequest request, String... params) {
+            this.request = request;
+            this.params = params;
         }
         
         @Override
-        protected String doInBackground(String... params) {
+        public String run() {
+            // Every caller gave up before we started, skip the request entirely
+            if (request.isAbandoned()) {
+                errorMessage = "Translation cancelled";
+                return null;
+            }
+
             String text = params[0];
             String sourceLanguage = params[1];
             String targetLanguage = params[2];
@@ -251,80 +369,21 @@ public class TranslationApiService {
                 requestBody.put("use_context", Variables.isContextAwareTranslation);
                 requestBody.put("context_depth", Variables.contextDepth);
                 
-                // Make the HTTP request
-                URL url = new URL(Variables.API_TRANSLATE_DB_CONTEXT_URL);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                
-                // Set request properties
-                connection.setRequestMethod("POST");
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setRequestProperty("Accept", "application/json");
-                connection.setDoOutput(true);
-                connection.setConnectTimeout(30000); // 30 seconds
-                connection.setReadTimeout(30000); // 30 seconds
-                
-                // Send the request body
-                try (OutputStream os = connection.getOutputStream()) {
-                    byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                    os.write(input, 0, input.length);
-                }
-                
-                // Get the response
-                int responseCode = connection.getResponseCode();
-                
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    // Read successful response
-                    try (BufferedReader br = new BufferedReader(
-                            new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-                        
-                        StringBuilder response = new StringBuilder();
-                        String responseLine;
-                        while ((responseLine = br.readLine()) != null) {
-                            response.append(responseLine.trim());
-                        }
-                        
-                        // Parse the response JSON
-                        String responseString = response.toString();
-                        Log.d(TAG, "Backend context response: " + responseString);
-                        JSONObject responseJson = new JSONObject(responseString);
-                        
-                        if (responseJson.has("translations")) {
-                            JSONObject translations = responseJson.getJSONObject("translations");
-                            Log.d(TAG, "Translation keys: " + translations.keys().toString());
-                            
-                            // Try to get the main translation first
-                            if (translations.has("main_translation")) {
-                                return translations.getString("main_translation");
-                            } else if (translations.has("var1")) {
-                                return translations.getString("var1");
-                            } else if (translations.has("single")) {
-                                return translations.getString("single");
-                            } else if (translations.has("translation")) {
-                                return translations.getString("translation");
-                            }
-                        }
-                        
-                        errorMessage = "No translation found in response";
-                        return null;
+                // Make the HTTP request over the shared translation client, streaming tokens as they arrive
+                TranslationHttpClient.DecodedResponse<String> response = TranslationHttpClient.postJsonStreaming(
+                        Variables.API_TRANSLATE_DB_CONTEXT_URL, requestBody, partial -> publishPartial(request, partial));
+
+                if (response.isSuccessful()) {
+                    String result = response.value;
+                    if (result != null) {
+                        Log.d(TAG, "Backend context translation: " + result.length() + " chars");
+                        return result;
                     }
+
+                    errorMessage = "No translation found in response";
+                    return null;
                 } else {
-                    // Read error response
-                    try (BufferedReader br = new BufferedReader(
-                            new InputStreamReader(connection.getErrorStream(), StandardCharsets.UTF_8))) {
-                        
-                        StringBuilder errorResponse = new StringBuilder();
-                        String responseLine;
-                        while ((responseLine = br.readLine()) != null) {
-                            errorResponse.append(responseLine.trim());
-                        }
-                        
-                        try {
-                            JSONObject errorJson = new JSONObject(errorResponse.toString());
-                            errorMessage = errorJson.optString("error", "Context translation failed");
-                        } catch (JSONException e) {
-                            errorMessage = "HTTP " + responseCode + ": " + errorResponse.toString();
-                        }
-                    }
+                    errorMessage = parseError(response, "Context translation failed");
                 }
                 
             } catch (Exception e) {
@@ -335,13 +394,8 @@ public class TranslationApiService {
             return null;
         }
         
-        @Override
-        protected void onPostExecute(String result) {
-            if (result != null) {
-                callback.onSuccess(result);
-            } else {
-                callback.onError(errorMessage != null ? errorMessage : "Unknown translation error");
-            }
+        void deliver(String result) {
+            completeRequest(request, result, errorMessage);
         }
     }
 }
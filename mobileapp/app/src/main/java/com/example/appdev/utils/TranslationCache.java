@@ -0,0 +1,237 @@
+package com.example.appdev.utils;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache for simple (non context-aware) translation results.
+ * A small in-memory LRU sits in front of a size-bounded directory in the app cache,
+ * keyed on text, source/target language, translation mode and model.
+ * Entries expire after a fixed TTL. Switching translators needs no clearing, since
+ * each model's results are cached under their own keys.
+ */
+public final class TranslationCache {
+
+    private static final String TAG = "TranslationCache";
+
+    private static final int MEMORY_MAX_ENTRIES = 200;
+    private static final long DISK_MAX_BYTES = 2 * 1024 * 1024; // 2 MB
+    private static final long TTL_MS = 7L * 24 * 60 * 60 * 1000; // 7 days
+    private static final String DISK_DIR_NAME = "translation_cache";
+
+    private static final LruCache<String, Entry> memoryCache = new LruCache<>(MEMORY_MAX_ENTRIES);
+
+    private static volatile File diskDir;
+    private static final Object diskLock = new Object();
+
+    // Metrics
+    private static final AtomicLong memoryHits = new AtomicLong();
+    private static final AtomicLong diskHits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private TranslationCache() {
+    }
+
+    private static final class Entry {
+        final String value;
+        final long createdAt;
+
+        Entry(String value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - createdAt > TTL_MS;
+        }
+    }
+
+    /**
+     * Enable the disk tier. Safe to call more than once.
+     */
+    public static void init(Context context) {
+        if (diskDir != null) {
+            return;
+        }
+        File dir = new File(context.getApplicationContext().getCacheDir(), DISK_DIR_NAME);
+        if (dir.exists() || dir.mkdirs()) {
+            diskDir = dir;
+        } else {
+            Log.w(TAG, "Could not create disk cache directory, using memory cache only");
+        }
+    }
+
+    /**
+     * Build the cache key for a translation request
+     */
+    public static String buildKey(String text, String sourceLanguage, String targetLanguage,
+                                  String translationMode, String model) {
+        String raw = text + '\u0000' + sourceLanguage + '\u0000' + targetLanguage
+                + '\u0000' + translationMode + '\u0000' + model;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(raw.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always available on Android, fall back to a weaker key just in case
+            return Integer.toHexString(raw.hashCode()) + "_" + raw.length();
+        }
+    }
+
+    /**
+     * Look up a translation in memory only. Cheap enough for the main thread.
+     */
+    public static String getFromMemory(String key) {
+        Entry entry = memoryCache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            memoryCache.remove(key);
+            return null;
+        }
+        memoryHits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Look up a translation on disk, promoting hits to memory. Call from a background thread.
+     */
+    public static String getFromDisk(String key) {
+        File dir = diskDir;
+        if (dir == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        File file = new File(dir, key);
+        synchronized (diskLock) {
+            if (!file.exists()) {
+                misses.incrementAndGet();
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                long createdAt = in.readLong();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                Entry entry = new Entry(new String(bytes, StandardCharsets.UTF_8), createdAt);
+
+                if (entry.isExpired()) {
+                    file.delete();
+                    misses.incrementAndGet();
+                    return null;
+                }
+
+                // Touch the file so eviction keeps recently used entries
+                file.setLastModified(System.currentTimeMillis());
+                memoryCache.put(key, entry);
+                diskHits.incrementAndGet();
+                return entry.value;
+            } catch (IOException e) {
+                Log.w(TAG, "Dropping unreadable cache entry " + key, e);
+                file.delete();
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Store a translation in both tiers. Call from a background thread.
+     */
+    public static void put(String key, String value) {
+        Entry entry = new Entry(value, System.currentTimeMillis());
+        memoryCache.put(key, entry);
+
+        File dir = diskDir;
+        if (dir == null) {
+            return;
+        }
+
+        synchronized (diskLock) {
+            File file = new File(dir, key);
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeLong(entry.createdAt);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write cache entry " + key, e);
+                file.delete();
+                return;
+            }
+            trimDisk(dir);
+        }
+    }
+
+    /**
+     * Remove the least recently used files until the disk tier is under its size limit
+     */
+    private static void trimDisk(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+        if (totalBytes <= DISK_MAX_BYTES) {
+            return;
+        }
+
+        // Oldest first, trim to 75% so we are not evicting on every write
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        long target = DISK_MAX_BYTES * 3 / 4;
+        for (File file : files) {
+            if (totalBytes <= target) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    public static long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public static long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Summary of cache effectiveness for logging and development builds
+     */
+    public static String getStats() {
+        return "memoryHits=" + memoryHits.get()
+                + ", diskHits=" + diskHits.get()
+                + ", misses=" + misses.get()
+                + ", memoryEntries=" + memoryCache.size();
+    }
+}
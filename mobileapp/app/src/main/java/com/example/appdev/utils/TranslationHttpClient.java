@@ -0,0 +1,522 @@
+package com.example.appdev.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.appdev.Variables;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Shared HTTP transport for every call to the translation backend.
+ * All translation requests go through a single OkHttpClient so they reuse
+ * warm connections (keep-alive, HTTP/2 multiplexing and transparent gzip)
+ * instead of paying a new TCP+TLS handshake per message.
+ * Requests are routed by EndpointSelector and their timeouts sized by LatencyTracker.
+ */
+public final class TranslationHttpClient {
+
+    private static final String TAG = "TranslationHttpClient";
+
+    public static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    // Timeout used until LatencyTracker has enough history for an endpoint
+    public static final int DEFAULT_TIMEOUT_MS = 30000; // 30 seconds
+
+    // Connection pool tuning - translation bursts rarely need more than a handful of sockets
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static volatile OkHttpClient client;
+
+    private TranslationHttpClient() {
+    }
+
+    /**
+     * Result of a translation API call
+     */
+    public static final class ApiResponse {
+        public final int code;
+        public final String body;
+
+        ApiResponse(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+    }
+
+    /**
+     * Result of a translation API call whose body was decoded while it streamed in.
+     * On failure the raw body is kept instead so callers can report the server's error.
+     */
+    public static final class DecodedResponse<T> {
+        public final int code;
+        public final T value;
+        public final String errorBody;
+
+        DecodedResponse(int code, T value, String errorBody) {
+            this.code = code;
+            this.value = value;
+            this.errorBody = errorBody;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+    }
+
+    /**
+     * Decodes a successful response body directly from the socket stream
+     */
+    public interface JsonDecoder<T> {
+        T decode(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Receives translated text as it streams in from the backend
+     */
+    public interface StreamListener {
+        /**
+         * Called on the calling (worker) thread with all text received so far
+         */
+        void onPartial(String textSoFar);
+    }
+
+    /**
+     * Get the shared client, creating it on first use
+     */
+    public static OkHttpClient getClient() {
+        OkHttpClient result = client;
+        if (result == null) {
+            synchronized (TranslationHttpClient.class) {
+                result = client;
+                if (result == null) {
+                    result = new OkHttpClient.Builder()
+                            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                            .connectTimeout(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                            .readTimeout(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                            .writeTimeout(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                            .retryOnConnectionFailure(true)
+                            .build();
+                    client = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * POST a JSON body. The timeout is sized from the latency history of the URL and
+     * model (see LatencyTracker). Must be called off the main thread.
+     */
+    public static ApiResponse postJson(String url, JSONObject requestBody) throws IOException {
+        RequestBody body = RequestBody.create(requestBody.toString(), JSON);
+        return executeWithFailover(url, RequestTags.of(requestBody), false,
+                endpointUrl -> new Request.Builder()
+                        .url(endpointUrl)
+                        .header("Accept", "application/json")
+                        .post(body)
+                        .build(),
+                (endpointUrl, response) -> {
+                    ResponseBody responseBody = response.body();
+                    String bodyString = responseBody != null ? responseBody.string() : "";
+                    Log.d(TAG, "POST " + endpointUrl + " -> " + response.code() + " (" + response.protocol() + ")");
+                    return new ApiResponse(response.code(), bodyString);
+                });
+    }
+
+    /**
+     * POST a JSON body and decode a successful response straight from the response stream
+     * instead of buffering it into a String. Must be called off the main thread.
+     */
+    public static <T> DecodedResponse<T> postJsonDecoded(String url, JSONObject requestBody, JsonDecoder<T> decoder)
+            throws IOException {
+        RequestBody body = RequestBody.create(requestBody.toString(), JSON);
+        return executeWithFailover(url, RequestTags.of(requestBody), false,
+                endpointUrl -> new Request.Builder()
+                        .url(endpointUrl)
+                        .header("Accept", "application/json")
+                        .post(body)
+                        .build(),
+                (endpointUrl, response) -> {
+                    Log.d(TAG, "POST " + endpointUrl + " -> " + response.code() + " (" + response.protocol() + ")");
+                    return decodeBody(response, decoder);
+                });
+    }
+
+    /**
+     * POST a JSON body asking the backend to stream the translation as server-sent events.
+     * Each event is a JSON object: {"delta": "..."} carries the next piece of text, and an
+     * object with a "translations" key is the final response. A "[DONE]" payload ends the stream.
+     * Backends that do not stream answer with plain JSON, which is returned unchanged.
+     * Either way the value of a successful response is the preferred translation.
+     * These are the live translation calls, so they are hedged when hedging is enabled.
+     * Must be called off the main thread.
+     */
+    public static DecodedResponse<String> postJsonStreaming(String url, JSONObject requestBody,
+                                                           StreamListener listener) throws IOException {
+        JSONObject streamingBody;
+        try {
+            streamingBody = new JSONObject(requestBody.toString());
+            streamingBody.put("stream", true);
+        } catch (JSONException e) {
+            throw new IOException("Could not build streaming request", e);
+        }
+
+        RequestBody streamingRequestBody = RequestBody.create(streamingBody.toString(), JSON);
+        return executeWithFailover(url, RequestTags.of(requestBody), Variables.isRequestHedgingEnabled,
+                endpointUrl -> new Request.Builder()
+                        .url(endpointUrl)
+                        .header("Accept", "text/event-stream, application/json")
+                        .post(streamingRequestBody)
+                        .build(),
+                (endpointUrl, response) -> {
+                    ResponseBody body = response.body();
+                    MediaType contentType = body != null ? body.contentType() : null;
+                    boolean isEventStream = contentType != null
+                            && "text".equals(contentType.type())
+                            && "event-stream".equals(contentType.subtype());
+                    if (!response.isSuccessful() || !isEventStream) {
+                        // Non-streaming backend or error, behave like postJsonDecoded
+                        return decodeBody(response, TranslationResponseReader::readPreferredTranslation);
+                    }
+
+                    Log.d(TAG, "Streaming POST " + endpointUrl + " (" + response.protocol() + ")");
+                    return new DecodedResponse<>(response.code(), readEventStream(body.source(), listener), null);
+                });
+    }
+
+    /**
+     * Run a request against the preferred backend endpoint.
+     * If the endpoint cannot be reached and the selector now prefers another one,
+     * the request is retried once there.
+     */
+    private static <T> T executeWithFailover(String url, RequestTags tags, boolean hedge,
+                                             RequestFactory requestFactory,
+                                             ResponseHandler<T> responseHandler) throws IOException {
+        String endpointUrl = EndpointSelector.resolve(url);
+        try {
+            long hedgeDelayMs = hedge ? LatencyTracker.getHedgeDelayMs(endpointUrl, tags.model) : -1;
+            if (hedgeDelayMs > 0) {
+                return executeHedged(url, endpointUrl, tags, hedgeDelayMs, requestFactory, responseHandler);
+            }
+            return execute(endpointUrl, tags, requestFactory, responseHandler);
+        } catch (IOException e) {
+            String fallbackUrl = EndpointSelector.resolve(url);
+            if (fallbackUrl.equals(endpointUrl)) {
+                throw e;
+            }
+            Log.w(TAG, "Failing over from " + endpointUrl + " to " + fallbackUrl, e);
+            return execute(fallbackUrl, tags, requestFactory, responseHandler);
+        }
+    }
+
+    private static <T> T execute(String endpointUrl, RequestTags tags,
+                                 RequestFactory requestFactory,
+                                 ResponseHandler<T> responseHandler) throws IOException {
+        OkHttpClient httpClient = clientWithTimeout(LatencyTracker.getTimeoutMs(endpointUrl, tags.model));
+        long start = SystemClock.elapsedRealtime();
+        Response response;
+        try {
+            response = httpClient.newCall(requestFactory.create(endpointUrl)).execute();
+        } catch (IOException e) {
+            recordFailure(endpointUrl, tags, SystemClock.elapsedRealtime() - start, e);
+            throw e;
+        }
+
+        try (Response r = response) {
+            recordResponse(endpointUrl, tags, r.code(), SystemClock.elapsedRealtime() - start);
+            return responseHandler.handle(endpointUrl, r);
+        }
+    }
+
+    /**
+     * Send the request, and if no response has arrived by the hedge delay (the URL's p95)
+     * send a duplicate, preferably to another endpoint. Whichever answers first is used
+     * and the other call is cancelled.
+     */
+    private static <T> T executeHedged(String url, String endpointUrl, RequestTags tags, long hedgeDelayMs,
+                                       RequestFactory requestFactory,
+                                       ResponseHandler<T> responseHandler) throws IOException {
+        HedgedCall<T> hedgedCall = new HedgedCall<>(tags, responseHandler);
+        hedgedCall.start(endpointUrl, requestFactory);
+        try {
+            if (!hedgedCall.await(hedgeDelayMs)) {
+                String hedgeUrl = EndpointSelector.resolveAlternative(url, endpointUrl);
+                Log.d(TAG, "No response from " + endpointUrl + " after " + hedgeDelayMs
+                        + "ms, hedging to " + hedgeUrl);
+                hedgedCall.start(hedgeUrl, requestFactory);
+                hedgedCall.await();
+            }
+        } catch (InterruptedException e) {
+            hedgedCall.cancelAll();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for translation");
+        }
+        return hedgedCall.getResult();
+    }
+
+    /**
+     * One or two copies of the same request racing each other
+     */
+    private static final class HedgedCall<T> {
+        private final RequestTags tags;
+        private final ResponseHandler<T> responseHandler;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final List<Call> calls = new ArrayList<>();
+        private boolean claimed = false;
+        private int failures = 0;
+        private T result;
+        private IOException error;
+        private boolean completed = false;
+
+        HedgedCall(RequestTags tags, ResponseHandler<T> responseHandler) {
+            this.tags = tags;
+            this.responseHandler = responseHandler;
+        }
+
+        void start(String endpointUrl, RequestFactory requestFactory) {
+            OkHttpClient httpClient = clientWithTimeout(LatencyTracker.getTimeoutMs(endpointUrl, tags.model));
+            Call call = httpClient.newCall(requestFactory.create(endpointUrl));
+            synchronized (this) {
+                if (claimed || finished.getCount() == 0) {
+                    return; // Already settled, no point sending another copy
+                }
+                calls.add(call);
+            }
+
+            long start = SystemClock.elapsedRealtime();
+            call.enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (Response r = response) {
+                        recordResponse(endpointUrl, tags, r.code(), SystemClock.elapsedRealtime() - start);
+                        synchronized (HedgedCall.this) {
+                            if (claimed) {
+                                return; // The other copy won
+                            }
+                            claimed = true;
+                        }
+                        cancelOthers(call);
+                        try {
+                            result = responseHandler.handle(endpointUrl, r);
+                            completed = true;
+                        } catch (IOException e) {
+                            error = e;
+                        }
+                    }
+                    finished.countDown();
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    if (call.isCanceled()) {
+                        return; // Lost the race, not the endpoint's fault
+                    }
+                    recordFailure(endpointUrl, tags, SystemClock.elapsedRealtime() - start, e);
+                    synchronized (HedgedCall.this) {
+                        failures++;
+                        if (claimed || failures < calls.size()) {
+                            return; // Another copy may still answer
+                        }
+                        error = e;
+                    }
+                    finished.countDown();
+                }
+            });
+        }
+
+        boolean await(long timeoutMs) throws InterruptedException {
+            return finished.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        void await() throws InterruptedException {
+            finished.await();
+        }
+
+        void cancelAll() {
+            cancelOthers(null);
+        }
+
+        private void cancelOthers(Call winner) {
+            List<Call> toCancel;
+            synchronized (this) {
+                toCancel = new ArrayList<>(calls);
+            }
+            for (Call call : toCancel) {
+                if (call != winner) {
+                    call.cancel();
+                }
+            }
+        }
+
+        T getResult() throws IOException {
+            if (completed) {
+                return result;
+            }
+            throw error != null ? error : new IOException("Translation request failed");
+        }
+    }
+
+    /**
+     * Decode a successful body from its character stream, or keep the raw body of a failure
+     */
+    private static <T> DecodedResponse<T> decodeBody(Response response, JsonDecoder<T> decoder) throws IOException {
+        ResponseBody body = response.body();
+        if (!response.isSuccessful()) {
+            return new DecodedResponse<>(response.code(), null, body != null ? body.string() : "");
+        }
+        if (body == null) {
+            return new DecodedResponse<>(response.code(), null, null);
+        }
+        try (JsonReader reader = new JsonReader(body.charStream())) {
+            return new DecodedResponse<>(response.code(), decoder.decode(reader), null);
+        }
+    }
+
+    /**
+     * The shared client, or a copy of it with different connect/read timeouts
+     */
+    private static OkHttpClient clientWithTimeout(int timeoutMs) {
+        OkHttpClient httpClient = getClient();
+        if (timeoutMs == DEFAULT_TIMEOUT_MS) {
+            return httpClient;
+        }
+        // newBuilder() shares the connection pool and dispatcher with the base client
+        return httpClient.newBuilder()
+                .connectTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Feed a response into endpoint health, latency history and the model router.
+     * Latency is time to response headers, so long streamed answers do not count against the endpoint.
+     */
+    private static void recordResponse(String endpointUrl, RequestTags tags, int code, long latencyMs) {
+        boolean serverError = code >= 500;
+        if (serverError) {
+            EndpointSelector.recordFailure(endpointUrl);
+        } else {
+            EndpointSelector.recordSuccess(endpointUrl, latencyMs);
+            LatencyTracker.record(endpointUrl, tags.model, latencyMs);
+        }
+        ModelRouter.recordResult(tags.model, tags.sourceLanguage, tags.targetLanguage, serverError, latencyMs);
+    }
+
+    private static void recordFailure(String endpointUrl, RequestTags tags, long elapsedMs, IOException e) {
+        EndpointSelector.recordFailure(endpointUrl);
+        if (e instanceof InterruptedIOException) {
+            // A timeout means the request took at least this long, keep it so the timeout grows
+            LatencyTracker.record(endpointUrl, tags.model, elapsedMs);
+        }
+        ModelRouter.recordResult(tags.model, tags.sourceLanguage, tags.targetLanguage, true, elapsedMs);
+    }
+
+    /**
+     * Model and language pair named in a request body, used to keep latency and
+     * failure history per model
+     */
+    private static final class RequestTags {
+        final String model;
+        final String sourceLanguage;
+        final String targetLanguage;
+
+        private RequestTags(String model, String sourceLanguage, String targetLanguage) {
+            this.model = model;
+            this.sourceLanguage = sourceLanguage;
+            this.targetLanguage = targetLanguage;
+        }
+
+        static RequestTags of(JSONObject requestBody) {
+            String model = requestBody.optString("model", requestBody.optString("translator", ""));
+            return new RequestTags(model.toLowerCase(Locale.ROOT),
+                    requestBody.optString("source_language", null),
+                    requestBody.optString("target_language", null));
+        }
+    }
+
+    private interface RequestFactory {
+        Request create(String endpointUrl);
+    }
+
+    private interface ResponseHandler<T> {
+        T handle(String endpointUrl, Response response) throws IOException;
+    }
+
+    /**
+     * Read server-sent events until the stream ends and return the final translation.
+     * Events are decoded with JsonReader as they arrive; the final event's translation
+     * wins, otherwise the accumulated deltas are the translation.
+     */
+    private static String readEventStream(BufferedSource source, StreamListener listener) throws IOException {
+        StringBuilder translated = new StringBuilder();
+        String finalTranslation = null;
+
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (!line.startsWith("data:")) {
+                continue; // Ignore comments, event names and blank separators
+            }
+            String data = line.substring(5).trim();
+            if (data.isEmpty()) {
+                continue;
+            }
+            if ("[DONE]".equals(data)) {
+                break;
+            }
+
+            try (JsonReader reader = new JsonReader(new StringReader(data))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if ("translations".equals(name)) {
+                        finalTranslation = TranslationResponseReader.readPreferredFromTranslations(reader);
+                        break; // Nothing after the final translation is needed
+                    } else if ("delta".equals(name) && reader.peek() == JsonToken.STRING) {
+                        translated.append(reader.nextString());
+                        if (listener != null) {
+                            listener.onPartial(translated.toString());
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                Log.w(TAG, "Skipping malformed stream event: " + data);
+            }
+        }
+
+        return finalTranslation != null ? finalTranslation : translated.toString();
+    }
+}
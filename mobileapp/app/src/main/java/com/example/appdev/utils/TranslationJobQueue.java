@@ -0,0 +1,500 @@
+package com.example.appdev.utils;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.appdev.Variables;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Durable queue for the translate-and-write-to-Firebase calls made when a chat message is sent.
+ * Each job is stored as a small JSON file before it is attempted, so a translation survives
+ * a failed request, a dead network or the app being killed. Failed attempts are retried with
+ * exponential backoff, capped at a few minutes, for as long as it takes to deliver them, and
+ * everything waiting is replayed together when connectivity returns. Only a job the backend
+ * rejects outright applies its failure updates (e.g. clearing translationState) so the message
+ * is not left marked as translating.
+ * A job can also name chat summaries (user_chats) that should show the translation as a
+ * preview once it arrives.
+ * Jobs of one lane (chat room) are sent one at a time in the order they were queued, so a
+ * job waiting out its backoff also holds back the room's later jobs.
+ */
+public final class TranslationJobQueue {
+
+    private static final String TAG = "TranslationJobQueue";
+
+    private static final String DIR_NAME = "translation_jobs";
+
+    // Lane used for reading and writing job files, kept apart from the chat lanes
+    private static final String STORE_LANE = "translation-job-store";
+
+    private static final long BASE_BACKOFF_MS = 2000; // 2 seconds
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000; // 5 minutes
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Random random = new Random();
+
+    // Known jobs by id, in the order they were queued. Only touched on the main thread.
+    private static final Map<String, Job> jobs = new LinkedHashMap<>();
+
+    private static File jobDir;
+    private static ConnectivityManager connectivityManager;
+    private static final Runnable drainRunnable = TranslationJobQueue::drain;
+
+    private TranslationJobQueue() {
+    }
+
+    /**
+     * A translation request waiting to be sent
+     */
+    private static final class Job {
+        final String id;
+        final String laneKey;
+        final String path;
+        final JSONObject requestBody;
+        final JSONObject failureUpdates;
+        final JSONArray previewPaths;
+        final String previewLanguage;
+        final long createdAt;
+        int attempts = 0;
+        long nextAttemptAt = 0;
+        boolean running = false;
+        // Set until the first save has finished; the job is not sent before then
+        boolean saving = false;
+        // Whether the job's file is on disk, so it survives a restart
+        boolean persisted = false;
+
+        Job(String id, String laneKey, String path, JSONObject requestBody,
+            JSONObject failureUpdates, JSONArray previewPaths, String previewLanguage, long createdAt) {
+            this.id = id;
+            this.laneKey = laneKey;
+            this.path = path;
+            this.requestBody = requestBody;
+            this.failureUpdates = failureUpdates;
+            this.previewPaths = previewPaths;
+            this.previewLanguage = previewLanguage;
+            this.createdAt = createdAt;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("id", id);
+            json.put("laneKey", laneKey);
+            json.put("path", path);
+            json.put("requestBody", requestBody);
+            json.put("failureUpdates", failureUpdates);
+            json.put("previewPaths", previewPaths);
+            if (previewLanguage != null) {
+                json.put("previewLanguage", previewLanguage);
+            }
+            json.put("createdAt", createdAt);
+            json.put("attempts", attempts);
+            json.put("nextAttemptAt", nextAttemptAt);
+            return json;
+        }
+
+        static Job fromJson(JSONObject json) throws JSONException {
+            // Jobs saved before previews existed have no preview fields
+            JSONArray previewPaths = json.optJSONArray("previewPaths");
+            Job job = new Job(
+                    json.getString("id"),
+                    json.getString("laneKey"),
+                    json.getString("path"),
+                    json.getJSONObject("requestBody"),
+                    json.getJSONObject("failureUpdates"),
+                    previewPaths != null ? previewPaths : new JSONArray(),
+                    json.has("previewLanguage") ? json.getString("previewLanguage") : null,
+                    json.getLong("createdAt"));
+            job.attempts = json.optInt("attempts", 0);
+            job.nextAttemptAt = json.optLong("nextAttemptAt", 0);
+            job.persisted = true;
+            return job;
+        }
+    }
+
+    /**
+     * Outcome of one attempt at a job
+     */
+    private enum Result {
+        SUCCESS,
+        RETRY,
+        GIVE_UP
+    }
+
+    /**
+     * Result of one attempt and, on success, the response body for the preview
+     */
+    private static final class Attempt {
+        final Result result;
+        final String body;
+
+        Attempt(Result result, String body) {
+            this.result = result;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Load jobs left over from a previous run and start watching connectivity. Safe to call more than once.
+     */
+    public static void init(Context context) {
+        if (jobDir != null) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        File dir = new File(appContext.getFilesDir(), DIR_NAME);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create job directory, translations will not survive a restart");
+        }
+        jobDir = dir;
+
+        connectivityManager = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    // Replay everything that was waiting for the network
+                    mainHandler.post(TranslationJobQueue::replayAll);
+                }
+            });
+        }
+
+        TranslationScheduler.submit(STORE_LANE, () -> loadJobs(dir), loaded -> {
+            if (loaded == null) {
+                return;
+            }
+            for (Job job : loaded) {
+                if (!jobs.containsKey(job.id)) {
+                    jobs.put(job.id, job);
+                }
+            }
+            if (!loaded.isEmpty()) {
+                Log.d(TAG, "Restored " + loaded.size() + " pending translation job(s)");
+            }
+            drain();
+        });
+    }
+
+    /**
+     * Queue a translation request. Call from the main thread.
+     * @param laneKey Room, group or session id, so jobs for one chat are sent in order
+     * @param path Endpoint path relative to the API base URL, e.g. "translate-db/"
+     * @param requestBody Request to POST
+     * @param failureUpdates Firebase paths (relative to the database root) and values written if the
+     *                       job is abandoned; a JSONObject.NULL value deletes the path
+     */
+    public static void enqueue(Context context, String laneKey, String path, JSONObject requestBody,
+                               JSONObject failureUpdates) {
+        enqueue(context, laneKey, path, requestBody, failureUpdates, new JSONArray(), null);
+    }
+
+    /**
+     * Queue a translation request whose result should also be previewed in the chat list.
+     * @param previewPaths user_chats summary paths that get the translation once the request succeeds
+     * @param previewLanguage Language of a single-target request; null when the response's
+     *                        translations are already keyed by language (group fan-out)
+     */
+    public static void enqueue(Context context, String laneKey, String path, JSONObject requestBody,
+                               JSONObject failureUpdates, JSONArray previewPaths, String previewLanguage) {
+        init(context);
+
+        Job job = new Job(UUID.randomUUID().toString(), laneKey, path, requestBody, failureUpdates,
+                previewPaths, previewLanguage, System.currentTimeMillis());
+        job.saving = true;
+        jobs.put(job.id, job);
+
+        // Persist first so the job outlives the process, then try to send it
+        TranslationScheduler.submit(STORE_LANE, () -> saveJob(job), saved -> {
+            job.saving = false;
+            job.persisted = Boolean.TRUE.equals(saved);
+            if (!job.persisted) {
+                Log.w(TAG, "Sending job " + job.id + " unsaved, it will not survive a restart");
+            }
+            drain();
+        });
+    }
+
+    /**
+     * Number of jobs waiting to be sent or retried
+     */
+    public static int getPendingCount() {
+        return jobs.size();
+    }
+
+    /**
+     * Start every job whose backoff has elapsed, then wake up again when the next one is due
+     */
+    private static void drain() {
+        mainHandler.removeCallbacks(drainRunnable);
+        if (jobs.isEmpty()) {
+            return;
+        }
+        if (!isNetworkAvailable()) {
+            Log.d(TAG, "Offline, holding " + jobs.size() + " translation job(s)");
+            return; // The network callback replays everything once we are back online
+        }
+
+        long now = System.currentTimeMillis();
+        long nextDue = Long.MAX_VALUE;
+        // Lanes whose oldest job is running or waiting; their later jobs must not overtake it
+        Set<String> busyLanes = new HashSet<>();
+        for (Job job : inQueueOrder()) {
+            if (job.laneKey != null && !busyLanes.add(job.laneKey)) {
+                continue;
+            }
+            if (job.running || job.saving) {
+                continue;
+            }
+            if (job.nextAttemptAt <= now) {
+                start(job);
+            } else {
+                nextDue = Math.min(nextDue, job.nextAttemptAt);
+            }
+        }
+
+        if (nextDue != Long.MAX_VALUE) {
+            mainHandler.postDelayed(drainRunnable, nextDue - now);
+        }
+    }
+
+    // Jobs restored from disk are added after ones queued since launch, so order by creation time
+    private static List<Job> inQueueOrder() {
+        List<Job> ordered = new ArrayList<>(jobs.values());
+        ordered.sort((a, b) -> Long.compare(a.createdAt, b.createdAt));
+        return ordered;
+    }
+
+    /**
+     * Connectivity came back: skip any remaining backoff and send every waiting job
+     */
+    private static void replayAll() {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        Log.d(TAG, "Network available, replaying " + jobs.size() + " translation job(s)");
+        for (Job job : jobs.values()) {
+            if (!job.running) {
+                job.nextAttemptAt = 0;
+            }
+        }
+        drain();
+    }
+
+    private static void start(Job job) {
+        job.running = true;
+        job.attempts++;
+        String url = Variables.API_BASE_URL + job.path;
+        TranslationScheduler.submit(job.laneKey, () -> send(url, job.requestBody),
+                attempt -> onAttemptFinished(job, attempt));
+    }
+
+    /**
+     * Send one attempt. Runs on a translation worker thread.
+     */
+    private static Attempt send(String url, JSONObject requestBody) {
+        try {
+            TranslationHttpClient.ApiResponse response = TranslationHttpClient.postJson(url, requestBody);
+            if (response.isSuccessful()) {
+                return new Attempt(Result.SUCCESS, response.body);
+            }
+            // Server errors, timeouts and rate limits are worth retrying; other client errors are not
+            if (response.code >= 500 || response.code == 408 || response.code == 429) {
+                Log.w(TAG, "Translation request failed with HTTP " + response.code + ", will retry");
+                return new Attempt(Result.RETRY, null);
+            }
+            Log.e(TAG, "Translation request rejected with HTTP " + response.code + ": " + response.body);
+            return new Attempt(Result.GIVE_UP, null);
+        } catch (IOException e) {
+            Log.w(TAG, "Network error sending translation, will retry: " + e.getMessage());
+            return new Attempt(Result.RETRY, null);
+        } catch (RuntimeException e) {
+            // A bad endpoint URL or request body fails the same way on every attempt
+            Log.e(TAG, "Translation request could not be sent: " + e.getMessage(), e);
+            return new Attempt(Result.GIVE_UP, null);
+        }
+    }
+
+    private static void onAttemptFinished(Job job, Attempt attempt) {
+        job.running = false;
+        // A null attempt means the send itself threw
+        Result result = attempt != null ? attempt.result : Result.GIVE_UP;
+
+        if (result == Result.RETRY) {
+            // Shift at most 20 times so long outages cannot overflow the backoff
+            long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(job.attempts - 1, 20));
+            // +/- 20% jitter so a room's jobs do not all retry in lockstep
+            backoff += (long) (backoff * 0.4 * (random.nextDouble() - 0.5));
+            job.nextAttemptAt = System.currentTimeMillis() + backoff;
+            Log.d(TAG, "Retrying job " + job.id + " in " + backoff + "ms (attempt " + job.attempts + ")");
+            TranslationScheduler.submit(STORE_LANE, () -> saveJob(job), saved -> {
+                job.persisted = job.persisted || Boolean.TRUE.equals(saved);
+                drain();
+            });
+            return;
+        }
+
+        if (result != Result.SUCCESS) {
+            Log.e(TAG, "Giving up on translation job " + job.id + " after " + job.attempts + " attempt(s)");
+            applyFailureUpdates(job.failureUpdates);
+        } else if (job.previewPaths.length() > 0) {
+            applyPreview(job, attempt.body);
+        }
+        jobs.remove(job.id);
+        TranslationScheduler.submit(STORE_LANE, () -> deleteJob(job), null);
+        // The lane's next job can go now
+        drain();
+    }
+
+    /**
+     * Write the job's failure updates to Firebase in one multi-path update
+     */
+    private static void applyFailureUpdates(JSONObject failureUpdates) {
+        Map<String, Object> updates = new HashMap<>();
+        Iterator<String> keys = failureUpdates.keys();
+        while (keys.hasNext()) {
+            String path = keys.next();
+            updates.put(path, failureUpdates.isNull(path) ? null : failureUpdates.opt(path));
+        }
+        if (!updates.isEmpty()) {
+            FirebaseDatabase.getInstance().getReference().updateChildren(updates);
+        }
+    }
+
+    /**
+     * Copy the translation from a successful response into the job's chat summaries.
+     * translationsFor records which message the preview belongs to, so a late response
+     * for an older message is ignored once a newer one has been sent.
+     */
+    private static void applyPreview(Job job, String body) {
+        Map<String, String> translations;
+        try {
+            if (job.previewLanguage != null) {
+                translations = new HashMap<>();
+                String translation = TranslationResponseReader.readPreferredTranslation(
+                        new JsonReader(new StringReader(body != null ? body : "")));
+                if (translation != null) {
+                    translations.put(job.previewLanguage, translation);
+                }
+            } else {
+                translations = TranslationResponseReader.readAllTranslations(
+                        new JsonReader(new StringReader(body != null ? body : "")));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read translation preview for job " + job.id + ": " + e.getMessage());
+            return;
+        }
+        String messageId = job.requestBody.optString("message_id", null);
+        if (translations.isEmpty() || messageId == null) {
+            return;
+        }
+
+        Map<String, Object> updates = new HashMap<>();
+        for (int i = 0; i < job.previewPaths.length(); i++) {
+            String summaryPath = job.previewPaths.optString(i, null);
+            if (summaryPath == null) {
+                continue;
+            }
+            updates.put(summaryPath + "/translations", translations);
+            updates.put(summaryPath + "/translationsFor", messageId);
+        }
+        if (!updates.isEmpty()) {
+            FirebaseDatabase.getInstance().getReference().updateChildren(updates);
+        }
+    }
+
+    private static boolean isNetworkAvailable() {
+        if (connectivityManager == null) {
+            return true;
+        }
+        Network network = connectivityManager.getActiveNetwork();
+        NetworkCapabilities capabilities = network != null
+                ? connectivityManager.getNetworkCapabilities(network)
+                : null;
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    // File storage, always called on the store lane
+
+    private static Boolean saveJob(Job job) {
+        File dir = jobDir;
+        if (dir == null) {
+            return false;
+        }
+        File tmp = new File(dir, job.id + ".tmp");
+        File file = new File(dir, job.id + ".json");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(job.toJson().toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Failed to save translation job " + job.id, e);
+            tmp.delete();
+            return false;
+        }
+        // Rename so a crash mid-write never leaves a truncated job behind
+        return tmp.renameTo(file);
+    }
+
+    private static Boolean deleteJob(Job job) {
+        File dir = jobDir;
+        return dir != null && new File(dir, job.id + ".json").delete();
+    }
+
+    private static List<Job> loadJobs(File dir) {
+        List<Job> loaded = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return loaded;
+        }
+        for (File file : files) {
+            if (!file.getName().endsWith(".json")) {
+                file.delete(); // Leftover from an interrupted write
+                continue;
+            }
+            try (InputStream in = new FileInputStream(file)) {
+                byte[] bytes = new byte[(int) file.length()];
+                int read = 0;
+                while (read < bytes.length) {
+                    int count = in.read(bytes, read, bytes.length - read);
+                    if (count < 0) {
+                        break;
+                    }
+                    read += count;
+                }
+                loaded.add(Job.fromJson(new JSONObject(new String(bytes, 0, read, StandardCharsets.UTF_8))));
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Dropping unreadable translation job " + file.getName(), e);
+                file.delete();
+            }
+        }
+        loaded.sort((a, b) -> Long.compare(a.createdAt, b.createdAt));
+        return loaded;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.appdev.utils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming decoder for translation responses of the form {"translations": {...}, ...}.
+ * Reads straight from the response stream with Gson's JsonReader, skipping everything
+ * except the translations object, so no intermediate String or JSONObject tree is built.
+ */
+public final class TranslationResponseReader {
+
+    // Keys the endpoints use for a single translation, in order of preference
+    private static final String MAIN_TRANSLATION = "main_translation";
+    private static final String[] FALLBACK_KEYS = {"var1", "single", "translation"};
+
+    private TranslationResponseReader() {
+    }
+
+    /**
+     * Read the preferred translation from a full response.
+     * Returns as soon as "main_translation" is seen, without reading the rest of the body.
+     * @return The translation, or null if the response has none
+     */
+    public static String readPreferredTranslation(JsonReader reader) throws IOException {
+        try {
+            if (!moveToTranslations(reader)) {
+                return null;
+            }
+            return readPreferredFromTranslations(reader);
+        } catch (IllegalStateException e) {
+            throw new IOException("Unexpected translation response", e);
+        }
+    }
+
+    /**
+     * Read every variant in the translations object of a full response, in response order
+     * @return The variants keyed by name, empty if the response has none
+     */
+    public static Map<String, String> readAllTranslations(JsonReader reader) throws IOException {
+        Map<String, String> translations = new LinkedHashMap<>();
+        try {
+            if (!moveToTranslations(reader)) {
+                return translations;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                String value = nextStringOrSkip(reader);
+                if (value != null) {
+                    translations.put(key, value);
+                }
+            }
+            reader.endObject();
+            return translations;
+        } catch (IllegalStateException e) {
+            throw new IOException("Unexpected translation response", e);
+        }
+    }
+
+    /**
+     * Read the preferred translation when the reader is positioned at the translations object
+     * itself, e.g. inside a streamed event. Stops at "main_translation".
+     */
+    public static String readPreferredFromTranslations(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String best = null;
+        int bestRank = FALLBACK_KEYS.length;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (MAIN_TRANSLATION.equals(key)) {
+                String value = nextStringOrSkip(reader);
+                if (value != null) {
+                    return value; // Best possible answer, leave the rest unread
+                }
+                continue;
+            }
+
+            int rank = rankOf(key);
+            if (rank < bestRank) {
+                String value = nextStringOrSkip(reader);
+                if (value != null) {
+                    best = value;
+                    bestRank = rank;
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return best;
+    }
+
+    /**
+     * Advance through the top-level object until the value of "translations"
+     * @return false if the response has no translations object
+     */
+    private static boolean moveToTranslations(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return false;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("translations".equals(reader.nextName())) {
+                if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    return true;
+                }
+                reader.skipValue();
+            } else {
+                reader.skipValue();
+            }
+        }
+        return false;
+    }
+
+    private static String nextStringOrSkip(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static int rankOf(String key) {
+        for (int i = 0; i < FALLBACK_KEYS.length; i++) {
+            if (FALLBACK_KEYS[i].equals(key)) {
+                return i;
+            }
+        }
+        return FALLBACK_KEYS.length;
+    }
+}
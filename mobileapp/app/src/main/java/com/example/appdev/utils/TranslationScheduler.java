@@ -0,0 +1,215 @@
+package com.example.appdev.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background scheduler for translation requests.
+ * Replaces AsyncTask.execute(), which ran every translation in the app one at a time
+ * on the global serial executor. Jobs run on a small bounded pool; jobs that share a
+ * lane key (a chat room, group or session id) still run in FIFO order, one at a time,
+ * so messages in the same room are translated in the order they were sent.
+ */
+public final class TranslationScheduler {
+
+    private static final String TAG = "TranslationScheduler";
+
+    // Translation calls are network bound, a few in flight is enough to hide a slow request
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+
+    // Log a warning when this many jobs are waiting to run
+    private static final int QUEUE_DEPTH_WARNING = 10;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    // Per-lane FIFO queues. The head of each queue is the job currently running for that lane.
+    private static final Map<String, ArrayDeque<Runnable>> lanes = new HashMap<>();
+
+    // Metrics
+    private static final AtomicInteger queuedJobs = new AtomicInteger();
+    private static final AtomicInteger runningJobs = new AtomicInteger();
+    private static final AtomicLong completedJobs = new AtomicLong();
+    private static final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    private TranslationScheduler() {
+    }
+
+    /**
+     * Work executed on a background thread
+     */
+    public interface BackgroundJob<T> {
+        T run();
+    }
+
+    /**
+     * Receives the result of a job on the main thread, or null if the job threw
+     */
+    public interface ResultCallback<T> {
+        void onResult(T result);
+    }
+
+    /**
+     * Queue a job with no ordering constraint
+     */
+    public static <T> void submit(BackgroundJob<T> job, ResultCallback<T> callback) {
+        submit(null, job, callback);
+    }
+
+    /**
+     * Queue a job. Jobs with the same non-null lane key run one at a time in submission order;
+     * jobs in different lanes run concurrently up to the pool size.
+     * @param laneKey Room, group or session id used for ordering, or null for none
+     * @param job Work to run on a background thread
+     * @param callback Optional callback invoked on the main thread with the job's result
+     */
+    public static <T> void submit(String laneKey, BackgroundJob<T> job, ResultCallback<T> callback) {
+        Runnable runnable = () -> runJob(job, callback);
+
+        int depth = queuedJobs.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+        if (depth >= QUEUE_DEPTH_WARNING) {
+            Log.w(TAG, "Translation queue depth is " + depth + " (running: " + runningJobs.get() + ")");
+        }
+
+        if (laneKey == null) {
+            executor.execute(runnable);
+            return;
+        }
+
+        synchronized (lanes) {
+            ArrayDeque<Runnable> lane = lanes.get(laneKey);
+            if (lane == null) {
+                lane = new ArrayDeque<>();
+                lanes.put(laneKey, lane);
+                lane.add(runnable);
+                executor.execute(laneRunnable(laneKey, runnable));
+            } else {
+                // A job for this lane is already running, it will start this one when it finishes
+                lane.add(runnable);
+            }
+        }
+    }
+
+    private static Runnable laneRunnable(String laneKey, Runnable runnable) {
+        return () -> {
+            try {
+                runnable.run();
+            } finally {
+                scheduleNext(laneKey);
+            }
+        };
+    }
+
+    private static void scheduleNext(String laneKey) {
+        synchronized (lanes) {
+            ArrayDeque<Runnable> lane = lanes.get(laneKey);
+            if (lane == null) {
+                return;
+            }
+            lane.poll(); // Remove the job that just finished
+            Runnable next = lane.peek();
+            if (next == null) {
+                lanes.remove(laneKey);
+            } else {
+                executor.execute(laneRunnable(laneKey, next));
+            }
+        }
+    }
+
+    private static <T> void runJob(BackgroundJob<T> job, ResultCallback<T> callback) {
+        queuedJobs.decrementAndGet();
+        runningJobs.incrementAndGet();
+        try {
+            T result = job.run();
+            if (callback != null) {
+                mainHandler.post(() -> callback.onResult(result));
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Translation job failed: " + e.getMessage(), e);
+            // Still answer the caller, or whoever waits on the result would wait forever
+            if (callback != null) {
+                mainHandler.post(() -> callback.onResult(null));
+            }
+        } finally {
+            runningJobs.decrementAndGet();
+            completedJobs.incrementAndGet();
+        }
+    }
+
+    /**
+     * Number of jobs submitted but not yet started
+     */
+    public static int getQueueDepth() {
+        return queuedJobs.get();
+    }
+
+    /**
+     * Number of jobs currently running
+     */
+    public static int getRunningCount() {
+        return runningJobs.get();
+    }
+
+    /**
+     * Number of jobs waiting or running in the given lane
+     */
+    public static int getLaneDepth(String laneKey) {
+        synchronized (lanes) {
+            ArrayDeque<Runnable> lane = lanes.get(laneKey);
+            return lane != null ? lane.size() : 0;
+        }
+    }
+
+    /**
+     * Summary of the scheduler state for logging and development builds
+     */
+    public static String getStats() {
+        int activeLanes;
+        synchronized (lanes) {
+            activeLanes = lanes.size();
+        }
+        return "queued=" + queuedJobs.get()
+                + ", running=" + runningJobs.get()
+                + ", completed=" + completedJobs.get()
+                + ", maxQueued=" + maxQueueDepth.get()
+                + ", activeLanes=" + activeLanes;
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }, "translation-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_PARALLEL_REQUESTS, MAX_PARALLEL_REQUESTS,
+                30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
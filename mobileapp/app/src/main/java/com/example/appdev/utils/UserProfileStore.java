@@ -0,0 +1,225 @@
+package com.example.appdev.utils;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.appdev.helpers.SnapshotMappers;
+import com.example.appdev.models.User;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Process-wide cache of users/{userId} profiles.
+ * Each profile is read through one listener on its own node, shared by every subscriber
+ * and detached when the last subscriber leaves. Profiles nobody watches any more stay in
+ * a bounded LRU, so reopening a chat shows names and pictures straight away.
+ * Observers are only called when a profile actually changes, never from subscribe().
+ * Main thread only.
+ */
+public final class UserProfileStore {
+
+    private static final String TAG = "UserProfileStore";
+
+    private static final int MAX_CACHED_PROFILES = 200;
+
+    public interface Observer {
+        void onProfileChanged(String userId, User profile);
+    }
+
+    private static final class Cached {
+        final User profile;
+        final int hash;
+
+        Cached(User profile, int hash) {
+            this.profile = profile;
+            this.hash = hash;
+        }
+    }
+
+    private static final class LiveProfile {
+        final DatabaseReference ref;
+        final ValueEventListener listener;
+        final List<Observer> observers = new ArrayList<>();
+
+        LiveProfile(DatabaseReference ref, ValueEventListener listener) {
+            this.ref = ref;
+            this.listener = listener;
+        }
+    }
+
+    private static final LruCache<String, Cached> profiles = new LruCache<>(MAX_CACHED_PROFILES);
+    private static final Map<String, LiveProfile> live = new HashMap<>();
+
+    private UserProfileStore() {
+    }
+
+    /**
+     * Start receiving changes to a user's profile. Use peek() for the current value.
+     */
+    public static void subscribe(String userId, Observer observer) {
+        if (userId == null || userId.isEmpty() || observer == null) {
+            return;
+        }
+        LiveProfile entry = live.get(userId);
+        if (entry == null) {
+            DatabaseReference ref = FirebaseDatabase.getInstance().getReference("users").child(userId);
+            ValueEventListener listener = new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    onProfileSnapshot(userId, snapshot);
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    Log.e(TAG, "Profile listener for " + userId + " cancelled: " + error.getMessage());
+                }
+            };
+            entry = new LiveProfile(ref, listener);
+            live.put(userId, entry);
+            ref.addValueEventListener(listener);
+        }
+        entry.observers.add(observer);
+    }
+
+    /**
+     * Stop receiving changes. The listener on the profile is removed with its last observer.
+     */
+    public static void unsubscribe(String userId, Observer observer) {
+        LiveProfile entry = userId != null ? live.get(userId) : null;
+        if (entry == null) {
+            return;
+        }
+        entry.observers.remove(observer);
+        if (entry.observers.isEmpty()) {
+            entry.ref.removeEventListener(entry.listener);
+            live.remove(userId);
+        }
+    }
+
+    /**
+     * The last known profile of a user, or null if it has not been loaded yet
+     */
+    @Nullable
+    public static User peek(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        Cached cached = profiles.get(userId);
+        return cached != null ? cached.profile : null;
+    }
+
+    @Nullable
+    public static String getUsername(String userId) {
+        User profile = peek(userId);
+        return profile != null ? emptyToNull(profile.getUsername()) : null;
+    }
+
+    @Nullable
+    public static String getProfileImageUrl(String userId) {
+        User profile = peek(userId);
+        return profile != null ? emptyToNull(profile.getProfileImageUrl()) : null;
+    }
+
+    private static void onProfileSnapshot(String userId, DataSnapshot snapshot) {
+        LiveProfile entry = live.get(userId);
+        if (entry == null || !snapshot.exists()) {
+            return;
+        }
+        int hash = Objects.hashCode(snapshot.getValue());
+        Cached previous = profiles.get(userId);
+        if (previous != null && previous.hash == hash) {
+            return; // Initial read of a profile we already had
+        }
+
+        User profile = SnapshotMappers.toUser(snapshot);
+        if (profile == null) {
+            return;
+        }
+        profile.setUserId(userId);
+        profiles.put(userId, new Cached(profile, hash));
+
+        // Copy, observers may unsubscribe while being notified
+        for (Observer observer : new ArrayList<>(entry.observers)) {
+            observer.onProfileChanged(userId, profile);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Reference-counted subscriptions for the users shown by one adapter's bound rows.
+     * Rows acquire the users they display when bound and release them when recycled.
+     */
+    public static final class Subscriptions {
+        private final Observer observer;
+        private final Map<String, Integer> counts = new HashMap<>();
+
+        public Subscriptions(Observer observer) {
+            this.observer = observer;
+        }
+
+        public void acquire(String userId) {
+            if (userId == null || userId.isEmpty()) {
+                return;
+            }
+            Integer count = counts.get(userId);
+            if (count == null) {
+                subscribe(userId, observer);
+                count = 0;
+            }
+            counts.put(userId, count + 1);
+        }
+
+        public void release(String userId) {
+            Integer count = userId != null ? counts.get(userId) : null;
+            if (count == null) {
+                return;
+            }
+            if (count <= 1) {
+                counts.remove(userId);
+                unsubscribe(userId, observer);
+            } else {
+                counts.put(userId, count - 1);
+            }
+        }
+
+        /**
+         * Swap the users held by one row for a new set
+         */
+        public void rebind(List<String> heldIds, String... userIds) {
+            // Acquire before releasing so a row rebound to the same user keeps its listener
+            List<String> previous = new ArrayList<>(heldIds);
+            heldIds.clear();
+            for (String userId : userIds) {
+                if (userId != null && !userId.isEmpty()) {
+                    acquire(userId);
+                    heldIds.add(userId);
+                }
+            }
+            for (String userId : previous) {
+                release(userId);
+            }
+        }
+
+        public void releaseAll() {
+            for (String userId : counts.keySet()) {
+                unsubscribe(userId, observer);
+            }
+            counts.clear();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.appdev.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.appdev.helpers.UserSearchIndex;
+import com.example.appdev.models.User;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Debounced prefix search over user_search_index.
+ * A query runs as two bounded index queries (username and email prefix), so its cost
+ * depends on the number of results, not the number of users. Typing cancels the query
+ * in flight, and results from a superseded query are never delivered.
+ * Main thread only.
+ */
+public final class UserSearch {
+
+    private static final String TAG = "UserSearch";
+
+    public static final int DEFAULT_LIMIT = 25;
+    private static final long DEBOUNCE_MS = 250;
+
+    // Highest code point in the BMP private use area, closes a prefix range
+    private static final String PREFIX_END = "\uf8ff";
+
+    public interface Callback {
+        /** Matches for a query, ordered by username. An empty query returns the first page of users. */
+        void onResults(String query, List<User> users);
+
+        default void onError(DatabaseError error) {
+            Log.e(TAG, "User search failed: " + error.getMessage());
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final DatabaseReference indexRef = FirebaseDatabase.getInstance().getReference(UserSearchIndex.NODE);
+    private final int limit;
+    private final Callback callback;
+
+    private final List<Query> pendingQueries = new ArrayList<>();
+    private final List<ValueEventListener> pendingListeners = new ArrayList<>();
+    private Runnable scheduledSearch;
+    private int generation = 0;
+
+    public UserSearch(Callback callback) {
+        this(DEFAULT_LIMIT, callback);
+    }
+
+    public UserSearch(int limit, Callback callback) {
+        this.limit = limit;
+        this.callback = callback;
+    }
+
+    /**
+     * Search after the user stops typing for a moment
+     */
+    public void search(String query) {
+        cancel();
+        int searchGeneration = generation;
+        scheduledSearch = () -> run(query, searchGeneration);
+        handler.postDelayed(scheduledSearch, DEBOUNCE_MS);
+    }
+
+    /**
+     * Search straight away, e.g. to fill the list when a screen opens
+     */
+    public void searchNow(String query) {
+        cancel();
+        run(query, generation);
+    }
+
+    /**
+     * Drop the scheduled search and any query in flight
+     */
+    public void cancel() {
+        generation++;
+        if (scheduledSearch != null) {
+            handler.removeCallbacks(scheduledSearch);
+            scheduledSearch = null;
+        }
+        for (int i = 0; i < pendingQueries.size(); i++) {
+            pendingQueries.get(i).removeEventListener(pendingListeners.get(i));
+        }
+        pendingQueries.clear();
+        pendingListeners.clear();
+    }
+
+    private void run(String query, int searchGeneration) {
+        scheduledSearch = null;
+        String prefix = UserSearchIndex.normalize(query);
+
+        List<Query> queries = new ArrayList<>();
+        if (prefix.isEmpty()) {
+            queries.add(indexRef.orderByChild(UserSearchIndex.USERNAME_KEY).limitToFirst(limit));
+        } else {
+            queries.add(prefixQuery(UserSearchIndex.USERNAME_KEY, prefix));
+            queries.add(prefixQuery(UserSearchIndex.EMAIL_KEY, prefix));
+        }
+
+        // Merged by user id, so a user matching on both keys is listed once
+        Map<String, User> matches = new LinkedHashMap<>();
+        int[] remaining = {queries.size()};
+        for (Query indexQuery : queries) {
+            ValueEventListener listener = new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    if (searchGeneration != generation) {
+                        return;
+                    }
+                    for (DataSnapshot entry : snapshot.getChildren()) {
+                        User user = UserSearchIndex.toUser(entry);
+                        if (user != null) {
+                            matches.put(user.getUserId(), user);
+                        }
+                    }
+                    if (--remaining[0] == 0) {
+                        deliver(query, matches);
+                    }
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    if (searchGeneration == generation) {
+                        cancel();
+                        callback.onError(error);
+                    }
+                }
+            };
+            pendingQueries.add(indexQuery);
+            pendingListeners.add(listener);
+            indexQuery.addListenerForSingleValueEvent(listener);
+        }
+    }
+
+    private Query prefixQuery(String key, String prefix) {
+        return indexRef.orderByChild(key).startAt(prefix).endAt(prefix + PREFIX_END).limitToFirst(limit);
+    }
+
+    private void deliver(String query, Map<String, User> matches) {
+        pendingQueries.clear();
+        pendingListeners.clear();
+        List<User> users = new ArrayList<>(matches.values());
+        users.sort((u1, u2) -> UserSearchIndex.normalize(u1.getUsername())
+                .compareTo(UserSearchIndex.normalize(u2.getUsername())));
+        if (users.size() > limit) {
+            users = new ArrayList<>(users.subList(0, limit));
+        }
+        callback.onResults(query, users);
+    }
+}
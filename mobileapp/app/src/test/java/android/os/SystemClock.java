@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * Local-test stand-in for the clock the translation client times requests with
+ */
+public final class SystemClock {
+
+    private SystemClock() {
+    }
+
+    public static long elapsedRealtime() {
+        return System.nanoTime() / 1_000_000;
+    }
+}
@@ -0,0 +1,29 @@
+package android.util;
+
+/**
+ * Local-test stand-in for the calls the translation client makes, printed to stdout.
+ * Test classes come before android.jar on the local test classpath, so this one is used
+ * and any other Android call still fails loudly.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int d(String tag, String msg) {
+        return print("D", tag, msg, null);
+    }
+
+    public static int w(String tag, String msg) {
+        return print("W", tag, msg, null);
+    }
+
+    public static int w(String tag, String msg, Throwable tr) {
+        return print("W", tag, msg, tr);
+    }
+
+    private static int print(String level, String tag, String msg, Throwable tr) {
+        System.out.println(level + "/" + tag + ": " + msg + (tr != null ? " (" + tr + ")" : ""));
+        return 0;
+    }
+}
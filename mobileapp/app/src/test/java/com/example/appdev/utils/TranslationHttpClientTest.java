@@ -0,0 +1,125 @@
+package com.example.appdev.utils;
+
+import com.example.appdev.Variables;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests for TranslationHttpClient.postJsonStreaming against a mock backend
+ */
+public class TranslationHttpClientTest {
+
+    private MockWebServer server;
+    private boolean wasHedgingEnabled;
+
+    @Before
+    public void setUp() throws Exception {
+        // Hedging would race a second copy of the request against the mock server
+        wasHedgingEnabled = Variables.isRequestHedgingEnabled;
+        Variables.isRequestHedgingEnabled = false;
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        Variables.isRequestHedgingEnabled = wasHedgingEnabled;
+    }
+
+    @Test
+    public void eventStream_reportsPartialsAndReturnsFinalTranslation() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(": keep-alive\n\n"
+                        + "data: {\"delta\":\"Hola\"}\n\n"
+                        + "data: {\"delta\":\" mundo\"}\n\n"
+                        + "data: {\"translations\":{\"var1\":\"Hola mundo\",\"main_translation\":\"Hola, mundo\"}}\n\n"
+                        + "data: [DONE]\n\n"
+                        + "data: {\"delta\":\" ignored\"}\n\n"));
+
+        List<String> partials = Collections.synchronizedList(new ArrayList<>());
+        TranslationHttpClient.DecodedResponse<String> response = TranslationHttpClient.postJsonStreaming(
+                server.url("/translate").toString(), requestBody(), partials::add);
+
+        assertTrue(response.isSuccessful());
+        assertEquals("Hola, mundo", response.value);
+        assertNull(response.errorBody);
+        assertEquals(Arrays.asList("Hola", "Hola mundo"), partials);
+
+        RecordedRequest request = server.takeRequest();
+        assertTrue(request.getHeader("Accept").contains("text/event-stream"));
+        assertTrue(new JSONObject(request.getBody().readUtf8()).getBoolean("stream"));
+    }
+
+    @Test
+    public void eventStream_withoutFinalEvent_returnsAccumulatedDeltas() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream; charset=utf-8")
+                .setBody("data: {\"delta\":\"Bon\"}\n\n"
+                        + "data: not json\n\n"
+                        + "data: {\"delta\":\"jour\"}\n\n"
+                        + "data: [DONE]\n\n"));
+
+        List<String> partials = Collections.synchronizedList(new ArrayList<>());
+        TranslationHttpClient.DecodedResponse<String> response = TranslationHttpClient.postJsonStreaming(
+                server.url("/translate").toString(), requestBody(), partials::add);
+
+        assertEquals("Bonjour", response.value);
+        assertEquals(Arrays.asList("Bon", "Bonjour"), partials);
+    }
+
+    @Test
+    public void plainJsonResponse_fallsBackToPreferredTranslation() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"source_language\":\"English\","
+                        + "\"translations\":{\"var2\":\"Hallo Welt!\",\"var1\":\"Hallo Welt\"},"
+                        + "\"model\":\"gemini\"}"));
+
+        List<String> partials = Collections.synchronizedList(new ArrayList<>());
+        TranslationHttpClient.DecodedResponse<String> response = TranslationHttpClient.postJsonStreaming(
+                server.url("/translate").toString(), requestBody(), partials::add);
+
+        assertTrue(response.isSuccessful());
+        assertEquals("Hallo Welt", response.value);
+        assertTrue(partials.isEmpty());
+    }
+
+    @Test
+    public void errorResponse_keepsBodyForTheCaller() throws Exception {
+        server.enqueue(new MockResponse()
+                .setResponseCode(400)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"error\":\"Unsupported language\"}"));
+
+        TranslationHttpClient.DecodedResponse<String> response = TranslationHttpClient.postJsonStreaming(
+                server.url("/translate").toString(), requestBody(), null);
+
+        assertFalse(response.isSuccessful());
+        assertEquals(400, response.code);
+        assertNull(response.value);
+        assertEquals("{\"error\":\"Unsupported language\"}", response.errorBody);
+    }
+
+    private static JSONObject requestBody() throws Exception {
+        return new JSONObject()
+                .put("text", "Hello world")
+                .put("source_language", "English")
+                .put("target_language", "Spanish");
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.appdev.utils;
+
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests for decoding non-streamed translation responses
+ */
+public class TranslationResponseReaderTest {
+
+    @Test
+    public void preferredTranslation_isMainTranslationWhenPresent() throws IOException {
+        String json = "{\"translations\":{\"var1\":\"Hola\",\"main_translation\":\"Hola!\"},\"extra\":[1,2]}";
+        assertEquals("Hola!", TranslationResponseReader.readPreferredTranslation(reader(json)));
+    }
+
+    @Test
+    public void preferredTranslation_fallsBackInKeyOrder() throws IOException {
+        String json = "{\"model\":{\"name\":\"claude\"},"
+                + "\"translations\":{\"translation\":\"c\",\"single\":\"b\",\"var1\":\"a\",\"var2\":\"z\"}}";
+        assertEquals("a", TranslationResponseReader.readPreferredTranslation(reader(json)));
+    }
+
+    @Test
+    public void preferredTranslation_isNullWithoutTranslations() throws IOException {
+        assertNull(TranslationResponseReader.readPreferredTranslation(reader("{\"error\":\"busy\"}")));
+        assertNull(TranslationResponseReader.readPreferredTranslation(reader("{\"translations\":\"none\"}")));
+        assertNull(TranslationResponseReader.readPreferredTranslation(reader("[]")));
+    }
+
+    @Test
+    public void allTranslations_keepResponseOrderAndSkipNonText() throws IOException {
+        String json = "{\"translations\":{\"var2\":\"b\",\"var1\":\"a\",\"notes\":{\"x\":1},\"var3\":\"c\"}}";
+        Map<String, String> translations = TranslationResponseReader.readAllTranslations(reader(json));
+        assertArrayEquals(new String[]{"var2", "var1", "var3"}, translations.keySet().toArray());
+        assertEquals("a", translations.get("var1"));
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedResponse_throwsIOException() throws IOException {
+        TranslationResponseReader.readPreferredTranslation(reader("{\"translations\":{\"var1\":}}"));
+    }
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(new StringReader(json));
+    }
+}
@@ -0,0 +1,40 @@
+"""
+Helpers for the one-time commands that build the app's indexes from data written before
+the indexes existed. Every read is shallow or bounded, and every write is a multi-path
+update from the root, like the ones the app makes.
+"""
+from firebase_admin import db
+
+# Paths per multi-path update, to keep each write well under the database's size limits
+UPDATE_CHUNK_SIZE = 500
+
+
+def child_keys(path):
+    """Keys of a node's children, without downloading the children."""
+    value = db.reference(path).get(shallow=True)
+    return list(value.keys()) if isinstance(value, dict) else []
+
+
+def exists(path):
+    return db.reference(path).get(shallow=True) is not None
+
+
+def newest_child(path, order_by='timestamp'):
+    """The (key, value) of a node's newest child by order_by, or None if it has none."""
+    value = db.reference(path).order_by_child(order_by).limit_to_last(1).get()
+    if not value:
+        return None
+    key = next(iter(value))
+    return key, value[key]
+
+
+def write_updates(updates, dry_run, stdout):
+    """Write a multi-path update in chunks. Returns the number of paths written."""
+    paths = list(updates.items())
+    if dry_run:
+        for path, _ in paths:
+            stdout.write(f'would write {path}')
+        return 0
+    for start in range(0, len(paths), UPDATE_CHUNK_SIZE):
+        db.reference().update(dict(paths[start:start + UPDATE_CHUNK_SIZE]))
+    return len(paths)
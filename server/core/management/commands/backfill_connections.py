@@ -0,0 +1,51 @@
+from django.core.management.base import BaseCommand
+from firebase_admin import db
+
+from ..backfill import child_keys, exists, newest_child, write_updates
+
+
+class Command(BaseCommand):
+    help = (
+        'Write the connections/{uid}/{otherUid} records for connect sessions held before the '
+        'index existed. Existing records are left alone, so it is safe to run again.'
+    )
+
+    def add_arguments(self, parser):
+        parser.add_argument('--dry-run', action='store_true', help='List the records without writing them')
+
+    def handle(self, *args, **options):
+        updates = {}
+
+        # Session IDs are the two participants' user IDs sorted and joined with an underscore
+        for session_id in child_keys('connect_chats'):
+            user_ids = session_id.split('_')
+            if len(user_ids) != 2:
+                self.stderr.write(f'Skipping session {session_id}: not two user IDs')
+                continue
+            pairs = [(uid, other) for uid, other in (user_ids, user_ids[::-1])
+                     if not exists(f'connections/{uid}/{other}')]
+            if not pairs:
+                continue
+            record = self.record_of(session_id)
+            if record is None:
+                continue
+            for uid, other_uid in pairs:
+                updates[f'connections/{uid}/{other_uid}'] = record
+
+        written = write_updates(updates, options['dry_run'], self.stdout)
+        self.stdout.write(self.style.SUCCESS(f'{len(updates)} connection records missing, {written} written'))
+
+    @staticmethod
+    def record_of(session_id):
+        # Same fields as ConnectionsIndex in the app. Only the newest message and the session's
+        # keys and end markers are read, never the whole conversation.
+        newest = newest_child(f'connect_chats/{session_id}')
+        if newest is None:
+            return None
+        _, message = newest
+        session_ends = db.reference(f'connect_chats/{session_id}').order_by_child('isSessionEnd').equal_to(True).get()
+        return {
+            'lastSessionId': session_id,
+            'lastActivity': message.get('timestamp') or 0,
+            'messageCount': len(child_keys(f'connect_chats/{session_id}')) - len(session_ends or {}),
+        }
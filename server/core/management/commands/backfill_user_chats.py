@@ -0,0 +1,60 @@
+from django.core.management.base import BaseCommand
+
+from ..backfill import child_keys, exists, newest_child, write_updates
+
+
+class Command(BaseCommand):
+    help = (
+        'Write the user_chats/{uid}/{chatId} summaries for chats that predate the index, '
+        "from each room's newest message. Existing summaries are left alone, so it is safe "
+        'to run again.'
+    )
+
+    def add_arguments(self, parser):
+        parser.add_argument('--dry-run', action='store_true', help='List the summaries without writing them')
+
+    def handle(self, *args, **options):
+        updates = {}
+
+        # Direct rooms are named after the two user IDs sorted and joined with an underscore
+        for room_id in child_keys('messages'):
+            user_ids = room_id.split('_')
+            if len(user_ids) != 2:
+                self.stderr.write(f'Skipping room {room_id}: not two user IDs')
+                continue
+            missing = [uid for uid in user_ids if not exists(f'user_chats/{uid}/{room_id}')]
+            if not missing:
+                continue
+            newest = newest_child(f'messages/{room_id}')
+            if newest is None:
+                continue
+            for uid in missing:
+                other_uid = user_ids[1] if uid == user_ids[0] else user_ids[0]
+                summary = self.summary_of('direct', *newest)
+                summary['otherUserId'] = other_uid
+                updates[f'user_chats/{uid}/{room_id}'] = summary
+
+        for group_id in child_keys('group_messages'):
+            missing = [uid for uid in child_keys(f'groups/{group_id}/members')
+                       if not exists(f'user_chats/{uid}/{group_id}')]
+            if not missing:
+                continue
+            newest = newest_child(f'group_messages/{group_id}')
+            if newest is None:
+                continue
+            for uid in missing:
+                updates[f'user_chats/{uid}/{group_id}'] = self.summary_of('group', *newest)
+
+        written = write_updates(updates, options['dry_run'], self.stdout)
+        self.stdout.write(self.style.SUCCESS(f'{len(updates)} chat summaries missing, {written} written'))
+
+    @staticmethod
+    def summary_of(chat_type, message_id, message):
+        # Same fields as UserChatsIndex.baseSummary in the app
+        return {
+            'type': chat_type,
+            'lastMessageId': message_id,
+            'lastMessage': message.get('message'),
+            'lastMessageSenderId': message.get('senderId'),
+            'lastMessageTime': message.get('timestamp') or 0,
+        }
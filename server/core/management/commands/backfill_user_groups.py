@@ -0,0 +1,23 @@
+from django.core.management.base import BaseCommand
+
+from ..backfill import child_keys, exists, write_updates
+
+
+class Command(BaseCommand):
+    help = (
+        'Write the user_groups/{uid}/{groupId} entries for members who joined before the '
+        'index existed. Existing entries are left alone, so it is safe to run again.'
+    )
+
+    def add_arguments(self, parser):
+        parser.add_argument('--dry-run', action='store_true', help='List the entries without writing them')
+
+    def handle(self, *args, **options):
+        updates = {}
+        for group_id in child_keys('groups'):
+            for uid in child_keys(f'groups/{group_id}/members'):
+                if not exists(f'user_groups/{uid}/{group_id}'):
+                    updates[f'user_groups/{uid}/{group_id}'] = True
+
+        written = write_updates(updates, options['dry_run'], self.stdout)
+        self.stdout.write(self.style.SUCCESS(f'{len(updates)} group entries missing, {written} written'))